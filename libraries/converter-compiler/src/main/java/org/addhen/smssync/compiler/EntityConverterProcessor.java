@@ -0,0 +1,504 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a cupboard {@code EntityConverter} for every class annotated with {@code
+ * GenerateConverter}. The converter reads and writes the fields of the entity directly, so it's
+ * put in the same package as the entity, and it looks up the column indexes once per cursor
+ * rather than once per row.
+ * <p/>
+ * The columns are the ones cupboard's reflective converter would map: every field of the class
+ * and its superclasses that isn't static, transient or annotated with {@code Ignore}, named
+ * after the field or its {@code Column} annotation. Enums are stored by name, dates as
+ * milliseconds and booleans as 0 or 1, the same as cupboard does.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class EntityConverterProcessor extends AbstractProcessor {
+
+    static final String GENERATE_CONVERTER
+            = "org.addhen.smssync.data.database.converter.GenerateConverter";
+
+    private static final String COLUMN = "nl.qbusict.cupboard.annotation.Column";
+
+    private static final String IGNORE = "nl.qbusict.cupboard.annotation.Ignore";
+
+    private static final String INDEX = "nl.qbusict.cupboard.annotation.Index";
+
+    private static final String ID = "_id";
+
+    static final String SUFFIX = "EntityConverter";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(GENERATE_CONVERTER);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "Only classes can have a generated converter");
+                    continue;
+                }
+                TypeElement entity = (TypeElement) element;
+                List<Property> properties = getProperties(entity);
+                if (properties != null) {
+                    write(entity, properties);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The properties of the entity, or null when it can't have a generated converter
+     */
+    private List<Property> getProperties(TypeElement entity) {
+        boolean valid = true;
+        if (entity.getNestingKind().isNested()) {
+            error(entity, "Entities with a generated converter must be top level classes");
+            valid = false;
+        }
+        if (!hasNoArgConstructor(entity)) {
+            error(entity, "Entities with a generated converter need a no argument constructor");
+            valid = false;
+        }
+
+        // Superclass fields first, so the id is the first column
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement type = entity; type != null; type = getSuperclass(type)) {
+            hierarchy.add(0, type);
+        }
+        List<Property> properties = new ArrayList<>();
+        boolean hasId = false;
+        for (TypeElement type : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+                        || getAnnotation(field, IGNORE) != null) {
+                    continue;
+                }
+                if (getAnnotation(field, INDEX) != null) {
+                    error(field, "Indexes aren't supported by generated converters");
+                    valid = false;
+                }
+                if (modifiers.contains(Modifier.PRIVATE)) {
+                    error(field, "Fields of entities with a generated converter can't be private");
+                    valid = false;
+                    continue;
+                }
+                Kind kind = Kind.of(field.asType());
+                if (kind == null) {
+                    error(field, "Fields of type %s aren't supported by generated converters",
+                            field.asType());
+                    valid = false;
+                    continue;
+                }
+                final String name = field.getSimpleName().toString();
+                if (ID.equals(name)) {
+                    if (kind != Kind.LONG) {
+                        error(field, "The _id field must be a long");
+                        valid = false;
+                    }
+                    hasId = true;
+                }
+                AnnotationMirror column = getAnnotation(field, COLUMN);
+                properties.add(new Property(name,
+                        column != null ? (String) getValue(column) : name, kind,
+                        field.asType()));
+            }
+        }
+        if (!hasId) {
+            error(entity, "Entities with a generated converter need an _id field");
+            valid = false;
+        }
+        return valid ? properties : null;
+    }
+
+    private void write(TypeElement entity, List<Property> properties) {
+        final String packageName = ((PackageElement) getPackage(entity)).getQualifiedName()
+                .toString();
+        final String entityName = entity.getSimpleName().toString();
+        final String converterName = entityName + SUFFIX;
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated code from ").append(entity.getQualifiedName())
+                .append(". Do not modify!\n");
+        out.append("package ").append(packageName).append(";\n\n");
+        out.append("import android.content.ContentValues;\n");
+        out.append("import android.database.Cursor;\n\n");
+        out.append("import java.lang.ref.WeakReference;\n");
+        out.append("import java.util.Arrays;\n");
+        out.append("import java.util.Collections;\n");
+        out.append("import java.util.List;\n\n");
+        out.append("import nl.qbusict.cupboard.convert.EntityConverter;\n\n");
+        out.append("public final class ").append(converterName)
+                .append(" implements EntityConverter<").append(entityName).append("> {\n\n");
+
+        out.append("    private static final String[] COLUMN_NAMES = {");
+        for (int i = 0; i < properties.size(); i++) {
+            out.append(i == 0 ? "" : ", ").append('"').append(properties.get(i).column)
+                    .append('"');
+        }
+        out.append("};\n\n");
+        out.append("    private static final List<Column> COLUMNS = Collections.unmodifiableList(")
+                .append("Arrays.asList(\n");
+        for (int i = 0; i < properties.size(); i++) {
+            out.append("            new Column(COLUMN_NAMES[").append(i).append("], ColumnType.")
+                    .append(properties.get(i).kind.columnType).append(")")
+                    .append(i < properties.size() - 1 ? ",\n" : "));\n\n");
+        }
+        out.append("    private volatile ColumnIndexes mColumnIndexes;\n\n");
+
+        out.append("    @Override\n");
+        out.append("    public ").append(entityName).append(" fromCursor(Cursor cursor) {\n");
+        out.append("        final int[] indexes = getColumnIndexes(cursor);\n");
+        out.append("        final ").append(entityName).append(" entity = new ").append(entityName)
+                .append("();\n");
+        out.append("        int index;\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            out.append("        index = indexes[").append(i).append("];\n");
+            if (property.isPrimitive()) {
+                out.append("        if (index >= 0 && !cursor.isNull(index)) {\n");
+                out.append("            entity.").append(property.field).append(" = ")
+                        .append(property.read()).append(";\n");
+            } else {
+                out.append("        if (index >= 0) {\n");
+                out.append("            entity.").append(property.field)
+                        .append(" = cursor.isNull(index) ? null : ").append(property.read())
+                        .append(";\n");
+            }
+            out.append("        }\n");
+        }
+        out.append("        return entity;\n");
+        out.append("    }\n\n");
+
+        out.append("    @Override\n");
+        out.append("    public void toValues(").append(entityName)
+                .append(" entity, ContentValues values) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            final String column = "COLUMN_NAMES[" + i + "]";
+            if (property.isPrimitive()) {
+                out.append("        values.put(").append(column).append(", ")
+                        .append(property.write()).append(");\n");
+            } else {
+                out.append("        if (entity.").append(property.field).append(" != null) {\n");
+                out.append("            values.put(").append(column).append(", ")
+                        .append(property.write()).append(");\n");
+                out.append("        }");
+                if (ID.equals(property.field)) {
+                    // Leaving the id out lets the database assign one
+                    out.append("\n");
+                } else {
+                    out.append(" else {\n");
+                    out.append("            values.putNull(").append(column).append(");\n");
+                    out.append("        }\n");
+                }
+            }
+        }
+        out.append("    }\n\n");
+
+        out.append("    @Override\n");
+        out.append("    public List<Column> getColumns() {\n");
+        out.append("        return COLUMNS;\n");
+        out.append("    }\n\n");
+        out.append("    @Override\n");
+        out.append("    public void setId(Long id, ").append(entityName).append(" instance) {\n");
+        out.append("        instance._id = id;\n");
+        out.append("    }\n\n");
+        out.append("    @Override\n");
+        out.append("    public Long getId(").append(entityName).append(" instance) {\n");
+        out.append("        return instance._id;\n");
+        out.append("    }\n\n");
+        out.append("    @Override\n");
+        out.append("    public String getTable() {\n");
+        out.append("        return \"").append(entityName).append("\";\n");
+        out.append("    }\n\n");
+
+        out.append("    private int[] getColumnIndexes(Cursor cursor) {\n");
+        out.append("        ColumnIndexes columnIndexes = mColumnIndexes;\n");
+        out.append("        if (columnIndexes == null || columnIndexes.cursor.get() != cursor) {\n");
+        out.append("            final int[] indexes = new int[COLUMN_NAMES.length];\n");
+        out.append("            for (int i = 0; i < indexes.length; i++) {\n");
+        out.append("                indexes[i] = cursor.getColumnIndex(COLUMN_NAMES[i]);\n");
+        out.append("            }\n");
+        out.append("            columnIndexes = new ColumnIndexes(cursor, indexes);\n");
+        out.append("            mColumnIndexes = columnIndexes;\n");
+        out.append("        }\n");
+        out.append("        return columnIndexes.indexes;\n");
+        out.append("    }\n\n");
+
+        if (hasEnums(properties)) {
+            out.append("    private static <E extends Enum<E>> E toEnum(Class<E> type, String name) {\n");
+            out.append("        try {\n");
+            out.append("            return Enum.valueOf(type, name);\n");
+            out.append("        } catch (IllegalArgumentException e) {\n");
+            out.append("            // Older versions saved some enums in lower case\n");
+            out.append("            return Enum.valueOf(type, name.toUpperCase(java.util.Locale.US));\n");
+            out.append("        }\n");
+            out.append("    }\n\n");
+        }
+
+        out.append("    /**\n");
+        out.append("     * The column indexes of the last cursor read from\n");
+        out.append("     */\n");
+        out.append("    private static final class ColumnIndexes {\n\n");
+        out.append("        final WeakReference<Cursor> cursor;\n\n");
+        out.append("        final int[] indexes;\n\n");
+        out.append("        ColumnIndexes(Cursor cursor, int[] indexes) {\n");
+        out.append("            this.cursor = new WeakReference<>(cursor);\n");
+        out.append("            this.indexes = indexes;\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        out.append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(packageName + "." + converterName, entity);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(out.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(entity, "Couldn't write the converter: %s", e.getMessage());
+        }
+    }
+
+    private static boolean hasEnums(List<Property> properties) {
+        for (Property property : properties) {
+            if (property.kind == Kind.ENUM) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasNoArgConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter
+                .constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private static Element getPackage(Element element) {
+        while (element.getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return element;
+    }
+
+    private static AnnotationMirror getAnnotation(Element element, String name) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(name)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static Object getValue(AnnotationMirror annotation) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private void error(Element element, String message, Object... args) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, String.format(message, args), element);
+    }
+
+    /**
+     * How a field is stored
+     */
+    enum Kind {
+        STRING("TEXT", "cursor.getString(index)"),
+        INT("INTEGER", "cursor.getInt(index)"),
+        LONG("INTEGER", "cursor.getLong(index)"),
+        SHORT("INTEGER", "cursor.getShort(index)"),
+        BYTE("INTEGER", "(byte) cursor.getInt(index)"),
+        BOOLEAN("INTEGER", "cursor.getInt(index) != 0"),
+        FLOAT("REAL", "cursor.getFloat(index)"),
+        DOUBLE("REAL", "cursor.getDouble(index)"),
+        DATE("INTEGER", "new java.util.Date(cursor.getLong(index))"),
+        BLOB("BLOB", "cursor.getBlob(index)"),
+        ENUM("TEXT", null);
+
+        final String columnType;
+
+        final String read;
+
+        Kind(String columnType, String read) {
+            this.columnType = columnType;
+            this.read = read;
+        }
+
+        static Kind of(TypeMirror type) {
+            switch (type.getKind()) {
+                case INT:
+                    return INT;
+                case LONG:
+                    return LONG;
+                case SHORT:
+                    return SHORT;
+                case BYTE:
+                    return BYTE;
+                case BOOLEAN:
+                    return BOOLEAN;
+                case FLOAT:
+                    return FLOAT;
+                case DOUBLE:
+                    return DOUBLE;
+                case ARRAY:
+                    return ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE
+                            ? BLOB : null;
+                case DECLARED:
+                    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                    if (element.getKind() == ElementKind.ENUM) {
+                        return ENUM;
+                    }
+                    switch (element.getQualifiedName().toString()) {
+                        case "java.lang.String":
+                            return STRING;
+                        case "java.lang.Integer":
+                            return INT;
+                        case "java.lang.Long":
+                            return LONG;
+                        case "java.lang.Short":
+                            return SHORT;
+                        case "java.lang.Byte":
+                            return BYTE;
+                        case "java.lang.Boolean":
+                            return BOOLEAN;
+                        case "java.lang.Float":
+                            return FLOAT;
+                        case "java.lang.Double":
+                            return DOUBLE;
+                        case "java.util.Date":
+                            return DATE;
+                        default:
+                            return null;
+                    }
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * A field of an entity and the column it's stored in
+     */
+    static class Property {
+
+        final String field;
+
+        final String column;
+
+        final Kind kind;
+
+        final TypeMirror type;
+
+        Property(String field, String column, Kind kind, TypeMirror type) {
+            this.field = field;
+            this.column = column;
+            this.kind = kind;
+            this.type = type;
+        }
+
+        boolean isPrimitive() {
+            return type.getKind().isPrimitive();
+        }
+
+        String read() {
+            if (kind == Kind.ENUM) {
+                return "toEnum(" + ((TypeElement) ((DeclaredType) type).asElement())
+                        .getQualifiedName() + ".class, cursor.getString(index))";
+            }
+            return kind.read;
+        }
+
+        String write() {
+            final String value = "entity." + field;
+            switch (kind) {
+                case DATE:
+                    return value + ".getTime()";
+                case ENUM:
+                    return value + ".toString()";
+                default:
+                    return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.database;
+
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.MessageEntityConverter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import nl.qbusict.cupboard.Cupboard;
+import nl.qbusict.cupboard.CupboardBuilder;
+import nl.qbusict.cupboard.convert.EntityConverter;
+import nl.qbusict.cupboard.convert.EntityConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares how fast messages are written and read on a device with the generated converter and
+ * with cupboard's reflective one. It's timed, so it isn't part of the unit tests and is run with
+ * the instrumentation tests instead.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@RunWith(AndroidJUnit4.class)
+public class EntityConverterBenchmark {
+
+    private static final String TAG = EntityConverterBenchmark.class.getSimpleName();
+
+    private static final int MESSAGES = 2000;
+
+    private static final int ROUNDS = 5;
+
+    /**
+     * Milliseconds of timer noise allowed on top of the reflective converter's time
+     */
+    private static final long SLACK = 50;
+
+    private SQLiteDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mDatabase = SQLiteDatabase.create(null);
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void shouldNotBeSlowerThanReflectiveConverter() {
+        long[] reflective = run(createCupboard(false));
+        long[] generated = run(createCupboard(true));
+        Log.i(TAG, "Write " + generated[0] + "ms generated, " + reflective[0] + "ms reflective");
+        Log.i(TAG, "Read " + generated[1] + "ms generated, " + reflective[1] + "ms reflective");
+        assertTrue(generated[0] <= reflective[0] + SLACK);
+        assertTrue(generated[1] <= reflective[1] + SLACK);
+    }
+
+    /**
+     * @return The best write and read times in milliseconds
+     */
+    private long[] run(Cupboard cupboard) {
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int round = 0; round < ROUNDS; round++) {
+            cupboard.withDatabase(mDatabase).dropAllTables();
+            cupboard.withDatabase(mDatabase).createTables();
+            final List<Message> messages = createMessages();
+
+            long start = System.nanoTime();
+            mDatabase.beginTransaction();
+            try {
+                cupboard.withDatabase(mDatabase).put(messages);
+                mDatabase.setTransactionSuccessful();
+            } finally {
+                mDatabase.endTransaction();
+            }
+            best[0] = Math.min(best[0], (System.nanoTime() - start) / 1000000);
+
+            start = System.nanoTime();
+            List<Message> read = cupboard.withDatabase(mDatabase).query(Message.class).list();
+            best[1] = Math.min(best[1], (System.nanoTime() - start) / 1000000);
+            assertEquals(MESSAGES, read.size());
+        }
+        return best;
+    }
+
+    private static Cupboard createCupboard(boolean generated) {
+        CupboardBuilder builder = new CupboardBuilder().useAnnotations();
+        if (generated) {
+            builder.registerEntityConverterFactory(new EntityConverterFactory() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> EntityConverter<T> create(Cupboard cupboard, Class<T> type) {
+                    return type == Message.class
+                            ? (EntityConverter<T>) new MessageEntityConverter() : null;
+                }
+            });
+        }
+        Cupboard cupboard = builder.build();
+        cupboard.register(Message.class);
+        return cupboard;
+    }
+
+    private static List<Message> createMessages() {
+        List<Message> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            Message message = new Message();
+            message.messageBody = "Message body " + i;
+            message.messageFrom = "+2547000000" + (i % 100);
+            message.messageDate = new Date(1445000000000L + i);
+            message.messageUuid = "uuid-" + i;
+            message.messageType = i % 2 == 0 ? Message.Type.PENDING : Message.Type.TASK;
+            message.status = Message.Status.UNCONFIRMED;
+            message.retries = i % 3;
+            message.providerId = 1000 + i;
+            message.sentResultCode = -1;
+            messages.add(message);
+        }
+        return messages;
+    }
+}
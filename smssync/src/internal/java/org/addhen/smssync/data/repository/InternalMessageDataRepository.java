@@ -25,16 +25,15 @@ import com.google.gson.reflect.TypeToken;
 import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.entity.mapper.MessageDataMapper;
 import org.addhen.smssync.data.message.PostMessage;
+import org.addhen.smssync.domain.entity.ExportProgressEntity;
+import org.addhen.smssync.domain.entity.ImportProgressEntity;
 import org.addhen.smssync.domain.entity.MessageEntity;
 import org.addhen.smssync.domain.repository.MessageRepository;
-import org.addhen.smssync.smslib.model.SmsMessage;
-import org.addhen.smssync.smslib.sms.ProcessSms;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
 
 import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -168,6 +167,11 @@ public class InternalMessageDataRepository implements MessageRepository {
         });
     }
 
+    @Override
+    public Observable<List<MessageEntity>> searchPending(String query, int limit, int offset) {
+        return fetchPending();
+    }
+
     @Override
     public Observable<Boolean> publishMessage(List<MessageEntity> messageEntities) {
         return Observable.defer(() -> {
@@ -178,16 +182,13 @@ public class InternalMessageDataRepository implements MessageRepository {
     }
 
     @Override
-    public Observable<List<MessageEntity>> importMessage() {
-        return Observable.defer(() -> {
-            ProcessSms processSms = mProcessMessage.getProcessSms();
-            List<SmsMessage> smsMessages = processSms.importMessages();
-            List<Message> messages = new ArrayList<>();
-            for (SmsMessage smsMessage : smsMessages) {
-                messages.add(mProcessMessage.map(smsMessage));
-            }
-            return Observable.just(mMessageDataMapper.map(messages));
-        });
+    public Observable<ImportProgressEntity> importMessage(boolean asPending) {
+        return Observable.empty();
+    }
+
+    @Override
+    public Observable<ExportProgressEntity> exportMessages(boolean csv, boolean onlyNewOnes) {
+        return Observable.empty();
     }
 
     @Override
@@ -165,4 +165,108 @@ public class PrefsFactory {
     public BooleanPreference enableTwitterKeywords() {
         return new BooleanPreference(mSharedPreferences, "EnableTwitterKeyword", false);
     }
+
+    /**
+     * The maximum number of SMS sent per hour. Zero means no limit.
+     */
+    public IntPreference smsSendRate() {
+        return new IntPreference(mSharedPreferences, "SmsSendRate", 0);
+    }
+
+    /**
+     * Tokens left in the outbox rate limiter, in thousandths of a token
+     */
+    public LongPreference outboxTokens() {
+        return new LongPreference(mSharedPreferences, "OutboxTokens", -1l);
+    }
+
+    public LongPreference outboxLastRefill() {
+        return new LongPreference(mSharedPreferences, "OutboxLastRefill", 0l);
+    }
+
+    public LongPreference outboxSentCount() {
+        return new LongPreference(mSharedPreferences, "OutboxSentCount", 0l);
+    }
+
+    /**
+     * The result change date of the last message result the Sync URL acknowledged
+     *
+     * @param syncUrlId The Sync URL's id
+     */
+    public LongPreference messageResultsAckDate(long syncUrlId) {
+        return new LongPreference(mSharedPreferences, "MessageResultsAckDate" + syncUrlId, 0l);
+    }
+
+    /**
+     * The id of the last message whose result the Sync URL acknowledged, -1 until the Sync URL
+     * is first pushed results
+     *
+     * @param syncUrlId The Sync URL's id
+     */
+    public LongPreference messageResultsAckId(long syncUrlId) {
+        return new LongPreference(mSharedPreferences, "MessageResultsAckId" + syncUrlId, -1l);
+    }
+
+    /**
+     * The provider id of the last inbox message imported, so an import carries on from there
+     */
+    public LongPreference importCheckpoint() {
+        return new LongPreference(mSharedPreferences, "ImportCheckpoint", 0l);
+    }
+
+    /**
+     * How many days sent messages are kept before they're archived, 0 keeps them forever
+     */
+    public IntPreference retentionDays() {
+        return new IntPreference(mSharedPreferences, "RetentionDays", 0);
+    }
+
+    /**
+     * How many sent messages are kept before the oldest are archived, 0 means no limit
+     */
+    public IntPreference retentionMaxMessages() {
+        return new IntPreference(mSharedPreferences, "RetentionMaxMessages", 0);
+    }
+
+    /**
+     * The id of the last message exported, so an export of new messages carries on from there
+     */
+    public LongPreference exportCheckpoint() {
+        return new LongPreference(mSharedPreferences, "ExportCheckpoint", 0l);
+    }
+
+    /**
+     * The interval the auto sync service was last scheduled at, in milliseconds
+     */
+    public LongPreference autoSyncInterval() {
+        return new LongPreference(mSharedPreferences, "AutoSyncInterval", 0l);
+    }
+
+    /**
+     * The number of auto sync runs in a row that found no pending messages
+     */
+    public IntPreference autoSyncIdleRuns() {
+        return new IntPreference(mSharedPreferences, "AutoSyncIdleRuns", 0);
+    }
+
+    /**
+     * The interval the task check service was last scheduled at, in milliseconds
+     */
+    public LongPreference taskCheckInterval() {
+        return new LongPreference(mSharedPreferences, "TaskCheckInterval", 0l);
+    }
+
+    /**
+     * The number of task checks in a row that found no tasks
+     */
+    public IntPreference taskCheckIdleRuns() {
+        return new IntPreference(mSharedPreferences, "TaskCheckIdleRuns", 0);
+    }
+
+    /**
+     * The outbox sent count at the last task check, to tell how many tasks came in since
+     */
+    public LongPreference taskCheckSentCount() {
+        return new LongPreference(mSharedPreferences, "TaskCheckSentCount", 0l);
+    }
 }
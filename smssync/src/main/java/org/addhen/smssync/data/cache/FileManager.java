@@ -43,6 +43,8 @@ public class FileManager {
 
     private String mName;
 
+    private boolean mRotated;
+
     PrefsFactory mPrefsFactory;
 
     @Inject
@@ -65,11 +67,20 @@ public class FileManager {
             }
         }
 
-        if (Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())) {
-            final File logFile = getFile(name);
-            if (logFile.isFile() && logFile.exists()) {
+    }
+
+    /**
+     * Opens the log file on the first line written after it was closed, so nothing touches the
+     * storage while the app starts. The file is rotated the first time it's opened.
+     */
+    private PrintWriter open() {
+        if (writer == null
+                && Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())) {
+            final File logFile = getFile(mName);
+            if (!mRotated && logFile.isFile() && logFile.exists()) {
                 rotate(logFile);
             }
+            mRotated = true;
 
             try {
                 writer = new PrintWriter(new FileWriter(logFile, true));
@@ -77,7 +88,7 @@ public class FileManager {
                 e.printStackTrace();
             }
         }
-
+        return writer;
     }
 
     private void rotate(final File logFile) {
@@ -232,8 +243,8 @@ public class FileManager {
         return DateFormat.format(dateFormat, d);
     }
 
-    public void append(String s) {
-        if (writer != null) {
+    public synchronized void append(String s) {
+        if (open() != null) {
             StringBuilder sb = new StringBuilder();
             sb.append(format(new Date()))
                     .append(" ").append(s);
@@ -247,7 +258,7 @@ public class FileManager {
      *
      * @param line The line to append to the file.
      */
-    public void appendAndClose(String line) {
+    public synchronized void appendAndClose(String line) {
         if (mPrefsFactory.enableLog().get()) {
             append(line);
             close();
@@ -257,10 +268,11 @@ public class FileManager {
     /**
      * Close all opened resources.
      */
-    public void close() {
+    public synchronized void close() {
         Logger.log(TAG, "CloseLog");
         if (writer != null) {
             writer.close();
+            writer = null;
         }
     }
 
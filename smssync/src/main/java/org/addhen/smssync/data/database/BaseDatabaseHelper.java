@@ -19,13 +19,21 @@ package org.addhen.smssync.data.database;
 
 import org.addhen.smssync.BuildConfig;
 import org.addhen.smssync.data.database.converter.EnumEntityFieldConverter;
-import org.addhen.smssync.data.database.converter.WebServiceConverter;
 import org.addhen.smssync.data.entity.Filter;
+import org.addhen.smssync.data.entity.FilterEntityConverter;
 import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.MessageEntityConverter;
+import org.addhen.smssync.data.entity.OutboxMessage;
+import org.addhen.smssync.data.entity.SmsPart;
 import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.entity.SyncUrlDelivery;
+import org.addhen.smssync.data.entity.SyncUrlEntityConverter;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.support.annotation.NonNull;
 import android.util.Log;
@@ -45,12 +53,31 @@ public abstract class BaseDatabaseHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "smssync_db";
 
-    private static final int DATABASE_VERSION = 9;
+    private static final int DATABASE_VERSION = 19;
 
     private static final int LAST_DATABASE_NUKE_VERSION = 6;
 
+    private static final String MESSAGE_UUID_INDEX = "message_uuid_index";
+
+    private static final String MESSAGE_RESULT_UPDATED_INDEX = "message_result_updated_index";
+
+    private static final String MESSAGE_STATUS_INDEX = "message_status_index";
+
+    private static final String SYNC_URL_DELIVERY_INDEX = "sync_url_delivery_index";
+
+    private static final String SYNC_URL_DELIVERY_STATUS_INDEX
+            = "sync_url_delivery_status_index";
+
+    /**
+     * Full text index of the body and sender of messages. Its docid is the message's id.
+     */
+    static final String MESSAGE_SEARCH_TABLE = "message_fts";
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
     private static final Class[] ENTITIES = new Class[]{Message.class,
-            Filter.class, SyncUrl.class};
+            Filter.class, SyncUrl.class, OutboxMessage.class, SmsPart.class,
+            SyncUrlDelivery.class};
 
     private static String TAG = BaseDatabaseHelper.class.getSimpleName();
 
@@ -58,22 +85,32 @@ public abstract class BaseDatabaseHelper extends SQLiteOpenHelper {
 
     static {
 
+        // The entities read most often have converters generated at compile time, the others
+        // are mapped by cupboard through reflection
         EntityConverterFactory factory = new EntityConverterFactory() {
 
             @Override
             public <T> EntityConverter<T> create(Cupboard cupboard, Class<T> type) {
+                if (type == Message.class) {
+                    return (EntityConverter<T>) new MessageEntityConverter();
+                }
+                if (type == Filter.class) {
+                    return (EntityConverter<T>) new FilterEntityConverter();
+                }
                 if (type == SyncUrl.class) {
-                    return (EntityConverter<T>) new WebServiceConverter(cupboard);
+                    return (EntityConverter<T>) new SyncUrlEntityConverter();
                 }
                 return null;
             }
         };
 
         CupboardFactory.setCupboard(new CupboardBuilder()
-                .registerFieldConverter(Message.Status.class,
-                        new EnumEntityFieldConverter<>(Message.Status.class))
-                .registerFieldConverter(Message.Type.class,
-                        new EnumEntityFieldConverter<>(Message.Type.class))
+                .registerFieldConverter(OutboxMessage.Priority.class,
+                        new EnumEntityFieldConverter<>(OutboxMessage.Priority.class))
+                .registerFieldConverter(SmsPart.Status.class,
+                        new EnumEntityFieldConverter<>(SmsPart.Status.class))
+                .registerFieldConverter(SyncUrlDelivery.Status.class,
+                        new EnumEntityFieldConverter<>(SyncUrlDelivery.Status.class))
                 .registerEntityConverterFactory(factory).useAnnotations().build());
 
         // Register our entities
@@ -90,6 +127,8 @@ public abstract class BaseDatabaseHelper extends SQLiteOpenHelper {
     public final void onCreate(SQLiteDatabase db) {
         // This will ensure that all tables are created
         cupboard().withDatabase(db).createTables();
+        createIndexes(db);
+        createSearchIndex(db);
     }
 
     @Override
@@ -99,12 +138,120 @@ public abstract class BaseDatabaseHelper extends SQLiteOpenHelper {
                 Log.d(TAG, "Nuking Database. Old Version: " + oldVersion);
             }
             cupboard().withDatabase(db).dropAllTables();
+            // Cupboard only drops the tables of its entities
+            db.execSQL("DROP TABLE IF EXISTS " + MESSAGE_SEARCH_TABLE);
             onCreate(db);
         } else {
             Log.d(TAG, "Upgrading Old Version: " + oldVersion);
             // This will upgrade tables, adding columns and new tables.
             // Note that existing columns will not be converted
             cupboard().withDatabase(db).upgradeTables();
+            createIndexes(db);
+            createSearchIndex(db);
+        }
+    }
+
+    /**
+     * Indexes the columns messages are looked up by. Message results are fetched by uuid and by
+     * when they last changed, which would otherwise mean a full table scan for every batch.
+     * A message has at most one delivery row per Sync URL, and each Sync URL reads its own
+     * pending rows.
+     */
+    private static void createIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + MESSAGE_UUID_INDEX
+                + " ON Message (message_uuid)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + MESSAGE_RESULT_UPDATED_INDEX
+                + " ON Message (result_updated, _id)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + MESSAGE_STATUS_INDEX
+                + " ON Message (status, messages_date)");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS " + SYNC_URL_DELIVERY_INDEX
+                + " ON SyncUrlDelivery (message_uuid, sync_url_id)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + SYNC_URL_DELIVERY_STATUS_INDEX
+                + " ON SyncUrlDelivery (sync_url_id, status, _id)");
+    }
+
+    /**
+     * Creates the full text index of messages and the triggers that keep it up to date, then
+     * indexes the messages already saved. FTS3 is used as it's the version every supported
+     * Android release ships.
+     */
+    private static void createSearchIndex(SQLiteDatabase db) {
+        final boolean exists = DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{MESSAGE_SEARCH_TABLE}) > 0;
+        if (exists) {
+            return;
+        }
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE VIRTUAL TABLE " + MESSAGE_SEARCH_TABLE
+                    + " USING fts3(messages_body, messages_from)");
+            // Messages are saved with INSERT OR REPLACE, which doesn't fire the delete trigger,
+            // so the insert trigger clears any entry the message already has
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS message_fts_insert AFTER INSERT ON Message"
+                    + " BEGIN"
+                    + " DELETE FROM " + MESSAGE_SEARCH_TABLE + " WHERE docid = new._id;"
+                    + " INSERT INTO " + MESSAGE_SEARCH_TABLE
+                    + " (docid, messages_body, messages_from)"
+                    + " VALUES (new._id, new.messages_body, new.messages_from);"
+                    + " END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS message_fts_update"
+                    + " AFTER UPDATE OF messages_body, messages_from ON Message"
+                    + " BEGIN"
+                    + " UPDATE " + MESSAGE_SEARCH_TABLE
+                    + " SET messages_body = new.messages_body, messages_from = new.messages_from"
+                    + " WHERE docid = old._id;"
+                    + " END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS message_fts_delete AFTER DELETE ON Message"
+                    + " BEGIN"
+                    + " DELETE FROM " + MESSAGE_SEARCH_TABLE + " WHERE docid = old._id;"
+                    + " END");
+            db.execSQL("INSERT INTO " + MESSAGE_SEARCH_TABLE
+                    + " (docid, messages_body, messages_from)"
+                    + " SELECT _id, messages_body, messages_from FROM Message");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Gives pages freed by deleted rows back to the file system, a bounded number at a time so
+     * it never holds the database for long. The first call switches the database to incremental
+     * vacuuming, which has to rebuild it once.
+     * <p/>
+     * The rebuild needs the database to itself, so it fails with SQLITE_BUSY while another
+     * connection is using it. Failures are logged rather than thrown, and the database keeps its
+     * old mode until a later call manages the rebuild.
+     *
+     * @param maxPages The maximum number of pages to free
+     * @return The number of free pages left, zero when nothing could be freed this time
+     */
+    public long compact(int maxPages) {
+        if (isClosed()) {
+            return 0;
+        }
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null)
+                    != AUTO_VACUUM_INCREMENTAL) {
+                db.execSQL("PRAGMA auto_vacuum = " + AUTO_VACUUM_INCREMENTAL);
+                db.execSQL("VACUUM");
+                return 0;
+            }
+            // Every step of the pragma frees a page, so the cursor has to be read to the end
+            Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum(" + maxPages + ")", null);
+            try {
+                while (cursor.moveToNext()) {
+                    // Keep stepping
+                }
+            } finally {
+                cursor.close();
+            }
+            return DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Couldn't compact the database, trying again on the next run", e);
+            return 0;
         }
     }
 
@@ -21,14 +21,22 @@ import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.exception.MessageNotFoundException;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
 import android.support.annotation.NonNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import nl.qbusict.cupboard.DatabaseCompartment;
 import rx.Observable;
 
 import static nl.qbusict.cupboard.CupboardFactory.cupboard;
@@ -39,6 +47,22 @@ import static nl.qbusict.cupboard.CupboardFactory.cupboard;
 @Singleton
 public class MessageDatabaseHelper extends BaseDatabaseHelper {
 
+    /**
+     * Stays well under SQLite's default limit of 999 bound arguments per statement
+     */
+    private static final int MAX_QUERY_ARGS = 500;
+
+    private static final List<String> FTS_OPERATORS = Arrays.asList("AND", "OR", "NOT", "NEAR");
+
+    /**
+     * Added to a message's length when ranking search results, so a hit in a very short message
+     * doesn't outrank several hits in a longer one
+     */
+    private static final int SEARCH_LENGTH_DAMPING = 20;
+
+    private static final String RESULTS_CHANGED_SINCE
+            = "result_updated > ? OR (result_updated = ? AND _id > ?)";
+
     @Inject
     public MessageDatabaseHelper(@NonNull Context context) {
         super(context);
@@ -133,6 +157,270 @@ public class MessageDatabaseHelper extends BaseDatabaseHelper {
         return message;
     }
 
+    /**
+     * Fetches the messages with the given uuids using as few queries as SQLite's bound argument
+     * limit allows. Uuids with no matching message are left out.
+     *
+     * @param uuids The uuids to look up
+     * @return The matching messages
+     */
+    public List<Message> fetchMessagesByUuids(List<String> uuids) {
+        List<Message> messages = new ArrayList<>();
+        if (isClosed() || uuids == null || uuids.isEmpty()) {
+            return messages;
+        }
+        for (int start = 0; start < uuids.size(); start += MAX_QUERY_ARGS) {
+            final List<String> chunk = uuids
+                    .subList(start, Math.min(start + MAX_QUERY_ARGS, uuids.size()));
+            StringBuilder whereClause = new StringBuilder("message_uuid IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                whereClause.append(i == 0 ? "?" : ",?");
+            }
+            whereClause.append(")");
+            try {
+                messages.addAll(cupboard().withDatabase(getReadableDatabase())
+                        .query(Message.class)
+                        .withSelection(whereClause.toString(),
+                                chunk.toArray(new String[chunk.size()]))
+                        .list());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Saves a page of imported messages in one transaction. Messages that are already saved,
+     * going by their uuid, are skipped so a page can safely be imported again.
+     *
+     * @param messages The messages to save
+     * @return The number of messages saved
+     */
+    public int importMessages(List<Message> messages) {
+        if (isClosed() || messages.isEmpty()) {
+            return 0;
+        }
+        List<String> uuids = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            uuids.add(message.messageUuid);
+        }
+        Set<String> existing = new HashSet<>();
+        for (Message message : fetchMessagesByUuids(uuids)) {
+            existing.add(message.messageUuid);
+        }
+        int saved = 0;
+        SQLiteDatabase db = getWritableDatabase();
+        DatabaseCompartment compartment = cupboard().withDatabase(db);
+        db.beginTransaction();
+        try {
+            for (Message message : messages) {
+                if (!existing.contains(message.messageUuid)) {
+                    compartment.put(message);
+                    saved++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return saved;
+    }
+
+    /**
+     * Fetches messages with the given status, oldest first
+     *
+     * @param status The status of the messages
+     * @param limit  The maximum number of messages to fetch
+     * @return The messages
+     */
+    public List<Message> fetchMessagesByStatus(Message.Status status, int limit) {
+        List<Message> messages = new ArrayList<>();
+        if (isClosed()) {
+            return messages;
+        }
+        try {
+            messages = cupboard().withDatabase(getReadableDatabase()).query(Message.class)
+                    .withSelection("status = ?", status.name())
+                    .orderBy("messages_date ASC, _id ASC").limit(limit).list();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return messages;
+    }
+
+    /**
+     * Fetches the messages saved after the given one, in the order they were saved. Paging by id
+     * keeps each page a short indexed query however far into the table it is.
+     *
+     * @param id    The id of the last message fetched, 0 to start from the first one
+     * @param limit The maximum number of messages to fetch
+     * @return The messages
+     */
+    public List<Message> fetchMessagesAfter(long id, int limit) {
+        List<Message> messages = new ArrayList<>();
+        if (isClosed()) {
+            return messages;
+        }
+        messages = cupboard().withDatabase(getReadableDatabase()).query(Message.class)
+                .withSelection("_id > ?", String.valueOf(id))
+                .orderBy("_id ASC").limit(limit).list();
+        return messages;
+    }
+
+    /**
+     * Counts the messages saved after the given one
+     *
+     * @param id The id of a message, 0 to count every message
+     * @return The number of messages
+     */
+    public int countMessagesAfter(long id) {
+        if (isClosed()) {
+            return 0;
+        }
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT COUNT(*) FROM " + cupboard().getTable(Message.class) + " WHERE _id > ?",
+                new String[]{String.valueOf(id)});
+    }
+
+    /**
+     * Counts the messages with the given status
+     *
+     * @param status The status of the messages
+     * @return The number of messages
+     */
+    public int countMessagesByStatus(Message.Status status) {
+        if (isClosed()) {
+            return 0;
+        }
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT COUNT(*) FROM " + cupboard().getTable(Message.class) + " WHERE status = ?",
+                new String[]{status.name()});
+    }
+
+    /**
+     * Counts the messages that haven't been sent yet
+     *
+     * @return The number of messages
+     */
+    public int countPending() {
+        if (isClosed()) {
+            return 0;
+        }
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT COUNT(*) FROM " + cupboard().getTable(Message.class) + " WHERE status != ?",
+                new String[]{Message.Status.SENT.name()});
+    }
+
+    /**
+     * Counts the messages with the given status dated before the given date
+     *
+     * @param status The status of the messages
+     * @param before The date in milliseconds the messages are older than
+     * @return The number of messages
+     */
+    public int countMessagesByStatus(Message.Status status, long before) {
+        if (isClosed()) {
+            return 0;
+        }
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT COUNT(*) FROM " + cupboard().getTable(Message.class)
+                        + " WHERE status = ? AND messages_date < ?",
+                new String[]{status.name(), String.valueOf(before)});
+    }
+
+    /**
+     * Deletes the given messages by id in one transaction
+     *
+     * @param messages The messages to delete
+     * @return The number of messages deleted
+     */
+    public int deleteMessages(List<Message> messages) {
+        if (isClosed() || messages.isEmpty()) {
+            return 0;
+        }
+        int deleted = 0;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int start = 0; start < messages.size(); start += MAX_QUERY_ARGS) {
+                final List<Message> chunk = messages
+                        .subList(start, Math.min(start + MAX_QUERY_ARGS, messages.size()));
+                StringBuilder whereClause = new StringBuilder("_id IN (");
+                String[] whereArgs = new String[chunk.size()];
+                for (int i = 0; i < chunk.size(); i++) {
+                    whereClause.append(i == 0 ? "?" : ",?");
+                    whereArgs[i] = String.valueOf(chunk.get(i)._id);
+                }
+                whereClause.append(")");
+                deleted += cupboard().withDatabase(db)
+                        .delete(Message.class, whereClause.toString(), whereArgs);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return deleted;
+    }
+
+    /**
+     * Fetches the messages whose results changed after the given position, oldest change first.
+     * The position is the result change date and id of the last message a Sync URL acknowledged.
+     *
+     * @param date  The result change date of the last acknowledged message
+     * @param id    The id of the last acknowledged message
+     * @param limit The maximum number of messages to fetch
+     * @return The messages with unacknowledged results
+     */
+    public List<Message> fetchResultsChangedSince(long date, long id, int limit) {
+        List<Message> messages = new ArrayList<>();
+        if (isClosed()) {
+            return messages;
+        }
+        final String dateArg = String.valueOf(date);
+        try {
+            messages = cupboard().withDatabase(getReadableDatabase()).query(Message.class)
+                    .withSelection(RESULTS_CHANGED_SINCE, dateArg, dateArg, String.valueOf(id))
+                    .orderBy("result_updated ASC, _id ASC").limit(limit).list();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return messages;
+    }
+
+    /**
+     * Fetches the message whose result changed last, the position a Sync URL starts from when
+     * it's first pushed results
+     *
+     * @return The message, or null when no message has a result yet
+     */
+    public Message fetchLastResultChanged() {
+        if (isClosed()) {
+            return null;
+        }
+        return cupboard().withDatabase(getReadableDatabase()).query(Message.class)
+                .withSelection("result_updated IS NOT NULL")
+                .orderBy("result_updated DESC, _id DESC").get();
+    }
+
+    /**
+     * Counts the messages whose results changed after the given position
+     *
+     * @param date The result change date of the last acknowledged message
+     * @param id   The id of the last acknowledged message
+     * @return The number of messages with unacknowledged results
+     */
+    public int countResultsChangedSince(long date, long id) {
+        if (isClosed()) {
+            return 0;
+        }
+        final String dateArg = String.valueOf(date);
+        final String sql = "SELECT COUNT(*) FROM " + cupboard().getTable(Message.class)
+                + " WHERE " + RESULTS_CHANGED_SINCE;
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(), sql,
+                new String[]{dateArg, dateArg, String.valueOf(id)});
+    }
+
     public Observable<List<Message>> fetchMessageByStatus(Message.Status status) {
         return Observable.create(subscriber -> {
             if (!isClosed()) {
@@ -181,6 +469,84 @@ public class MessageDatabaseHelper extends BaseDatabaseHelper {
         });
     }
 
+    /**
+     * Searches the body and sender of pending messages, best match first. A message ranks
+     * higher the more often the words appear in it for its length, and newer messages come
+     * first among equal ones.
+     *
+     * @param query  The words to search for. Each word matches words that start with it.
+     * @param limit  The maximum number of messages to fetch
+     * @param offset The number of matching messages to skip
+     * @return The matching messages
+     */
+    public Observable<List<Message>> searchPending(String query, int limit, int offset) {
+        return Observable.create(subscriber -> {
+            if (!isClosed()) {
+                final String match = toMatchQuery(query);
+                if (match.isEmpty()) {
+                    subscriber.onNext(new ArrayList<>());
+                    subscriber.onCompleted();
+                    return;
+                }
+                // The index finds the ids and where the words are, the rows come from the
+                // message table. offsets() has four numbers per hit, so its spaces count them.
+                final String sql = "SELECT m.* FROM " + cupboard().getTable(Message.class)
+                        + " m JOIN (SELECT docid, offsets(" + MESSAGE_SEARCH_TABLE
+                        + ") AS hits FROM " + MESSAGE_SEARCH_TABLE + " WHERE "
+                        + MESSAGE_SEARCH_TABLE + " MATCH ?) f ON m._id = f.docid"
+                        + " WHERE m.status != ?"
+                        + " ORDER BY (length(f.hits) - length(replace(f.hits, ' ', '')) + 1)"
+                        + " / (length(m.messages_body) + " + SEARCH_LENGTH_DAMPING + ".0) DESC,"
+                        + " m.messages_date DESC, m._id DESC LIMIT ? OFFSET ?";
+                List<Message> messages;
+                Cursor cursor = null;
+                try {
+                    cursor = getReadableDatabase().rawQuery(sql, new String[]{match,
+                            Message.Status.SENT.name(), String.valueOf(limit),
+                            String.valueOf(offset)});
+                    messages = cupboard().withCursor(cursor).list(Message.class);
+                } catch (Exception e) {
+                    subscriber.onError(e);
+                    return;
+                } finally {
+                    if (cursor != null) {
+                        cursor.close();
+                    }
+                }
+                subscriber.onNext(messages);
+                subscriber.onCompleted();
+            } else {
+                subscriber.onError(new Exception());
+            }
+        });
+    }
+
+    /**
+     * Turns what the user typed into an FTS query: every word becomes a prefix term and all of
+     * them have to match. Anything but letters and digits is dropped and operator words are
+     * lower cased so the input can't be read as query syntax.
+     */
+    static String toMatchQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            if (FTS_OPERATORS.contains(word)) {
+                // The index folds ASCII case, so this still matches the word
+                word = word.toLowerCase(Locale.ENGLISH);
+            }
+            match.append(word).append('*');
+        }
+        return match.toString();
+    }
+
     public List<Message> syncFetchPending() {
         List<Message> messages = new ArrayList<>();
         if (!isClosed()) {
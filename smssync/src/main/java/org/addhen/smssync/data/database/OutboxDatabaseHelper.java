@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.database;
+
+import org.addhen.smssync.data.entity.OutboxMessage;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+
+/**
+ * Database Helper for the outbound SMS queue
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class OutboxDatabaseHelper extends BaseDatabaseHelper {
+
+    /**
+     * Orders by lane first, then by the order the messages were queued in
+     */
+    private static final String LANE_ORDER;
+
+    static {
+        StringBuilder order = new StringBuilder("CASE priority");
+        for (OutboxMessage.Priority priority : OutboxMessage.Priority.values()) {
+            order.append(" WHEN '").append(priority.name()).append("' THEN ")
+                    .append(priority.ordinal());
+        }
+        LANE_ORDER = order.append(" END, _id ASC").toString();
+    }
+
+    @Inject
+    public OutboxDatabaseHelper(@NonNull Context context) {
+        super(context);
+    }
+
+    public void put(@NonNull OutboxMessage outboxMessage) {
+        if (!isClosed()) {
+            cupboard().withDatabase(getWritableDatabase()).put(outboxMessage);
+        }
+    }
+
+    /**
+     * Fetches the next messages to send, highest priority lane first
+     *
+     * @param limit The maximum number of messages to fetch
+     * @return The messages in the order they should be sent
+     */
+    public List<OutboxMessage> fetchNext(int limit) {
+        List<OutboxMessage> messages = new ArrayList<>();
+        if (!isClosed()) {
+            messages = cupboard().withDatabase(getReadableDatabase()).query(OutboxMessage.class)
+                    .orderBy(LANE_ORDER).limit(limit).list();
+        }
+        return messages;
+    }
+
+    public void delete(@NonNull OutboxMessage outboxMessage) {
+        if (!isClosed()) {
+            cupboard().withDatabase(getWritableDatabase()).delete(outboxMessage);
+        }
+    }
+
+    /**
+     * Counts the messages waiting in the given lane
+     *
+     * @param priority The lane to count
+     * @return The number of messages waiting
+     */
+    public int count(@NonNull OutboxMessage.Priority priority) {
+        if (isClosed()) {
+            return 0;
+        }
+        final String sql = "SELECT COUNT(*) FROM " + cupboard().getTable(OutboxMessage.class)
+                + " WHERE priority = ?";
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(), sql,
+                new String[]{priority.name()});
+    }
+
+    /**
+     * Counts all the messages waiting in the outbox
+     *
+     * @return The number of messages waiting
+     */
+    public int count() {
+        if (isClosed()) {
+            return 0;
+        }
+        final String sql = "SELECT COUNT(*) FROM " + cupboard().getTable(OutboxMessage.class);
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(), sql, null);
+    }
+}
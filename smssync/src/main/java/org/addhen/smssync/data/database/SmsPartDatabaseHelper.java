@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.database;
+
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.SmsPart;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import nl.qbusict.cupboard.DatabaseCompartment;
+
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+
+/**
+ * Database Helper for the sent and delivery state of outbound SMS parts
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class SmsPartDatabaseHelper extends BaseDatabaseHelper {
+
+    @Inject
+    public SmsPartDatabaseHelper(@NonNull Context context) {
+        super(context);
+    }
+
+    /**
+     * Saves the parts of a message in one transaction
+     *
+     * @param parts The parts to save
+     * @return The ids of the saved parts, in the same order
+     */
+    public long[] put(@NonNull List<SmsPart> parts) {
+        long[] ids = new long[parts.size()];
+        if (isClosed()) {
+            return ids;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        DatabaseCompartment compartment = cupboard().withDatabase(db);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < parts.size(); i++) {
+                ids[i] = compartment.put(parts.get(i));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return ids;
+    }
+
+    /**
+     * Applies a batch of sent and delivery results in one transaction. Once every part of a
+     * message has a result, the result is copied to the message, if the message is in the
+     * messages table, so the message results API can report it.
+     *
+     * @param updates The results to apply
+     */
+    public void applyUpdates(@NonNull List<SmsPart.Update> updates) {
+        if (isClosed() || updates.isEmpty()) {
+            return;
+        }
+        final Date now = new Date();
+        SQLiteDatabase db = getWritableDatabase();
+        DatabaseCompartment compartment = cupboard().withDatabase(db);
+        db.beginTransaction();
+        try {
+            // A part can get both its sent and delivered result in the same batch
+            Map<Long, SmsPart> parts = new HashMap<>();
+            for (SmsPart.Update update : updates) {
+                SmsPart part = parts.get(update.partId);
+                if (part == null) {
+                    part = compartment.get(SmsPart.class, update.partId);
+                    if (part == null) {
+                        continue;
+                    }
+                    parts.put(update.partId, part);
+                }
+                final SmsPart.Status status = update.success ? SmsPart.Status.SUCCEEDED
+                        : SmsPart.Status.FAILED;
+                if (update.delivery) {
+                    part.deliveryStatus = status;
+                    part.deliveryResultCode = update.resultCode;
+                    part.deliveryResultMessage = update.resultMessage;
+                } else {
+                    part.sentStatus = status;
+                    part.sentResultCode = update.resultCode;
+                    part.sentResultMessage = update.resultMessage;
+                }
+                part.updatedDate = now;
+            }
+            Set<String> correlationIds = new HashSet<>();
+            for (SmsPart part : parts.values()) {
+                compartment.put(part);
+                correlationIds.add(part.correlationId);
+            }
+            for (String correlationId : correlationIds) {
+                updateMessageResult(compartment, correlationId, now);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Deletes parts that haven't changed since the given date
+     *
+     * @param date The cut off date
+     * @return The number of parts deleted
+     */
+    public int deleteOlderThan(@NonNull Date date) {
+        if (isClosed()) {
+            return 0;
+        }
+        return cupboard().withDatabase(getWritableDatabase()).delete(SmsPart.class,
+                "updated_date < ?", String.valueOf(date.getTime()));
+    }
+
+    private void updateMessageResult(DatabaseCompartment compartment, String correlationId,
+            Date now) {
+        List<SmsPart> parts = compartment.query(SmsPart.class)
+                .withSelection("correlation_id = ?", correlationId).orderBy("part_index ASC")
+                .list();
+        if (parts.isEmpty() || parts.get(0).messageUuid == null) {
+            return;
+        }
+        Message message = compartment.query(Message.class)
+                .withSelection("message_uuid = ?", parts.get(0).messageUuid).get();
+        if (message == null) {
+            return;
+        }
+        // The message is only as far along as its slowest part, and failed if any part failed
+        SmsPart sent = aggregate(parts, false);
+        SmsPart delivered = aggregate(parts, true);
+        boolean changed = false;
+        if (sent != null) {
+            message.sentResultCode = sent.sentResultCode;
+            message.sentResultMessage = sent.sentResultMessage;
+            changed = true;
+        }
+        if (delivered != null) {
+            message.deliveryResultCode = delivered.deliveryResultCode;
+            message.deliveryResultMessage = delivered.deliveryResultMessage;
+            if (delivered.deliveryStatus == SmsPart.Status.SUCCEEDED) {
+                message.deliveredDate = now;
+            }
+            changed = true;
+        }
+        if (changed) {
+            message.resultUpdatedDate = now;
+            compartment.put(message);
+        }
+    }
+
+    /**
+     * @return The part whose result stands for the whole message: the first failed part, or the
+     * last part when they all succeeded. Null while parts are still pending.
+     */
+    private SmsPart aggregate(List<SmsPart> parts, boolean delivery) {
+        SmsPart last = null;
+        for (SmsPart part : parts) {
+            final SmsPart.Status status = delivery ? part.deliveryStatus : part.sentStatus;
+            if (status == SmsPart.Status.FAILED) {
+                return part;
+            }
+            if (status != SmsPart.Status.SUCCEEDED) {
+                return null;
+            }
+            last = part;
+        }
+        return last;
+    }
+}
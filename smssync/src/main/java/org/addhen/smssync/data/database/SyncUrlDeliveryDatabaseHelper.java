@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.database;
+
+import org.addhen.smssync.data.entity.SyncUrlDelivery;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import nl.qbusict.cupboard.EntityCompartment;
+
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+
+/**
+ * Database Helper for the delivery of messages to each Sync URL
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class SyncUrlDeliveryDatabaseHelper extends BaseDatabaseHelper {
+
+    @Inject
+    public SyncUrlDeliveryDatabaseHelper(@NonNull Context context) {
+        super(context);
+    }
+
+    /**
+     * Adds pending deliveries in one transaction. A message that already has a row for a Sync
+     * URL keeps it, so a delivery that was made isn't made again.
+     *
+     * @param deliveries The deliveries to add
+     * @return The number of rows added
+     */
+    public int addPending(@NonNull List<SyncUrlDelivery> deliveries) {
+        if (isClosed() || deliveries.isEmpty()) {
+            return 0;
+        }
+        final String table = cupboard().getTable(SyncUrlDelivery.class);
+        final EntityCompartment<SyncUrlDelivery> entity = cupboard()
+                .withEntity(SyncUrlDelivery.class);
+        int added = 0;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (SyncUrlDelivery delivery : deliveries) {
+                ContentValues values = entity.toContentValues(delivery);
+                values.remove("_id");
+                if (db.insertWithOnConflict(table, null, values,
+                        SQLiteDatabase.CONFLICT_IGNORE) != -1) {
+                    added++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return added;
+    }
+
+    /**
+     * Fetches the deliveries still to be made to a Sync URL, oldest first. Paging by id lets a
+     * drain move past the deliveries that failed without reading them again.
+     *
+     * @param syncUrlId The id of the Sync URL
+     * @param id        The id of the last delivery fetched, 0 to start from the first one
+     * @param limit     The maximum number of deliveries to fetch
+     * @return The deliveries
+     */
+    public List<SyncUrlDelivery> fetchPending(long syncUrlId, long id, int limit) {
+        if (isClosed()) {
+            return new ArrayList<>();
+        }
+        return cupboard().withDatabase(getReadableDatabase()).query(SyncUrlDelivery.class)
+                .withSelection("sync_url_id = ? AND status = ? AND _id > ?",
+                        String.valueOf(syncUrlId), SyncUrlDelivery.Status.PENDING.name(),
+                        String.valueOf(id))
+                .orderBy("_id ASC").limit(limit).list();
+    }
+
+    /**
+     * Fetches the deliveries of a message to every Sync URL
+     *
+     * @param messageUuid The uuid of the message
+     * @return The deliveries
+     */
+    public List<SyncUrlDelivery> fetchByMessageUuid(String messageUuid) {
+        if (isClosed()) {
+            return new ArrayList<>();
+        }
+        return cupboard().withDatabase(getReadableDatabase()).query(SyncUrlDelivery.class)
+                .withSelection("message_uuid = ?", messageUuid).list();
+    }
+
+    public void put(@NonNull SyncUrlDelivery delivery) {
+        if (!isClosed()) {
+            cupboard().withDatabase(getWritableDatabase()).put(delivery);
+        }
+    }
+
+    /**
+     * Deletes the deliveries of a message once it needs no more posting
+     *
+     * @param messageUuid The uuid of the message
+     * @return The number of rows deleted
+     */
+    public int deleteByMessageUuid(String messageUuid) {
+        if (isClosed()) {
+            return 0;
+        }
+        return cupboard().withDatabase(getWritableDatabase()).delete(SyncUrlDelivery.class,
+                "message_uuid = ?", messageUuid);
+    }
+}
@@ -19,9 +19,12 @@ package org.addhen.smssync.data.entity;
 
 import com.addhen.android.raiburari.data.entity.DataEntity;
 
+import org.addhen.smssync.data.database.converter.GenerateConverter;
+
 /**
  * @author Ushahidi Team <team@ushahidi.com>
  */
+@GenerateConverter
 public class Filter extends DataEntity {
 
     public String phoneNumber;
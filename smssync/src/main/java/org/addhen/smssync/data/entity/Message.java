@@ -17,10 +17,19 @@
 
 package org.addhen.smssync.data.entity;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import com.addhen.android.raiburari.data.entity.DataEntity;
 
+import org.addhen.smssync.data.database.converter.GenerateConverter;
+import org.addhen.smssync.data.util.JsonUtils;
+
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -29,6 +38,7 @@ import nl.qbusict.cupboard.annotation.Column;
 /**
  * @author Henry Addo
  */
+@GenerateConverter
 public class Message extends DataEntity implements Serializable {
 
     private static final long serialVersionUID = 1094372288105228610L;
@@ -73,9 +83,23 @@ public class Message extends DataEntity implements Serializable {
     @Column("delivered_timestamp")
     public Date deliveredDate;
 
+    /**
+     * When the sent or delivery result last changed, so only results a Sync URL hasn't
+     * acknowledged yet are pushed to it
+     */
+    @Column("result_updated")
+    public Date resultUpdatedDate;
+
     @Column("retries")
     public int retries;
 
+    /**
+     * The message's _id in the messaging app's inbox, zero when it isn't known
+     */
+    @SerializedName("provider_id")
+    @Column("provider_id")
+    public long providerId;
+
     @Column("status")
     public Status status;
 
@@ -96,4 +120,123 @@ public class Message extends DataEntity implements Serializable {
         @SerializedName("alert")
         ALERT,
     }
+
+    /**
+     * Reads and writes a message with the same names as the reflective adapter. Dates and
+     * enums go through the Gson's own adapters, so they keep its format.
+     */
+    public static class GsonAdapter extends TypeAdapter<Message> {
+
+        private final TypeAdapter<Date> mDateAdapter;
+
+        private final TypeAdapter<Type> mTypeAdapter;
+
+        private final TypeAdapter<Status> mStatusAdapter;
+
+        public GsonAdapter(Gson gson) {
+            mDateAdapter = gson.getAdapter(Date.class);
+            mTypeAdapter = gson.getAdapter(Type.class);
+            mStatusAdapter = gson.getAdapter(Status.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, Message message) throws IOException {
+            if (message == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("message").value(message.messageBody);
+            out.name("to").value(message.messageFrom);
+            out.name("timestamp");
+            mDateAdapter.write(out, message.messageDate);
+            out.name("uuid").value(message.messageUuid);
+            out.name("type");
+            mTypeAdapter.write(out, message.messageType);
+            out.name("sent_result_code").value(message.sentResultCode);
+            out.name("sent_result_message").value(message.sentResultMessage);
+            out.name("delivery_result_code").value(message.deliveryResultCode);
+            out.name("delivered_result_message").value(message.deliveryResultMessage);
+            out.name("delivered_timestamp");
+            mDateAdapter.write(out, message.deliveredDate);
+            out.name("resultUpdatedDate");
+            mDateAdapter.write(out, message.resultUpdatedDate);
+            out.name("retries").value(message.retries);
+            out.name("provider_id").value(message.providerId);
+            out.name("status");
+            mStatusAdapter.write(out, message.status);
+            out.name("_id").value(message._id);
+            out.endObject();
+        }
+
+        @Override
+        public Message read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Message message = new Message();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "message":
+                        message.messageBody = JsonUtils.nextString(in);
+                        break;
+                    case "to":
+                        message.messageFrom = JsonUtils.nextString(in);
+                        break;
+                    case "timestamp":
+                        message.messageDate = mDateAdapter.read(in);
+                        break;
+                    case "uuid":
+                        message.messageUuid = JsonUtils.nextString(in);
+                        break;
+                    case "type":
+                        message.messageType = mTypeAdapter.read(in);
+                        break;
+                    case "sent_result_code":
+                        message.sentResultCode = JsonUtils.nextInt(in, message.sentResultCode);
+                        break;
+                    case "sent_result_message":
+                        message.sentResultMessage = JsonUtils.nextString(in);
+                        break;
+                    case "delivery_result_code":
+                        message.deliveryResultCode = JsonUtils
+                                .nextInt(in, message.deliveryResultCode);
+                        break;
+                    case "delivered_result_message":
+                        message.deliveryResultMessage = JsonUtils.nextString(in);
+                        break;
+                    case "delivered_timestamp":
+                        message.deliveredDate = mDateAdapter.read(in);
+                        break;
+                    case "resultUpdatedDate":
+                        message.resultUpdatedDate = mDateAdapter.read(in);
+                        break;
+                    case "retries":
+                        message.retries = JsonUtils.nextInt(in, message.retries);
+                        break;
+                    case "provider_id":
+                        message.providerId = JsonUtils.nextLong(in, message.providerId);
+                        break;
+                    case "status":
+                        message.status = mStatusAdapter.read(in);
+                        break;
+                    case "_id":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            message._id = null;
+                        } else {
+                            message._id = in.nextLong();
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return message;
+        }
+    }
 }
@@ -17,8 +17,16 @@
 
 package org.addhen.smssync.data.entity;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import org.addhen.smssync.data.util.JsonUtils;
+
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -130,4 +138,77 @@ public class MessageResult implements Serializable {
                 ", deliveredTimeStamp='" + deliveredTimeStamp + '\'' +
                 '}';
     }
+
+    /**
+     * Reads and writes a message result without reflection. The timestamps go through the
+     * Gson's date adapter.
+     */
+    public static class GsonAdapter extends TypeAdapter<MessageResult> {
+
+        private final TypeAdapter<Date> mDateAdapter;
+
+        public GsonAdapter(Gson gson) {
+            mDateAdapter = gson.getAdapter(Date.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, MessageResult result) throws IOException {
+            if (result == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("uuid").value(result.messageUUID);
+            out.name("sent_result_code").value(result.sentResultCode);
+            out.name("sent_result_message").value(result.sentResultMessage);
+            out.name("delivered_result_code").value(result.deliveryResultCode);
+            out.name("delivered_result_message").value(result.deliveryResultMessage);
+            out.name("sent_timestamp");
+            mDateAdapter.write(out, result.sentTimeStamp);
+            out.name("delivered_timestamp");
+            mDateAdapter.write(out, result.deliveredTimeStamp);
+            out.endObject();
+        }
+
+        @Override
+        public MessageResult read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            MessageResult result = new MessageResult(null, 0, null, 0, null, null, null);
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "uuid":
+                        result.messageUUID = JsonUtils.nextString(in);
+                        break;
+                    case "sent_result_code":
+                        result.sentResultCode = JsonUtils.nextInt(in, result.sentResultCode);
+                        break;
+                    case "sent_result_message":
+                        result.sentResultMessage = JsonUtils.nextString(in);
+                        break;
+                    case "delivered_result_code":
+                        result.deliveryResultCode = JsonUtils
+                                .nextInt(in, result.deliveryResultCode);
+                        break;
+                    case "delivered_result_message":
+                        result.deliveryResultMessage = JsonUtils.nextString(in);
+                        break;
+                    case "sent_timestamp":
+                        result.sentTimeStamp = mDateAdapter.read(in);
+                        break;
+                    case "delivered_timestamp":
+                        result.deliveredTimeStamp = mDateAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return result;
+        }
+    }
 }
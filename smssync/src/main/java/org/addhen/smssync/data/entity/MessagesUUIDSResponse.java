@@ -17,8 +17,15 @@
 
 package org.addhen.smssync.data.entity;
 
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import org.addhen.smssync.data.util.JsonUtils;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -82,4 +89,62 @@ public class MessagesUUIDSResponse {
                 ", uuids=" + uuids +
                 '}';
     }
+
+    /**
+     * Reads and writes the response without reflection
+     */
+    public static class GsonAdapter extends TypeAdapter<MessagesUUIDSResponse> {
+
+        @Override
+        public void write(JsonWriter out, MessagesUUIDSResponse response) throws IOException {
+            if (response == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("success").value(response.success);
+            out.name("statusCode").value(response.statusCode);
+            out.name("message_uuids");
+            if (response.uuids == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (String uuid : response.uuids) {
+                    out.value(uuid);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public MessagesUUIDSResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            boolean success = false;
+            int statusCode = 0;
+            List<String> uuids = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success":
+                        success = JsonUtils.nextBoolean(in, success);
+                        break;
+                    case "statusCode":
+                        statusCode = JsonUtils.nextInt(in, statusCode);
+                        break;
+                    case "message_uuids":
+                        uuids = JsonUtils.nextStringList(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new MessagesUUIDSResponse(success, uuids, statusCode);
+        }
+    }
 }
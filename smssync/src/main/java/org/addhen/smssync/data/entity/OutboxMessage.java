@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.entity;
+
+import com.addhen.android.raiburari.data.entity.DataEntity;
+
+import java.util.Date;
+
+import nl.qbusict.cupboard.annotation.Column;
+
+/**
+ * An SMS waiting in the outbox to be handed to the SMS manager. Rows stay in the table until
+ * the message has been sent so nothing is lost when the process dies.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class OutboxMessage extends DataEntity {
+
+    @Column("phone")
+    public String phone;
+
+    @Column("body")
+    public String body;
+
+    @Column("message_uuid")
+    public String messageUuid;
+
+    @Column("message_type")
+    public Message.Type messageType;
+
+    @Column("priority")
+    public Priority priority;
+
+    @Column("delivery_report")
+    public boolean deliveryReport;
+
+    @Column("queued_date")
+    public Date queuedDate;
+
+    /**
+     * The lane the message is sent from. Lanes are drained in the order they are declared.
+     */
+    public enum Priority {
+        /**
+         * Alerts to the configured alert phone number
+         */
+        ALERT,
+        /**
+         * Auto replies to incoming messages
+         */
+        REPLY,
+        /**
+         * Messages received from the Sync URL's task check
+         */
+        TASK
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxMessage{"
+                + "phone='" + phone + '\''
+                + ", messageUuid='" + messageUuid + '\''
+                + ", messageType=" + messageType
+                + ", priority=" + priority
+                + ", deliveryReport=" + deliveryReport
+                + ", queuedDate=" + queuedDate
+                + '}';
+    }
+}
@@ -17,8 +17,15 @@
 
 package org.addhen.smssync.data.entity;
 
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import org.addhen.smssync.data.util.JsonUtils;
+
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,4 +45,49 @@ public class QueuedMessages implements Serializable {
     public List<String> getQueuedMessages() {
         return queuedMessages;
     }
+
+    /**
+     * Reads and writes the queued message uuids without reflection
+     */
+    public static class GsonAdapter extends TypeAdapter<QueuedMessages> {
+
+        @Override
+        public void write(JsonWriter out, QueuedMessages queued) throws IOException {
+            if (queued == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("queued_messages");
+            if (queued.queuedMessages == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (String uuid : queued.queuedMessages) {
+                    out.value(uuid);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public QueuedMessages read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            QueuedMessages queued = new QueuedMessages();
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("queued_messages".equals(in.nextName())) {
+                    queued.queuedMessages = JsonUtils.nextStringList(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return queued;
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.entity;
+
+import com.addhen.android.raiburari.data.entity.DataEntity;
+
+import java.util.Date;
+
+import nl.qbusict.cupboard.annotation.Column;
+
+/**
+ * The sent and delivery state of one part of an outbound SMS. The row id is the part's
+ * correlation id and is the only thing carried in the sent and delivered intents. All the parts
+ * of one send share the message's correlation id.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class SmsPart extends DataEntity {
+
+    @Column("correlation_id")
+    public String correlationId;
+
+    @Column("message_uuid")
+    public String messageUuid;
+
+    @Column("phone")
+    public String phone;
+
+    @Column("part_index")
+    public int partIndex;
+
+    @Column("part_count")
+    public int partCount;
+
+    @Column("sent_status")
+    public Status sentStatus;
+
+    @Column("sent_result_code")
+    public int sentResultCode;
+
+    @Column("sent_result_message")
+    public String sentResultMessage;
+
+    @Column("delivery_status")
+    public Status deliveryStatus;
+
+    @Column("delivery_result_code")
+    public int deliveryResultCode;
+
+    @Column("delivery_result_message")
+    public String deliveryResultMessage;
+
+    @Column("created_date")
+    public Date createdDate;
+
+    @Column("updated_date")
+    public Date updatedDate;
+
+    public enum Status {
+        PENDING,
+        SUCCEEDED,
+        FAILED,
+        /**
+         * No delivery report was asked for
+         */
+        NOT_REQUESTED
+    }
+
+    /**
+     * A result reported by the SMS manager for a part, waiting to be written
+     */
+    public static class Update {
+
+        public final long partId;
+
+        public final boolean delivery;
+
+        public final int resultCode;
+
+        public final String resultMessage;
+
+        public final boolean success;
+
+        public Update(long partId, boolean delivery, int resultCode, String resultMessage,
+                boolean success) {
+            this.partId = partId;
+            this.delivery = delivery;
+            this.resultCode = resultCode;
+            this.resultMessage = resultMessage;
+            this.success = success;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SmsPart{"
+                + "id=" + _id
+                + ", correlationId='" + correlationId + '\''
+                + ", messageUuid='" + messageUuid + '\''
+                + ", partIndex=" + partIndex
+                + ", partCount=" + partCount
+                + ", sentStatus=" + sentStatus
+                + ", sentResultCode=" + sentResultCode
+                + ", deliveryStatus=" + deliveryStatus
+                + ", deliveryResultCode=" + deliveryResultCode
+                + '}';
+    }
+}
@@ -17,6 +17,16 @@
 
 package org.addhen.smssync.data.entity;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import org.addhen.smssync.data.util.JsonUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -32,7 +42,7 @@ public class SmssyncResponse {
         return payload;
     }
 
-    public class Payload {
+    public static class Payload {
 
         private List<Message> messages;
 
@@ -82,4 +92,118 @@ public class SmssyncResponse {
                 "payload=" + payload +
                 '}';
     }
+
+    /**
+     * Reads and writes a response without reflection. The messages go through the Gson's
+     * message adapter.
+     */
+    public static class GsonAdapter extends TypeAdapter<SmssyncResponse> {
+
+        private final TypeAdapter<Message> mMessageAdapter;
+
+        public GsonAdapter(Gson gson) {
+            mMessageAdapter = gson.getAdapter(Message.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, SmssyncResponse response) throws IOException {
+            if (response == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("payload");
+            writePayload(out, response.payload);
+            out.endObject();
+        }
+
+        @Override
+        public SmssyncResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            SmssyncResponse response = new SmssyncResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("payload".equals(in.nextName())) {
+                    response.payload = readPayload(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        private void writePayload(JsonWriter out, Payload payload) throws IOException {
+            if (payload == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("messages");
+            if (payload.messages == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (Message message : payload.messages) {
+                    mMessageAdapter.write(out, message);
+                }
+                out.endArray();
+            }
+            out.name("task").value(payload.task);
+            out.name("secret").value(payload.secret);
+            out.name("error").value(payload.error);
+            out.name("success").value(payload.success);
+            out.endObject();
+        }
+
+        private Payload readPayload(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Payload payload = new Payload();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "messages":
+                        payload.messages = readMessages(in);
+                        break;
+                    case "task":
+                        payload.task = JsonUtils.nextString(in);
+                        break;
+                    case "secret":
+                        payload.secret = JsonUtils.nextString(in);
+                        break;
+                    case "error":
+                        payload.error = JsonUtils.nextString(in);
+                        break;
+                    case "success":
+                        payload.success = JsonUtils.nextBoolean(in, payload.success);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return payload;
+        }
+
+        private List<Message> readMessages(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<Message> messages = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                messages.add(mMessageAdapter.read(in));
+            }
+            in.endArray();
+            return messages;
+        }
+    }
 }
@@ -19,26 +19,42 @@ package org.addhen.smssync.data.entity;
 
 import com.addhen.android.raiburari.data.entity.DataEntity;
 
+import org.addhen.smssync.data.database.converter.GenerateConverter;
+
 /**
  * @author Ushahidi Team <team@ushahidi.com>
  */
 // TODO: Rename this web service to match the new nomenclature for sync url
 // TODO: Update database to match the name
+@GenerateConverter
 public class SyncUrl extends DataEntity {
 
-    private String title;
+    // Package private so the generated converter can read and write them
+    String title;
+
+    String url;
+
+    String secret;
+
+    String syncScheme;
+
+    Status status;
 
-    private String url;
+    String keywords;
 
-    private String secret;
+    KeywordStatus keywordStatus;
 
-    private String syncScheme;
+    TaskChannel taskChannel;
 
-    private Status status;
+    Integer connectTimeout;
 
-    private String keywords;
+    Integer readTimeout;
 
-    private KeywordStatus keywordStatus;
+    Integer writeTimeout;
+
+    Integer deadline;
+
+    Boolean hedgeRequests;
 
     public String getTitle() {
         return title;
@@ -97,6 +113,70 @@ public class SyncUrl extends DataEntity {
         this.keywordStatus = keywordStatus;
     }
 
+    public TaskChannel getTaskChannel() {
+        return taskChannel != null ? taskChannel : TaskChannel.POLL;
+    }
+
+    public void setTaskChannel(TaskChannel taskChannel) {
+        this.taskChannel = taskChannel;
+    }
+
+    /**
+     * @return The connect timeout in seconds, zero for the default
+     */
+    public int getConnectTimeout() {
+        return connectTimeout != null ? connectTimeout : 0;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return The read timeout in seconds, zero for the default
+     */
+    public int getReadTimeout() {
+        return readTimeout != null ? readTimeout : 0;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return The write timeout in seconds, zero for the default
+     */
+    public int getWriteTimeout() {
+        return writeTimeout != null ? writeTimeout : 0;
+    }
+
+    public void setWriteTimeout(int writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    /**
+     * @return The most seconds a request may take until it's answered, zero for no deadline
+     */
+    public int getDeadline() {
+        return deadline != null ? deadline : 0;
+    }
+
+    public void setDeadline(int deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return True when task checks and message result requests are made again when they take
+     * longer than usual
+     */
+    public boolean isHedgeRequests() {
+        return hedgeRequests != null && hedgeRequests;
+    }
+
+    public void setHedgeRequests(boolean hedgeRequests) {
+        this.hedgeRequests = hedgeRequests;
+    }
+
     @Override
     public String toString() {
         return "SyncUrl{" +
@@ -107,6 +187,12 @@ public class SyncUrl extends DataEntity {
                 ", syncScheme=" + syncScheme +
                 ", keyword=" + keywords +
                 ", keywordStats=" + keywordStatus +
+                ", taskChannel=" + taskChannel +
+                ", connectTimeout=" + connectTimeout +
+                ", readTimeout=" + readTimeout +
+                ", writeTimeout=" + writeTimeout +
+                ", deadline=" + deadline +
+                ", hedgeRequests=" + hedgeRequests +
                 ", status=" + status +
                 '}';
     }
@@ -118,4 +204,13 @@ public class SyncUrl extends DataEntity {
     public enum KeywordStatus {
         ENABLED, DISABLED
     }
+
+    /**
+     * How tasks are fetched from the Sync URL. {@link #POLL} is the periodic task check,
+     * {@link #LONG_POLL} and {@link #SSE} keep a connection open so tasks are received as soon
+     * as the server has them.
+     */
+    public enum TaskChannel {
+        POLL, LONG_POLL, SSE
+    }
 }
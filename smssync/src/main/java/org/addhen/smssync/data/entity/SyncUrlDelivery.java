@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.entity;
+
+import com.addhen.android.raiburari.data.entity.DataEntity;
+
+import java.util.Date;
+
+import nl.qbusict.cupboard.annotation.Column;
+
+/**
+ * The delivery of one message to one Sync URL. A message posted to several Sync URLs has a row
+ * for each, so one that accepted the message isn't posted to again while another one is still
+ * failing.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class SyncUrlDelivery extends DataEntity {
+
+    @Column("message_uuid")
+    public String messageUuid;
+
+    @Column("sync_url_id")
+    public long syncUrlId;
+
+    @Column("status")
+    public Status status;
+
+    /**
+     * The number of times posting failed
+     */
+    @Column("attempts")
+    public int attempts;
+
+    @Column("created_date")
+    public Date createdDate;
+
+    @Column("updated_date")
+    public Date updatedDate;
+
+    @Column("delivered_date")
+    public Date deliveredDate;
+
+    public enum Status {
+        PENDING,
+        DELIVERED,
+        /**
+         * Gave up after too many attempts
+         */
+        FAILED
+    }
+
+    @Override
+    public String toString() {
+        return "SyncUrlDelivery{"
+                + "id=" + _id
+                + ", messageUuid='" + messageUuid + '\''
+                + ", syncUrlId=" + syncUrlId
+                + ", status=" + status
+                + ", attempts=" + attempts
+                + '}';
+    }
+}
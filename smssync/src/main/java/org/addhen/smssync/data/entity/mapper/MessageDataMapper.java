@@ -19,8 +19,8 @@ package org.addhen.smssync.data.entity.mapper;
 
 import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.domain.entity.MessageEntity;
+import org.addhen.smssync.domain.util.MappedList;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -73,28 +73,24 @@ public class MessageDataMapper {
         return message;
     }
 
+    /**
+     * Maps a list of messages. Each message is mapped when it's first read.
+     *
+     * @param messageList The messages
+     * @return A view of the messages as entities
+     */
     public List<MessageEntity> map(List<Message> messageList) {
-        List<MessageEntity> messageEntityList = new ArrayList<>();
-        MessageEntity messageEntity;
-        for (Message message : messageList) {
-            messageEntity = map(message);
-            if (messageEntity != null) {
-                messageEntityList.add(messageEntity);
-            }
-        }
-        return messageEntityList;
+        return new MappedList<Message, MessageEntity>(messageList, this::map);
     }
 
+    /**
+     * Maps a list of message entities. Each entity is mapped when it's first read.
+     *
+     * @param messageList The message entities
+     * @return A view of the entities as messages
+     */
     public List<Message> unmap(List<MessageEntity> messageList) {
-        List<Message> messages = new ArrayList<>();
-        Message message;
-        for (MessageEntity messageEntity : messageList) {
-            message = map(messageEntity);
-            if (message != null) {
-                messages.add(message);
-            }
-        }
-        return messages;
+        return new MappedList<MessageEntity, Message>(messageList, this::map);
     }
 
     public Message.Status map(MessageEntity.Status status) {
@@ -19,6 +19,7 @@ package org.addhen.smssync.data.entity.mapper;
 
 import org.addhen.smssync.data.entity.SyncScheme;
 import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.net.SyncUrlCircuitBreakers;
 import org.addhen.smssync.domain.entity.SyncSchemeEntity;
 import org.addhen.smssync.domain.entity.WebServiceEntity;
 
@@ -32,9 +33,11 @@ import javax.inject.Inject;
  */
 public class WebServiceDataMapper {
 
+    private final SyncUrlCircuitBreakers mCircuitBreakers;
+
     @Inject
-    public WebServiceDataMapper() {
-        // Do nothing
+    public WebServiceDataMapper(SyncUrlCircuitBreakers circuitBreakers) {
+        mCircuitBreakers = circuitBreakers;
     }
 
     public WebServiceEntity map(SyncUrl syncUrl) {
@@ -48,6 +51,15 @@ public class WebServiceDataMapper {
             webServiceEntity.setKeywords(syncUrl.getKeywords());
             webServiceEntity.setStatus(map(syncUrl.getStatus()));
             webServiceEntity.setKeywordStatus(map(syncUrl.getKeywordStatus()));
+            webServiceEntity.setTaskChannel(map(syncUrl.getTaskChannel()));
+            webServiceEntity.setConnectTimeout(syncUrl.getConnectTimeout());
+            webServiceEntity.setReadTimeout(syncUrl.getReadTimeout());
+            webServiceEntity.setWriteTimeout(syncUrl.getWriteTimeout());
+            webServiceEntity.setDeadline(syncUrl.getDeadline());
+            webServiceEntity.setHedgeRequests(syncUrl.isHedgeRequests());
+            webServiceEntity.setCircuitState(WebServiceEntity.CircuitState
+                    .valueOf(mCircuitBreakers.getState(syncUrl._id).name()));
+            webServiceEntity.setCircuitRetryAt(mCircuitBreakers.getRetryAt(syncUrl._id));
             webServiceEntity.setSyncScheme(
                     new SyncSchemeEntity(syncUrl.getSyncScheme().toJSONString()));
         }
@@ -67,6 +79,12 @@ public class WebServiceDataMapper {
             syncUrl
                     .setSyncScheme(new SyncScheme(webServiceEntity.getSyncScheme().toJSONString()));
             syncUrl.setKeywordStatus(map(webServiceEntity.getKeywordStatus()));
+            syncUrl.setTaskChannel(map(webServiceEntity.getTaskChannel()));
+            syncUrl.setConnectTimeout(webServiceEntity.getConnectTimeout());
+            syncUrl.setReadTimeout(webServiceEntity.getReadTimeout());
+            syncUrl.setWriteTimeout(webServiceEntity.getWriteTimeout());
+            syncUrl.setDeadline(webServiceEntity.getDeadline());
+            syncUrl.setHedgeRequests(webServiceEntity.isHedgeRequests());
         }
         return syncUrl;
     }
@@ -110,4 +128,18 @@ public class WebServiceDataMapper {
         }
         return WebServiceEntity.KeywordStatus.DISABLED;
     }
+
+    public SyncUrl.TaskChannel map(WebServiceEntity.TaskChannel taskChannel) {
+        if (taskChannel != null) {
+            return SyncUrl.TaskChannel.valueOf(taskChannel.name());
+        }
+        return SyncUrl.TaskChannel.POLL;
+    }
+
+    public WebServiceEntity.TaskChannel map(SyncUrl.TaskChannel taskChannel) {
+        if (taskChannel != null) {
+            return WebServiceEntity.TaskChannel.valueOf(taskChannel.name());
+        }
+        return WebServiceEntity.TaskChannel.POLL;
+    }
 }
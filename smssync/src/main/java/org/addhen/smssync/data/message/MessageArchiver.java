@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.R;
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.database.MessageDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.util.JsonUtils;
+import org.addhen.smssync.data.util.Logger;
+
+import android.content.Context;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps the number of sent messages in the database in check. Sent messages older than the
+ * retention period, or the oldest ones over the retention limit, are written to a compressed
+ * archive file and then deleted, a batch at a time, and the space they took is given back.
+ * <p/>
+ * A batch is only deleted once it's safely in the archive, so a failed write leaves the
+ * messages where they were. Each run writes its own file of JSON lines under
+ * {@link #ARCHIVE_DIRECTORY}.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class MessageArchiver {
+
+    public static final String ARCHIVE_DIRECTORY = "archive";
+
+    private static final String TAG = MessageArchiver.class.getSimpleName();
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * The most pages freed in one run, about 4MB with the default page size
+     */
+    private static final int MAX_VACUUM_PAGES = 1024;
+
+    private final Context mContext;
+
+    private final PrefsFactory mPrefsFactory;
+
+    private final FileManager mFileManager;
+
+    private final MessageDatabaseHelper mMessageDatabaseHelper;
+
+    @Inject
+    public MessageArchiver(Context context, PrefsFactory prefsFactory, FileManager fileManager,
+            MessageDatabaseHelper messageDatabaseHelper) {
+        mContext = context;
+        mPrefsFactory = prefsFactory;
+        mFileManager = fileManager;
+        mMessageDatabaseHelper = messageDatabaseHelper;
+    }
+
+    /**
+     * @return True when sent messages are archived at all
+     */
+    public boolean isEnabled() {
+        return mPrefsFactory.retentionDays().get() > 0
+                || mPrefsFactory.retentionMaxMessages().get() > 0;
+    }
+
+    /**
+     * Archives the sent messages the retention settings no longer keep
+     *
+     * @return The number of messages archived
+     */
+    public int archive() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        final long now = System.currentTimeMillis();
+        final int due = countDue(now);
+        int archived = 0;
+        File file = null;
+        while (archived < due) {
+            // Oldest first, so these are the messages that are due
+            List<Message> batch = mMessageDatabaseHelper.fetchMessagesByStatus(
+                    Message.Status.SENT, Math.min(BATCH_SIZE, due - archived));
+            if (batch.isEmpty()) {
+                break;
+            }
+            try {
+                if (file == null) {
+                    file = createArchiveFile(now);
+                }
+                write(file, batch);
+            } catch (IOException e) {
+                Logger.log(TAG, "Couldn't archive sent messages", e);
+                break;
+            }
+            if (mMessageDatabaseHelper.deleteMessages(batch) == 0) {
+                break;
+            }
+            archived += batch.size();
+        }
+        if (archived > 0) {
+            mFileManager.appendAndClose(mContext.getString(R.string.archived_messages, archived,
+                    file.getName()));
+        }
+        // Also picks up where the previous run stopped freeing pages
+        final long freePages = mMessageDatabaseHelper.compact(MAX_VACUUM_PAGES);
+        Logger.log(TAG, "Archived " + archived + " messages, " + freePages + " free pages left");
+        return archived;
+    }
+
+    private int countDue(long now) {
+        final int days = mPrefsFactory.retentionDays().get();
+        final int maxMessages = mPrefsFactory.retentionMaxMessages().get();
+        int due = 0;
+        if (days > 0) {
+            due = mMessageDatabaseHelper.countMessagesByStatus(Message.Status.SENT,
+                    now - days * DAY);
+        }
+        if (maxMessages > 0) {
+            due = Math.max(due, mMessageDatabaseHelper.countMessagesByStatus(Message.Status.SENT)
+                    - maxMessages);
+        }
+        return due;
+    }
+
+    private File createArchiveFile(long now) throws IOException {
+        File directory = new File(mContext.getFilesDir(), ARCHIVE_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create " + directory);
+        }
+        final String date = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US)
+                .format(new Date(now));
+        return new File(directory, "sent-messages-" + date + ".jsonl.gz");
+    }
+
+    /**
+     * Appends a batch to the archive as a gzip member of its own. Readers see the members as one
+     * stream, and the file on disk is complete after every batch.
+     */
+    private void write(File file, List<Message> batch) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, true);
+        GZIPOutputStream gzip = null;
+        Writer writer = null;
+        try {
+            gzip = new GZIPOutputStream(out);
+            writer = new BufferedWriter(new OutputStreamWriter(gzip, "UTF-8"));
+            for (Message message : batch) {
+                JsonUtils.getGson().toJson(message, Message.class, writer);
+                writer.write('\n');
+            }
+            writer.flush();
+            gzip.finish();
+            // The messages get deleted next, so they have to be on disk first
+            out.getFD().sync();
+        } finally {
+            if (writer != null) {
+                writer.close();
+            } else if (gzip != null) {
+                gzip.close();
+            } else {
+                out.close();
+            }
+        }
+    }
+}
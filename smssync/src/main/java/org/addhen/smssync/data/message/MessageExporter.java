@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.database.MessageDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.util.JsonUtils;
+import org.addhen.smssync.data.util.Logger;
+
+import android.content.Context;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Exports the saved messages to a gzipped file of JSON lines or CSV.
+ * <p/>
+ * Messages are read a page at a time and streamed straight into the file, so an export takes
+ * the same memory however many messages there are. The id of the last message exported is kept,
+ * so an export of new messages only writes what was saved since. The file is written under a
+ * temporary name and only takes its real name once it's complete.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class MessageExporter {
+
+    public static final String EXPORT_DIRECTORY = "exports";
+
+    private static final String TAG = MessageExporter.class.getSimpleName();
+
+    private static final int PAGE_SIZE = 500;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] CSV_HEADER = {"id", "uuid", "from", "body", "date", "type",
+            "status", "sent_result_code", "sent_result_message", "delivery_result_code",
+            "delivery_result_message", "delivered_date", "retries"};
+
+    /**
+     * Dates are written as milliseconds since the epoch so they don't depend on the locale
+     */
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(JsonUtils.getEntityAdapters())
+            .registerTypeAdapter(Date.class, (JsonSerializer<Date>) (date, type, context)
+                    -> new JsonPrimitive(date.getTime()))
+            .create();
+
+    private final Context mContext;
+
+    private final PrefsFactory mPrefsFactory;
+
+    private final MessageDatabaseHelper mMessageDatabaseHelper;
+
+    @Inject
+    public MessageExporter(Context context, PrefsFactory prefsFactory,
+            MessageDatabaseHelper messageDatabaseHelper) {
+        mContext = context;
+        mPrefsFactory = prefsFactory;
+        mMessageDatabaseHelper = messageDatabaseHelper;
+    }
+
+    /**
+     * Creates a new file name for an export in the export directory
+     *
+     * @param format      The format of the export
+     * @param onlyNewOnes True when the export only holds messages saved since the last one
+     * @return The file to export to
+     */
+    public File createExportFile(Format format, boolean onlyNewOnes) throws IOException {
+        File directory = new File(mContext.getFilesDir(), EXPORT_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create " + directory);
+        }
+        final String date = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US)
+                .format(new Date());
+        return new File(directory, "messages-" + date + (onlyNewOnes ? "-new" : "") + "."
+                + format.extension + ".gz");
+    }
+
+    /**
+     * Exports the saved messages
+     *
+     * @param file        The file to export to
+     * @param format      The format of the export
+     * @param onlyNewOnes True to only export the messages saved since the last export
+     * @param listener    Told about the progress before the first page and after every page
+     * @return The number of messages exported or -1 when the export was cancelled, which
+     * leaves no file behind
+     */
+    public synchronized int export(File file, Format format, boolean onlyNewOnes,
+            ProgressListener listener) throws IOException {
+        long checkpoint = onlyNewOnes ? mPrefsFactory.exportCheckpoint().get() : 0;
+        final int total = mMessageDatabaseHelper.countMessagesAfter(checkpoint);
+        Logger.log(TAG, "Exporting " + total + " messages after " + checkpoint);
+        if (!listener.onProgress(0, total)) {
+            return -1;
+        }
+        final File partial = new File(file.getPath() + ".part");
+        int written = 0;
+        boolean complete = false;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                new FileOutputStream(partial), BUFFER_SIZE), "UTF-8"), BUFFER_SIZE);
+        try {
+            if (format == Format.CSV) {
+                writeCsvRow(writer, (Object[]) CSV_HEADER);
+            }
+            List<Message> page = mMessageDatabaseHelper.fetchMessagesAfter(checkpoint, PAGE_SIZE);
+            while (!page.isEmpty()) {
+                for (Message message : page) {
+                    write(writer, format, message);
+                }
+                written += page.size();
+                checkpoint = page.get(page.size() - 1)._id;
+                if (!listener.onProgress(written, total)) {
+                    return -1;
+                }
+                page = mMessageDatabaseHelper.fetchMessagesAfter(checkpoint, PAGE_SIZE);
+            }
+            writer.close();
+            complete = partial.renameTo(file);
+            if (!complete) {
+                throw new IOException("Couldn't rename " + partial + " to " + file);
+            }
+        } finally {
+            if (!complete) {
+                writer.close();
+                partial.delete();
+            }
+        }
+        // Only moves on once the messages are safely in a file
+        if (written > 0) {
+            mPrefsFactory.exportCheckpoint().set(checkpoint);
+        }
+        Logger.log(TAG, "Exported " + written + " messages to " + file);
+        return written;
+    }
+
+    private static void write(Writer writer, Format format, Message message)
+            throws IOException {
+        if (format == Format.CSV) {
+            writeCsvRow(writer, message._id, message.messageUuid, message.messageFrom,
+                    message.messageBody, toMillis(message.messageDate), message.messageType,
+                    message.status, message.sentResultCode, message.sentResultMessage,
+                    message.deliveryResultCode, message.deliveryResultMessage,
+                    toMillis(message.deliveredDate), message.retries);
+            return;
+        }
+        GSON.toJson(message, Message.class, writer);
+        writer.write('\n');
+    }
+
+    private static Long toMillis(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    private static void writeCsvRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writeCsvValue(writer, values[i].toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a value, quoting it when it holds a separator, a quote or a line break
+     */
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            final char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * The format of an export
+     */
+    public enum Format {
+        /**
+         * One JSON object per message, a line each
+         */
+        JSON_LINES("jsonl"),
+        /**
+         * One row per message, after a header row
+         */
+        CSV("csv");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Listens for the progress of an export
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param written The number of messages written so far
+         * @param total   The number of messages to write
+         * @return True to carry on, false to cancel the export
+         */
+        boolean onProgress(int written, int total);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.smslib.model.SmsMessage;
+import org.addhen.smssync.smslib.sms.ProcessSms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Imports the messages app's inbox a page at a time. The messages are saved as sent, so they're
+ * kept for the record without being synced, unless they're imported as pending messages.
+ * <p/>
+ * Each page is saved in one transaction and the provider id of its last message is kept as a
+ * checkpoint, so an import that gets killed carries on from there, and importing again only
+ * picks up messages that arrived since.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class MessageImporter {
+
+    private static final String TAG = MessageImporter.class.getSimpleName();
+
+    private static final int PAGE_SIZE = 500;
+
+    private final PostMessage mPostMessage;
+
+    private final MessageDataSource mMessageDataSource;
+
+    private final PrefsFactory mPrefsFactory;
+
+    @Inject
+    public MessageImporter(PostMessage postMessage,
+            MessageDataSourceFactory messageDataSourceFactory, PrefsFactory prefsFactory) {
+        mPostMessage = postMessage;
+        mMessageDataSource = messageDataSourceFactory.createMessageDatabaseSource();
+        mPrefsFactory = prefsFactory;
+    }
+
+    /**
+     * Imports the inbox messages that haven't been imported yet
+     *
+     * @param asPending True to save the messages as pending so they're synced, false to save them
+     *                  as sent
+     * @param listener  Told about the progress after every page
+     * @return The number of messages imported
+     */
+    public synchronized int importMessages(boolean asPending, ProgressListener listener) {
+        final ProcessSms processSms = mPostMessage.getProcessSms();
+        long checkpoint = mPrefsFactory.importCheckpoint().get();
+        final int total = processSms.countMessagesToImport(checkpoint);
+        Logger.log(TAG, "Importing " + total + " messages after " + checkpoint);
+        int read = 0;
+        int imported = 0;
+        List<SmsMessage> page = processSms.importMessages(checkpoint, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            List<Message> messages = new ArrayList<>(page.size());
+            for (SmsMessage smsMessage : page) {
+                Message message = mPostMessage.map(smsMessage);
+                // Not saved yet, the inbox id isn't ours
+                message._id = null;
+                if (!asPending) {
+                    message.status = Message.Status.SENT;
+                }
+                messages.add(message);
+            }
+            imported += mMessageDataSource.importMessages(messages);
+            read += page.size();
+            checkpoint = page.get(page.size() - 1).providerId;
+            mPrefsFactory.importCheckpoint().set(checkpoint);
+            if (!listener.onProgress(read, total)) {
+                Logger.log(TAG, "Import stopped at " + checkpoint);
+                break;
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            page = processSms.importMessages(checkpoint, PAGE_SIZE);
+        }
+        return imported;
+    }
+
+    /**
+     * Receives the progress of an import
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param read  The number of inbox messages read so far
+         * @param total The number of inbox messages to read
+         * @return false to stop the import. It carries on from here the next time.
+         */
+        boolean onProgress(int read, int total);
+    }
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.database.SyncUrlDeliveryDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.entity.SyncUrlDelivery;
+import org.addhen.smssync.data.net.MessageHttpClient;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.presentation.service.WakeLockManager;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+
+/**
+ * Posts incoming and pending messages to the enabled Sync URLs.
+ * <p/>
+ * A message is posted to each Sync URL separately. When it's taken in, a {@link RoutingPlan}
+ * works out which Sync URLs it goes to and a {@link SyncUrlDelivery} row is added for each of
+ * them. Every Sync URL then drains its own pending rows on its own thread, one request at a
+ * time, so a slow or failing Sync URL neither holds up the others nor makes them get a message
+ * again. A message goes to the sent box once every enabled Sync URL it was planned for accepted
+ * it, and is deleted like before once one of them failed more times than the retries setting
+ * allows.
+ * <p/>
+ * Incoming messages are saved before they're taken in, so the database is the buffer: a burst of
+ * messages only sends signals down the pipeline, which are coalesced and turned into reads of
+ * {@link #BATCH_SIZE} messages at a time.
+ * <p/>
+ * A Sync URL's drain stops while its circuit breaker is open. Its rows are left pending without
+ * using up an attempt and are posted on the next drain.
+ * <p/>
+ * The device is kept awake with the {@link WakeLockManager} from the moment an incoming message
+ * is signalled until the intake that reads it is done, and for as long as a drain is waiting or
+ * running, so the work doesn't stall when the screen is off.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class MessagePipeline {
+
+    private static final String TAG = MessagePipeline.class.getSimpleName();
+
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * How long to wait for more incoming messages before taking them in
+     */
+    private static final long BATCH_WINDOW = 1000;
+
+    /**
+     * How long, in seconds, the thread of a Sync URL with nothing to post is kept
+     */
+    private static final long IDLE_TIMEOUT = 60;
+
+    /**
+     * The wake lock component of the intake of incoming messages
+     */
+    static final String WAKE_INTAKE = TAG + " intake";
+
+    /**
+     * The wake lock component of the Sync URLs' drains
+     */
+    static final String WAKE_DRAIN = TAG + " drain";
+
+    private final Context mContext;
+
+    private final FileManager mFileManager;
+
+    private final PrefsFactory mPrefsFactory;
+
+    private final PostMessage mPostMessage;
+
+    private final MessageDataSourceFactory mMessageDataSourceFactory;
+
+    private final SyncUrlDeliveryDatabaseHelper mDeliveries;
+
+    private final WakeLockManager mWakeLockManager;
+
+    /**
+     * The incoming messages signalled and not taken in yet. The intake's wake lock is held while
+     * there are any.
+     */
+    private int mUntaken;
+
+    private final SerializedSubject<Message, Message> mReceived
+            = new SerializedSubject<>(PublishSubject.<Message>create());
+
+    /**
+     * Messages are taken in one batch at a time, so the incoming and pending flows don't add
+     * rows for the same message at once
+     */
+    private final Scheduler mIntakeScheduler = Schedulers
+            .from(Executors.newSingleThreadExecutor());
+
+    private final ConcurrentMap<Long, SyncUrlQueue> mQueues = new ConcurrentHashMap<>();
+
+    /**
+     * The uuids of incoming messages to delete from the SMS inbox once they're delivered. It
+     * isn't kept across restarts, so like other pending messages those are left in the inbox.
+     */
+    private final Set<String> mReceivedUuids = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Inject
+    public MessagePipeline(Context context, FileManager fileManager, PrefsFactory prefsFactory,
+            PostMessage postMessage, MessageDataSourceFactory messageDataSourceFactory,
+            SyncUrlDeliveryDatabaseHelper deliveries, WakeLockManager wakeLockManager) {
+        mContext = context;
+        mFileManager = fileManager;
+        mPrefsFactory = prefsFactory;
+        mPostMessage = postMessage;
+        mMessageDataSourceFactory = messageDataSourceFactory;
+        mDeliveries = deliveries;
+        mWakeLockManager = wakeLockManager;
+        mReceived.buffer(BATCH_WINDOW, TimeUnit.MILLISECONDS, BATCH_SIZE)
+                .filter(signals -> !signals.isEmpty())
+                // An intake is already running and reads every saved message until none are
+                // left, so the signals that don't fit behind it aren't needed
+                .onBackpressureDrop()
+                .concatMap(signals -> Observable.defer(() -> Observable.just(takeReceived()))
+                        .subscribeOn(mIntakeScheduler))
+                .subscribe(count -> Logger.log(TAG, "Took in " + count + " incoming messages"),
+                        e -> Logger.log(TAG, "Message pipeline stopped", e));
+    }
+
+    /**
+     * Routes an incoming SMS. The message is saved straight away and posted by the Sync URLs'
+     * next drains.
+     *
+     * @param message The sms to be routed
+     * @return True when the message is queued to be posted
+     */
+    public boolean routeSms(Message message) {
+        if (!mPostMessage.queueSms(message)) {
+            return false;
+        }
+        holdIntake();
+        mReceived.onNext(message);
+        return true;
+    }
+
+    private synchronized void holdIntake() {
+        if (mUntaken++ == 0) {
+            mWakeLockManager.acquire(WAKE_INTAKE, false);
+        }
+    }
+
+    /**
+     * @return The number of signalled messages an intake starting now will read
+     */
+    private synchronized int getUntaken() {
+        return mUntaken;
+    }
+
+    /**
+     * Lets go of the intake's wake lock once no messages signalled since are waiting
+     *
+     * @param taken The number of signalled messages the intake read
+     */
+    private synchronized void releaseIntake(int taken) {
+        if (taken > 0 && (mUntaken -= taken) == 0) {
+            mWakeLockManager.release(WAKE_INTAKE);
+        }
+    }
+
+    /**
+     * Posts every pending message
+     *
+     * @return The delivery of each message. Unsubscribe to stop before the next message.
+     */
+    public Observable<Delivery> syncPending() {
+        return Observable.defer(() -> syncPending(createDataSource().syncFetchPending()));
+    }
+
+    /**
+     * Posts the given pending messages. Sync URLs that already accepted a message don't get it
+     * again.
+     *
+     * @param messages The messages to post
+     * @return The delivery of each message. Unsubscribe to stop before the next message.
+     */
+    public Observable<Delivery> syncPending(List<Message> messages) {
+        return Observable.from(messages)
+                .buffer(BATCH_SIZE)
+                .concatMap(this::sync);
+    }
+
+    private int takeReceived() {
+        // Messages signalled from here on may be saved after the last read, so they keep the
+        // wake lock until the intake that follows
+        final int taken = getUntaken();
+        int count = 0;
+        try {
+            // Every message in a batch leaves the unconfirmed state, so this always moves on
+            List<Message> batch;
+            while (!(batch = createDataSource().fetchMessagesByStatus(
+                    Message.Status.UNCONFIRMED, BATCH_SIZE)).isEmpty()) {
+                for (SyncUrl syncUrl : intake(batch, true).getEndpoints()) {
+                    getQueue(syncUrl).schedule();
+                }
+                count += batch.size();
+            }
+        } finally {
+            releaseIntake(taken);
+        }
+        return count;
+    }
+
+    /**
+     * Takes in a batch of pending messages, then waits for each Sync URL to drain
+     */
+    private Observable<Delivery> sync(List<Message> batch) {
+        return Observable.defer(() -> {
+            final RoutingPlan<SyncUrl> plan = intake(batch, false);
+            List<Observable<Void>> drains = new ArrayList<>(plan.getEndpoints().size());
+            for (SyncUrl syncUrl : plan.getEndpoints()) {
+                drains.add(getQueue(syncUrl).drain());
+            }
+            return Observable.merge(drains)
+                    .toList()
+                    .concatMap(done -> Observable.from(complete(batch)));
+        }).subscribeOn(mIntakeScheduler);
+    }
+
+    /**
+     * Plans where a batch of messages goes and adds a pending delivery row for each Sync URL it
+     * goes to. Messages no Sync URL takes and task messages are done with here.
+     *
+     * @return The plan
+     */
+    private RoutingPlan<SyncUrl> intake(List<Message> batch, boolean received) {
+        final RoutingPlan<SyncUrl> plan = mPostMessage.planRoutes(batch,
+                mPostMessage.getEnabledSyncUrls());
+        final Date now = new Date();
+        List<SyncUrlDelivery> deliveries = new ArrayList<>();
+        for (Message message : batch) {
+            if (!plan.isRouted(message)) {
+                message.status = Message.Status.FAILED;
+                mPostMessage.processRetries(message);
+            } else if (message.messageType != Message.Type.PENDING) {
+                // Task messages are sent as SMS once, not once per Sync URL
+                if (mPostMessage.sendTaskSms(message)) {
+                    mPostMessage.postToSentBox(message);
+                } else {
+                    message.status = Message.Status.FAILED;
+                    mPostMessage.processRetries(message);
+                }
+            } else {
+                for (SyncUrl syncUrl : plan.getEndpoints()) {
+                    if (plan.isRouted(message, syncUrl)) {
+                        SyncUrlDelivery delivery = new SyncUrlDelivery();
+                        delivery.messageUuid = message.messageUuid;
+                        delivery.syncUrlId = syncUrl._id;
+                        delivery.status = SyncUrlDelivery.Status.PENDING;
+                        delivery.createdDate = now;
+                        delivery.updatedDate = now;
+                        deliveries.add(delivery);
+                    }
+                }
+                if (received) {
+                    mReceivedUuids.add(message.messageUuid);
+                }
+                if (message.status != Message.Status.FAILED) {
+                    mPostMessage.markFailed(message);
+                }
+            }
+        }
+        mDeliveries.addPending(deliveries);
+        return plan;
+    }
+
+    /**
+     * Settles the messages of a synced batch whose Sync URLs are all done with them
+     *
+     * @return The delivery of each message
+     */
+    private List<Delivery> complete(List<Message> batch) {
+        final Set<Long> syncUrlIds = getEnabledSyncUrlIds();
+        List<String> uuids = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            if (message.messageType == Message.Type.PENDING) {
+                // A Sync URL that was disabled since won't drain, so its rows don't count
+                settle(message.messageUuid, syncUrlIds);
+            }
+            uuids.add(message.messageUuid);
+        }
+        Set<String> sent = new HashSet<>();
+        for (Message message : createDataSource().fetchMessagesByUuids(uuids)) {
+            if (message.status == Message.Status.SENT) {
+                sent.add(message.messageUuid);
+            }
+        }
+        List<Delivery> deliveries = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            deliveries.add(new Delivery(message, sent.contains(message.messageUuid)));
+        }
+        return deliveries;
+    }
+
+    /**
+     * Moves a message to the sent box once every enabled Sync URL accepted it, or deletes it
+     * once one gave up on it. Its delivery rows are deleted along with it. A message that's still
+     * pending on any enabled Sync URL is left alone.
+     *
+     * @param messageUuid The uuid of the message
+     * @param syncUrlIds  The ids of the enabled Sync URLs
+     */
+    private synchronized void settle(String messageUuid, Set<Long> syncUrlIds) {
+        final Message message = createDataSource().fetchMessageByUuid(messageUuid);
+        if (message == null) {
+            // Deleted while it was being posted
+            mDeliveries.deleteByMessageUuid(messageUuid);
+            mReceivedUuids.remove(messageUuid);
+            return;
+        }
+        if (message.status == Message.Status.SENT) {
+            return;
+        }
+        int routes = 0;
+        boolean delivered = true;
+        int attempts = 0;
+        for (SyncUrlDelivery delivery : mDeliveries.fetchByMessageUuid(messageUuid)) {
+            if (!syncUrlIds.contains(delivery.syncUrlId)) {
+                continue;
+            }
+            if (delivery.status == SyncUrlDelivery.Status.PENDING) {
+                return;
+            }
+            routes++;
+            delivered &= delivery.status == SyncUrlDelivery.Status.DELIVERED;
+            attempts = Math.max(attempts, delivery.attempts);
+        }
+        if (routes == 0) {
+            return;
+        }
+        if (delivered) {
+            mPostMessage.postToSentBox(message);
+            if (mReceivedUuids.remove(messageUuid)) {
+                mPostMessage.deleteFromSmsInbox(message);
+            }
+        } else {
+            Logger.log(TAG, "Gave up on message " + messageUuid + " after " + attempts
+                    + " attempts");
+            mReceivedUuids.remove(messageUuid);
+            mPostMessage.deleteMessage(message);
+        }
+        mDeliveries.deleteByMessageUuid(messageUuid);
+    }
+
+    private Set<Long> getEnabledSyncUrlIds() {
+        Set<Long> ids = new HashSet<>();
+        for (SyncUrl syncUrl : mPostMessage.getEnabledSyncUrls()) {
+            ids.add(syncUrl._id);
+        }
+        return ids;
+    }
+
+    private SyncUrlQueue getQueue(SyncUrl syncUrl) {
+        SyncUrlQueue queue = mQueues.get(syncUrl._id);
+        if (queue == null) {
+            queue = new SyncUrlQueue(syncUrl._id);
+            SyncUrlQueue existing = mQueues.putIfAbsent(syncUrl._id, queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+        return queue;
+    }
+
+    private MessageDataSource createDataSource() {
+        return mMessageDataSourceFactory.createMessageDatabaseSource();
+    }
+
+    /**
+     * The pending deliveries of one Sync URL. Drains run one at a time on the Sync URL's own
+     * thread, with its own http client, as the client keeps the state of the request it's
+     * making.
+     */
+    private class SyncUrlQueue {
+
+        private final long mSyncUrlId;
+
+        private final MessageHttpClient mClient;
+
+        private final ThreadPoolExecutor mExecutor;
+
+        private final AtomicBoolean mScheduled = new AtomicBoolean();
+
+        SyncUrlQueue(long syncUrlId) {
+            mSyncUrlId = syncUrlId;
+            mClient = new MessageHttpClient(mContext, mFileManager);
+            mExecutor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>());
+            mExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * Schedules a drain unless one is waiting to start already. A drain that's running may
+         * have read its last page already, so rows added since need another one.
+         */
+        void schedule() {
+            if (mScheduled.compareAndSet(false, true)) {
+                // Held from here, so the device can't sleep before the drain starts
+                mWakeLockManager.acquire(WAKE_DRAIN, true);
+                mExecutor.execute(() -> {
+                    mScheduled.set(false);
+                    try {
+                        drain(null);
+                    } finally {
+                        mWakeLockManager.release(WAKE_DRAIN);
+                    }
+                });
+            }
+        }
+
+        /**
+         * @return Completes once a drain is done. Unsubscribe to stop it before the next message.
+         */
+        Observable<Void> drain() {
+            return Observable.create(subscriber -> {
+                mWakeLockManager.acquire(WAKE_DRAIN, true);
+                mExecutor.execute(() -> {
+                    try {
+                        drain(subscriber);
+                    } finally {
+                        mWakeLockManager.release(WAKE_DRAIN);
+                    }
+                    subscriber.onCompleted();
+                });
+            });
+        }
+
+        private void drain(Subscriber<?> subscriber) {
+            SyncUrl syncUrl = null;
+            for (SyncUrl enabled : mPostMessage.getEnabledSyncUrls()) {
+                if (enabled._id == mSyncUrlId) {
+                    syncUrl = enabled;
+                }
+            }
+            if (syncUrl == null) {
+                return;
+            }
+            final Set<Long> syncUrlIds = getEnabledSyncUrlIds();
+            long lastId = 0;
+            List<SyncUrlDelivery> deliveries;
+            while (!(deliveries = mDeliveries.fetchPending(mSyncUrlId, lastId, BATCH_SIZE))
+                    .isEmpty()) {
+                Map<String, Message> messages = fetchMessages(deliveries);
+                for (SyncUrlDelivery delivery : deliveries) {
+                    if (subscriber != null && subscriber.isUnsubscribed()) {
+                        return;
+                    }
+                    lastId = delivery._id;
+                    final Message message = messages.get(delivery.messageUuid);
+                    if (message == null) {
+                        settle(delivery.messageUuid, syncUrlIds);
+                        continue;
+                    }
+                    // Only ask once there's a message to post, a half open Sync URL lets a
+                    // single probe through and expects to hear how it went
+                    if (!mPostMessage.isSyncUrlAvailable(syncUrl)) {
+                        Logger.log(TAG, "Stopped posting to " + syncUrl.getUrl()
+                                + " while it's down");
+                        return;
+                    }
+                    final Date now = new Date();
+                    if (mPostMessage.postToSyncUrl(message, syncUrl, mClient)) {
+                        delivery.status = SyncUrlDelivery.Status.DELIVERED;
+                        delivery.deliveredDate = now;
+                    } else if (++delivery.attempts > mPrefsFactory.retries().get()) {
+                        delivery.status = SyncUrlDelivery.Status.FAILED;
+                    }
+                    delivery.updatedDate = now;
+                    mDeliveries.put(delivery);
+                    if (delivery.status != SyncUrlDelivery.Status.PENDING) {
+                        settle(delivery.messageUuid, syncUrlIds);
+                    }
+                }
+            }
+        }
+
+        private Map<String, Message> fetchMessages(List<SyncUrlDelivery> deliveries) {
+            List<String> uuids = new ArrayList<>(deliveries.size());
+            for (SyncUrlDelivery delivery : deliveries) {
+                uuids.add(delivery.messageUuid);
+            }
+            Map<String, Message> messages = new HashMap<>();
+            for (Message message : createDataSource().fetchMessagesByUuids(uuids)) {
+                messages.put(message.messageUuid, message);
+            }
+            return messages;
+        }
+    }
+
+    /**
+     * The outcome of posting a message to the enabled Sync URLs
+     */
+    public static class Delivery {
+
+        public final Message message;
+
+        /**
+         * True when every enabled Sync URL accepted the message
+         */
+        public final boolean delivered;
+
+        public Delivery(Message message, boolean delivered) {
+            this.message = message;
+            this.delivered = delivered;
+        }
+
+        @Override
+        public String toString() {
+            return "Delivery{"
+                    + "message=" + message.messageUuid
+                    + ", delivered=" + delivered
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.R;
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.database.OutboxDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.OutboxMessage;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.data.util.TokenBucket;
+import org.addhen.smssync.presentation.receiver.OutboxScheduledReceiver;
+import org.addhen.smssync.presentation.service.ServiceConstants;
+import org.addhen.smssync.smslib.model.SmsMessage;
+import org.addhen.smssync.smslib.sms.ProcessSms;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Persisted queue for outbound SMS. Messages are written to the outbox table first and then
+ * drained to the {@link ProcessSms} at the rate set by {@link PrefsFactory#smsSendRate()}.
+ * Alerts go out before auto replies, and auto replies before task messages.
+ * <p/>
+ * When the rate limit stops a drain, an alarm is set for when the next message may be sent so
+ * the queue keeps draining even if the process is killed in between.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class OutboxQueue {
+
+    private static final String TAG = OutboxQueue.class.getSimpleName();
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    /**
+     * The most messages sent back to back after the queue has been idle
+     */
+    private static final int MAX_BURST = 10;
+
+    private static final int BATCH_SIZE = 20;
+
+    private static final long MIN_ALARM_DELAY = 1000;
+
+    private Context mContext;
+
+    private ProcessSms mProcessSms;
+
+    private PrefsFactory mPrefsFactory;
+
+    private FileManager mFileManager;
+
+    private OutboxDatabaseHelper mOutboxDatabaseHelper;
+
+    @Inject
+    public OutboxQueue(Context context, ProcessSms processSms, PrefsFactory prefsFactory,
+            FileManager fileManager, OutboxDatabaseHelper outboxDatabaseHelper) {
+        mContext = context;
+        mProcessSms = processSms;
+        mPrefsFactory = prefsFactory;
+        mFileManager = fileManager;
+        mOutboxDatabaseHelper = outboxDatabaseHelper;
+    }
+
+    /**
+     * Queues an SMS and sends as much of the outbox as the rate limit allows
+     *
+     * @param message        The message to send. messageFrom is the recipient.
+     * @param priority       The lane to queue the message in
+     * @param deliveryReport Whether to request a delivery report
+     */
+    public void enqueue(Message message, OutboxMessage.Priority priority,
+            boolean deliveryReport) {
+        OutboxMessage outboxMessage = new OutboxMessage();
+        outboxMessage.phone = message.messageFrom;
+        outboxMessage.body = message.messageBody;
+        outboxMessage.messageUuid = message.messageUuid;
+        outboxMessage.messageType = message.messageType;
+        outboxMessage.priority = priority;
+        outboxMessage.deliveryReport = deliveryReport;
+        outboxMessage.queuedDate = new Date();
+        mOutboxDatabaseHelper.put(outboxMessage);
+        drain();
+    }
+
+    /**
+     * Sends queued messages, highest priority first, until the outbox is empty or the rate limit
+     * is reached. Schedules the next drain when messages are left.
+     *
+     * @return The number of messages sent
+     */
+    public synchronized int drain() {
+        TokenBucket tokenBucket = restoreTokenBucket();
+        int sent = 0;
+        boolean limited = false;
+        List<OutboxMessage> batch = mOutboxDatabaseHelper.fetchNext(BATCH_SIZE);
+        while (!batch.isEmpty() && !limited) {
+            for (OutboxMessage outboxMessage : batch) {
+                if (!tokenBucket.tryConsume(System.currentTimeMillis())) {
+                    limited = true;
+                    break;
+                }
+                Logger.log(TAG, "Sending queued SMS " + outboxMessage);
+                mProcessSms.sendSms(map(outboxMessage), outboxMessage.deliveryReport);
+                // Only remove once it has been handed over so a crash can't lose it
+                mOutboxDatabaseHelper.delete(outboxMessage);
+                sent++;
+            }
+            if (!limited) {
+                batch = mOutboxDatabaseHelper.fetchNext(BATCH_SIZE);
+            }
+        }
+        saveTokenBucket(tokenBucket);
+        if (sent > 0) {
+            mPrefsFactory.outboxSentCount().set(mPrefsFactory.outboxSentCount().get() + sent);
+        }
+
+        final int pending = getPendingCount();
+        if (limited) {
+            scheduleDrain(tokenBucket.millisUntilAvailable(System.currentTimeMillis()));
+            mFileManager.appendAndClose(mContext.getString(R.string.outbox_rate_limited, sent,
+                    pending, mPrefsFactory.smsSendRate().get()));
+        } else if (sent > 0) {
+            mFileManager.appendAndClose(mContext.getString(R.string.outbox_drained, sent));
+        }
+        return sent;
+    }
+
+    /**
+     * @return The number of messages waiting to be sent
+     */
+    public int getPendingCount() {
+        return mOutboxDatabaseHelper.count();
+    }
+
+    /**
+     * @param priority The lane
+     * @return The number of messages waiting in the lane
+     */
+    public int getPendingCount(OutboxMessage.Priority priority) {
+        return mOutboxDatabaseHelper.count(priority);
+    }
+
+    /**
+     * @return The number of messages sent through the outbox since the app was installed
+     */
+    public long getSentCount() {
+        return mPrefsFactory.outboxSentCount().get();
+    }
+
+    private void scheduleDrain(long delay) {
+        Logger.log(TAG, "Next outbox drain in " + delay + "ms");
+        AlarmManager alarmManager = (AlarmManager) mContext
+                .getSystemService(Context.ALARM_SERVICE);
+        alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP,
+                SystemClock.elapsedRealtime() + Math.max(delay, MIN_ALARM_DELAY),
+                getDrainIntent());
+    }
+
+    private PendingIntent getDrainIntent() {
+        return PendingIntent.getBroadcast(mContext,
+                ServiceConstants.OUTBOX_SCHEDULED_SERVICE_REQUEST_CODE,
+                new Intent(mContext, OutboxScheduledReceiver.class),
+                PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private TokenBucket restoreTokenBucket() {
+        final int rate = mPrefsFactory.smsSendRate().get();
+        final long now = System.currentTimeMillis();
+        if (rate <= 0) {
+            return new TokenBucket(1, 0, now);
+        }
+        final int capacity = Math.min(rate, MAX_BURST);
+        final long refillInterval = HOUR / rate;
+        final long tokens = mPrefsFactory.outboxTokens().get();
+        if (tokens < 0) {
+            return new TokenBucket(capacity, refillInterval, now);
+        }
+        return new TokenBucket(capacity, refillInterval, tokens / 1000d,
+                mPrefsFactory.outboxLastRefill().get());
+    }
+
+    private void saveTokenBucket(TokenBucket tokenBucket) {
+        if (tokenBucket.isUnlimited()) {
+            // Start with a full bucket when a limit is set again
+            mPrefsFactory.outboxTokens().set(-1l);
+            return;
+        }
+        mPrefsFactory.outboxTokens().set((long) (tokenBucket.getTokens() * 1000));
+        mPrefsFactory.outboxLastRefill().set(tokenBucket.getLastRefill());
+    }
+
+    private SmsMessage map(OutboxMessage outboxMessage) {
+        SmsMessage smsMessage = new SmsMessage();
+        smsMessage.phone = outboxMessage.phone;
+        smsMessage.body = outboxMessage.body;
+        smsMessage.uuid = outboxMessage.messageUuid;
+        smsMessage.timestamp = outboxMessage.queuedDate != null
+                ? outboxMessage.queuedDate.getTime() : System.currentTimeMillis();
+        return smsMessage;
+    }
+}
@@ -17,21 +17,22 @@
 
 package org.addhen.smssync.data.message;
 
-import com.google.gson.Gson;
-
 import org.addhen.smssync.R;
 import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
-import org.addhen.smssync.data.entity.Filter;
 import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.entity.MessagesUUIDSResponse;
 import org.addhen.smssync.data.entity.QueuedMessages;
 import org.addhen.smssync.data.entity.SmssyncResponse;
 import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.net.BoundedBody;
 import org.addhen.smssync.data.net.MessageHttpClient;
+import org.addhen.smssync.data.net.SyncUrlCircuitBreakers;
+import org.addhen.smssync.data.net.SyncUrlTimeouts;
 import org.addhen.smssync.data.repository.datasource.filter.FilterDataSourceFactory;
 import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
 import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSourceFactory;
+import org.addhen.smssync.data.util.JsonUtils;
 import org.addhen.smssync.data.util.Logger;
 import org.addhen.smssync.data.util.Utility;
 import org.addhen.smssync.smslib.sms.ProcessSms;
@@ -39,17 +40,22 @@ import org.addhen.smssync.smslib.sms.ProcessSms;
 import android.content.Context;
 import android.text.TextUtils;
 
-import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
  * Posts {@link Message} to a configured web service
+ * <p/>
+ * The sync services and the task channels share this instance. The methods that post with the
+ * shared http client or set the error message are synchronized, so one caller's request doesn't
+ * clobber another's.
  *
  * @author Ushahidi Team <team@ushahidi.com>
  */
@@ -60,6 +66,10 @@ public class PostMessage extends ProcessMessage {
 
     private ProcessMessageResult mProcessMessageResult;
 
+    private SyncUrlCircuitBreakers mCircuitBreakers;
+
+    private SyncUrlTimeouts mSyncUrlTimeouts;
+
     private String mErrorMessage;
 
     @Inject
@@ -70,12 +80,17 @@ public class PostMessage extends ProcessMessage {
             FilterDataSourceFactory filterDataSourceFactory,
             ProcessSms processSms,
             FileManager fileManager,
-            ProcessMessageResult processMessageResult) {
+            OutboxQueue outboxQueue,
+            ProcessMessageResult processMessageResult,
+            SyncUrlCircuitBreakers circuitBreakers,
+            SyncUrlTimeouts syncUrlTimeouts) {
         super(context, prefsFactory, messageDataSourceFactory, webServiceDataSourceFactory,
-                filterDataSourceFactory, processSms, fileManager);
+                filterDataSourceFactory, processSms, fileManager, outboxQueue);
 
         mMessageHttpClient = messageHttpClient;
         mProcessMessageResult = processMessageResult;
+        mCircuitBreakers = circuitBreakers;
+        mSyncUrlTimeouts = syncUrlTimeouts;
     }
 
     /**
@@ -85,7 +100,7 @@ public class PostMessage extends ProcessMessage {
      * @param message The sms to be routed
      * @return boolean
      */
-    public boolean routeSms(Message message) {
+    public synchronized boolean routeSms(Message message) {
         Logger.log(TAG, "routeSms uuid: " + message.toString());
         // Double check if SMSsync service is running
         if (!mPrefsFactory.serviceEnabled().get()) {
@@ -95,59 +110,20 @@ public class PostMessage extends ProcessMessage {
         // Send auto response from phone not server
         if (mPrefsFactory.enableReply().get()) {
             // send auto response as SMS to user's phone
-            logActivities(R.string.auto_response_sent);
-            Message msg = new Message();
-            msg.messageBody = mPrefsFactory.reply().get();
-            msg.messageFrom = message.messageFrom;
-            msg.messageType = message.messageType;
-            mProcessSms.sendSms(map(msg), false);
+            sendAutoReply(message);
         }
         if (Utility.isConnected(mContext)) {
-            List<SyncUrl> syncUrlList = mWebServiceDataSource
-                    .get(SyncUrl.Status.ENABLED);
-            List<Filter> filters = mFilterDataSource.getFilters();
-            for (SyncUrl syncUrl : syncUrlList) {
-                // Process if white-listing is enabled
-                if (mPrefsFactory.enableWhitelist().get()) {
-                    for (Filter filter : filters) {
-                        if (filter.phoneNumber.equals(message.messageFrom)) {
-                            if (postMessage(message, syncUrl)) {
-                                postToSentBox(message);
-                                deleteFromSmsInbox(message);
-                            } else {
-                                savePendingMessage(message);
-                            }
-                        }
-                    }
-                }
-
-                // Process blacklist
-                if (mPrefsFactory.enableBlacklist().get()) {
-                    for (Filter filter : filters) {
-
-                        if (filter.phoneNumber.equals(message.messageFrom)) {
-                            Logger.log("message",
-                                    " from:" + message.messageFrom + " filter:"
-                                            + filter.phoneNumber);
-                            return false;
-                        } else {
-                            if (postMessage(message, syncUrl)) {
-                                postToSentBox(message);
-                                deleteFromSmsInbox(message);
-                            } else {
-                                savePendingMessage(message);
-                            }
-                        }
-
-                    }
-                } else {
-                    if (postMessage(message, syncUrl)) {
-                        postToSentBox(message);
-                        deleteFromSmsInbox(message);
-                    } else {
-                        savePendingMessage(message);
-                    }
-                }
+            RoutingPlan<SyncUrl> plan = planRoutes(Collections.singletonList(message),
+                    getEnabledSyncUrls());
+            if (!plan.isRouted(message)) {
+                Logger.log(TAG, "Filtered out message from " + message.messageFrom);
+                return false;
+            }
+            if (deliver(plan).contains(message)) {
+                postToSentBox(message);
+                deleteFromSmsInbox(message);
+            } else {
+                savePendingMessage(message);
             }
             return true;
         }
@@ -157,114 +133,181 @@ public class PostMessage extends ProcessMessage {
         return false;
     }
 
+    /**
+     * Saves an incoming SMS for the {@link MessagePipeline} to post. Sends the auto response
+     * first and leaves out messages the white list or black list doesn't allow.
+     *
+     * @param message The sms to be queued
+     * @return True when the message is queued to be posted, false when it's filtered out or
+     * left pending until there is a connection
+     */
+    boolean queueSms(Message message) {
+        Logger.log(TAG, "queueSms uuid: " + message.toString());
+        if (!mPrefsFactory.serviceEnabled().get()) {
+            return false;
+        }
+
+        if (mPrefsFactory.enableReply().get()) {
+            sendAutoReply(message);
+        }
+
+        if (!newRoutingPlan().isAllowed(message)) {
+            Logger.log(TAG, "Filtered out message from " + message.messageFrom);
+            return false;
+        }
+
+        if (!Utility.isConnected(mContext)) {
+            savePendingMessage(message);
+            return false;
+        }
+        message.status = Message.Status.UNCONFIRMED;
+        mMessageDataSource.putMessage(message);
+        return true;
+    }
+
+    /**
+     * Plans which of the messages go to which Sync URLs, applying the white list, black list
+     * and each Sync URL's keywords
+     *
+     * @param messages The messages
+     * @param syncUrls The Sync URLs
+     * @return The plan
+     */
+    RoutingPlan<SyncUrl> planRoutes(List<Message> messages, List<SyncUrl> syncUrls) {
+        RoutingPlan.Builder<SyncUrl> builder = newRoutingPlan();
+        for (SyncUrl syncUrl : syncUrls) {
+            builder.addEndpoint(syncUrl,
+                    syncUrl.getKeywordStatus() == SyncUrl.KeywordStatus.ENABLED
+                            ? syncUrl.getKeywords() : null);
+        }
+        return builder.build(messages);
+    }
+
+    /**
+     * Posts a message to a Sync URL with the given client. Unlike the routing methods this
+     * leaves retries and moving the message to the sent box to the caller.
+     *
+     * @param message The message
+     * @param syncUrl The Sync URL to post to
+     * @param client  The client to post with. Callers posting in parallel each need their own.
+     * @return True when the Sync URL accepted the message
+     */
+    boolean postToSyncUrl(Message message, SyncUrl syncUrl, MessageHttpClient client) {
+        Logger.log(TAG, "Post message to " + syncUrl.getUrl() + " " + message);
+        mSyncUrlTimeouts.apply(client, syncUrl, false);
+        final boolean posted = client.postSmsToWebService(syncUrl, message, message.messageFrom,
+                mPrefsFactory.uniqueId().get());
+        if (posted || !client.isUnreachable()) {
+            mCircuitBreakers.onSuccess(syncUrl);
+        } else {
+            mCircuitBreakers.onFailure(syncUrl, client.isTimedOut());
+        }
+        return posted;
+    }
+
+    /**
+     * Tells whether a message may be posted to the Sync URL, which isn't the case while it's
+     * known to be down. When it may, the message must be posted with
+     * {@link #postToSyncUrl(Message, SyncUrl, MessageHttpClient)}.
+     *
+     * @param syncUrl The Sync URL
+     * @return True when the message may be posted
+     */
+    boolean isSyncUrlAvailable(SyncUrl syncUrl) {
+        return mCircuitBreakers.allowRequest(syncUrl);
+    }
+
+    /**
+     * Marks a message as failed, which keeps it with the pending messages, without counting it
+     * as a retry. Used for messages that were skipped because a Sync URL is down or that are
+     * still waiting on one.
+     *
+     * @param message The message
+     */
+    void markFailed(Message message) {
+        message.status = Message.Status.FAILED;
+        mMessageDataSource.putMessage(message);
+    }
+
+    /**
+     * @return The enabled Sync URLs
+     */
+    List<SyncUrl> getEnabledSyncUrls() {
+        return mWebServiceDataSource.get(SyncUrl.Status.ENABLED);
+    }
+
     /**
      * Sync pending messages to the configured sync URL.
      *
      * @param uuid The message uuid
      */
-    public boolean syncPendingMessages(final String uuid) {
+    public synchronized boolean syncPendingMessages(final String uuid) {
         Logger.log(TAG, "syncPendingMessages: push pending messages to the Sync URL" + uuid);
         boolean status = false;
         // check if it should sync by id
         if (!TextUtils.isEmpty(uuid)) {
             final Message message = mMessageDataSource.fetchMessageByUuid(uuid);
-            List<Message> messages = new ArrayList<Message>();
-            messages.add(message);
-            status = postMessage(messages);
+            if (message != null) {
+                status = postMessage(Collections.singletonList(message));
+            }
         } else {
             final List<Message> messages = mMessageDataSource.fetchMessage(Message.Type.PENDING);
             if (messages != null && messages.size() > 0) {
-                for (Message message : messages) {
-                    status = postMessage(messages);
-                }
+                status = postMessage(messages);
             }
         }
 
         return status;
     }
 
-    public boolean postMessage(List<Message> messages) {
+    /**
+     * Posts the messages to the enabled Sync URLs they're planned for. A message is moved to
+     * the sent box once every one of them accepted it.
+     *
+     * @param messages The messages
+     * @return True
+     */
+    public synchronized boolean postMessage(List<Message> messages) {
         Logger.log(TAG, "postMessages");
-        List<SyncUrl> syncUrlList = mWebServiceDataSource.listWebServices();
-        List<Filter> filters = mFilterDataSource.getFilters();
-        for (SyncUrl syncUrl : syncUrlList) {
-            // Process if white-listing is enabled
-            if (mPrefsFactory.enableWhitelist().get()) {
-                for (Filter filter : filters) {
-                    for (Message message : messages) {
-                        if (filter.phoneNumber.equals(message.messageFrom)) {
-                            if (postMessage(message, syncUrl)) {
-                                postToSentBox(message);
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (mPrefsFactory.enableBlacklist().get()) {
-                for (Filter filter : filters) {
-                    for (Message msg : messages) {
-                        if (!filter.phoneNumber.equals(msg.messageFrom)) {
-                            Logger.log("message",
-                                    " from:" + msg.messageFrom + " filter:"
-                                            + filter.phoneNumber);
-                            if (postMessage(msg, syncUrl)) {
-                                postToSentBox(msg);
-                            }
-                        }
-                    }
-                }
-            } else {
-                for (Message messg : messages) {
-                    if (postMessage(messg, syncUrl)) {
-                        postToSentBox(messg);
-                    }
-                }
-            }
+        for (Message message : deliver(planRoutes(messages, getEnabledSyncUrls()))) {
+            postToSentBox(message);
         }
         return true;
     }
 
+    public synchronized boolean routePendingMessage(Message message) {
+        return postMessage(Collections.singletonList(message));
+    }
 
-    public boolean routePendingMessage(Message message) {
-        Logger.log(TAG, "postMessages");
-        List<SyncUrl> syncUrlList = mWebServiceDataSource.listWebServices();
-        List<Filter> filters = mFilterDataSource.getFilters();
-        for (SyncUrl syncUrl : syncUrlList) {
-            // Process if white-listing is enabled
-            if (mPrefsFactory.enableWhitelist().get()) {
-                for (Filter filter : filters) {
-
-                    if (filter.phoneNumber.equals(message.messageFrom)) {
-                        if (postMessage(message, syncUrl)) {
-                            postToSentBox(message);
-                        }
-                    }
-
-                }
-            }
-
-            if (mPrefsFactory.enableBlacklist().get()) {
-                for (Filter filter : filters) {
-
-                    if (!filter.phoneNumber.equals(message.messageFrom)) {
-                        Logger.log("message",
-                                " from:" + message.messageFrom + " filter:"
-                                        + filter.phoneNumber);
-                        if (postMessage(message, syncUrl)) {
-                            postToSentBox(message);
-                        }
-                    }
-
+    /**
+     * Carries out a plan, making each planned post once
+     *
+     * @param plan The plan
+     * @return The routed messages every Sync URL they were planned for accepted
+     */
+    private List<Message> deliver(RoutingPlan<SyncUrl> plan) {
+        final Set<Message> failed = Collections.newSetFromMap(
+                new IdentityHashMap<Message, Boolean>());
+        final Set<Message> tasks = Collections.newSetFromMap(
+                new IdentityHashMap<Message, Boolean>());
+        for (SyncUrl syncUrl : plan.getEndpoints()) {
+            for (Message message : plan.getMessages(syncUrl)) {
+                // Task messages are sent as SMS once, not once per Sync URL
+                if (message.messageType != Message.Type.PENDING && !tasks.add(message)) {
+                    continue;
                 }
-            } else {
-                if (postMessage(message, syncUrl)) {
-                    postToSentBox(message);
+                if (!postToWebService(message, syncUrl)) {
+                    failed.add(message);
                 }
-
             }
         }
-        return true;
+        List<Message> delivered = new ArrayList<>();
+        for (Message message : plan.getMessages()) {
+            if (plan.isRouted(message) && !failed.contains(message)) {
+                delivered.add(message);
+            }
+        }
+        return delivered;
     }
 
     private void sendSMSWithMessageResultsAPIEnabled(SyncUrl syncUrl, List<Message> msgs) {
@@ -315,26 +358,15 @@ public class PostMessage extends ProcessMessage {
         }
     }
 
-    private boolean postMessage(Message message, SyncUrl syncUrl) {
-        // Process filter text (keyword or RegEx)
-        if (!TextUtils.isEmpty(syncUrl.getKeywords())
-                && syncUrl.getKeywordStatus() == SyncUrl.KeywordStatus.ENABLED) {
-            List<String> keywords = new ArrayList<>(
-                    Arrays.asList(syncUrl.getKeywords().split(",")));
-            if (filterByKeywords(message.messageBody, keywords) || filterByRegex(
-                    message.messageBody, keywords)) {
-                return postToWebService(message, syncUrl);
-            }
-        }
-        return postToWebService(message, syncUrl);
-    }
-
     private boolean postToWebService(Message message, SyncUrl syncUrl) {
         boolean posted;
         if (message.messageType == Message.Type.PENDING) {
+            if (!isSyncUrlAvailable(syncUrl)) {
+                markFailed(message);
+                return false;
+            }
             Logger.log(TAG, "Process message with keyword filtering enabled " + message);
-            posted = mMessageHttpClient.postSmsToWebService(syncUrl, message,
-                    message.messageFrom, mPrefsFactory.uniqueId().get());
+            posted = postToSyncUrl(message, syncUrl, mMessageHttpClient);
         } else {
             posted = sendTaskSms(message);
         }
@@ -345,80 +377,46 @@ public class PostMessage extends ProcessMessage {
     }
 
     public void performTask() {
+        performTask(mWebServiceDataSource.get(SyncUrl.Status.ENABLED));
+    }
+
+    /**
+     * Checks the given Sync URLs for tasks
+     *
+     * @param syncUrls The Sync URLs to check
+     */
+    public synchronized void performTask(List<SyncUrl> syncUrls) {
         if ((!mPrefsFactory.serviceEnabled().get()) || (!mPrefsFactory.enableTaskCheck().get())) {
             // Don't continue
             return;
         }
         Logger.log(TAG, "performTask(): perform a task");
         logActivities(R.string.perform_task);
-        List<SyncUrl> syncUrls = mWebServiceDataSource.get(SyncUrl.Status.ENABLED);
         for (SyncUrl syncUrl : syncUrls) {
-            StringBuilder uriBuilder = new StringBuilder(syncUrl.getUrl());
-            final String urlSecret = syncUrl.getSecret();
-            uriBuilder.append("?task=send");
-
-            if (!TextUtils.isEmpty(urlSecret)) {
-                String urlSecretEncoded = urlSecret;
-                uriBuilder.append("&secret=");
-                try {
-                    urlSecretEncoded = URLEncoder.encode(urlSecret, "UTF-8");
-                } catch (java.io.UnsupportedEncodingException e) {
-                    Logger.log(TAG, e.getMessage());
-                }
-                uriBuilder.append(urlSecretEncoded);
-            }
-
-            mMessageHttpClient.setUrl(uriBuilder.toString());
+            // The client is shared with message posts, so drop their params and method
+            mMessageHttpClient.clearParams();
+            mMessageHttpClient.setUrl(getTaskUrl(syncUrl));
+            mSyncUrlTimeouts.apply(mMessageHttpClient, syncUrl, true);
             SmssyncResponse smssyncResponses = null;
-            Gson gson = null;
+            BoundedBody body = null;
             try {
+                mMessageHttpClient.setMethod(MessageHttpClient.HttpMethod.GET);
                 mMessageHttpClient.execute();
-                gson = new Gson();
-                final String response = mMessageHttpClient.getResponse().body().string();
-                mFileManager.appendAndClose("HTTP Client Response: " + response);
-                smssyncResponses = gson.fromJson(response, SmssyncResponse.class);
+                body = mMessageHttpClient.getBody();
+                smssyncResponses = JsonUtils.getObj(body.charStream(), SmssyncResponse.class);
+                mFileManager.appendAndClose("HTTP Client Response: " + body.snippet());
             } catch (Exception e) {
+                final String snippet = body != null ? body.snippet() : null;
                 Logger.log(TAG, "Task checking crashed " + e.getMessage() + " response: "
-                        + mMessageHttpClient.getResponse());
-                try {
-                    mFileManager.appendAndClose(
-                            "Task crashed: " + e.getMessage() + " response: " + mMessageHttpClient
-                                    .getResponse().body().string());
-                } catch (IOException e1) {
-                    e1.printStackTrace();
-                }
+                        + mMessageHttpClient.getResponse() + " " + snippet);
+                mFileManager.appendAndClose(
+                        "Task crashed: " + e.getMessage() + " response: " + snippet);
+            } finally {
+                mMessageHttpClient.closeResponse();
             }
 
             if (smssyncResponses != null) {
-                Logger.log(TAG, "TaskCheckResponse: " + smssyncResponses.toString());
-                mFileManager.appendAndClose("TaskCheckResponse: " + smssyncResponses.toString());
-
-                if (smssyncResponses.getPayload() != null) {
-                    String task = smssyncResponses.getPayload().getTask();
-                    Logger.log(TAG, "Task " + task);
-                    boolean secretOk = TextUtils.isEmpty(urlSecret) ||
-                            urlSecret.equals(smssyncResponses.getPayload().getSecret());
-                    if (secretOk && task.equals("send")) {
-                        if (mPrefsFactory.messageResultsAPIEnable().get()) {
-                            sendSMSWithMessageResultsAPIEnabled(syncUrl,
-                                    smssyncResponses.getPayload().getMessages());
-                        } else {
-                            //backwards compatibility
-                            sendSMSWithMessageResultsAPIDisabled(
-                                    smssyncResponses.getPayload().getMessages());
-                        }
-
-                    } else {
-                        Logger.log(TAG, mContext.getString(R.string.no_task));
-                        logActivities(R.string.no_task);
-                        mErrorMessage = mContext.getString(R.string.no_task);
-                    }
-
-                } else { // 'payload' data may not be present in JSON
-                    Logger.log(TAG, mContext.getString(R.string.no_task));
-                    logActivities(R.string.no_task);
-                    mErrorMessage = mContext.getString(R.string.no_task);
-                }
+                processTaskResponse(syncUrl, smssyncResponses);
             }
 
             mFileManager.appendAndClose(
@@ -427,7 +425,73 @@ public class PostMessage extends ProcessMessage {
         }
     }
 
-    public String getErrorMessage() {
+    /**
+     * Sends the messages in a task response as SMS. Used by both the scheduled task check and
+     * the long lived task channels.
+     *
+     * @param syncUrl          The Sync URL the task came from
+     * @param smssyncResponses The parsed task response
+     */
+    public synchronized void processTaskResponse(SyncUrl syncUrl,
+            SmssyncResponse smssyncResponses) {
+        Logger.log(TAG, "TaskCheckResponse: " + smssyncResponses.toString());
+        mFileManager.appendAndClose("TaskCheckResponse: " + smssyncResponses.toString());
+
+        if (smssyncResponses.getPayload() != null) {
+            final String urlSecret = syncUrl.getSecret();
+            String task = smssyncResponses.getPayload().getTask();
+            Logger.log(TAG, "Task " + task);
+            boolean secretOk = TextUtils.isEmpty(urlSecret) ||
+                    urlSecret.equals(smssyncResponses.getPayload().getSecret());
+            if (secretOk && "send".equals(task)) {
+                if (mPrefsFactory.messageResultsAPIEnable().get()) {
+                    sendSMSWithMessageResultsAPIEnabled(syncUrl,
+                            smssyncResponses.getPayload().getMessages());
+                } else {
+                    //backwards compatibility
+                    sendSMSWithMessageResultsAPIDisabled(
+                            smssyncResponses.getPayload().getMessages());
+                }
+
+            } else {
+                Logger.log(TAG, mContext.getString(R.string.no_task));
+                logActivities(R.string.no_task);
+                mErrorMessage = mContext.getString(R.string.no_task);
+            }
+
+        } else { // 'payload' data may not be present in JSON
+            Logger.log(TAG, mContext.getString(R.string.no_task));
+            logActivities(R.string.no_task);
+            mErrorMessage = mContext.getString(R.string.no_task);
+        }
+    }
+
+    /**
+     * Builds the task check url for a Sync URL, <code>?task=send</code> plus the url encoded
+     * secret when one is set.
+     *
+     * @param syncUrl The Sync URL
+     * @return The task check url
+     */
+    public String getTaskUrl(SyncUrl syncUrl) {
+        StringBuilder uriBuilder = new StringBuilder(syncUrl.getUrl());
+        final String urlSecret = syncUrl.getSecret();
+        uriBuilder.append("?task=send");
+
+        if (!TextUtils.isEmpty(urlSecret)) {
+            String urlSecretEncoded = urlSecret;
+            uriBuilder.append("&secret=");
+            try {
+                urlSecretEncoded = URLEncoder.encode(urlSecret, "UTF-8");
+            } catch (java.io.UnsupportedEncodingException e) {
+                Logger.log(TAG, e.getMessage());
+            }
+            uriBuilder.append(urlSecretEncoded);
+        }
+        return uriBuilder.toString();
+    }
+
+    public synchronized String getErrorMessage() {
         return mErrorMessage;
     }
 
@@ -449,8 +513,14 @@ public class PostMessage extends ProcessMessage {
 
         private FileManager mFileManager;
 
+        private OutboxQueue mOutboxQueue;
+
         private ProcessMessageResult mProcessMessageResult;
 
+        private SyncUrlCircuitBreakers mCircuitBreakers;
+
+        private SyncUrlTimeouts mSyncUrlTimeouts;
+
         public Builder setContext(Context context) {
             mContext = context;
             return this;
@@ -493,16 +563,32 @@ public class PostMessage extends ProcessMessage {
             return this;
         }
 
+        public Builder setOutboxQueue(OutboxQueue outboxQueue) {
+            mOutboxQueue = outboxQueue;
+            return this;
+        }
+
         public Builder setProcessMessageResult(ProcessMessageResult processMessageResult) {
             mProcessMessageResult = processMessageResult;
             return this;
         }
 
+        public Builder setCircuitBreakers(SyncUrlCircuitBreakers circuitBreakers) {
+            mCircuitBreakers = circuitBreakers;
+            return this;
+        }
+
+        public Builder setSyncUrlTimeouts(SyncUrlTimeouts syncUrlTimeouts) {
+            mSyncUrlTimeouts = syncUrlTimeouts;
+            return this;
+        }
+
         public PostMessage build() {
             return new PostMessage(mContext, mPrefsFactory, mMessageHttpClient,
                     mMessageDataSourceFactory, mWebServiceDataSourceFactory,
                     mFilterDataSourceFactory,
-                    mProcessSms, mFileManager, mProcessMessageResult);
+                    mProcessSms, mFileManager, mOutboxQueue, mProcessMessageResult,
+                    mCircuitBreakers, mSyncUrlTimeouts);
         }
     }
 }
@@ -22,6 +22,7 @@ import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
 import org.addhen.smssync.data.database.FilterDatabaseHelper;
 import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.OutboxMessage;
 import org.addhen.smssync.data.repository.datasource.filter.FilterDataSource;
 import org.addhen.smssync.data.repository.datasource.filter.FilterDataSourceFactory;
 import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
@@ -37,10 +38,6 @@ import android.support.annotation.StringRes;
 import android.text.TextUtils;
 
 import java.util.Date;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 /**
  * Tweets a {@link Message} to logged in twitter account
@@ -64,6 +61,8 @@ public abstract class ProcessMessage {
 
     protected FileManager mFileManager;
 
+    protected OutboxQueue mOutboxQueue;
+
     protected Context mContext;
 
     public ProcessMessage(Context context, PrefsFactory prefsFactory,
@@ -71,13 +70,15 @@ public abstract class ProcessMessage {
             WebServiceDataSourceFactory webServiceDataSourceFactory,
             FilterDataSourceFactory filterDataSourceFactory,
             ProcessSms processSms,
-            FileManager fileManager) {
+            FileManager fileManager,
+            OutboxQueue outboxQueue) {
         mPrefsFactory = prefsFactory;
         mWebServiceDataSource = webServiceDataSourceFactory.createDatabaseDataSource();
         mMessageDataSource = messageDataSourceFactory.createMessageDatabaseSource();
         mFilterDataSource = filterDataSourceFactory.createFilterDataSource();
         mProcessSms = processSms;
         mFileManager = fileManager;
+        mOutboxQueue = outboxQueue;
         mContext = context;
 
     }
@@ -86,6 +87,10 @@ public abstract class ProcessMessage {
         return mProcessSms;
     }
 
+    public OutboxQueue getOutboxQueue() {
+        return mOutboxQueue;
+    }
+
     public SmsMessage map(Message message) {
         SmsMessage smsMessage = new SmsMessage();
         if (message._id != null) {
@@ -95,6 +100,7 @@ public abstract class ProcessMessage {
         smsMessage.body = message.messageBody;
         smsMessage.phone = message.messageFrom;
         smsMessage.timestamp = message.messageDate.getTime();
+        smsMessage.providerId = message.providerId;
         return smsMessage;
     }
 
@@ -105,6 +111,7 @@ public abstract class ProcessMessage {
         message.messageBody = smsMessage.body;
         message.messageFrom = smsMessage.phone;
         message.messageDate = new Date(smsMessage.timestamp);
+        message.providerId = smsMessage.providerId;
         message.messageType = Message.Type.PENDING;
         message.status = Message.Status.FAILED;
         return message;
@@ -122,36 +129,15 @@ public abstract class ProcessMessage {
         }
     }
 
-    protected boolean filterByKeywords(String message, List<String> keywords) {
-        for (String keyword : keywords) {
-            if (message.toLowerCase().contains(keyword.toLowerCase().trim())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
-     * Filter message string for RegEx match
+     * Starts a routing plan with the white list and black list as they're set now
      *
-     * @param message   The message to be tested against the RegEx
-     * @param regxTexts A string representing the regular expression to test against.
-     * @return boolean
+     * @param <E> The type of the endpoints
+     * @return The builder to add the endpoints to
      */
-    protected boolean filterByRegex(String message, List<String> regxTexts) {
-        Pattern pattern = null;
-        for (String regText : regxTexts) {
-            try {
-                pattern = Pattern.compile(regText, Pattern.CASE_INSENSITIVE);
-            } catch (PatternSyntaxException e) {
-                // Invalid RegEx
-                return false;
-            }
-            Matcher matcher = pattern.matcher(message);
-
-            return (matcher.find());
-        }
-        return false;
+    protected <E> RoutingPlan.Builder<E> newRoutingPlan() {
+        return new RoutingPlan.Builder<E>().setFilters(mFilterDataSource.getFilters(),
+                mPrefsFactory.enableWhitelist().get(), mPrefsFactory.enableBlacklist().get());
     }
 
     /**
@@ -181,6 +167,21 @@ public abstract class ProcessMessage {
         mMessageDataSource.deleteByUuid(message.messageUuid);
     }
 
+    /**
+     * Queues the configured auto response to the sender of the given message
+     *
+     * @param message The incoming message
+     */
+    protected void sendAutoReply(Message message) {
+        logActivities(R.string.auto_response_sent);
+        Message msg = new Message();
+        msg.messageBody = mPrefsFactory.reply().get();
+        msg.messageFrom = message.messageFrom;
+        msg.messageType = message.messageType;
+        msg.messageUuid = mProcessSms.getUuid();
+        mOutboxQueue.enqueue(msg, OutboxMessage.Priority.REPLY, false);
+    }
+
     protected void logActivities(@StringRes int id) {
         mFileManager.appendAndClose(mContext.getString(id));
     }
@@ -202,10 +203,8 @@ public abstract class ProcessMessage {
             message.messageUuid = mProcessSms.getUuid();
         }
         message.messageType = Message.Type.TASK;
-        if (mPrefsFactory.smsReportDelivery().get()) {
-            mProcessSms.sendSms(map(message), true);
-        }
-        mProcessSms.sendSms(map(message), false);
+        mOutboxQueue.enqueue(message, OutboxMessage.Priority.TASK,
+                mPrefsFactory.smsReportDelivery().get());
         return true;
     }
 }
@@ -17,11 +17,12 @@
 
 package org.addhen.smssync.data.message;
 
-import com.google.gson.Gson;
+import com.addhen.android.raiburari.data.pref.LongPreference;
 
 import com.squareup.okhttp.RequestBody;
 
 import org.addhen.smssync.R;
+import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
 import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.entity.MessageResult;
@@ -30,13 +31,17 @@ import org.addhen.smssync.data.entity.QueuedMessages;
 import org.addhen.smssync.data.entity.SyncUrl;
 import org.addhen.smssync.data.net.AppHttpClient;
 import org.addhen.smssync.data.net.BaseHttpClient;
+import org.addhen.smssync.data.net.BoundedBody;
+import org.addhen.smssync.data.net.SyncUrlTimeouts;
 import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
 import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSource;
 import org.addhen.smssync.data.util.JsonUtils;
+import org.addhen.smssync.presentation.service.MessageResultsService;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import android.content.Context;
+import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
 
 import java.net.URLEncoder;
@@ -65,6 +70,17 @@ public class ProcessMessageResult {
 
     private static final String TASK_RESULT_URL_PARAM = "?task=result";
 
+    /**
+     * The most message results looked up and posted in one request
+     */
+    @VisibleForTesting
+    static final int RESULTS_CHUNK_SIZE = 500;
+
+    /**
+     * Push straight away once a Sync URL has this many unacknowledged results
+     */
+    private static final int RESULTS_BATCH_THRESHOLD = 50;
+
     private Context mContext;
 
     private AppHttpClient mAppHttpClient;
@@ -75,46 +91,143 @@ public class ProcessMessageResult {
 
     private MessageDataSource mMessageDataSource;
 
+    private PrefsFactory mPrefsFactory;
+
+    private SyncUrlTimeouts mSyncUrlTimeouts;
+
     @Inject
     public ProcessMessageResult(Context context, AppHttpClient appHttpClient,
             FileManager fileManager, WebServiceDataSource webServiceDataSource,
-            MessageDataSource messageDataSource) {
+            MessageDataSource messageDataSource, PrefsFactory prefsFactory,
+            SyncUrlTimeouts syncUrlTimeouts) {
         mContext = context;
         mAppHttpClient = appHttpClient;
         mFileManager = fileManager;
         mWebServiceDataSource = webServiceDataSource;
         mMessageDataSource = messageDataSource;
-        mMessageDataSource = messageDataSource;
+        mPrefsFactory = prefsFactory;
+        mSyncUrlTimeouts = syncUrlTimeouts;
     }
 
+    /**
+     * Pushes the message results each Sync URL hasn't acknowledged yet, then answers the results
+     * the server asks for. The acknowledged position only decides what's pushed, a result the
+     * server names is always sent.
+     */
     public void processMessageResult() {
         List<SyncUrl> syncUrlList = mWebServiceDataSource.get(SyncUrl.Status.ENABLED);
         for (SyncUrl syncUrl : syncUrlList) {
+            // The server may still ask for results when the push failed
+            pushChangedMessageResults(syncUrl);
             MessagesUUIDSResponse response = sendMessageResultGETRequest(syncUrl);
             if ((response != null) && (response.isSuccess()) && (response.getUuids() != null)) {
-                final List<MessageResult> messageResults = new ArrayList<>();
-                for (String uuid : response.getUuids()) {
-                    Message message = mMessageDataSource.fetchMessageByUuid(uuid);
-                    if (message != null) {
-                        MessageResult messageResult = new MessageResult(message.messageUuid,
-                                message.sentResultCode, message.sentResultMessage,
-                                message.deliveryResultCode, message.deliveryResultMessage,
-                                message.messageDate, message.deliveredDate);
-                        messageResults.add(messageResult);
+                final List<String> uuids = response.getUuids();
+                // Look up and upload a bounded chunk at a time so a server asking for a lot of
+                // results doesn't mean a query per uuid or one huge request in memory
+                for (int start = 0; start < uuids.size(); start += RESULTS_CHUNK_SIZE) {
+                    List<Message> messages = mMessageDataSource.fetchMessagesByUuids(
+                            uuids.subList(start,
+                                    Math.min(start + RESULTS_CHUNK_SIZE, uuids.size())));
+                    final List<MessageResult> messageResults = new ArrayList<>(messages.size());
+                    for (Message message : messages) {
+                        messageResults.add(map(message));
+                    }
+                    if (messageResults.isEmpty()) {
+                        continue;
+                    }
+                    if (!sendMessageResultPOSTRequest(syncUrl, messageResults)) {
+                        // The server is unlikely to take the rest, try again on the next run
+                        break;
                     }
                 }
-                sendMessageResultPOSTRequest(syncUrl, messageResults);
             }
         }
     }
 
+    /**
+     * Starts the {@link MessageResultsService} straight away when a Sync URL has enough
+     * unacknowledged message results waiting, instead of waiting for the next scheduled run.
+     * Called whenever message results change.
+     */
+    public void onMessageResultsChanged() {
+        if (!mPrefsFactory.messageResultsAPIEnable().get() || !mPrefsFactory.serviceEnabled()
+                .get()) {
+            return;
+        }
+        for (SyncUrl syncUrl : mWebServiceDataSource.get(SyncUrl.Status.ENABLED)) {
+            seedAcknowledged(syncUrl);
+            final int pending = mMessageDataSource.countResultsChangedSince(
+                    mPrefsFactory.messageResultsAckDate(syncUrl._id).get(),
+                    mPrefsFactory.messageResultsAckId(syncUrl._id).get());
+            if (pending >= RESULTS_BATCH_THRESHOLD) {
+                MessageResultsService.sendWakefulWork(mContext, MessageResultsService.class);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pushes the message results that changed since the Sync URL last acknowledged them, oldest
+     * change first, and moves its acknowledged position forward after each accepted chunk.
+     *
+     * @param syncUrl The Sync URL to push to
+     * @return true if every changed result was accepted
+     */
+    private boolean pushChangedMessageResults(SyncUrl syncUrl) {
+        final LongPreference ackDate = mPrefsFactory.messageResultsAckDate(syncUrl._id);
+        final LongPreference ackId = mPrefsFactory.messageResultsAckId(syncUrl._id);
+        seedAcknowledged(syncUrl);
+        List<Message> messages;
+        do {
+            messages = mMessageDataSource.fetchResultsChangedSince(ackDate.get(), ackId.get(),
+                    RESULTS_CHUNK_SIZE);
+            if (messages.isEmpty()) {
+                break;
+            }
+            final List<MessageResult> messageResults = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                messageResults.add(map(message));
+            }
+            if (!sendMessageResultPOSTRequest(syncUrl, messageResults)) {
+                return false;
+            }
+            final Message last = messages.get(messages.size() - 1);
+            ackDate.set(last.resultUpdatedDate.getTime());
+            ackId.set(last._id);
+        } while (messages.size() == RESULTS_CHUNK_SIZE);
+        return true;
+    }
+
+    /**
+     * Starts a Sync URL that was never pushed results at the latest result change, so it gets
+     * the changes from now on rather than the whole message history. Results from before can
+     * still be asked for with GET ?task=result.
+     */
+    private void seedAcknowledged(SyncUrl syncUrl) {
+        final LongPreference ackId = mPrefsFactory.messageResultsAckId(syncUrl._id);
+        if (ackId.get() >= 0) {
+            return;
+        }
+        final Message last = mMessageDataSource.fetchLastResultChanged();
+        mPrefsFactory.messageResultsAckDate(syncUrl._id).set(
+                last != null ? last.resultUpdatedDate.getTime() : 0);
+        ackId.set(last != null ? last._id : 0);
+    }
+
+    private MessageResult map(Message message) {
+        return new MessageResult(message.messageUuid, message.sentResultCode,
+                message.sentResultMessage, message.deliveryResultCode,
+                message.deliveryResultMessage, message.messageDate, message.deliveredDate);
+    }
+
     /**
      * This method is handling POST ?task=result message_result
      *
      * @param syncUrl url to web server
      * @param results list of message result data
+     * @return true if the server accepted the results
      */
-    private void sendMessageResultPOSTRequest(SyncUrl syncUrl, List<MessageResult> results) {
+    private boolean sendMessageResultPOSTRequest(SyncUrl syncUrl, List<MessageResult> results) {
         String newEndPointURL = syncUrl.getUrl().concat(TASK_RESULT_URL_PARAM);
 
         final String urlSecret = syncUrl.getSecret();
@@ -130,20 +243,24 @@ public class ProcessMessageResult {
             newEndPointURL = newEndPointURL.concat(urlSecretEncoded);
         }
 
+        boolean success = false;
         try {
-            RequestBody body = RequestBody
-                    .create(AppHttpClient.JSON, createMessageResultJSON(results));
             mAppHttpClient.setUrl(newEndPointURL);
+            mSyncUrlTimeouts.apply(mAppHttpClient, syncUrl, false);
             mAppHttpClient.setMethod(BaseHttpClient.HttpMethod.POST);
-            mAppHttpClient.setRequestBody(body);
+            mAppHttpClient.setRequestBody(RequestBody
+                    .create(AppHttpClient.JSON, createMessageResultJSON(results)));
             mAppHttpClient.execute();
         } catch (Exception e) {
             mFileManager.appendAndClose(mContext.getString(R.string.message_processed_failed));
         } finally {
-            if (200 == mAppHttpClient.getResponse().code()) {
+            if (200 == mAppHttpClient.getResponseCode()) {
+                success = true;
                 mFileManager.appendAndClose(mContext.getString(R.string.message_processed_success));
             }
+            mAppHttpClient.closeResponse();
         }
+        return success;
     }
 
     /**
@@ -159,6 +276,7 @@ public class ProcessMessageResult {
         if (null != messages && !messages.getQueuedMessages().isEmpty()) {
             String newEndPointURL = syncUrl.getUrl().concat(TASK_SENT_URL_PARAM);
             mAppHttpClient.setUrl(newEndPointURL);
+            mSyncUrlTimeouts.apply(mAppHttpClient, syncUrl, false);
 
             try {
                 RequestBody body = RequestBody
@@ -174,7 +292,7 @@ public class ProcessMessageResult {
                         mContext.getString(R.string.message_processed_failed) + " " + e
                                 .getMessage());
             } finally {
-                if (200 == mAppHttpClient.getResponse().code()) {
+                if (200 == mAppHttpClient.getResponseCode()) {
 
                     mFileManager.appendAndClose(
                             mContext.getString(R.string.message_processed_success));
@@ -184,12 +302,13 @@ public class ProcessMessageResult {
                             mContext.getString(R.string.message_processed_success));
 
                 } else {
-                    response = new MessagesUUIDSResponse(mAppHttpClient.getResponse().code());
+                    response = new MessagesUUIDSResponse(mAppHttpClient.getResponseCode());
                     mFileManager.appendAndClose(
                             mContext.getString(R.string.queued_messages_request_status,
-                                    mAppHttpClient.getResponse().code(),
+                                    mAppHttpClient.getResponseCode(),
                                     mAppHttpClient.getResponse()));
                 }
+                mAppHttpClient.closeResponse();
             }
         }
         return response;
@@ -220,6 +339,7 @@ public class ProcessMessageResult {
         }
 
         mAppHttpClient.setUrl(newEndPointURL);
+        mSyncUrlTimeouts.apply(mAppHttpClient, syncUrl, true);
         try {
             mAppHttpClient.setMethod(BaseHttpClient.HttpMethod.GET);
             mAppHttpClient.execute();
@@ -231,19 +351,24 @@ public class ProcessMessageResult {
             mFileManager.appendAndClose(
                     mContext.getString(R.string.message_processed_failed) + " " + e.getMessage());
         } finally {
-            if (200 == mAppHttpClient.getResponse().code()) {
+            if (200 == mAppHttpClient.getResponseCode()) {
                 response = parseMessagesUUIDSResponse(mAppHttpClient);
                 response.setSuccess(true);
             } else {
-                response = new MessagesUUIDSResponse(mAppHttpClient.getResponse().code());
+                response = new MessagesUUIDSResponse(mAppHttpClient.getResponseCode());
                 mFileManager.appendAndClose(
                         mContext.getString(R.string.messages_result_request_status,
-                                mAppHttpClient.getResponse().code(), mAppHttpClient.getResponse()));
+                                mAppHttpClient.getResponseCode(), mAppHttpClient.getResponse()));
             }
+            mAppHttpClient.closeResponse();
         }
         return response;
     }
 
+    /**
+     * Servers read message_result as a string holding the JSON array, so it's kept that way. The
+     * body is bounded by posting at most {@link #RESULTS_CHUNK_SIZE} results at a time.
+     */
     private String createMessageResultJSON(List<MessageResult> messageResults)
             throws JSONException {
         JSONObject messageResultsObject = new JSONObject();
@@ -257,18 +382,20 @@ public class ProcessMessageResult {
 
     private MessagesUUIDSResponse parseMessagesUUIDSResponse(AppHttpClient client) {
         MessagesUUIDSResponse response;
-
+        BoundedBody body = null;
         try {
 
-            final Gson gson = new Gson();
-            final int code = client.getResponse().code();
-            response = gson.fromJson(client.getResponse().body().charStream(),
-                    MessagesUUIDSResponse.class);
+            final int code = client.getResponseCode();
+            body = client.getBody();
+            response = JsonUtils.getObj(body.charStream(), MessagesUUIDSResponse.class);
             response.setStatusCode(code);
         } catch (Exception e) {
             e.printStackTrace();
-            response = new MessagesUUIDSResponse(client.getResponse().code());
-            mFileManager.appendAndClose(mContext.getString(R.string.message_processed_json_failed));
+            response = new MessagesUUIDSResponse(client.getResponseCode());
+            mFileManager.appendAndClose(mContext.getString(R.string.message_processed_json_failed)
+                    + (body != null ? " " + body.snippet() : ""));
+        } finally {
+            client.closeResponse();
         }
         return response;
     }
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.data.entity.Filter;
+import org.addhen.smssync.data.entity.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Works out which messages go to which endpoints before anything is sent. The white list, black
+ * list and keywords are applied once per message and endpoint, and every message is planned for
+ * an endpoint at most once, however many filters or duplicates there are.
+ *
+ * @param <E> The type of the endpoints, such as Sync URLs
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class RoutingPlan<E> {
+
+    private final List<Message> mMessages;
+
+    private final List<E> mEndpoints;
+
+    /**
+     * The messages planned for each endpoint, in the order of the endpoints
+     */
+    private final List<List<Message>> mDeliveries;
+
+    /**
+     * The endpoints each message is planned for, by the index of the endpoint
+     */
+    private final Map<Message, boolean[]> mRoutes;
+
+    private RoutingPlan(List<Message> messages, List<E> endpoints,
+            List<List<Message>> deliveries, Map<Message, boolean[]> routes) {
+        mMessages = messages;
+        mEndpoints = endpoints;
+        mDeliveries = deliveries;
+        mRoutes = routes;
+    }
+
+    /**
+     * @return The messages planned, without duplicates, in the order they were given
+     */
+    public List<Message> getMessages() {
+        return mMessages;
+    }
+
+    /**
+     * @return The endpoints, without duplicates, in the order they were added
+     */
+    public List<E> getEndpoints() {
+        return mEndpoints;
+    }
+
+    /**
+     * @param endpoint The endpoint
+     * @return The messages to deliver to the endpoint
+     */
+    public List<Message> getMessages(E endpoint) {
+        for (int i = 0; i < mEndpoints.size(); i++) {
+            if (mEndpoints.get(i) == endpoint) {
+                return mDeliveries.get(i);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @param message The message
+     * @return True when the message goes to at least one endpoint
+     */
+    public boolean isRouted(Message message) {
+        final boolean[] routes = mRoutes.get(message);
+        if (routes != null) {
+            for (boolean routed : routes) {
+                if (routed) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param message  The message
+     * @param endpoint The endpoint
+     * @return True when the message goes to the endpoint
+     */
+    public boolean isRouted(Message message, E endpoint) {
+        final boolean[] routes = mRoutes.get(message);
+        if (routes != null) {
+            for (int i = 0; i < mEndpoints.size(); i++) {
+                if (mEndpoints.get(i) == endpoint) {
+                    return routes[i];
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return How many deliveries the plan holds
+     */
+    public int size() {
+        int size = 0;
+        for (List<Message> messages : mDeliveries) {
+            size += messages.size();
+        }
+        return size;
+    }
+
+    /**
+     * Sets up the filters and endpoints a plan is made with. Keywords are compiled once, so a
+     * builder can plan any number of batches.
+     *
+     * @param <E> The type of the endpoints
+     */
+    public static class Builder<E> {
+
+        private final Set<String> mWhitelisted = new HashSet<>();
+
+        private final Set<String> mBlacklisted = new HashSet<>();
+
+        private final List<E> mEndpoints = new ArrayList<>();
+
+        private final List<KeywordRule> mRules = new ArrayList<>();
+
+        private boolean mWhitelist;
+
+        private boolean mBlacklist;
+
+        /**
+         * @param filters   The white and black listed phone numbers
+         * @param whitelist True when only white listed phone numbers may be delivered
+         * @param blacklist True when black listed phone numbers mustn't be delivered
+         */
+        public Builder<E> setFilters(List<Filter> filters, boolean whitelist,
+                boolean blacklist) {
+            mWhitelisted.clear();
+            mBlacklisted.clear();
+            if (filters != null) {
+                for (Filter filter : filters) {
+                    if (filter.status == Filter.Status.WHITELIST) {
+                        mWhitelisted.add(filter.phoneNumber);
+                    } else if (filter.status == Filter.Status.BLACKLIST) {
+                        mBlacklisted.add(filter.phoneNumber);
+                    }
+                }
+            }
+            mWhitelist = whitelist;
+            mBlacklist = blacklist;
+            return this;
+        }
+
+        /**
+         * Adds an endpoint. Adding the same endpoint again does nothing.
+         *
+         * @param endpoint The endpoint
+         * @param keywords Comma separated keywords or regular expressions a message has to
+         *                 match to go to the endpoint, or null for every message
+         */
+        public Builder<E> addEndpoint(E endpoint, String keywords) {
+            for (E added : mEndpoints) {
+                if (added == endpoint) {
+                    return this;
+                }
+            }
+            mEndpoints.add(endpoint);
+            mRules.add(KeywordRule.compile(keywords));
+            return this;
+        }
+
+        /**
+         * Checks the sender of a message against the white list and the black list
+         *
+         * @param message The message
+         * @return True when the message may be delivered
+         */
+        public boolean isAllowed(Message message) {
+            if (mBlacklist && mBlacklisted.contains(message.messageFrom)) {
+                return false;
+            }
+            return !mWhitelist || mWhitelisted.contains(message.messageFrom);
+        }
+
+        /**
+         * Plans the delivery of the given messages
+         *
+         * @param messages The messages. A message given more than once is only planned once.
+         * @return The plan
+         */
+        public RoutingPlan<E> build(List<Message> messages) {
+            final int endpoints = mEndpoints.size();
+            final Map<Message, boolean[]> routes = new IdentityHashMap<>();
+            final Set<String> uuids = new HashSet<>();
+            final List<Message> planned = new ArrayList<>(messages.size());
+            final List<List<Message>> deliveries = new ArrayList<>(endpoints);
+            for (int i = 0; i < endpoints; i++) {
+                deliveries.add(new ArrayList<Message>());
+            }
+            for (Message message : messages) {
+                if (message == null || routes.containsKey(message)
+                        || (message.messageUuid != null && !uuids.add(message.messageUuid))) {
+                    continue;
+                }
+                final boolean[] messageRoutes = new boolean[endpoints];
+                routes.put(message, messageRoutes);
+                planned.add(message);
+                if (!isAllowed(message)) {
+                    continue;
+                }
+                for (int i = 0; i < endpoints; i++) {
+                    if (mRules.get(i).matches(message.messageBody)) {
+                        messageRoutes[i] = true;
+                        deliveries.get(i).add(message);
+                    }
+                }
+            }
+            return new RoutingPlan<>(planned, new ArrayList<>(mEndpoints), deliveries, routes);
+        }
+    }
+
+    /**
+     * Matches message bodies against keywords. A keyword matches when the body contains it,
+     * ignoring case, or when it's a regular expression found in the body.
+     */
+    static class KeywordRule {
+
+        private static final KeywordRule EVERYTHING = new KeywordRule(
+                Collections.<String>emptyList(), Collections.<Pattern>emptyList());
+
+        private final List<String> mKeywords;
+
+        private final List<Pattern> mPatterns;
+
+        private KeywordRule(List<String> keywords, List<Pattern> patterns) {
+            mKeywords = keywords;
+            mPatterns = patterns;
+        }
+
+        /**
+         * @param keywords Comma separated keywords or regular expressions, or null
+         * @return The rule, which matches everything when there are no keywords
+         */
+        static KeywordRule compile(String keywords) {
+            if (keywords == null || keywords.trim().length() == 0) {
+                return EVERYTHING;
+            }
+            List<String> lowerCased = new ArrayList<>();
+            List<Pattern> patterns = new ArrayList<>();
+            for (String keyword : keywords.split(",")) {
+                final String trimmed = keyword.trim();
+                if (trimmed.length() == 0) {
+                    continue;
+                }
+                lowerCased.add(trimmed.toLowerCase(Locale.getDefault()));
+                try {
+                    patterns.add(Pattern.compile(trimmed, Pattern.CASE_INSENSITIVE));
+                } catch (PatternSyntaxException e) {
+                    // Not a regular expression, so it's only matched as text
+                }
+            }
+            return lowerCased.isEmpty() ? EVERYTHING : new KeywordRule(lowerCased, patterns);
+        }
+
+        boolean matches(String body) {
+            if (this == EVERYTHING) {
+                return true;
+            }
+            if (body == null) {
+                return false;
+            }
+            final String lowerCased = body.toLowerCase(Locale.getDefault());
+            for (String keyword : mKeywords) {
+                if (lowerCased.contains(keyword)) {
+                    return true;
+                }
+            }
+            for (Pattern pattern : mPatterns) {
+                if (pattern.matcher(body).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.data.database.SmsPartDatabaseHelper;
+import org.addhen.smssync.data.entity.SmsPart;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.smslib.model.SmsMessage;
+import org.addhen.smssync.smslib.sms.SmsTracker;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Stores the state of every outbound SMS part and applies the sent and delivered results
+ * reported by the SMS manager.
+ * <p/>
+ * Results come in one broadcast per part, so they're collected and written in a single
+ * transaction shortly after the first one arrives instead of one write per broadcast. The
+ * receivers keep their broadcast alive until they're told the result was written, so the process
+ * isn't let go of while results are only in memory. Results that fail to be written are kept and
+ * written with the next batch.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class SmsPartTracker implements SmsTracker {
+
+    private static final String TAG = SmsPartTracker.class.getSimpleName();
+
+    private static final long FLUSH_DELAY = 500;
+
+    /**
+     * How long to wait before writing results again after a failed write
+     */
+    private static final long RETRY_DELAY = 5000;
+
+    /**
+     * Flush straight away once this many results are waiting
+     */
+    @VisibleForTesting
+    static final int MAX_BATCH = 50;
+
+    /**
+     * How long parts are kept after their last result
+     */
+    private static final long RETENTION = 7 * 24 * 60 * 60 * 1000L;
+
+    private final SmsPartDatabaseHelper mSmsPartDatabaseHelper;
+
+    private final ProcessMessageResult mProcessMessageResult;
+
+    private final ScheduledExecutorService mExecutor;
+
+    private final List<Pending> mPending = new ArrayList<>();
+
+    private boolean mFlushScheduled;
+
+    @Inject
+    public SmsPartTracker(SmsPartDatabaseHelper smsPartDatabaseHelper,
+            ProcessMessageResult processMessageResult) {
+        this(smsPartDatabaseHelper, processMessageResult,
+                Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @VisibleForTesting
+    SmsPartTracker(SmsPartDatabaseHelper smsPartDatabaseHelper,
+            ProcessMessageResult processMessageResult, ScheduledExecutorService executor) {
+        mSmsPartDatabaseHelper = smsPartDatabaseHelper;
+        mProcessMessageResult = processMessageResult;
+        mExecutor = executor;
+    }
+
+    @Override
+    public long[] track(SmsMessage message, int partCount, boolean deliveryReport) {
+        final String correlationId = UUID.randomUUID().toString();
+        final Date now = new Date();
+        List<SmsPart> parts = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            SmsPart part = new SmsPart();
+            part.correlationId = correlationId;
+            part.messageUuid = message.uuid;
+            part.phone = message.phone;
+            part.partIndex = i;
+            part.partCount = partCount;
+            part.sentStatus = SmsPart.Status.PENDING;
+            part.deliveryStatus = deliveryReport ? SmsPart.Status.PENDING
+                    : SmsPart.Status.NOT_REQUESTED;
+            part.createdDate = now;
+            part.updatedDate = now;
+            parts.add(part);
+        }
+        return mSmsPartDatabaseHelper.put(parts);
+    }
+
+    /**
+     * Records the sent result of a part
+     *
+     * @param partId        The part's correlation id
+     * @param resultCode    The result code of the sent broadcast
+     * @param resultMessage The human readable result
+     * @param success       Whether the part was sent
+     * @param onWritten     Run once the batch holding the result was written, or failed to be
+     *                      and the result is waiting for the next batch. May be null.
+     */
+    public void onSent(long partId, int resultCode, String resultMessage, boolean success,
+            @Nullable Runnable onWritten) {
+        enqueue(new SmsPart.Update(partId, false, resultCode, resultMessage, success), onWritten);
+    }
+
+    /**
+     * Records the delivery result of a part
+     *
+     * @param partId        The part's correlation id
+     * @param resultCode    The result code of the delivered broadcast
+     * @param resultMessage The human readable result
+     * @param success       Whether the part was delivered
+     * @param onWritten     Run once the batch holding the result was written, or failed to be
+     *                      and the result is waiting for the next batch. May be null.
+     */
+    public void onDelivered(long partId, int resultCode, String resultMessage, boolean success,
+            @Nullable Runnable onWritten) {
+        enqueue(new SmsPart.Update(partId, true, resultCode, resultMessage, success), onWritten);
+    }
+
+    /**
+     * Writes the results that are waiting on the calling thread
+     */
+    public void flush() {
+        final List<Pending> batch;
+        synchronized (this) {
+            mFlushScheduled = false;
+            if (mPending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(mPending);
+            mPending.clear();
+        }
+        List<SmsPart.Update> updates = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            updates.add(pending.update);
+        }
+        try {
+            mSmsPartDatabaseHelper.applyUpdates(updates);
+        } catch (Exception e) {
+            Logger.log(TAG, "Failed to save SMS part results, trying again", e);
+            synchronized (this) {
+                // Ahead of the results that came in since. The broadcasts can't be held until
+                // the retry, so they're let go of below.
+                List<Pending> retries = new ArrayList<>(batch.size());
+                for (SmsPart.Update update : updates) {
+                    retries.add(new Pending(update, null));
+                }
+                mPending.addAll(0, retries);
+                scheduleFlush(RETRY_DELAY);
+            }
+            notifyWritten(batch);
+            return;
+        }
+        notifyWritten(batch);
+        try {
+            mSmsPartDatabaseHelper.deleteOlderThan(
+                    new Date(System.currentTimeMillis() - RETENTION));
+            mProcessMessageResult.onMessageResultsChanged();
+        } catch (Exception e) {
+            Logger.log(TAG, "Failed to clean up SMS part results", e);
+        }
+    }
+
+    private synchronized void enqueue(SmsPart.Update update, Runnable onWritten) {
+        mPending.add(new Pending(update, onWritten));
+        if (mPending.size() >= MAX_BATCH) {
+            mExecutor.execute(this::flush);
+        } else {
+            scheduleFlush(FLUSH_DELAY);
+        }
+    }
+
+    private void scheduleFlush(long delay) {
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mExecutor.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void notifyWritten(List<Pending> batch) {
+        for (Pending pending : batch) {
+            if (pending.onWritten != null) {
+                pending.onWritten.run();
+            }
+        }
+    }
+
+    private static class Pending {
+
+        final SmsPart.Update update;
+
+        final Runnable onWritten;
+
+        Pending(SmsPart.Update update, Runnable onWritten) {
+            this.update = update;
+            this.onWritten = onWritten;
+        }
+    }
+}
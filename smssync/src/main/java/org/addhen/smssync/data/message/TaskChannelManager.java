@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.R;
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.entity.SmssyncResponse;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.net.TaskStreamClient;
+import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSource;
+import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSourceFactory;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.data.util.Utility;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Runs the long lived task channels for Sync URLs that have {@link SyncUrl.TaskChannel#LONG_POLL}
+ * or {@link SyncUrl.TaskChannel#SSE} set. Each channel gets its own thread which hands tasks to
+ * {@link PostMessage#processTaskResponse(SyncUrl, SmssyncResponse)} as they arrive.
+ * <p/>
+ * The scheduled task check keeps running and falls back to polling any Sync URL whose channel
+ * isn't connected, so a server that doesn't support streaming still gets its tasks processed.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class TaskChannelManager {
+
+    private static final String TAG = TaskChannelManager.class.getSimpleName();
+
+    private static final long INITIAL_BACKOFF = 5000;
+
+    private static final long MAX_BACKOFF = 5 * 60 * 1000;
+
+    /**
+     * The least time between opening a channel and opening it again
+     */
+    private static final long MIN_RECONNECT_INTERVAL = 1000;
+
+    /**
+     * A channel closed sooner than this without a task wasn't held open by the server
+     */
+    private static final long MIN_CHANNEL_TIME = 5000;
+
+    private Context mContext;
+
+    private PostMessage mPostMessage;
+
+    private PrefsFactory mPrefsFactory;
+
+    private FileManager mFileManager;
+
+    private WebServiceDataSource mWebServiceDataSource;
+
+    private final Map<Long, ChannelWorker> mWorkers = new HashMap<>();
+
+    @Inject
+    public TaskChannelManager(Context context, PostMessage postMessage,
+            PrefsFactory prefsFactory, FileManager fileManager,
+            WebServiceDataSourceFactory webServiceDataSourceFactory) {
+        mContext = context;
+        mPostMessage = postMessage;
+        mPrefsFactory = prefsFactory;
+        mFileManager = fileManager;
+        mWebServiceDataSource = webServiceDataSourceFactory.createDatabaseDataSource();
+    }
+
+    /**
+     * Makes sure a channel is open for every enabled Sync URL that wants one, then runs the
+     * regular task check for the Sync URLs that aren't streaming.
+     */
+    public void checkTasks() {
+        if (!mPrefsFactory.serviceEnabled().get() || !mPrefsFactory.enableTaskCheck().get()) {
+            stop();
+            return;
+        }
+        List<SyncUrl> syncUrls = mWebServiceDataSource.get(SyncUrl.Status.ENABLED);
+        List<SyncUrl> polled = new ArrayList<>();
+        synchronized (mWorkers) {
+            Map<Long, SyncUrl> wanted = new HashMap<>();
+            for (SyncUrl syncUrl : syncUrls) {
+                if (syncUrl.getTaskChannel() != SyncUrl.TaskChannel.POLL) {
+                    wanted.put(syncUrl._id, syncUrl);
+                }
+            }
+            // Close channels whose Sync URL got disabled, deleted or changed
+            Iterator<Map.Entry<Long, ChannelWorker>> iterator = mWorkers.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, ChannelWorker> entry = iterator.next();
+                SyncUrl syncUrl = wanted.get(entry.getKey());
+                if (syncUrl == null || !entry.getValue().isFor(syncUrl)) {
+                    entry.getValue().close();
+                    iterator.remove();
+                }
+            }
+            for (SyncUrl syncUrl : syncUrls) {
+                ChannelWorker worker = mWorkers.get(syncUrl._id);
+                if (wanted.containsKey(syncUrl._id) && worker == null) {
+                    worker = new ChannelWorker(syncUrl);
+                    mWorkers.put(syncUrl._id, worker);
+                    worker.start();
+                }
+                if (worker == null || !worker.isConnected()) {
+                    polled.add(syncUrl);
+                }
+            }
+        }
+        if (!polled.isEmpty()) {
+            mPostMessage.performTask(polled);
+        }
+    }
+
+    /**
+     * Closes all open channels
+     */
+    public void stop() {
+        synchronized (mWorkers) {
+            for (ChannelWorker worker : mWorkers.values()) {
+                worker.close();
+            }
+            mWorkers.clear();
+        }
+    }
+
+    private String getUserAgent() {
+        try {
+            return "SMSSync-Android/v" + mContext.getPackageManager().getPackageInfo(
+                    mContext.getPackageName(), 0).versionName;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private class ChannelWorker extends Thread implements TaskStreamClient.TaskListener {
+
+        private final SyncUrl mSyncUrl;
+
+        private final String mTaskUrl;
+
+        private final TaskStreamClient mTaskStreamClient;
+
+        private volatile boolean mClosed;
+
+        private volatile boolean mConnected;
+
+        ChannelWorker(SyncUrl syncUrl) {
+            super(TAG + "-" + syncUrl._id);
+            mSyncUrl = syncUrl;
+            mTaskUrl = mPostMessage.getTaskUrl(syncUrl);
+            mTaskStreamClient = new TaskStreamClient(getUserAgent());
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            long backoff = INITIAL_BACKOFF;
+            while (!mClosed) {
+                if (!Utility.isConnected(mContext)) {
+                    mConnected = false;
+                    pause(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                    continue;
+                }
+                try {
+                    mConnected = true;
+                    final long opened = SystemClock.elapsedRealtime();
+                    final int tasks = mTaskStreamClient.open(mTaskUrl, mSyncUrl.getTaskChannel(),
+                            this);
+                    final long open = SystemClock.elapsedRealtime() - opened;
+                    if (tasks > 0 || open >= MIN_CHANNEL_TIME) {
+                        backoff = INITIAL_BACKOFF;
+                        pause(MIN_RECONNECT_INTERVAL - open);
+                    } else {
+                        // The server closes the channel as soon as it's open, so reconnecting
+                        // straight away would only spin. Poll it meanwhile.
+                        mConnected = false;
+                        pause(backoff);
+                        backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                    }
+                } catch (IOException e) {
+                    if (mClosed) {
+                        break;
+                    }
+                    // Let the scheduled task check poll this Sync URL until the channel is back
+                    mConnected = false;
+                    Logger.log(TAG, "Task channel failed for " + mSyncUrl.getUrl(), e);
+                    mFileManager.appendAndClose(mContext.getString(R.string.task_channel_failed,
+                            mSyncUrl.getUrl(), e.getMessage()));
+                    pause(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                }
+            }
+            mConnected = false;
+        }
+
+        @Override
+        public void onTask(SmssyncResponse response) {
+            if (!mClosed && mPrefsFactory.serviceEnabled().get()) {
+                mPostMessage.processTaskResponse(mSyncUrl, response);
+            }
+        }
+
+        boolean isConnected() {
+            return mConnected;
+        }
+
+        boolean isFor(SyncUrl syncUrl) {
+            return syncUrl.getTaskChannel() == mSyncUrl.getTaskChannel()
+                    && mTaskUrl.equals(mPostMessage.getTaskUrl(syncUrl));
+        }
+
+        void close() {
+            mClosed = true;
+            mConnected = false;
+            mTaskStreamClient.cancel();
+            interrupt();
+        }
+
+        private void pause(long millis) {
+            if (millis <= 0) {
+                return;
+            }
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                // Closed
+            }
+        }
+    }
+}
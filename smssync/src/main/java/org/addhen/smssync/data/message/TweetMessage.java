@@ -20,28 +20,27 @@ package org.addhen.smssync.data.message;
 import org.addhen.smssync.R;
 import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
-import org.addhen.smssync.data.entity.Filter;
 import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.repository.datasource.filter.FilterDataSourceFactory;
 import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
 import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSourceFactory;
 import org.addhen.smssync.data.twitter.TwitterClient;
+import org.addhen.smssync.data.twitter.TwitterPublisher;
 import org.addhen.smssync.data.util.Logger;
 import org.addhen.smssync.data.util.Utility;
 import org.addhen.smssync.smslib.sms.ProcessSms;
 
 import android.content.Context;
-import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import twitter4j.Status;
+import twitter4j.TwitterException;
 
 /**
  * @author Ushahidi Team <team@ushahidi.com>
@@ -54,18 +53,23 @@ public class TweetMessage extends ProcessMessage {
 
     private TwitterClient mTwitterClient;
 
+    private TwitterPublisher mTwitterPublisher;
+
     @Inject
     public TweetMessage(Context context, PrefsFactory prefsFactory,
             TwitterClient twitterClient,
+            TwitterPublisher twitterPublisher,
             MessageDataSourceFactory messageDataSourceFactory,
             WebServiceDataSourceFactory webServiceDataSourceFactory,
             FilterDataSourceFactory filterDataSourceFactory,
             ProcessSms processSms,
-            FileManager fileManager
+            FileManager fileManager,
+            OutboxQueue outboxQueue
     ) {
         super(context, prefsFactory, messageDataSourceFactory, webServiceDataSourceFactory,
-                filterDataSourceFactory, processSms, fileManager);
+                filterDataSourceFactory, processSms, fileManager, outboxQueue);
         mTwitterClient = twitterClient;
+        mTwitterPublisher = twitterPublisher;
     }
 
     /**
@@ -85,49 +89,17 @@ public class TweetMessage extends ProcessMessage {
         // Send auto response from phone not server
         if (mPrefsFactory.enableReply().get()) {
             // send auto response as SMS to user's phone
-            logActivities(R.string.auto_response_sent);
-            Message msg = new Message();
-            msg.messageBody = mPrefsFactory.reply().get();
-            msg.messageFrom = message.messageFrom;
-            msg.messageType = message.messageType;
-            mProcessSms.sendSms(map(msg), false);
+            sendAutoReply(message);
         }
         if (Utility.isConnected(mContext)) {
-            List<Filter> filters = mFilterDataSource.getFilters();
-            // Process if white-listing is enabled
-            if (mPrefsFactory.enableWhitelist().get()) {
-                for (Filter filter : filters) {
-                    if (filter.phoneNumber.equals(message.messageFrom)) {
-                        if (tweetMessage(message)) {
-                            deleteFromSmsInbox(message);
-                        } else {
-                            savePendingMessage(message);
-                        }
-                    }
-                }
-            }
-
-            // Process blacklist
-            if (mPrefsFactory.enableBlacklist().get()) {
-                for (Filter filter : filters) {
-
-                    if (!filter.phoneNumber.equals(message.messageFrom)) {
-                        if (tweetMessage(message)) {
-                            deleteFromSmsInbox(message);
-                        } else {
-                            savePendingMessage(message);
-                        }
-                    }
-
-                }
-            } else {
-                if (tweetMessage(message)) {
-                    deleteFromSmsInbox(message);
-                } else {
-                    savePendingMessage(message);
-                }
+            if (!planTweets(Collections.singletonList(message)).isRouted(message)) {
+                Logger.log(TAG, "Filtered out message from " + message.messageFrom);
+                return false;
             }
-
+            // Keep the message as pending until the publisher reports back, so it isn't lost
+            // if the app dies while the tweet is still queued
+            savePendingMessage(message);
+            tweet(message, true);
             return true;
         }
 
@@ -147,133 +119,89 @@ public class TweetMessage extends ProcessMessage {
         // check if it should sync by id
         if (!TextUtils.isEmpty(uuid)) {
             final Message message = mMessageDataSource.fetchMessageByUuid(uuid);
-            List<Message> messages = new ArrayList<Message>();
-            messages.add(message);
-            List<String> keywords = getKeywords();
-            status = tweetMessages(messages);
+            if (message != null) {
+                status = tweetMessages(Collections.singletonList(message));
+            }
         } else {
             final List<Message> messages = mMessageDataSource.fetchMessage(Message.Type.PENDING);
             if (messages != null && messages.size() > 0) {
-                for (Message message : messages) {
-                    status = tweetMessages(messages);
-                }
+                status = tweetMessages(messages);
             }
         }
 
         return status;
     }
 
-    @NonNull
-    private List<String> getKeywords() {
-        return Arrays.asList(mPrefsFactory.twitterKeywords().get().split(","));
-    }
-
+    /**
+     * Tweets the messages the white list, black list and Twitter keywords allow, each once
+     *
+     * @param messages The messages
+     * @return True
+     */
     public boolean tweetMessages(List<Message> messages) {
         Logger.log(TAG, "tweetMessages");
-        List<Filter> filters = mFilterDataSource.getFilters();
         if (mTwitterClient.getSessionManager().getActiveSession() != null) {
-            // Process if white-listing is enabled
-            if (mPrefsFactory.enableWhitelist().get()) {
-                for (Filter filter : filters) {
-                    for (Message message : messages) {
-                        if (filter.phoneNumber.equals(message.messageFrom)) {
-                            if (tweetMessage(message)) {
-                                postToSentBox(message);
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (mPrefsFactory.enableBlacklist().get()) {
-                for (Filter filter : filters) {
-                    for (Message msg : messages) {
-                        if (!filter.phoneNumber.equals(msg.messageFrom)) {
-                            if (tweetMessage(msg)) {
-                                postToSentBox(msg);
-                            }
-                        }
-                    }
-                }
-            } else {
-                for (Message messg : messages) {
-                    if (tweetMessage(messg)) {
-                        postToSentBox(messg);
-                    }
-                }
+            for (Message message : planTweets(messages).getMessages(mTwitterClient)) {
+                tweet(message, false);
             }
         }
         return true;
     }
 
     public boolean tweetPendingMessage(Message message) {
-        Logger.log(TAG, "tweetMessages");
-        List<Filter> filters = mFilterDataSource.getFilters();
-        if (mTwitterClient.getSessionManager().getActiveSession() != null) {
-            // Process if white-listing is enabled
-            if (mPrefsFactory.enableWhitelist().get()) {
-                for (Filter filter : filters) {
-
-                    if (filter.phoneNumber.equals(message.messageFrom)) {
-                        if (tweetMessage(message)) {
-                            postToSentBox(message);
-                        }
-                    }
-
-                }
-            }
-
-            if (mPrefsFactory.enableBlacklist().get()) {
-                for (Filter filter : filters) {
+        return tweetMessages(Collections.singletonList(message));
+    }
 
-                    if (!filter.phoneNumber.equals(message.messageFrom)) {
-                        if (tweetMessage(message)) {
-                            postToSentBox(message);
-                        }
-                    }
+    /**
+     * Plans which messages are tweeted, with the Twitter account as the only endpoint
+     */
+    private RoutingPlan<TwitterClient> planTweets(List<Message> messages) {
+        return this.<TwitterClient>newRoutingPlan()
+                .addEndpoint(mTwitterClient, mPrefsFactory.enableTwitterKeywords().get()
+                        ? mPrefsFactory.twitterKeywords().get() : null)
+                .build(messages);
+    }
 
+    /**
+     * Hands a pending message to the {@link TwitterPublisher}. The message is moved to the sent
+     * box or retried once the publisher reports back. A message that is queued already isn't
+     * queued again.
+     *
+     * @param message   The message
+     * @param fromInbox Whether the message was just received, so it's deleted from the SMS inbox
+     *                  once it's sent
+     * @return true if the message was queued or sent
+     */
+    private boolean tweet(final Message message, final boolean fromInbox) {
+        if (message.messageType != Message.Type.PENDING) {
+            final boolean posted = sendTaskSms(message);
+            if (posted) {
+                postToSentBox(message);
+                if (fromInbox) {
+                    deleteFromSmsInbox(message);
                 }
             } else {
-                if (tweetMessage(message)) {
-                    postToSentBox(message);
-                }
-
+                processRetries(message);
             }
+            return posted;
         }
-        return true;
-    }
-
-    private boolean tweetMessage(Message message) {
-        // Process filter text (keyword or RegEx)
-        if (!TextUtils.isEmpty(mPrefsFactory.twitterKeywords().get()) && mPrefsFactory
-                .enableTwitterKeywords().get()) {
-            List<String> keywords = new ArrayList<>(
-                    Arrays.asList(mPrefsFactory.twitterKeywords().get().split(",")));
-            if (filterByKeywords(message.messageBody, keywords) || filterByRegex(
-                    message.messageBody, keywords)) {
-                return tweet(message);
+        Logger.log(TAG, "Queue message for Twitter " + message);
+        return mTwitterPublisher.publish(message.messageUuid, message.messageBody,
+                new TwitterPublisher.Callback() {
+            @Override
+            public void onSuccess(Status status) {
+                postToSentBox(message);
+                if (fromInbox) {
+                    deleteFromSmsInbox(message);
+                }
             }
-        } else {
-            return tweet(message);
-        }
-        return false;
-    }
 
-    private boolean tweet(Message message) {
-        boolean posted = false;
-        if (message.messageType == Message.Type.PENDING) {
-            Logger.log(TAG, "Process message with keyword filtering enabled " + message);
-            // Post to Twitter as well.
-            Status status = mTwitterClient.tweet(message.messageBody);
-            posted = status != null;
-
-        } else {
-            posted = sendTaskSms(message);
-        }
-        if (!posted) {
-            processRetries(message);
-        }
-        return false;
+            @Override
+            public void onFailure(TwitterException e) {
+                message.status = Message.Status.FAILED;
+                processRetries(message);
+            }
+        });
     }
 
     public static class Builder {
@@ -284,6 +212,8 @@ public class TweetMessage extends ProcessMessage {
 
         private TwitterClient mTwitterApp;
 
+        private TwitterPublisher mTwitterPublisher;
+
         private MessageDataSourceFactory mMessageDataSourceFactory;
 
         private WebServiceDataSourceFactory mWebServiceDataSourceFactory;
@@ -294,6 +224,8 @@ public class TweetMessage extends ProcessMessage {
 
         private FileManager mFileManager;
 
+        private OutboxQueue mOutboxQueue;
+
         public Builder setContext(Context context) {
             mContext = context;
             return this;
@@ -309,6 +241,11 @@ public class TweetMessage extends ProcessMessage {
             return this;
         }
 
+        public Builder setTwitterPublisher(TwitterPublisher twitterPublisher) {
+            mTwitterPublisher = twitterPublisher;
+            return this;
+        }
+
         public Builder setMessageDataSourceFactory(
                 MessageDataSourceFactory messageDataSourceFactory) {
             mMessageDataSourceFactory = messageDataSourceFactory;
@@ -336,10 +273,16 @@ public class TweetMessage extends ProcessMessage {
             return this;
         }
 
+        public Builder setOutboxQueue(OutboxQueue outboxQueue) {
+            mOutboxQueue = outboxQueue;
+            return this;
+        }
+
         public TweetMessage build() {
-            return new TweetMessage(mContext, mPrefsFactory, mTwitterApp, mMessageDataSourceFactory,
+            return new TweetMessage(mContext, mPrefsFactory, mTwitterApp, mTwitterPublisher,
+                    mMessageDataSourceFactory,
                     mWebServiceDataSourceFactory, mFilterDataSourceFactory, mProcessSms,
-                    mFileManager);
+                    mFileManager, mOutboxQueue);
         }
     }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import com.squareup.okhttp.FormEncodingBuilder;
+
+import org.addhen.smssync.R;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.entity.SyncScheme;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSource;
+import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSourceFactory;
+import org.addhen.smssync.data.util.AlertQueue;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.presentation.service.WakeLockManager;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Posts alerts to the enabled Sync URLs from a background worker. Alerts that got through the
+ * {@link AlertQueue} are held for {@link #BATCH_WINDOW} and then posted together, one request per
+ * Sync URL, so a flapping connection or a run of failed sends doesn't turn into a request for
+ * every alert. The device is kept awake with the {@link WakeLockManager} from the moment a batch
+ * is started until it's posted.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class AlertDispatcher {
+
+    private static final String TAG = AlertDispatcher.class.getSimpleName();
+
+    private static final String WAKE_FLUSH = TAG + " flush";
+
+    private static final String TASK_PARAM = "Task";
+
+    private static final String MESSAGE_PARAM = "message";
+
+    private static final String ERROR_CODE_PARAM = "errorCode";
+
+    /**
+     * How long to hold alerts before posting them
+     */
+    private static final long BATCH_WINDOW = 5000;
+
+    private static final int MAX_PENDING = 50;
+
+    private static final long MINUTE = 60 * 1000;
+
+    private final Context mContext;
+
+    private final FileManager mFileManager;
+
+    private final WebServiceDataSource mWebServiceDataSource;
+
+    private final SyncUrlTimeouts mSyncUrlTimeouts;
+
+    private final AppHttpClient mAppHttpClient;
+
+    private final WakeLockManager mWakeLockManager;
+
+    private final ScheduledExecutorService mExecutor = Executors
+            .newSingleThreadScheduledExecutor();
+
+    private final AlertQueue mAlertQueue = new AlertQueue(
+            new AlertQueue.Policy(5 * MINUTE, 5, MINUTE), MAX_PENDING);
+
+    private boolean mFlushScheduled;
+
+    @Inject
+    public AlertDispatcher(Context context, FileManager fileManager,
+            WebServiceDataSourceFactory webServiceDataSourceFactory,
+            SyncUrlTimeouts syncUrlTimeouts, WakeLockManager wakeLockManager) {
+        mContext = context;
+        mFileManager = fileManager;
+        mWebServiceDataSource = webServiceDataSourceFactory.createDatabaseDataSource();
+        mSyncUrlTimeouts = syncUrlTimeouts;
+        mWakeLockManager = wakeLockManager;
+        // Alerts have a client of their own, so they never share params with other requests
+        mAppHttpClient = new AppHttpClient(context);
+        mAlertQueue.setPolicy(Type.BATTERY_LOW.name(),
+                new AlertQueue.Policy(30 * MINUTE, 1, 30 * MINUTE));
+        mAlertQueue.setPolicy(Type.SMS_SEND_FAILED.name(),
+                new AlertQueue.Policy(5 * MINUTE, 10, MINUTE));
+        mAlertQueue.setPolicy(Type.CONNECTION_LOST.name(),
+                new AlertQueue.Policy(15 * MINUTE, 2, 30 * MINUTE));
+    }
+
+    /**
+     * Queues an alert to post to the enabled Sync URLs
+     *
+     * @param type      The type of the alert
+     * @param key       Tells alerts of the same type apart, null when they're all the same
+     * @param message   The alert text
+     * @param errorCode The error code to send along, or null
+     * @return True when the alert is queued, false when it was dropped as a duplicate or
+     * because too many alerts of its type were sent lately
+     */
+    public synchronized boolean dispatch(@NonNull Type type, String key, @NonNull String message,
+            String errorCode) {
+        if (!mAlertQueue.offer(new AlertQueue.Alert(type.name(), key, message, errorCode),
+                System.currentTimeMillis())) {
+            Logger.log(TAG, "Dropped " + type + " alert " + message);
+            return false;
+        }
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            // Held from here, so the device can't sleep through the batch window
+            mWakeLockManager.acquire(WAKE_FLUSH, true);
+            mExecutor.schedule(() -> {
+                try {
+                    flush();
+                } finally {
+                    mWakeLockManager.release(WAKE_FLUSH);
+                }
+            }, BATCH_WINDOW, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Checks an alert that isn't posted, like one only sent as SMS, against the same limits
+     *
+     * @return True when the alert should be sent
+     */
+    public synchronized boolean allow(@NonNull Type type, String key) {
+        return mAlertQueue.allow(type.name(), key, System.currentTimeMillis());
+    }
+
+    /**
+     * Runs a task on the alert worker
+     *
+     * @param task  The task
+     * @param delay The milliseconds to wait before running it
+     * @return The scheduled task, which can be cancelled
+     */
+    public ScheduledFuture<?> schedule(@NonNull Runnable task, long delay) {
+        return mExecutor.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        final List<AlertQueue.Alert> alerts;
+        final int dropped;
+        synchronized (this) {
+            mFlushScheduled = false;
+            alerts = mAlertQueue.drain();
+            dropped = mAlertQueue.takeDropped();
+        }
+        if (alerts.isEmpty()) {
+            return;
+        }
+        if (dropped > 0) {
+            Logger.log(TAG, "Dropped " + dropped + " alerts since the last batch");
+        }
+        // One message with a line per alert, and each distinct error code once
+        StringBuilder message = new StringBuilder();
+        Set<String> errorCodes = new LinkedHashSet<>();
+        for (AlertQueue.Alert alert : alerts) {
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append(alert.message);
+            if (!TextUtils.isEmpty(alert.errorCode)) {
+                errorCodes.add(alert.errorCode);
+            }
+        }
+        for (SyncUrl syncUrl : mWebServiceDataSource.get(SyncUrl.Status.ENABLED)) {
+            post(syncUrl, message.toString(), TextUtils.join(",", errorCodes));
+        }
+    }
+
+    private void post(SyncUrl syncUrl, String message, String errorCodes) {
+        mAppHttpClient.clearParams();
+        mAppHttpClient.setUrl(syncUrl.getUrl());
+        mSyncUrlTimeouts.apply(mAppHttpClient, syncUrl, false);
+        FormEncodingBuilder form = new FormEncodingBuilder();
+        if (!TextUtils.isEmpty(syncUrl.getSecret())) {
+            form.add(syncUrl.getSyncScheme().getKey(SyncScheme.SyncDataKey.SECRET),
+                    syncUrl.getSecret());
+        }
+        form.add(TASK_PARAM, "alert");
+        form.add(MESSAGE_PARAM, message);
+        if (!TextUtils.isEmpty(errorCodes)) {
+            form.add(ERROR_CODE_PARAM, errorCodes);
+        }
+        try {
+            mAppHttpClient.setRequestBody(form.build());
+            mAppHttpClient.setMethod(BaseHttpClient.HttpMethod.POST);
+            mAppHttpClient.execute();
+            if (mAppHttpClient.getResponseCode() == 200) {
+                mFileManager.appendAndClose(
+                        mContext.getString(R.string.successful_alert_to_server));
+            }
+        } catch (Exception e) {
+            Logger.log(TAG, "Alert to " + syncUrl.getUrl() + " failed", e);
+            mFileManager.appendAndClose(e.getMessage());
+        } finally {
+            mAppHttpClient.closeResponse();
+        }
+    }
+
+    public enum Type {
+        BATTERY_LOW,
+        SMS_SEND_FAILED,
+        CONNECTION_LOST
+    }
+}
@@ -17,12 +17,12 @@
 
 package org.addhen.smssync.data.net;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
 
 import com.squareup.okhttp.Response;
 
 import org.addhen.smssync.data.entity.SmssyncResponse;
+import org.addhen.smssync.data.util.JsonUtils;
 
 import android.content.Context;
 
@@ -55,6 +55,9 @@ public class AppHttpClient extends BaseHttpClient {
 
     public Boolean request(String url) {
         setUrl(url);
+        // Tests a URL that may not be a saved Sync URL, so use the default timeouts
+        setTimeouts(0, 0, 0, 0);
+        setLatencyTracker(null);
         Boolean status = false;
         try {
             execute();
@@ -66,21 +69,21 @@ public class AppHttpClient extends BaseHttpClient {
             int statusCode = response.code();
 
             if (statusCode == 200) {
-                final Gson gson = new Gson();
                 SmssyncResponse smssyncResponses = null;
                 try {
-                    smssyncResponses = gson.fromJson(response.body().charStream(),
+                    smssyncResponses = JsonUtils.getObj(getBody().charStream(),
                             SmssyncResponse.class);
                 } catch (IOException e) {
                     e.printStackTrace();
                     status = false;
-                } catch (JsonSyntaxException e) {
+                } catch (JsonParseException e) {
                     status = false;
                 }
                 if (smssyncResponses != null && smssyncResponses.getPayload() != null) {
                     status = true;
                 }
             }
+            closeResponse();
         }
         return status;
     }
@@ -17,13 +17,17 @@
 
 package org.addhen.smssync.data.net;
 
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Callback;
 import com.squareup.okhttp.Headers;
 import com.squareup.okhttp.MediaType;
 import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.RequestBody;
 import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
 
+import org.addhen.smssync.data.util.LatencyTracker;
 import org.addhen.smssync.data.util.Logger;
 import org.addhen.smssync.domain.entity.HttpNameValuePair;
 
@@ -31,13 +35,24 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.util.Base64;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A Singleton class for accessing RequestQueue instance. It instantiates the
@@ -61,8 +76,21 @@ public class BaseHttpClient {
     public static final MediaType YAML = MediaType
             .parse("application/xml; charset=" + DEFAULT_ENCODING);
 
+    /**
+     * The largest response body read, so a misbehaving Sync URL can't exhaust the memory
+     */
+    public static final long DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName(DEFAULT_ENCODING);
+
     private static final String CLASS_TAG = BaseHttpClient.class.getSimpleName();
 
+    /**
+     * Cancels the requests that run past their deadline
+     */
+    private static final ScheduledExecutorService DEADLINES = Executors
+            .newSingleThreadScheduledExecutor();
+
     protected OkHttpClient mHttpClient;
 
     protected Context mContext;
@@ -71,6 +99,10 @@ public class BaseHttpClient {
 
     private Response mResponse;
 
+    private BoundedBody mBody;
+
+    private long mMaxBodySize = DEFAULT_MAX_BODY_SIZE;
+
     private Request request;
 
     private ArrayList<HttpNameValuePair> mParams;
@@ -83,6 +115,11 @@ public class BaseHttpClient {
 
     private RequestBody requestBody;
 
+    private int mDeadline;
+
+    private long mHedgeDelay;
+
+    private LatencyTracker mLatencyTracker;
 
     public BaseHttpClient(Context context) {
         mContext = context;
@@ -143,18 +180,144 @@ public class BaseHttpClient {
         this.mParams.add(new HttpNameValuePair(name, value));
     }
 
+    public void clearParams() {
+        mParams.clear();
+    }
+
     public ArrayList getParams() {
         return mParams;
     }
 
+    /**
+     * Sets the timeouts of the requests made from now on
+     *
+     * @param connect  The connect timeout in seconds
+     * @param read     The read timeout in seconds
+     * @param write    The write timeout in seconds
+     * @param deadline The most seconds a request may take until it's answered, or zero for no
+     *                 deadline
+     */
+    public void setTimeouts(int connect, int read, int write, int deadline) {
+        mHttpClient.setConnectTimeout(connect > 0 ? connect : TIME_OUT_CONNECTION,
+                TimeUnit.SECONDS);
+        mHttpClient.setReadTimeout(read > 0 ? read : TIME_OUT_CONNECTION, TimeUnit.SECONDS);
+        mHttpClient.setWriteTimeout(write > 0 ? write : TIME_OUT_CONNECTION, TimeUnit.SECONDS);
+        mDeadline = Math.max(deadline, 0);
+    }
+
+    /**
+     * Hedges the next request: when it hasn't been answered after the given delay, the same
+     * request is made again and whichever is answered first is used. This only applies to the
+     * next request and must only be used for requests that are safe to make twice.
+     *
+     * @param hedgeDelay The delay in milliseconds, or zero not to hedge
+     */
+    public void setHedgeDelay(long hedgeDelay) {
+        mHedgeDelay = hedgeDelay;
+    }
+
+    /**
+     * @param latencyTracker Keeps how long the requests made from now on take to be answered, or
+     *                       null not to keep track
+     */
+    public void setLatencyTracker(LatencyTracker latencyTracker) {
+        mLatencyTracker = latencyTracker;
+    }
+
+    /**
+     * @param maxBodySize The most bytes of a response body that are read, or zero for the
+     *                    default
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        mMaxBodySize = maxBodySize > 0 ? maxBodySize : DEFAULT_MAX_BODY_SIZE;
+    }
+
     public void execute() throws Exception {
+        // A failed request mustn't leave the previous response behind
+        closeResponse();
+        setResponse(null);
         prepareRequest();
+        final long hedgeDelay = mHedgeDelay;
+        mHedgeDelay = 0;
         if (request != null) {
-            final Response resp = mHttpClient.newCall(request).execute();
+            final long start = System.nanoTime();
+            final Response resp = execute(request, hedgeDelay);
+            if (mLatencyTracker != null) {
+                mLatencyTracker.record(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
             setResponse(resp);
         }
     }
 
+    private Response execute(Request request, long hedgeDelay) throws IOException {
+        final List<Call> calls = new CopyOnWriteArrayList<>();
+        calls.add(mHttpClient.newCall(request));
+        final AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = null;
+        if (mDeadline > 0) {
+            deadline = DEADLINES.schedule(() -> {
+                expired.set(true);
+                for (Call call : calls) {
+                    call.cancel();
+                }
+            }, mDeadline, TimeUnit.SECONDS);
+        }
+        try {
+            return hedgeDelay > 0 ? executeHedged(request, calls, hedgeDelay)
+                    : calls.get(0).execute();
+        } catch (IOException e) {
+            if (expired.get()) {
+                throw new InterruptedIOException("No answer within the deadline of "
+                        + mDeadline + "s");
+            }
+            throw e;
+        } finally {
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+        }
+    }
+
+    private Response executeHedged(Request request, List<Call> calls, long hedgeDelay)
+            throws IOException {
+        final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+        final AtomicBoolean answered = new AtomicBoolean();
+        calls.get(0).enqueue(new HedgedCallback(0, results, answered));
+        try {
+            Object result = results.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+            int running = 1;
+            if (result == null) {
+                log("No answer after %dms, hedging the request", hedgeDelay);
+                final Call hedge = mHttpClient.newCall(request);
+                calls.add(hedge);
+                hedge.enqueue(new HedgedCallback(1, results, answered));
+                running = 2;
+                result = results.take();
+            }
+            // Wait for the other request when the first one to finish failed
+            while (--running > 0 && result instanceof IOException) {
+                result = results.take();
+            }
+            if (result instanceof IOException) {
+                throw (IOException) result;
+            }
+            final HedgedResponse hedgedResponse = (HedgedResponse) result;
+            // The request that was answered is left alone as its body hasn't been read yet
+            for (int i = 0; i < calls.size(); i++) {
+                if (i != hedgedResponse.index) {
+                    calls.get(i).cancel();
+                }
+            }
+            return hedgedResponse.response;
+        } catch (InterruptedException e) {
+            for (Call call : calls) {
+                call.cancel();
+            }
+            throw new InterruptedIOException("Interrupted while waiting for an answer");
+        }
+    }
+
     public boolean isMethodSupported(HttpMethod method) {
         return (method.equals(HttpMethod.GET) || method.equals(HttpMethod.POST) || method
                 .equals(HttpMethod.PUT));
@@ -229,8 +392,95 @@ public class BaseHttpClient {
         return mResponse;
     }
 
+    /**
+     * @return The status code of the last response, or zero when the last request wasn't
+     * answered
+     */
+    public int getResponseCode() {
+        return mResponse != null ? mResponse.code() : 0;
+    }
+
     public void setResponse(Response response) {
         mResponse = response;
+        mBody = null;
+    }
+
+    /**
+     * Gets the body of the last response. It's the same body every time, so it's only read
+     * once and its snippet can be logged once it has been parsed.
+     *
+     * @return The body, or null when there's no response
+     * @throws IOException When the body can't be opened
+     */
+    public BoundedBody getBody() throws IOException {
+        if (mBody == null && mResponse != null) {
+            final ResponseBody body = mResponse.body();
+            final MediaType contentType = body.contentType();
+            mBody = new BoundedBody(body.byteStream(),
+                    contentType != null ? contentType.charset(UTF_8) : UTF_8, mMaxBodySize);
+        }
+        return mBody;
+    }
+
+    /**
+     * Closes the body of the last response, whether it was read or not, so the connection goes
+     * back to the pool
+     */
+    public void closeResponse() {
+        try {
+            if (mBody != null) {
+                mBody.close();
+            } else if (mResponse != null) {
+                mResponse.body().close();
+            }
+        } catch (IOException e) {
+            log("Failed to close the response", e);
+        }
+    }
+
+    private static class HedgedResponse {
+
+        private final int index;
+
+        private final Response response;
+
+        HedgedResponse(int index, Response response) {
+            this.index = index;
+            this.response = response;
+        }
+    }
+
+    /**
+     * Passes the outcome of one of the hedged requests on. Only the first answer is used, the
+     * body of a later one is closed.
+     */
+    private static class HedgedCallback implements Callback {
+
+        private final int mIndex;
+
+        private final BlockingQueue<Object> mResults;
+
+        private final AtomicBoolean mAnswered;
+
+        HedgedCallback(int index, BlockingQueue<Object> results, AtomicBoolean answered) {
+            mIndex = index;
+            mResults = results;
+            mAnswered = answered;
+        }
+
+        @Override
+        public void onFailure(Request request, IOException e) {
+            mResults.add(e);
+        }
+
+        @Override
+        public void onResponse(Response response) throws IOException {
+            if (mAnswered.compareAndSet(false, true)) {
+                mResults.add(new HedgedResponse(mIndex, response));
+            } else {
+                response.body().close();
+            }
+        }
     }
 
     public enum HttpMethod {
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * A response body that is read once and never past a size cap. The first bytes read are kept,
+ * so an error can quote the start of the body after it has been parsed or rejected.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class BoundedBody implements Closeable {
+
+    /**
+     * How many bytes of the body are kept for the logs
+     */
+    public static final int SNIPPET_SIZE = 512;
+
+    private final InputStream mIn;
+
+    private final Charset mCharset;
+
+    private final long mMaxBytes;
+
+    private final ByteArrayOutputStream mSnippet = new ByteArrayOutputStream(SNIPPET_SIZE);
+
+    private long mByteCount;
+
+    private boolean mOpened;
+
+    private boolean mClosed;
+
+    /**
+     * @param in       The body's bytes
+     * @param charset  The charset the body is encoded with
+     * @param maxBytes The most bytes that may be read
+     */
+    public BoundedBody(InputStream in, Charset charset, long maxBytes) {
+        mIn = in;
+        mCharset = charset;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Opens the body for reading. It can only be opened once.
+     *
+     * @return The body's characters
+     * @throws IllegalStateException When the body was already opened
+     */
+    public Reader charStream() {
+        if (mOpened) {
+            throw new IllegalStateException("The body has already been read");
+        }
+        mOpened = true;
+        return new InputStreamReader(new LimitedStream(mIn), mCharset);
+    }
+
+    /**
+     * Reads the whole body and closes it
+     *
+     * @return The body
+     * @throws IOException When the body can't be read or is larger than the cap
+     */
+    public String string() throws IOException {
+        final Reader reader = charStream();
+        try {
+            StringBuilder body = new StringBuilder();
+            char[] buffer = new char[2048];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, read);
+            }
+            return body.toString();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * @return The start of what has been read of the body so far, at most {@link #SNIPPET_SIZE}
+     * bytes
+     */
+    public String snippet() {
+        return new String(mSnippet.toByteArray(), mCharset);
+    }
+
+    /**
+     * @return How many bytes of the body have been read
+     */
+    public long getByteCount() {
+        return mByteCount;
+    }
+
+    /**
+     * Closes the body so its connection can be reused. Safe to call more than once.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!mClosed) {
+            mClosed = true;
+            mIn.close();
+        }
+    }
+
+    private void count(byte[] bytes, int offset, int read) throws IOException {
+        if (read <= 0) {
+            return;
+        }
+        final int keep = (int) Math.min(read, SNIPPET_SIZE - mSnippet.size());
+        if (keep > 0) {
+            mSnippet.write(bytes, offset, keep);
+        }
+        mByteCount += read;
+        if (mByteCount > mMaxBytes) {
+            throw new TooLargeException(mMaxBytes);
+        }
+    }
+
+    /**
+     * Thrown when more of the body is read than the cap allows
+     */
+    public static class TooLargeException extends IOException {
+
+        public TooLargeException(long maxBytes) {
+            super("Response body is larger than " + maxBytes + " bytes");
+        }
+    }
+
+    /**
+     * Counts and keeps the bytes as they're read
+     */
+    private class LimitedStream extends FilterInputStream {
+
+        LimitedStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            final int read = super.read(buffer, offset, count);
+            count(buffer, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            // Skipped bytes still count towards the cap
+            byte[] skipped = new byte[(int) Math.min(count, 2048)];
+            final int read = read(skipped, 0, skipped.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
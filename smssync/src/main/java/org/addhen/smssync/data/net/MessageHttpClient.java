@@ -17,7 +17,7 @@
 
 package org.addhen.smssync.data.net;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 
 import com.squareup.okhttp.FormEncodingBuilder;
 import com.squareup.okhttp.RequestBody;
@@ -29,6 +29,7 @@ import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.entity.SmssyncResponse;
 import org.addhen.smssync.data.entity.SyncScheme;
 import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.util.JsonUtils;
 import org.addhen.smssync.domain.entity.HttpNameValuePair;
 import org.addhen.smssync.domain.util.DataFormatUtil;
 
@@ -36,6 +37,9 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.text.TextUtils;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.List;
 import java.util.Locale;
 
@@ -60,6 +64,10 @@ public class MessageHttpClient extends BaseHttpClient {
 
     private FileManager mFileManager;
 
+    private boolean mUnreachable;
+
+    private boolean mTimedOut;
+
     @Inject
     public MessageHttpClient(Context context, FileManager fileManager) {
         super(context);
@@ -73,36 +81,62 @@ public class MessageHttpClient extends BaseHttpClient {
      */
     public boolean postSmsToWebService(SyncUrl syncUrl, Message message, String toNumber,
             String deviceId) {
+        mUnreachable = false;
+        mTimedOut = false;
         initRequest(syncUrl, message, toNumber, deviceId);
-        final Gson gson = new Gson();
         try {
             execute();
             Response response = getResponse();
             int statusCode = response.code();
             if (statusCode != 200 && statusCode != 201) {
+                mUnreachable = statusCode >= 500;
                 setServerError("bad http return code", statusCode);
                 return false;
             }
 
-            SmssyncResponse smssyncResponses = gson.fromJson(response.body().string(),
-                    SmssyncResponse.class);
-            if (smssyncResponses.getPayload().isSuccess()) {
+            final BoundedBody body = getBody();
+            SmssyncResponse smssyncResponses;
+            try {
+                smssyncResponses = JsonUtils.getObj(body.charStream(), SmssyncResponse.class);
+            } catch (JsonParseException e) {
+                // Gson wraps read failures in a JsonSyntaxException, so look at the cause
+                final Throwable cause = e.getCause();
+                if (cause instanceof BoundedBody.TooLargeException) {
+                    setServerError("Response too large " + body.snippet(), statusCode);
+                    return false;
+                }
+                // The JSON ending early is a bad response, any other read failure is the same
+                // as the request failing
+                if (cause instanceof IOException && !(cause instanceof EOFException)) {
+                    throw (IOException) cause;
+                }
+                setServerError("Invalid response " + body.snippet(), statusCode);
+                return false;
+            }
+            if (smssyncResponses != null && smssyncResponses.getPayload() != null
+                    && smssyncResponses.getPayload().isSuccess()) {
                 // auto response message is enabled to be received from the
                 // server.
                 setServerSuccessResp(smssyncResponses);
                 return true;
             }
 
-            String payloadError = smssyncResponses.getPayload().getError();
+            String payloadError = smssyncResponses != null
+                    && smssyncResponses.getPayload() != null
+                    ? smssyncResponses.getPayload().getError() : null;
             if (!TextUtils.isEmpty(payloadError)) {
                 setServerError(payloadError, statusCode);
             } else {
-                setServerError(response.body().string(), statusCode);
+                setServerError(body.snippet(), statusCode);
             }
         } catch (Exception e) {
+            mUnreachable = e instanceof IOException;
+            mTimedOut = e instanceof InterruptedIOException;
             Observable.error(e);
             log("Request failed", e);
             setClientError("Request failed. " + e.getMessage());
+        } finally {
+            closeResponse();
         }
         return false;
 
@@ -110,6 +144,8 @@ public class MessageHttpClient extends BaseHttpClient {
 
     private void initRequest(SyncUrl syncUrl, Message message, String toNumber,
             String deviceId) {
+        // The client is reused, so drop the previous message's params
+        clearParams();
         setUrl(syncUrl.getUrl());
         SyncScheme syncScheme = syncUrl.getSyncScheme();
         SyncScheme.SyncMethod method = syncScheme.getMethod();
@@ -188,6 +224,21 @@ public class MessageHttpClient extends BaseHttpClient {
 
     }
 
+    /**
+     * @return True when the last message couldn't be posted because the Sync URL didn't answer
+     * or answered with a server error
+     */
+    public boolean isUnreachable() {
+        return mUnreachable;
+    }
+
+    /**
+     * @return True when the last message couldn't be posted because the request timed out
+     */
+    public boolean isTimedOut() {
+        return mTimedOut;
+    }
+
     public String getClientError() {
         return mClientError;
     }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import org.addhen.smssync.R;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.util.CircuitBreaker;
+import org.addhen.smssync.data.util.Logger;
+
+import android.content.Context;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps a {@link CircuitBreaker} for every Sync URL, so messages aren't posted to a Sync URL
+ * that is known to be down and each of them doesn't wait out the request timeouts. The state
+ * only lives as long as the process: a restart gives every Sync URL another chance.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class SyncUrlCircuitBreakers {
+
+    private static final String TAG = SyncUrlCircuitBreakers.class.getSimpleName();
+
+    private final Context mContext;
+
+    private final FileManager mFileManager;
+
+    private final ConcurrentMap<Long, CircuitBreaker> mCircuitBreakers
+            = new ConcurrentHashMap<>();
+
+    @Inject
+    public SyncUrlCircuitBreakers(Context context, FileManager fileManager) {
+        mContext = context;
+        mFileManager = fileManager;
+    }
+
+    /**
+     * Tells whether a request may be made to the Sync URL. When it may, the outcome must be
+     * reported with {@link #onSuccess(SyncUrl)} or {@link #onFailure(SyncUrl, boolean)}.
+     *
+     * @param syncUrl The Sync URL
+     * @return True when the request may be made
+     */
+    public boolean allowRequest(SyncUrl syncUrl) {
+        final CircuitBreaker circuitBreaker = get(syncUrl._id);
+        final boolean allowed = circuitBreaker.allowRequest(System.currentTimeMillis());
+        if (allowed && circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+            Logger.log(TAG, "Probing " + syncUrl.getUrl());
+        }
+        return allowed;
+    }
+
+    /**
+     * Reports a request the Sync URL answered, even if it rejected the message
+     *
+     * @param syncUrl The Sync URL
+     */
+    public void onSuccess(SyncUrl syncUrl) {
+        final CircuitBreaker circuitBreaker = get(syncUrl._id);
+        final CircuitBreaker.State previous = circuitBreaker.getState();
+        circuitBreaker.onSuccess();
+        if (previous != CircuitBreaker.State.CLOSED) {
+            mFileManager.appendAndClose(mContext.getString(R.string.sync_url_circuit_closed,
+                    syncUrl.getTitle()));
+        }
+    }
+
+    /**
+     * Reports a request the Sync URL didn't answer or answered with a server error
+     *
+     * @param syncUrl The Sync URL
+     * @param timeout True when the request timed out
+     */
+    public void onFailure(SyncUrl syncUrl, boolean timeout) {
+        final CircuitBreaker circuitBreaker = get(syncUrl._id);
+        final long now = System.currentTimeMillis();
+        circuitBreaker.onFailure(now, timeout);
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN
+                && circuitBreaker.getRetryAt() > now) {
+            // Opened or opened again by this failure
+            mFileManager.appendAndClose(mContext.getString(R.string.sync_url_circuit_opened,
+                    syncUrl.getTitle(), (circuitBreaker.getRetryAt() - now) / 1000));
+        }
+    }
+
+    /**
+     * Forgets the failures of a Sync URL, for when it has been changed or deleted
+     *
+     * @param syncUrlId The id of the Sync URL
+     */
+    public void reset(Long syncUrlId) {
+        if (syncUrlId != null) {
+            mCircuitBreakers.remove(syncUrlId);
+        }
+    }
+
+    /**
+     * @param syncUrlId The id of the Sync URL
+     * @return The state of the Sync URL's circuit breaker
+     */
+    public CircuitBreaker.State getState(Long syncUrlId) {
+        final CircuitBreaker circuitBreaker = syncUrlId != null
+                ? mCircuitBreakers.get(syncUrlId) : null;
+        return circuitBreaker != null ? circuitBreaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * @param syncUrlId The id of the Sync URL
+     * @return The time in milliseconds the Sync URL will be tried again when its circuit breaker
+     * is open
+     */
+    public long getRetryAt(Long syncUrlId) {
+        final CircuitBreaker circuitBreaker = syncUrlId != null
+                ? mCircuitBreakers.get(syncUrlId) : null;
+        return circuitBreaker != null ? circuitBreaker.getRetryAt() : 0;
+    }
+
+    private CircuitBreaker get(long syncUrlId) {
+        CircuitBreaker circuitBreaker = mCircuitBreakers.get(syncUrlId);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker();
+            CircuitBreaker existing = mCircuitBreakers.putIfAbsent(syncUrlId, circuitBreaker);
+            if (existing != null) {
+                circuitBreaker = existing;
+            }
+        }
+        return circuitBreaker;
+    }
+}
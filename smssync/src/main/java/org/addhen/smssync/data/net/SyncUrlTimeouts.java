@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.util.LatencyTracker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Applies the timeouts set for a Sync URL to the requests made to it and keeps how long the Sync
+ * URL takes to answer, so requests that are safe to make twice can be hedged once they take
+ * longer than 95% of them usually do.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class SyncUrlTimeouts {
+
+    private static final int HEDGE_PERCENTILE = 95;
+
+    private final ConcurrentMap<Long, LatencyTracker> mLatencyTrackers
+            = new ConcurrentHashMap<>();
+
+    @Inject
+    public SyncUrlTimeouts() {
+        // Do nothing
+    }
+
+    /**
+     * Sets up the client for the next request to the Sync URL
+     *
+     * @param client     The client that makes the request
+     * @param syncUrl    The Sync URL
+     * @param idempotent True when the request is safe to make twice, like a GET, so it may be
+     *                   hedged
+     */
+    public void apply(BaseHttpClient client, SyncUrl syncUrl, boolean idempotent) {
+        final LatencyTracker latencyTracker = getLatencyTracker(syncUrl._id);
+        client.setTimeouts(syncUrl.getConnectTimeout(), syncUrl.getReadTimeout(),
+                syncUrl.getWriteTimeout(), syncUrl.getDeadline());
+        client.setLatencyTracker(latencyTracker);
+        client.setHedgeDelay(idempotent && syncUrl.isHedgeRequests()
+                ? Math.max(latencyTracker.getPercentile(HEDGE_PERCENTILE), 0) : 0);
+    }
+
+    private LatencyTracker getLatencyTracker(long syncUrlId) {
+        LatencyTracker latencyTracker = mLatencyTrackers.get(syncUrlId);
+        if (latencyTracker == null) {
+            latencyTracker = new LatencyTracker();
+            LatencyTracker existing = mLatencyTrackers.putIfAbsent(syncUrlId, latencyTracker);
+            if (existing != null) {
+                latencyTracker = existing;
+            }
+        }
+        return latencyTracker;
+    }
+}
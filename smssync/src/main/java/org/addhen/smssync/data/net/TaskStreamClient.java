@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import com.google.gson.JsonSyntaxException;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import org.addhen.smssync.data.entity.SmssyncResponse;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.util.JsonUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * Keeps a connection open to the Sync URL's task endpoint (<code>?task=send</code>) so tasks are
+ * received as soon as the server has them instead of on the next scheduled task check.
+ * <p/>
+ * Two channels are supported:
+ * <ul>
+ * <li>{@link SyncUrl.TaskChannel#LONG_POLL} The server holds the request until it has a task or
+ * the wait time elapses, then responds with the same JSON it would return for a normal task
+ * check. An empty body or a 204 means there is no task.</li>
+ * <li>{@link SyncUrl.TaskChannel#SSE} The server keeps the response open as a
+ * <code>text/event-stream</code> and sends each task as an event whose data is the task check
+ * JSON.</li>
+ * </ul>
+ * This class has no Android dependencies so it can be tested against a local mock server.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class TaskStreamClient {
+
+    /**
+     * How long the server is asked to hold a long poll request, in seconds.
+     */
+    public static final int LONG_POLL_WAIT = 60;
+
+    private static final int TIME_OUT_CONNECTION = 30;
+
+    /**
+     * The read time out has to outlive the server's wait so an idle connection isn't
+     * mistaken for a dead one.
+     */
+    private static final int TIME_OUT_READ = LONG_POLL_WAIT + TIME_OUT_CONNECTION;
+
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    private static final String DATA_FIELD = "data:";
+
+    private final OkHttpClient mHttpClient;
+
+    private final String mUserAgent;
+
+    private volatile Call mCall;
+
+    public TaskStreamClient(String userAgent) {
+        mUserAgent = userAgent;
+        mHttpClient = new OkHttpClient();
+        mHttpClient.setConnectTimeout(TIME_OUT_CONNECTION, TimeUnit.SECONDS);
+        mHttpClient.setWriteTimeout(TIME_OUT_CONNECTION, TimeUnit.SECONDS);
+        mHttpClient.setReadTimeout(TIME_OUT_READ, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens the given channel once and hands every task received to the listener. Returns when
+     * the server completes the long poll or closes the event stream.
+     *
+     * @param taskUrl  The task check url including the <code>task=send</code> query
+     * @param channel  The channel to open
+     * @param listener Receives the parsed tasks
+     * @return The number of task responses received
+     * @throws IOException When the connection fails or the server returns an error
+     */
+    public int open(String taskUrl, SyncUrl.TaskChannel channel, TaskListener listener)
+            throws IOException {
+        switch (channel) {
+            case LONG_POLL:
+                return longPoll(taskUrl, listener);
+            case SSE:
+                return readEventStream(taskUrl, listener);
+            default:
+                throw new IllegalArgumentException("Channel " + channel + " can not be streamed");
+        }
+    }
+
+    /**
+     * Cancels the request that's currently open, if any. Safe to call from any thread.
+     */
+    public void cancel() {
+        final Call call = mCall;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    private int longPoll(String taskUrl, TaskListener listener) throws IOException {
+        final String url = taskUrl + "&wait=" + LONG_POLL_WAIT;
+        Response response = execute(newRequest(url).build());
+        try {
+            if (response.code() == 204) {
+                return 0;
+            }
+            final String body = response.body().string();
+            return dispatch(body, listener) ? 1 : 0;
+        } finally {
+            response.body().close();
+        }
+    }
+
+    private int readEventStream(String taskUrl, TaskListener listener) throws IOException {
+        Response response = execute(newRequest(taskUrl)
+                .header("Accept", EVENT_STREAM)
+                .header("Cache-Control", "no-cache")
+                .build());
+        int count = 0;
+        try {
+            BufferedSource source = response.body().source();
+            StringBuilder data = new StringBuilder();
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (line.length() == 0) {
+                    // A blank line ends the event
+                    if (data.length() > 0 && dispatch(data.toString(), listener)) {
+                        count++;
+                    }
+                    data.setLength(0);
+                } else if (line.startsWith(DATA_FIELD)) {
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    String value = line.substring(DATA_FIELD.length());
+                    data.append(value.startsWith(" ") ? value.substring(1) : value);
+                }
+                // Comments (heartbeats), event, id and retry fields are not used
+            }
+        } finally {
+            response.body().close();
+        }
+        return count;
+    }
+
+    private Request.Builder newRequest(String url) {
+        Request.Builder builder = new Request.Builder().url(url);
+        if (mUserAgent != null) {
+            builder.header("User-Agent", mUserAgent);
+        }
+        try {
+            String userInfo = new URI(url).getUserInfo();
+            if (userInfo != null) {
+                builder.header("Authorization",
+                        "Basic " + ByteString.encodeUtf8(userInfo).base64());
+            }
+        } catch (URISyntaxException e) {
+            // Let OkHttp report the malformed url
+        }
+        return builder;
+    }
+
+    private Response execute(Request request) throws IOException {
+        mCall = mHttpClient.newCall(request);
+        Response response = mCall.execute();
+        if (!response.isSuccessful()) {
+            response.body().close();
+            throw new IOException("Unexpected task stream response code " + response.code());
+        }
+        return response;
+    }
+
+    private boolean dispatch(String json, TaskListener listener) {
+        if (json == null || json.trim().length() == 0) {
+            return false;
+        }
+        SmssyncResponse response;
+        try {
+            response = JsonUtils.getObj(json, SmssyncResponse.class);
+        } catch (JsonSyntaxException e) {
+            return false;
+        }
+        if (response == null) {
+            return false;
+        }
+        listener.onTask(response);
+        return true;
+    }
+
+    /**
+     * Receives tasks from an open channel. Called on the thread that opened the channel.
+     */
+    public interface TaskListener {
+
+        void onTask(SmssyncResponse response);
+    }
+}
@@ -17,18 +17,19 @@
 
 package org.addhen.smssync.data.repository;
 
-import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.entity.mapper.MessageDataMapper;
+import org.addhen.smssync.data.message.MessageExporter;
+import org.addhen.smssync.data.message.MessageImporter;
 import org.addhen.smssync.data.message.PostMessage;
 import org.addhen.smssync.data.message.TweetMessage;
 import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
 import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
+import org.addhen.smssync.domain.entity.ExportProgressEntity;
+import org.addhen.smssync.domain.entity.ImportProgressEntity;
 import org.addhen.smssync.domain.entity.MessageEntity;
 import org.addhen.smssync.domain.repository.MessageRepository;
-import org.addhen.smssync.smslib.model.SmsMessage;
-import org.addhen.smssync.smslib.sms.ProcessSms;
 
-import java.util.ArrayList;
+import java.io.File;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -52,15 +53,23 @@ public class MessageDataRepository implements MessageRepository {
 
     private TweetMessage mTweetMessage;
 
+    private MessageImporter mMessageImporter;
+
+    private MessageExporter mMessageExporter;
+
     @Inject
     public MessageDataRepository(MessageDataMapper messageDataMapper,
             MessageDataSourceFactory messageDataSourceFactory,
             PostMessage postMessage,
-            TweetMessage tweetMessage) {
+            TweetMessage tweetMessage,
+            MessageImporter messageImporter,
+            MessageExporter messageExporter) {
         mMessageDataMapper = messageDataMapper;
         mMessageDataSourceFactory = messageDataSourceFactory;
         mPostMessage = postMessage;
         mTweetMessage = tweetMessage;
+        mMessageImporter = messageImporter;
+        mMessageExporter = messageExporter;
     }
 
     @Override
@@ -96,6 +105,13 @@ public class MessageDataRepository implements MessageRepository {
                 .map((messageList -> mMessageDataMapper.map(messageList)));
     }
 
+    @Override
+    public Observable<List<MessageEntity>> searchPending(String query, int limit, int offset) {
+        mMessageDataSource = mMessageDataSourceFactory.createMessageDatabaseSource();
+        return mMessageDataSource.searchPending(query, limit, offset)
+                .map((messageList -> mMessageDataMapper.map(messageList)));
+    }
+
     @Override
     public Observable<Boolean> publishMessage(List<MessageEntity> messageEntities) {
         return Observable.defer(() -> {
@@ -108,15 +124,36 @@ public class MessageDataRepository implements MessageRepository {
     }
 
     @Override
-    public Observable<List<MessageEntity>> importMessage() {
-        return Observable.defer(() -> {
-            ProcessSms processSms = mPostMessage.getProcessSms();
-            List<SmsMessage> smsMessages = processSms.importMessages();
-            List<Message> messages = new ArrayList<>();
-            for (SmsMessage smsMessage : smsMessages) {
-                messages.add(mPostMessage.map(smsMessage));
+    public Observable<ImportProgressEntity> importMessage(boolean asPending) {
+        return Observable.create(subscriber -> {
+            try {
+                mMessageImporter.importMessages(asPending, (read, total) -> {
+                    subscriber.onNext(new ImportProgressEntity(read, total));
+                    return !subscriber.isUnsubscribed();
+                });
+                subscriber.onCompleted();
+            } catch (Exception e) {
+                subscriber.onError(e);
+            }
+        });
+    }
+
+    @Override
+    public Observable<ExportProgressEntity> exportMessages(boolean csv, boolean onlyNewOnes) {
+        return Observable.create(subscriber -> {
+            try {
+                final MessageExporter.Format format = csv ? MessageExporter.Format.CSV
+                        : MessageExporter.Format.JSON_LINES;
+                final File file = mMessageExporter.createExportFile(format, onlyNewOnes);
+                final String path = file.getAbsolutePath();
+                mMessageExporter.export(file, format, onlyNewOnes, (written, total) -> {
+                    subscriber.onNext(new ExportProgressEntity(written, total, path));
+                    return !subscriber.isUnsubscribed();
+                });
+                subscriber.onCompleted();
+            } catch (Exception e) {
+                subscriber.onError(e);
             }
-            return Observable.just(mMessageDataMapper.map(messages));
         });
     }
 
@@ -19,6 +19,7 @@ package org.addhen.smssync.data.repository;
 
 import org.addhen.smssync.data.entity.mapper.WebServiceDataMapper;
 import org.addhen.smssync.data.net.AppHttpClient;
+import org.addhen.smssync.data.net.SyncUrlCircuitBreakers;
 import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSource;
 import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSourceFactory;
 import org.addhen.smssync.domain.entity.WebServiceEntity;
@@ -45,19 +46,24 @@ public class WebServiceDataRepository implements WebServiceRepository {
 
     private final AppHttpClient mAppHttpClient;
 
+    private final SyncUrlCircuitBreakers mCircuitBreakers;
+
     /**
      * Constructs a {@link WebServiceRepository}.
      *
      * @param dataSourceFactory          A factory to construct different data source
      *                                   implementations.
      * @param webserviceEntityDataMapper {@link WebServiceDataMapper}.
+     * @param circuitBreakers            The circuit breakers reset when a Sync URL changes
      */
     @Inject
     public WebServiceDataRepository(WebServiceDataSourceFactory dataSourceFactory,
-            WebServiceDataMapper webserviceEntityDataMapper, AppHttpClient appHttpClient) {
+            WebServiceDataMapper webserviceEntityDataMapper, AppHttpClient appHttpClient,
+            SyncUrlCircuitBreakers circuitBreakers) {
         mWebServiceDataStoreFactory = dataSourceFactory;
         mWebServiceEntityDataMapper = webserviceEntityDataMapper;
         mAppHttpClient = appHttpClient;
+        mCircuitBreakers = circuitBreakers;
     }
 
     @Override
@@ -108,6 +114,8 @@ public class WebServiceDataRepository implements WebServiceRepository {
     public Observable<Long> updateEntity(WebServiceEntity webservice) {
         final WebServiceDataSource webserviceDataSource = mWebServiceDataStoreFactory
                 .createDatabaseDataSource();
+        // The Sync URL may have been fixed, so give it another chance
+        mCircuitBreakers.reset(webservice._id);
         return webserviceDataSource
                 .updateWebService(mWebServiceEntityDataMapper.map(webservice));
     }
@@ -116,6 +124,7 @@ public class WebServiceDataRepository implements WebServiceRepository {
     public Observable<Long> deleteEntity(Long webserviceId) {
         final WebServiceDataSource webserviceDataSource = mWebServiceDataStoreFactory
                 .createDatabaseDataSource();
+        mCircuitBreakers.reset(webserviceId);
         return webserviceDataSource.deleteWebService(webserviceId);
     }
 }
@@ -38,6 +38,8 @@ public interface MessageDataSource {
 
     Observable<List<Message>> fetchPending();
 
+    Observable<List<Message>> searchPending(String query, int limit, int offset);
+
     Observable<List<Message>> getMessages();
 
     Observable<Message> getMessage(Long id);
@@ -50,6 +52,18 @@ public interface MessageDataSource {
 
     Message fetchMessageByUuid(String uuid);
 
+    List<Message> fetchMessagesByUuids(List<String> uuids);
+
+    int importMessages(List<Message> messages);
+
+    List<Message> fetchMessagesByStatus(Message.Status status, int limit);
+
+    List<Message> fetchResultsChangedSince(long date, long id, int limit);
+
+    int countResultsChangedSince(long date, long id);
+
+    Message fetchLastResultChanged();
+
     void putMessage(Message message);
 
     Integer deleteWithUuid(String uuid);
@@ -62,6 +62,11 @@ public class MessageDatabaseSource implements MessageDataSource {
         return mMessageDatabaseHelper.fetchPending();
     }
 
+    @Override
+    public Observable<List<Message>> searchPending(String query, int limit, int offset) {
+        return mMessageDatabaseHelper.searchPending(query, limit, offset);
+    }
+
     @Override
     public Observable<List<Message>> getMessages() {
         return mMessageDatabaseHelper.getMessages();
@@ -92,6 +97,36 @@ public class MessageDatabaseSource implements MessageDataSource {
         return mMessageDatabaseHelper.fetchMessageByUuid(uuid);
     }
 
+    @Override
+    public List<Message> fetchMessagesByUuids(List<String> uuids) {
+        return mMessageDatabaseHelper.fetchMessagesByUuids(uuids);
+    }
+
+    @Override
+    public int importMessages(List<Message> messages) {
+        return mMessageDatabaseHelper.importMessages(messages);
+    }
+
+    @Override
+    public List<Message> fetchMessagesByStatus(Message.Status status, int limit) {
+        return mMessageDatabaseHelper.fetchMessagesByStatus(status, limit);
+    }
+
+    @Override
+    public List<Message> fetchResultsChangedSince(long date, long id, int limit) {
+        return mMessageDatabaseHelper.fetchResultsChangedSince(date, id, limit);
+    }
+
+    @Override
+    public int countResultsChangedSince(long date, long id) {
+        return mMessageDatabaseHelper.countResultsChangedSince(date, id);
+    }
+
+    @Override
+    public Message fetchLastResultChanged() {
+        return mMessageDatabaseHelper.fetchLastResultChanged();
+    }
+
     @Override
     public void putMessage(Message message) {
         mMessageDatabaseHelper.putMessage(message);
@@ -53,6 +53,10 @@ public class TwitterClient {
 
     private TwitterFactory mTwitterFactory;
 
+    private Twitter mTwitter;
+
+    private TwitterAuthToken mTwitterAuthToken;
+
     @Inject
     public TwitterClient(Context context, TwitterAuthConfig config) {
         mContext = context;
@@ -61,15 +65,20 @@ public class TwitterClient {
                 PreferenceManager.getDefaultSharedPreferences(mContext),
                 new TwitterSession.Serializer(), PREF_KEY_ACTIVE_TWITTER_SESSION,
                 PREF_KEY_TWITTER_SESSION);
-        initTwitterFactory();
     }
 
-    private void initTwitterFactory() {
-        ConfigurationBuilder builder = new ConfigurationBuilder();
-        builder.setOAuthConsumerKey(mAuthConfig.consumerKey);
-        builder.setOAuthConsumerSecret(mAuthConfig.consumerSecret);
-        mTwitterFactory = new TwitterFactory(builder.build());
-
+    /**
+     * The factory is only made once there's a session to tweet for, as it's slow to make and
+     * most gateways never tweet
+     */
+    private TwitterFactory getTwitterFactory() {
+        if (mTwitterFactory == null) {
+            ConfigurationBuilder builder = new ConfigurationBuilder();
+            builder.setOAuthConsumerKey(mAuthConfig.consumerKey);
+            builder.setOAuthConsumerSecret(mAuthConfig.consumerSecret);
+            mTwitterFactory = new TwitterFactory(builder.build());
+        }
+        return mTwitterFactory;
     }
 
     /**
@@ -100,21 +109,45 @@ public class TwitterClient {
         if (sessionManager != null) {
             sessionManager.clearActiveSession();
         }
+        synchronized (this) {
+            mTwitter = null;
+            mTwitterAuthToken = null;
+        }
+    }
+
+    /**
+     * Posts a status update as the logged in user
+     *
+     * @param update The status text
+     * @return The posted status, or null if no user is logged in
+     * @throws TwitterException When Twitter rejects the update, including when the rate limit
+     *                          has been reached
+     */
+    @Nullable
+    public Status tweet(@NonNull String update) throws TwitterException {
+        Twitter twitter = getTwitter();
+        if (twitter == null) {
+            return null;
+        }
+        return twitter.updateStatus(new StatusUpdate(update));
     }
 
+    /**
+     * @return The client for the active session. It's only created again when the session changes.
+     */
     @Nullable
-    public Status tweet(@NonNull String update) {
-        if (mTwitterSessionManager != null && mTwitterSessionManager.getActiveSession() != null) {
-            TwitterAuthToken authToken = mTwitterSessionManager.getActiveSession().getAuthToken();
-            AccessToken accessToken = new AccessToken(authToken.token, authToken.secret);
-            Twitter twitter = mTwitterFactory.getInstance(accessToken);
-            StatusUpdate latestStatus = new StatusUpdate(update);
-            try {
-                return twitter.updateStatus(latestStatus);
-            } catch (TwitterException e) {
-                e.printStackTrace();
-            }
+    private synchronized Twitter getTwitter() {
+        if (mTwitterSessionManager == null || mTwitterSessionManager.getActiveSession() == null) {
+            mTwitter = null;
+            mTwitterAuthToken = null;
+            return null;
+        }
+        TwitterAuthToken authToken = mTwitterSessionManager.getActiveSession().getAuthToken();
+        if (mTwitter == null || !authToken.equals(mTwitterAuthToken)) {
+            mTwitter = getTwitterFactory()
+                    .getInstance(new AccessToken(authToken.token, authToken.secret));
+            mTwitterAuthToken = authToken;
         }
-        return null;
+        return mTwitter;
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.twitter;
+
+import org.addhen.smssync.data.util.Logger;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import twitter4j.RateLimitStatus;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+
+/**
+ * Posts status updates to Twitter from a background worker, one at a time, so tweeting never
+ * blocks the SMS path.
+ * <p/>
+ * The worker paces itself with the rate limit Twitter reports. Updates are spread out as the
+ * remaining calls run low, and when the limit is hit the update stays at the head of the queue
+ * until the limit resets instead of being reported as failed.
+ * <p/>
+ * Each update has a key, such as the uuid of the message it tweets, and an update whose key is
+ * already waiting isn't queued again. The queue is bounded, so a long pause can't grow it
+ * without end.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class TwitterPublisher {
+
+    private static final String TAG = TwitterPublisher.class.getSimpleName();
+
+    /**
+     * Start spreading updates out once this few calls are left in the rate limit window
+     */
+    private static final int LOW_REMAINING = 5;
+
+    /**
+     * How long to wait when Twitter reports the rate limit was hit without saying until when
+     */
+    private static final long DEFAULT_BACKOFF = 15 * 60 * 1000;
+
+    /**
+     * The most updates waiting to be posted
+     */
+    static final int MAX_QUEUED = 500;
+
+    private final TwitterClient mTwitterClient;
+
+    private final ConcurrentLinkedQueue<Update> mQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The keys of the updates in the queue
+     */
+    private final Set<String> mKeys = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService mExecutor;
+
+    private long mPausedUntil;
+
+    @Inject
+    public TwitterPublisher(TwitterClient twitterClient) {
+        this(twitterClient, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @VisibleForTesting
+    TwitterPublisher(TwitterClient twitterClient, ScheduledExecutorService executor) {
+        mTwitterClient = twitterClient;
+        mExecutor = executor;
+    }
+
+    /**
+     * Queues a status update. The callback is called from the worker thread once the update has
+     * been posted or has failed.
+     *
+     * @param key      Identifies the update
+     * @param text     The status text
+     * @param callback Receives the result
+     * @return True when the update was queued, false when one with the same key is waiting
+     * already or the queue is full
+     */
+    public boolean publish(@NonNull String key, @NonNull String text,
+            @NonNull Callback callback) {
+        if (mKeys.size() >= MAX_QUEUED) {
+            Logger.log(TAG, "Tweet queue is full, leaving " + key + " for later");
+            return false;
+        }
+        if (!mKeys.add(key)) {
+            return false;
+        }
+        mQueue.add(new Update(key, text, callback));
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of updates waiting to be posted
+     */
+    public int getPendingCount() {
+        return mQueue.size();
+    }
+
+    @VisibleForTesting
+    void drain() {
+        mDrainScheduled.set(false);
+        Update update;
+        while ((update = mQueue.peek()) != null) {
+            final long wait = mPausedUntil - System.currentTimeMillis();
+            if (wait > 0) {
+                Logger.log(TAG, "Rate limited, next tweet in " + wait + "ms");
+                if (mDrainScheduled.compareAndSet(false, true)) {
+                    mExecutor.schedule(this::drain, wait, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            try {
+                Status status = mTwitterClient.tweet(update.mText);
+                remove(update);
+                if (status == null) {
+                    update.mCallback.onFailure(null);
+                } else {
+                    pace(status.getRateLimitStatus());
+                    update.mCallback.onSuccess(status);
+                }
+            } catch (TwitterException e) {
+                if (e.exceededRateLimitation()) {
+                    // Keep the update and try it again once the window resets
+                    pauseUntilReset(e);
+                } else {
+                    Logger.log(TAG, "Tweet failed", e);
+                    remove(update);
+                    update.mCallback.onFailure(e);
+                }
+            }
+        }
+    }
+
+    private void remove(Update update) {
+        mQueue.poll();
+        mKeys.remove(update.mKey);
+    }
+
+    private void pace(RateLimitStatus rateLimitStatus) {
+        if (rateLimitStatus == null) {
+            return;
+        }
+        final int remaining = rateLimitStatus.getRemaining();
+        final long untilReset = rateLimitStatus.getSecondsUntilReset() * 1000L;
+        if (remaining <= 0) {
+            mPausedUntil = System.currentTimeMillis() + untilReset;
+        } else if (remaining < LOW_REMAINING) {
+            mPausedUntil = System.currentTimeMillis() + untilReset / remaining;
+        }
+    }
+
+    private void pauseUntilReset(TwitterException e) {
+        long wait = DEFAULT_BACKOFF;
+        if (e.getRateLimitStatus() != null && e.getRateLimitStatus().getSecondsUntilReset() > 0) {
+            wait = e.getRateLimitStatus().getSecondsUntilReset() * 1000L;
+        } else if (e.getRetryAfter() > 0) {
+            wait = e.getRetryAfter() * 1000L;
+        }
+        mPausedUntil = System.currentTimeMillis() + wait;
+    }
+
+    /**
+     * Receives the result of a queued status update
+     */
+    public interface Callback {
+
+        void onSuccess(Status status);
+
+        /**
+         * @param e The error from Twitter, or null if no user is logged in
+         */
+        void onFailure(TwitterException e);
+    }
+
+    private static class Update {
+
+        final String mKey;
+
+        final String mText;
+
+        final Callback mCallback;
+
+        Update(String key, String text, Callback callback) {
+            mKey = key;
+            mText = text;
+            mCallback = callback;
+        }
+    }
+}
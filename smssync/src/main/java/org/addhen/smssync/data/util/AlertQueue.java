@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which alerts get through and holds them until they're sent in one batch. Each type of
+ * alert has a {@link Policy}: an alert is dropped when one with the same type and key got
+ * through within the policy's dedup window, or when the type's {@link TokenBucket} is empty.
+ * <p/>
+ * Times are passed in by the caller. The queue isn't thread safe.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class AlertQueue {
+
+    private final Policy mDefaultPolicy;
+
+    private final int mMaxPending;
+
+    private final Map<String, Policy> mPolicies = new HashMap<>();
+
+    private final Map<String, TokenBucket> mBuckets = new HashMap<>();
+
+    /**
+     * When an alert with the given type and key last got through
+     */
+    private final Map<String, Long> mLastAllowed = new HashMap<>();
+
+    private List<Alert> mPending = new ArrayList<>();
+
+    private int mDropped;
+
+    /**
+     * @param defaultPolicy The policy of the types that weren't given one
+     * @param maxPending    The most alerts to hold. The oldest one is dropped to make room.
+     */
+    public AlertQueue(Policy defaultPolicy, int maxPending) {
+        mDefaultPolicy = defaultPolicy;
+        mMaxPending = Math.max(1, maxPending);
+    }
+
+    public void setPolicy(String type, Policy policy) {
+        mPolicies.put(type, policy);
+        mBuckets.remove(type);
+    }
+
+    /**
+     * Lets an alert through if it isn't a duplicate and its type isn't over its rate limit,
+     * without holding it. Use this for alerts that aren't sent in batches.
+     *
+     * @param type The type of the alert
+     * @param key  Tells alerts of the same type apart, null when they're all the same
+     * @param now  The current time in milliseconds
+     * @return True when the alert got through
+     */
+    public boolean allow(String type, String key, long now) {
+        final Policy policy = getPolicy(type);
+        final String dedupKey = key != null ? type + ':' + key : type;
+        final Long last = mLastAllowed.get(dedupKey);
+        if (last != null && now >= last && now - last < policy.dedupWindow) {
+            mDropped++;
+            return false;
+        }
+        if (!getBucket(type, policy, now).tryConsume(now)) {
+            mDropped++;
+            return false;
+        }
+        prune(now);
+        mLastAllowed.put(dedupKey, now);
+        return true;
+    }
+
+    /**
+     * Holds an alert for the next batch if it gets through
+     *
+     * @param alert The alert
+     * @param now   The current time in milliseconds
+     * @return True when the alert is held
+     */
+    public boolean offer(Alert alert, long now) {
+        if (!allow(alert.type, alert.key, now)) {
+            return false;
+        }
+        if (mPending.size() >= mMaxPending) {
+            mPending.remove(0);
+            mDropped++;
+        }
+        mPending.add(alert);
+        return true;
+    }
+
+    /**
+     * @return The held alerts, oldest first. The queue is empty afterwards.
+     */
+    public List<Alert> drain() {
+        List<Alert> pending = mPending;
+        mPending = new ArrayList<>();
+        return pending;
+    }
+
+    public boolean isEmpty() {
+        return mPending.isEmpty();
+    }
+
+    /**
+     * @return The number of alerts dropped since this was last called
+     */
+    public int takeDropped() {
+        final int dropped = mDropped;
+        mDropped = 0;
+        return dropped;
+    }
+
+    private Policy getPolicy(String type) {
+        Policy policy = mPolicies.get(type);
+        return policy != null ? policy : mDefaultPolicy;
+    }
+
+    private TokenBucket getBucket(String type, Policy policy, long now) {
+        TokenBucket bucket = mBuckets.get(type);
+        if (bucket == null) {
+            bucket = new TokenBucket(policy.burst, policy.refillInterval, now);
+            mBuckets.put(type, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * Forgets the alerts whose dedup window is over, so keys don't pile up
+     */
+    private void prune(long now) {
+        Iterator<Map.Entry<String, Long>> entries = mLastAllowed.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            final String dedupKey = entry.getKey();
+            final int separator = dedupKey.indexOf(':');
+            final Policy policy = getPolicy(separator < 0 ? dedupKey
+                    : dedupKey.substring(0, separator));
+            if (now < entry.getValue() || now - entry.getValue() >= policy.dedupWindow) {
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * How often alerts of a type may get through
+     */
+    public static class Policy {
+
+        public final long dedupWindow;
+
+        public final int burst;
+
+        public final long refillInterval;
+
+        /**
+         * @param dedupWindow    The milliseconds during which an alert with the same key is a
+         *                       duplicate
+         * @param burst          The most alerts of the type that get through at once
+         * @param refillInterval The milliseconds it takes to allow one more alert. Zero or less
+         *                       means there is no limit.
+         */
+        public Policy(long dedupWindow, int burst, long refillInterval) {
+            this.dedupWindow = dedupWindow;
+            this.burst = burst;
+            this.refillInterval = refillInterval;
+        }
+    }
+
+    public static class Alert {
+
+        public final String type;
+
+        public final String key;
+
+        public final String message;
+
+        public final String errorCode;
+
+        public Alert(String type, String key, String message, String errorCode) {
+            this.type = type;
+            this.key = key;
+            this.message = message;
+            this.errorCode = errorCode;
+        }
+
+        @Override
+        public String toString() {
+            return "Alert{"
+                    + "type='" + type + '\''
+                    + ", key='" + key + '\''
+                    + ", message='" + message + '\''
+                    + ", errorCode='" + errorCode + '\''
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+/**
+ * A circuit breaker for calls to one endpoint. While closed, every call goes through and the
+ * outcome of the last {@link #WINDOW_SIZE} calls is kept. The breaker opens when at least half of
+ * them failed or when {@link #MAX_CONSECUTIVE_TIMEOUTS} calls in a row timed out, and then no
+ * call goes through until the open duration is up. After that a single probe call is let
+ * through: the breaker closes if it succeeds and opens again for twice as long if it doesn't.
+ * A probe that isn't reported within {@link #PROBE_TIMEOUT} is given up on and another one is
+ * let through.
+ * <p/>
+ * Times are passed in by the caller, like {@link TokenBucket}.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class CircuitBreaker {
+
+    /**
+     * The number of recent calls the error rate is taken from
+     */
+    public static final int WINDOW_SIZE = 20;
+
+    /**
+     * The number of calls needed before the error rate is looked at
+     */
+    public static final int MIN_CALLS = 5;
+
+    /**
+     * Timeouts are the most costly failures, so fewer of them open the breaker
+     */
+    public static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+
+    public static final long MIN_OPEN_DURATION = 30 * 1000;
+
+    public static final long MAX_OPEN_DURATION = 30 * 60 * 1000;
+
+    /**
+     * How long a probe call may take to be reported, so a lost probe can't keep the breaker
+     * half open for good
+     */
+    public static final long PROBE_TIMEOUT = 2 * 60 * 1000;
+
+    private final boolean[] mFailures = new boolean[WINDOW_SIZE];
+
+    private int mCalls;
+
+    private int mNext;
+
+    private int mFailureCount;
+
+    private int mConsecutiveTimeouts;
+
+    private State mState = State.CLOSED;
+
+    private long mOpenDuration = MIN_OPEN_DURATION;
+
+    private long mRetryAt;
+
+    private boolean mProbing;
+
+    private long mProbeStartedAt;
+
+    /**
+     * Tells whether a call may go through. When the breaker is half open this lets the probe
+     * call through, so its outcome must be reported.
+     *
+     * @param now The current time in milliseconds
+     * @return True when the call may go through
+     */
+    public synchronized boolean allowRequest(long now) {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now < mRetryAt) {
+                    return false;
+                }
+                mState = State.HALF_OPEN;
+                startProbe(now);
+                return true;
+            default:
+                if (mProbing && now < mProbeStartedAt + PROBE_TIMEOUT) {
+                    return false;
+                }
+                startProbe(now);
+                return true;
+        }
+    }
+
+    /**
+     * Reports a call that went through
+     */
+    public synchronized void onSuccess() {
+        if (mState != State.CLOSED) {
+            close();
+            return;
+        }
+        mConsecutiveTimeouts = 0;
+        record(false);
+    }
+
+    /**
+     * Reports a call that failed
+     *
+     * @param now     The current time in milliseconds
+     * @param timeout True when the call timed out
+     */
+    public synchronized void onFailure(long now, boolean timeout) {
+        if (mState != State.CLOSED) {
+            open(now, Math.min(mOpenDuration * 2, MAX_OPEN_DURATION));
+            return;
+        }
+        mConsecutiveTimeouts = timeout ? mConsecutiveTimeouts + 1 : 0;
+        record(true);
+        if (mConsecutiveTimeouts >= MAX_CONSECUTIVE_TIMEOUTS
+                || (mCalls >= MIN_CALLS && mFailureCount * 2 >= mCalls)) {
+            open(now, MIN_OPEN_DURATION);
+        }
+    }
+
+    public synchronized State getState() {
+        return mState;
+    }
+
+    /**
+     * @return The time in milliseconds from which a probe call is let through when open
+     */
+    public synchronized long getRetryAt() {
+        return mRetryAt;
+    }
+
+    private void record(boolean failure) {
+        if (mCalls == WINDOW_SIZE) {
+            if (mFailures[mNext]) {
+                mFailureCount--;
+            }
+        } else {
+            mCalls++;
+        }
+        mFailures[mNext] = failure;
+        if (failure) {
+            mFailureCount++;
+        }
+        mNext = (mNext + 1) % WINDOW_SIZE;
+    }
+
+    private void startProbe(long now) {
+        mProbing = true;
+        mProbeStartedAt = now;
+    }
+
+    private void open(long now, long duration) {
+        mState = State.OPEN;
+        mOpenDuration = duration;
+        mRetryAt = now + duration;
+        mProbing = false;
+    }
+
+    private void close() {
+        mState = State.CLOSED;
+        mOpenDuration = MIN_OPEN_DURATION;
+        mProbing = false;
+        mCalls = 0;
+        mNext = 0;
+        mFailureCount = 0;
+        mConsecutiveTimeouts = 0;
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+}
@@ -18,29 +18,180 @@
 package org.addhen.smssync.data.util;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.MessageResult;
+import org.addhen.smssync.data.entity.MessagesUUIDSResponse;
+import org.addhen.smssync.data.entity.QueuedMessages;
+import org.addhen.smssync.data.entity.SmssyncResponse;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by Kamil Kalfas(kkalfas@soldevelo.com) on 24.04.14.
  *
- * This class uses Google gson to parsing objects and strings
+ * This class uses Google gson to parsing objects and strings. Every call shares one Gson
+ * instance, which reads and writes the entities exchanged with the Sync URLs through their own
+ * type adapters instead of reflection.
  */
 public final class JsonUtils {
 
+    private static final TypeAdapterFactory ENTITY_ADAPTERS = new EntityAdapterFactory();
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(ENTITY_ADAPTERS)
+            .create();
+
     private JsonUtils() {
         // Prevent instantiation
     }
 
+    /**
+     * @return The app wide Gson instance
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Creates the type adapters of the entities exchanged with the Sync URLs. Register it when
+     * a differently configured Gson is needed, the adapters then use that Gson's date format.
+     *
+     * @return The factory of the entity type adapters
+     */
+    public static TypeAdapterFactory getEntityAdapters() {
+        return ENTITY_ADAPTERS;
+    }
+
     public static <T> T getObj(String json, java.lang.Class<T> afterClass) {
-        return new Gson().fromJson(json, afterClass);
+        return GSON.fromJson(json, afterClass);
     }
 
     public static <T> T getObj(String json, Type type) {
-        return new Gson().fromJson(json, type);
+        return GSON.fromJson(json, type);
+    }
+
+    /**
+     * Parses straight from a reader, such as a response body's char stream, without building
+     * the string first
+     */
+    public static <T> T getObj(Reader reader, java.lang.Class<T> afterClass) {
+        return GSON.fromJson(reader, afterClass);
     }
 
     public static String objToJson(Object object) {
-        return new Gson().toJson(object);
+        return GSON.toJson(object);
+    }
+
+    /**
+     * Reads a string the way Gson does, accepting booleans and numbers
+     *
+     * @return The string or null
+     */
+    public static String nextString(JsonReader in) throws IOException {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads an int, accepting quoted numbers
+     *
+     * @return The int or the default value when it's null
+     */
+    public static int nextInt(JsonReader in, int defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * Reads a long, accepting quoted numbers
+     *
+     * @return The long or the default value when it's null
+     */
+    public static long nextLong(JsonReader in, long defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        return in.nextLong();
+    }
+
+    /**
+     * Reads a boolean, accepting "true" and "false" as strings
+     *
+     * @return The boolean or the default value when it's null
+     */
+    public static boolean nextBoolean(JsonReader in, boolean defaultValue) throws IOException {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * @return The list of strings or null
+     */
+    public static List<String> nextStringList(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> strings = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            strings.add(nextString(in));
+        }
+        in.endArray();
+        return strings;
+    }
+
+    private static class EntityAdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            final Class<? super T> rawType = type.getRawType();
+            if (rawType == Message.class) {
+                return (TypeAdapter<T>) new Message.GsonAdapter(gson);
+            }
+            if (rawType == SmssyncResponse.class) {
+                return (TypeAdapter<T>) new SmssyncResponse.GsonAdapter(gson);
+            }
+            if (rawType == MessageResult.class) {
+                return (TypeAdapter<T>) new MessageResult.GsonAdapter(gson);
+            }
+            if (rawType == MessagesUUIDSResponse.class) {
+                return (TypeAdapter<T>) new MessagesUUIDSResponse.GsonAdapter();
+            }
+            if (rawType == QueuedMessages.class) {
+                return (TypeAdapter<T>) new QueuedMessages.GsonAdapter();
+            }
+            return null;
+        }
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the last {@link #WINDOW_SIZE} requests to an endpoint, to tell how long
+ * a request usually takes.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class LatencyTracker {
+
+    public static final int WINDOW_SIZE = 100;
+
+    /**
+     * The number of latencies needed before a percentile is given
+     */
+    public static final int MIN_SAMPLES = 20;
+
+    private final long[] mLatencies = new long[WINDOW_SIZE];
+
+    private int mCount;
+
+    private int mNext;
+
+    /**
+     * @param latency The latency of a request in milliseconds
+     */
+    public synchronized void record(long latency) {
+        mLatencies[mNext] = latency;
+        mNext = (mNext + 1) % WINDOW_SIZE;
+        mCount = Math.min(mCount + 1, WINDOW_SIZE);
+    }
+
+    /**
+     * @param percentile The percentile, from 1 to 100
+     * @return The latency in milliseconds under which the given percentage of the requests were
+     * answered, or -1 when too few requests were made to tell
+     */
+    public synchronized long getPercentile(int percentile) {
+        if (mCount < MIN_SAMPLES) {
+            return -1;
+        }
+        final long[] sorted = Arrays.copyOf(mLatencies, mCount);
+        Arrays.sort(sorted);
+        // Nearest rank
+        final int rank = (int) Math.ceil(percentile / 100d * mCount);
+        return sorted[Math.max(0, Math.min(rank, mCount) - 1)];
+    }
+}
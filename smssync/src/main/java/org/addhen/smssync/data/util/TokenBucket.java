@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+/**
+ * A token bucket rate limiter. The bucket holds up to <code>capacity</code> tokens and gets a new
+ * token every <code>refillInterval</code> milliseconds. Each send takes a token, so short bursts
+ * are allowed while the average rate stays at one send per interval.
+ * <p/>
+ * Times are passed in by the caller so the state can be persisted and restored across process
+ * restarts.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class TokenBucket {
+
+    private final int mCapacity;
+
+    private final long mRefillInterval;
+
+    private double mTokens;
+
+    private long mLastRefill;
+
+    /**
+     * Creates a full bucket
+     *
+     * @param capacity       The maximum number of tokens the bucket holds
+     * @param refillInterval The milliseconds it takes to add one token. Zero or less means there
+     *                       is no limit.
+     * @param now            The current time in milliseconds
+     */
+    public TokenBucket(int capacity, long refillInterval, long now) {
+        this(capacity, refillInterval, capacity, now);
+    }
+
+    /**
+     * Restores a bucket from a saved state
+     *
+     * @param capacity       The maximum number of tokens the bucket holds
+     * @param refillInterval The milliseconds it takes to add one token
+     * @param tokens         The tokens that were left
+     * @param lastRefill     The time the tokens were last counted
+     */
+    public TokenBucket(int capacity, long refillInterval, double tokens, long lastRefill) {
+        mCapacity = Math.max(1, capacity);
+        mRefillInterval = refillInterval;
+        mTokens = Math.max(0, Math.min(tokens, mCapacity));
+        mLastRefill = lastRefill;
+    }
+
+    /**
+     * Takes a token if one is available
+     *
+     * @param now The current time in milliseconds
+     * @return true if a token was taken
+     */
+    public boolean tryConsume(long now) {
+        if (isUnlimited()) {
+            return true;
+        }
+        refill(now);
+        if (mTokens >= 1) {
+            mTokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param now The current time in milliseconds
+     * @return The milliseconds until the next token is available, zero if one is available now
+     */
+    public long millisUntilAvailable(long now) {
+        if (isUnlimited()) {
+            return 0;
+        }
+        refill(now);
+        if (mTokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - mTokens) * mRefillInterval);
+    }
+
+    public boolean isUnlimited() {
+        return mRefillInterval <= 0;
+    }
+
+    public double getTokens() {
+        return mTokens;
+    }
+
+    public long getLastRefill() {
+        return mLastRefill;
+    }
+
+    private void refill(long now) {
+        if (now < mLastRefill) {
+            // The clock went backwards, count from now on
+            mLastRefill = now;
+            return;
+        }
+        final long elapsed = now - mLastRefill;
+        mTokens = Math.min(mCapacity, mTokens + (double) elapsed / mRefillInterval);
+        mLastRefill = now;
+    }
+}
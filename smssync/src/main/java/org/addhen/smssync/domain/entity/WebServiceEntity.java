@@ -38,6 +38,22 @@ public class WebServiceEntity extends Entity {
 
     private String keywords;
 
+    private TaskChannel taskChannel;
+
+    private int connectTimeout;
+
+    private int readTimeout;
+
+    private int writeTimeout;
+
+    private int deadline;
+
+    private boolean hedgeRequests;
+
+    private CircuitState circuitState;
+
+    private long circuitRetryAt;
+
     public String getTitle() {
         return title;
     }
@@ -78,6 +94,74 @@ public class WebServiceEntity extends Entity {
         this.syncScheme = syncScheme.toJSONString();
     }
 
+    public TaskChannel getTaskChannel() {
+        return taskChannel;
+    }
+
+    public void setTaskChannel(TaskChannel taskChannel) {
+        this.taskChannel = taskChannel;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(int writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public int getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(int deadline) {
+        this.deadline = deadline;
+    }
+
+    public boolean isHedgeRequests() {
+        return hedgeRequests;
+    }
+
+    public void setHedgeRequests(boolean hedgeRequests) {
+        this.hedgeRequests = hedgeRequests;
+    }
+
+    public CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    public void setCircuitState(CircuitState circuitState) {
+        this.circuitState = circuitState;
+    }
+
+    /**
+     * @return The time in milliseconds the Sync URL will be tried again while it's
+     * {@link CircuitState#OPEN}
+     */
+    public long getCircuitRetryAt() {
+        return circuitRetryAt;
+    }
+
+    public void setCircuitRetryAt(long circuitRetryAt) {
+        this.circuitRetryAt = circuitRetryAt;
+    }
+
     public Status getStatus() {
         return status;
     }
@@ -96,6 +180,13 @@ public class WebServiceEntity extends Entity {
                 ", status=" + status +
                 ", mKeywordStatus=" + mKeywordStatus +
                 ", keywords='" + keywords + '\'' +
+                ", taskChannel=" + taskChannel +
+                ", connectTimeout=" + connectTimeout +
+                ", readTimeout=" + readTimeout +
+                ", writeTimeout=" + writeTimeout +
+                ", deadline=" + deadline +
+                ", hedgeRequests=" + hedgeRequests +
+                ", circuitState=" + circuitState +
                 '}';
     }
 
@@ -115,4 +206,16 @@ public class WebServiceEntity extends Entity {
     public enum KeywordStatus {
         ENABLED, DISABLED
     }
+
+    public enum TaskChannel {
+        POLL, LONG_POLL, SSE
+    }
+
+    /**
+     * Whether messages are posted to the Sync URL. It's {@link #OPEN} while it's known to be
+     * down and {@link #HALF_OPEN} while a message is posted to check if it's back.
+     */
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
 }
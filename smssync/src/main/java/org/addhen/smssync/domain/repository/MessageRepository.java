@@ -19,6 +19,8 @@ package org.addhen.smssync.domain.repository;
 
 import com.addhen.android.raiburari.domain.repository.Repository;
 
+import org.addhen.smssync.domain.entity.ExportProgressEntity;
+import org.addhen.smssync.domain.entity.ImportProgressEntity;
 import org.addhen.smssync.domain.entity.MessageEntity;
 
 import java.util.List;
@@ -40,9 +42,13 @@ public interface MessageRepository extends Repository<MessageEntity> {
 
     Observable<List<MessageEntity>> fetchPending();
 
+    Observable<List<MessageEntity>> searchPending(String query, int limit, int offset);
+
     Observable<Boolean> publishMessage(List<MessageEntity> messageEntities);
 
-    Observable<List<MessageEntity>> importMessage();
+    Observable<ImportProgressEntity> importMessage(boolean asPending);
+
+    Observable<ExportProgressEntity> exportMessages(boolean csv, boolean onlyNewOnes);
 
     MessageEntity syncFetchByUuid(String uuid);
 
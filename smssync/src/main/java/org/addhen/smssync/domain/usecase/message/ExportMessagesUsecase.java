@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.domain.usecase.message;
+
+import com.addhen.android.raiburari.domain.executor.PostExecutionThread;
+import com.addhen.android.raiburari.domain.executor.ThreadExecutor;
+import com.addhen.android.raiburari.domain.usecase.Usecase;
+
+import org.addhen.smssync.domain.entity.ExportProgressEntity;
+import org.addhen.smssync.domain.repository.MessageRepository;
+
+import android.support.annotation.NonNull;
+
+import javax.inject.Inject;
+
+import rx.Observable;
+
+/**
+ * Exports the saved messages to a gzipped file of JSON lines or CSV
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class ExportMessagesUsecase extends Usecase {
+
+    private final MessageRepository mMessageRepository;
+
+    private boolean mCsv;
+
+    private boolean mOnlyNewOnes;
+
+    @Inject
+    protected ExportMessagesUsecase(@NonNull MessageRepository messageRepository,
+            @NonNull ThreadExecutor threadExecutor,
+            @NonNull PostExecutionThread postExecutionThread) {
+        super(threadExecutor, postExecutionThread);
+        mMessageRepository = messageRepository;
+    }
+
+    /**
+     * Sets what to export
+     *
+     * @param csv         True to export CSV, false to export JSON lines
+     * @param onlyNewOnes True to only export the messages saved since the last export
+     */
+    public void setExport(boolean csv, boolean onlyNewOnes) {
+        mCsv = csv;
+        mOnlyNewOnes = onlyNewOnes;
+    }
+
+    @Override
+    protected Observable<ExportProgressEntity> buildUseCaseObservable() {
+        return mMessageRepository.exportMessages(mCsv, mOnlyNewOnes);
+    }
+}
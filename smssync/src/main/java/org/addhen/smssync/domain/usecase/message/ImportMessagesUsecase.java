@@ -30,12 +30,16 @@ import javax.inject.Inject;
 import rx.Observable;
 
 /**
+ * Imports the messages app's inbox
+ *
  * @author Ushahidi Team <team@ushahidi.com>
  */
 public class ImportMessagesUsecase extends Usecase {
 
     private final MessageRepository mMessageRepository;
 
+    private boolean mAsPending;
+
     @Inject
     protected ImportMessagesUsecase(@NonNull MessageRepository messageRepository,
             @NonNull ThreadExecutor threadExecutor,
@@ -44,8 +48,18 @@ public class ImportMessagesUsecase extends Usecase {
         mMessageRepository = messageRepository;
     }
 
+    /**
+     * Sets how the messages are saved
+     *
+     * @param asPending True to save the messages as pending so they're synced, false to save them
+     *                  as sent
+     */
+    public void setImport(boolean asPending) {
+        mAsPending = asPending;
+    }
+
     @Override
     protected Observable buildUseCaseObservable() {
-        return mMessageRepository.importMessage();
+        return mMessageRepository.importMessage(mAsPending);
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.domain.usecase.message;
+
+import com.addhen.android.raiburari.domain.executor.PostExecutionThread;
+import com.addhen.android.raiburari.domain.executor.ThreadExecutor;
+import com.addhen.android.raiburari.domain.usecase.Usecase;
+
+import org.addhen.smssync.domain.entity.MessageEntity;
+import org.addhen.smssync.domain.repository.MessageRepository;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import rx.Observable;
+
+/**
+ * Searches the body and sender of pending messages, a page at a time, newest first
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class SearchMessageUsecase extends Usecase {
+
+    /**
+     * The number of messages in a page
+     */
+    public static final int PAGE_SIZE = 50;
+
+    private final MessageRepository mMessageRepository;
+
+    private String mQuery;
+
+    private int mPage;
+
+    /**
+     * Default constructor
+     *
+     * @param messageRepository   The message repository
+     * @param threadExecutor      The thread executor
+     * @param postExecutionThread The post execution thread
+     */
+    @Inject
+    protected SearchMessageUsecase(@NonNull MessageRepository messageRepository,
+            @NonNull ThreadExecutor threadExecutor,
+            @NonNull PostExecutionThread postExecutionThread) {
+        super(threadExecutor, postExecutionThread);
+        mMessageRepository = messageRepository;
+    }
+
+    /**
+     * Sets what to search for
+     *
+     * @param query The words to search for
+     */
+    public void setQuery(String query) {
+        mQuery = query;
+        mPage = 0;
+    }
+
+    /**
+     * Sets the page to fetch on the next execution
+     *
+     * @param page The page, starting at zero
+     */
+    public void setPage(int page) {
+        mPage = page;
+    }
+
+    @Override
+    protected Observable<List<MessageEntity>> buildUseCaseObservable() {
+        if (mQuery == null) {
+            throw new RuntimeException("Query is null. You must call setQuery(...)");
+        }
+        return mMessageRepository.searchPending(mQuery, PAGE_SIZE, mPage * PAGE_SIZE);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.domain.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list view that maps the items of another list when they're first read, so mapping a list
+ * between layers doesn't copy every item up front. A mapped item is kept, so reading it again
+ * returns the same instance.
+ * <p/>
+ * Mapping a list that is itself an unread mapped list maps straight from the original items,
+ * so the items in between are never kept. Items can be replaced in place. Adding or removing
+ * items maps the rest of the list once and lets go of the source list.
+ *
+ * @param <S> The type of the source items
+ * @param <T> The type of the mapped items
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MappedList<S, T> extends AbstractList<T> implements RandomAccess {
+
+    private List<?> mSource;
+
+    private final Mapper<Object, T> mMapper;
+
+    private Object[] mMapped;
+
+    private ArrayList<T> mItems;
+
+    /**
+     * @param source The list to map. It must not change while it's being mapped.
+     * @param mapper Maps a source item
+     */
+    @SuppressWarnings("unchecked")
+    public MappedList(List<? extends S> source, final Mapper<S, T> mapper) {
+        if (source instanceof MappedList && ((MappedList) source).isUnread()) {
+            final MappedList<?, S> inner = (MappedList<?, S>) source;
+            final Mapper<Object, S> innerMapper = inner.mMapper;
+            mSource = inner.mSource;
+            mMapper = item -> mapper.map(innerMapper.map(item));
+        } else {
+            mSource = source;
+            mMapper = (Mapper<Object, T>) mapper;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int location) {
+        if (mItems != null) {
+            return mItems.get(location);
+        }
+        if (mMapped == null) {
+            mMapped = new Object[mSource.size()];
+        }
+        Object item = mMapped[location];
+        if (item == null) {
+            item = mMapper.map(mSource.get(location));
+            mMapped[location] = item;
+        }
+        return (T) item;
+    }
+
+    @Override
+    public int size() {
+        return mItems != null ? mItems.size() : mSource.size();
+    }
+
+    @Override
+    public T set(int location, T object) {
+        if (mItems != null) {
+            return mItems.set(location, object);
+        }
+        T previous = get(location);
+        mMapped[location] = object;
+        return previous;
+    }
+
+    @Override
+    public void add(int location, T object) {
+        materialize().add(location, object);
+        modCount++;
+    }
+
+    @Override
+    public T remove(int location) {
+        T removed = materialize().remove(location);
+        modCount++;
+        return removed;
+    }
+
+    private boolean isUnread() {
+        return mMapped == null && mItems == null;
+    }
+
+    private List<T> materialize() {
+        if (mItems == null) {
+            final int size = mSource.size();
+            ArrayList<T> items = new ArrayList<>(size + 1);
+            for (int i = 0; i < size; i++) {
+                items.add(get(i));
+            }
+            mItems = items;
+            mSource = null;
+            mMapped = null;
+        }
+        return mItems;
+    }
+
+    /**
+     * Maps one item to another type
+     *
+     * @param <S> The type of the source item
+     * @param <T> The type of the mapped item
+     */
+    public interface Mapper<S, T> {
+
+        T map(S source);
+    }
+}
@@ -25,14 +25,29 @@ import org.addhen.smssync.BuildConfig;
 import org.addhen.smssync.data.twitter.TwitterBuilder;
 import org.addhen.smssync.data.twitter.TwitterClient;
 import org.addhen.smssync.presentation.di.component.AppComponent;
+import org.addhen.smssync.presentation.di.component.AppServiceComponent;
+import org.addhen.smssync.presentation.di.component.DaggerAppServiceComponent;
+import org.addhen.smssync.presentation.di.module.ServiceModule;
+import org.addhen.smssync.presentation.util.StartupTrace;
+
+import android.os.SystemClock;
 
 /**
  * @author Ushahidi Team <team@ushahidi.com>
  */
 public class App extends BaseApplication {
 
+    /**
+     * The application class is the first one loaded in a new process, so this is about when
+     * the process started
+     */
+    private static final StartupTrace mStartupTrace = new StartupTrace(
+            SystemClock.elapsedRealtime());
+
     private static AppComponent mAppComponent;
 
+    private static AppServiceComponent mAppServiceComponent;
+
     private static TwitterClient mTwitter;
 
     private static App mApp;
@@ -54,6 +69,7 @@ public class App extends BaseApplication {
         super.onCreate();
         initializeInjector();
         mApp = this;
+        mStartupTrace.mark("App.onCreate", SystemClock.elapsedRealtime());
     }
 
     private void initializeInjector() {
@@ -64,6 +80,24 @@ public class App extends BaseApplication {
         return mAppComponent;
     }
 
+    /**
+     * The services share one component, so it's only built once per process instead of every
+     * time a service is created
+     */
+    public static synchronized AppServiceComponent getAppServiceComponent() {
+        if (mAppServiceComponent == null) {
+            mAppServiceComponent = DaggerAppServiceComponent.builder()
+                    .appComponent(mAppComponent)
+                    .serviceModule(new ServiceModule())
+                    .build();
+        }
+        return mAppServiceComponent;
+    }
+
+    public static StartupTrace getStartupTrace() {
+        return mStartupTrace;
+    }
+
     /**
      * Return the application tracker
      */
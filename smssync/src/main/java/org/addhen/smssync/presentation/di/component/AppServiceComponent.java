@@ -26,11 +26,13 @@ import org.addhen.smssync.presentation.di.qualifier.ServiceScope;
 import org.addhen.smssync.presentation.presenter.message.DeleteMessagePresenter;
 import org.addhen.smssync.presentation.presenter.message.PublishMessagesPresenter;
 import org.addhen.smssync.presentation.presenter.message.UpdateMessagePresenter;
+import org.addhen.smssync.presentation.service.ArchiveMessagesService;
 import org.addhen.smssync.presentation.service.AutoSyncScheduledService;
 import org.addhen.smssync.presentation.service.BaseWakefulIntentService;
 import org.addhen.smssync.presentation.service.CheckTaskService;
 import org.addhen.smssync.presentation.service.DeleteMessageService;
 import org.addhen.smssync.presentation.service.MessageResultsService;
+import org.addhen.smssync.presentation.service.OutboxService;
 import org.addhen.smssync.presentation.service.SmsReceiverService;
 import org.addhen.smssync.presentation.service.SyncPendingMessagesService;
 import org.addhen.smssync.presentation.service.UpdateMessageService;
@@ -57,6 +59,10 @@ public interface AppServiceComponent {
 
     void inject(AutoSyncScheduledService autoSyncScheduledService);
 
+    void inject(OutboxService outboxService);
+
+    void inject(ArchiveMessagesService archiveMessagesService);
+
     UpdateMessagePresenter updateMessagePresenter();
 
     DeleteMessagePresenter deleteMessagePresenter();
@@ -22,18 +22,24 @@ import com.addhen.android.raiburari.presentation.di.module.ApplicationModule;
 import org.addhen.smssync.BuildConfig;
 import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.message.OutboxQueue;
 import org.addhen.smssync.data.message.PostMessage;
 import org.addhen.smssync.data.message.ProcessMessageResult;
+import org.addhen.smssync.data.message.SmsPartTracker;
 import org.addhen.smssync.data.message.TweetMessage;
 import org.addhen.smssync.data.net.AppHttpClient;
 import org.addhen.smssync.data.net.MessageHttpClient;
+import org.addhen.smssync.data.net.SyncUrlCircuitBreakers;
+import org.addhen.smssync.data.net.SyncUrlTimeouts;
 import org.addhen.smssync.data.repository.datasource.filter.FilterDataSourceFactory;
 import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
 import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSourceFactory;
 import org.addhen.smssync.data.twitter.TwitterBuilder;
 import org.addhen.smssync.data.twitter.TwitterClient;
+import org.addhen.smssync.data.twitter.TwitterPublisher;
 import org.addhen.smssync.presentation.App;
 import org.addhen.smssync.smslib.sms.ProcessSms;
+import org.addhen.smssync.smslib.sms.SmsTracker;
 
 import android.content.Context;
 import android.content.SharedPreferences;
@@ -99,14 +105,22 @@ public class AppModule {
                 .build();
     }
 
+    @Provides
+    @Singleton
+    SmsTracker provideSmsTracker(SmsPartTracker smsPartTracker) {
+        return smsPartTracker;
+    }
+
     @Provides
     @Singleton
     ProcessMessageResult provideProcessMessageResult(Context context, AppHttpClient appHttpClient,
             FileManager fileManager, WebServiceDataSourceFactory webServiceDataSourceFactory,
-            MessageDataSourceFactory messageDataSourceFactory) {
+            MessageDataSourceFactory messageDataSourceFactory, PrefsFactory prefsFactory,
+            SyncUrlTimeouts syncUrlTimeouts) {
         return new ProcessMessageResult(context, appHttpClient, fileManager,
                 webServiceDataSourceFactory.createDatabaseDataSource(),
-                messageDataSourceFactory.createMessageDatabaseSource());
+                messageDataSourceFactory.createMessageDatabaseSource(), prefsFactory,
+                syncUrlTimeouts);
     }
 
     @Provides
@@ -118,8 +132,10 @@ public class AppModule {
             FilterDataSourceFactory filterDataSourceFactory,
             ProcessSms processSms,
             FileManager fileManager,
-            TwitterClient twitterApp,
-            ProcessMessageResult processMessageResult) {
+            OutboxQueue outboxQueue,
+            ProcessMessageResult processMessageResult,
+            SyncUrlCircuitBreakers circuitBreakers,
+            SyncUrlTimeouts syncUrlTimeouts) {
         return new PostMessage.Builder()
                 .setContext(context)
                 .setPrefsFactory(prefsFactory)
@@ -129,7 +145,10 @@ public class AppModule {
                 .setFilterDataSourceFactory(filterDataSourceFactory)
                 .setProcessSms(processSms)
                 .setFileManager(fileManager)
+                .setOutboxQueue(outboxQueue)
                 .setProcessMessageResult(processMessageResult)
+                .setCircuitBreakers(circuitBreakers)
+                .setSyncUrlTimeouts(syncUrlTimeouts)
                 .build();
     }
 
@@ -142,17 +161,21 @@ public class AppModule {
             FilterDataSourceFactory filterDataSourceFactory,
             ProcessSms processSms,
             FileManager fileManager,
+            OutboxQueue outboxQueue,
             TwitterClient twitterApp,
+            TwitterPublisher twitterPublisher,
             ProcessMessageResult processMessageResult) {
         return new TweetMessage.Builder()
                 .setContext(context)
                 .setPrefsFactory(prefsFactory)
                 .setTwitterApp(twitterApp)
+                .setTwitterPublisher(twitterPublisher)
                 .setMessageDataSourceFactory(messageDataSourceFactory)
                 .setWebServiceDataSourceFactory(webServiceDataSourceFactory)
                 .setFilterDataSourceFactory(filterDataSourceFactory)
                 .setProcessSms(processSms)
                 .setFileManager(fileManager)
+                .setOutboxQueue(outboxQueue)
                 .build();
     }
 }
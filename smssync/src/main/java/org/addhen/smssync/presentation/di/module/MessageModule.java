@@ -21,10 +21,12 @@ import com.addhen.android.raiburari.domain.usecase.Usecase;
 import com.addhen.android.raiburari.presentation.di.qualifier.ActivityScope;
 
 import org.addhen.smssync.domain.usecase.message.DeleteMessageUsecase;
+import org.addhen.smssync.domain.usecase.message.ExportMessagesUsecase;
 import org.addhen.smssync.domain.usecase.message.ImportMessagesUsecase;
 import org.addhen.smssync.domain.usecase.message.ListMessageUsecase;
 import org.addhen.smssync.domain.usecase.message.ListPublishedMessageUsecase;
 import org.addhen.smssync.domain.usecase.message.PublishMessageUsecase;
+import org.addhen.smssync.domain.usecase.message.SearchMessageUsecase;
 import org.addhen.smssync.domain.usecase.message.UpdateMessageUsecase;
 
 import javax.inject.Named;
@@ -71,7 +73,8 @@ public class MessageModule {
     @Provides
     @ActivityScope
     @Named("messageImport")
-    Usecase provideImportMessageUsecase(ImportMessagesUsecase importMessageUsecase) {
+    ImportMessagesUsecase provideImportMessageUsecase(
+            ImportMessagesUsecase importMessageUsecase) {
         return importMessageUsecase;
     }
 
@@ -81,4 +84,19 @@ public class MessageModule {
     UpdateMessageUsecase provideUpdateMessageUsecase(UpdateMessageUsecase updateMessageUsecase) {
         return updateMessageUsecase;
     }
+
+    @Provides
+    @ActivityScope
+    @Named("messageSearch")
+    SearchMessageUsecase provideSearchMessageUsecase(SearchMessageUsecase searchMessageUsecase) {
+        return searchMessageUsecase;
+    }
+
+    @Provides
+    @ActivityScope
+    @Named("messageExport")
+    ExportMessagesUsecase provideExportMessagesUsecase(
+            ExportMessagesUsecase exportMessagesUsecase) {
+        return exportMessagesUsecase;
+    }
 }
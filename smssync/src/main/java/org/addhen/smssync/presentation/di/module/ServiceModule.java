@@ -20,9 +20,6 @@ package org.addhen.smssync.presentation.di.module;
 import org.addhen.smssync.domain.usecase.message.DeleteMessageUsecase;
 import org.addhen.smssync.domain.usecase.message.PublishMessageUsecase;
 import org.addhen.smssync.domain.usecase.message.UpdateMessageUsecase;
-import org.addhen.smssync.presentation.di.qualifier.ServiceScope;
-
-import android.app.Service;
 
 import javax.inject.Named;
 
@@ -35,37 +32,21 @@ import dagger.Provides;
 @Module
 public class ServiceModule {
 
-    private final Service mService;
-
-    public ServiceModule(Service service) {
-        mService = service;
-    }
-
-    /**
-     * Expose the activity to dependents in the graph.
-     */
-    @Provides
-    @ServiceScope
-    Service service() {
-        return mService;
-    }
-
+    // The component is shared by all the services, so the use cases aren't scoped and every
+    // presenter gets its own
     @Provides
-    @ServiceScope
     @Named("messageUpdate")
     UpdateMessageUsecase provideUpdateMessageUsecase(UpdateMessageUsecase updateMessageUsecase) {
         return updateMessageUsecase;
     }
 
     @Provides
-    @ServiceScope
     @Named("messageDelete")
     DeleteMessageUsecase providesDeleteMessageUsecase(DeleteMessageUsecase deleteMessageUsecase) {
         return deleteMessageUsecase;
     }
 
     @Provides
-    @ServiceScope
     @Named("messagePublish")
     PublishMessageUsecase providePublishedMessageUsecase(
             PublishMessageUsecase publishMessageUsecase) {
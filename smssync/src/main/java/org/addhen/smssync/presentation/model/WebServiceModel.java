@@ -43,6 +43,22 @@ public class WebServiceModel extends Model implements Parcelable {
 
     private String keywords;
 
+    private TaskChannel taskChannel;
+
+    private int connectTimeout;
+
+    private int readTimeout;
+
+    private int writeTimeout;
+
+    private int deadline;
+
+    private boolean hedgeRequests;
+
+    private CircuitState circuitState;
+
+    private long circuitRetryAt;
+
     public WebServiceModel() {
     }
 
@@ -103,6 +119,74 @@ public class WebServiceModel extends Model implements Parcelable {
         this.keywordStatus = keywordStatus;
     }
 
+    public TaskChannel getTaskChannel() {
+        return taskChannel;
+    }
+
+    public void setTaskChannel(TaskChannel taskChannel) {
+        this.taskChannel = taskChannel;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(int writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public int getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(int deadline) {
+        this.deadline = deadline;
+    }
+
+    public boolean isHedgeRequests() {
+        return hedgeRequests;
+    }
+
+    public void setHedgeRequests(boolean hedgeRequests) {
+        this.hedgeRequests = hedgeRequests;
+    }
+
+    public CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    public void setCircuitState(CircuitState circuitState) {
+        this.circuitState = circuitState;
+    }
+
+    /**
+     * @return The time in milliseconds the Sync URL will be tried again while it's
+     * {@link CircuitState#OPEN}
+     */
+    public long getCircuitRetryAt() {
+        return circuitRetryAt;
+    }
+
+    public void setCircuitRetryAt(long circuitRetryAt) {
+        this.circuitRetryAt = circuitRetryAt;
+    }
+
     @Override
     public String toString() {
         return "SyncUrl{" +
@@ -113,6 +197,13 @@ public class WebServiceModel extends Model implements Parcelable {
                 ", syncScheme=" + syncScheme +
                 ", keywords=" + keywords +
                 ", keywordStatus=" + keywordStatus +
+                ", taskChannel=" + taskChannel +
+                ", connectTimeout=" + connectTimeout +
+                ", readTimeout=" + readTimeout +
+                ", writeTimeout=" + writeTimeout +
+                ", deadline=" + deadline +
+                ", hedgeRequests=" + hedgeRequests +
+                ", circuitState=" + circuitState +
                 ", status=" + status +
                 '}';
     }
@@ -125,6 +216,18 @@ public class WebServiceModel extends Model implements Parcelable {
         ENABLED, DISABLED
     }
 
+    public enum TaskChannel {
+        POLL, LONG_POLL, SSE
+    }
+
+    /**
+     * Whether messages are posted to the Sync URL. It's {@link #OPEN} while it's known to be
+     * down and {@link #HALF_OPEN} while a message is posted to check if it's back.
+     */
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
     protected WebServiceModel(Parcel in) {
         _id = in.readByte() == 0x00 ? null : in.readLong();
         title = in.readString();
@@ -134,6 +237,14 @@ public class WebServiceModel extends Model implements Parcelable {
         status = (Status) in.readValue(Status.class.getClassLoader());
         keywords = in.readString();
         keywordStatus = (KeywordStatus) in.readValue(KeywordStatus.class.getClassLoader());
+        taskChannel = (TaskChannel) in.readValue(TaskChannel.class.getClassLoader());
+        circuitState = (CircuitState) in.readValue(CircuitState.class.getClassLoader());
+        circuitRetryAt = in.readLong();
+        connectTimeout = in.readInt();
+        readTimeout = in.readInt();
+        writeTimeout = in.readInt();
+        deadline = in.readInt();
+        hedgeRequests = in.readByte() != 0x00;
     }
 
     @Override
@@ -156,6 +267,14 @@ public class WebServiceModel extends Model implements Parcelable {
         dest.writeValue(status);
         dest.writeString(keywords);
         dest.writeValue(keywordStatus);
+        dest.writeValue(taskChannel);
+        dest.writeValue(circuitState);
+        dest.writeLong(circuitRetryAt);
+        dest.writeInt(connectTimeout);
+        dest.writeInt(readTimeout);
+        dest.writeInt(writeTimeout);
+        dest.writeInt(deadline);
+        dest.writeByte((byte) (hedgeRequests ? 0x01 : 0x00));
     }
 
     @SuppressWarnings("unused")
@@ -18,9 +18,9 @@
 package org.addhen.smssync.presentation.model.mapper;
 
 import org.addhen.smssync.domain.entity.MessageEntity;
+import org.addhen.smssync.domain.util.MappedList;
 import org.addhen.smssync.presentation.model.MessageModel;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -73,28 +73,24 @@ public class MessageModelDataMapper {
         return message;
     }
 
+    /**
+     * Maps a list of message entities. Each entity is mapped when it's first read.
+     *
+     * @param messageList The message entities
+     * @return A view of the entities as models
+     */
     public List<MessageModel> map(List<MessageEntity> messageList) {
-        List<MessageModel> messageEntityList = new ArrayList<>();
-        MessageModel messageEntity;
-        for (MessageEntity message : messageList) {
-            messageEntity = map(message);
-            if (messageEntity != null) {
-                messageEntityList.add(messageEntity);
-            }
-        }
-        return messageEntityList;
+        return new MappedList<MessageEntity, MessageModel>(messageList, this::map);
     }
 
+    /**
+     * Maps a list of message models. Each model is mapped when it's first read.
+     *
+     * @param messageModels The message models
+     * @return A view of the models as entities
+     */
     public List<MessageEntity> unmap(List<MessageModel> messageModels) {
-        List<MessageEntity> messageList = new ArrayList<>();
-        MessageEntity messageEntity;
-        for (MessageModel messageModel : messageModels) {
-            messageEntity = map(messageModel);
-            if (messageEntity != null) {
-                messageList.add(messageEntity);
-            }
-        }
-        return messageList;
+        return new MappedList<MessageModel, MessageEntity>(messageModels, this::map);
     }
 
     public MessageEntity.Status map(MessageModel.Status status) {
@@ -49,6 +49,12 @@ public class WebServiceModelDataMapper {
             webServiceEntity
                     .setStatus(map(webService.getStatus()));
             webServiceEntity.setKeywordStatus(map(webService.getKeywordStatus()));
+            webServiceEntity.setTaskChannel(map(webService.getTaskChannel()));
+            webServiceEntity.setConnectTimeout(webService.getConnectTimeout());
+            webServiceEntity.setReadTimeout(webService.getReadTimeout());
+            webServiceEntity.setWriteTimeout(webService.getWriteTimeout());
+            webServiceEntity.setDeadline(webService.getDeadline());
+            webServiceEntity.setHedgeRequests(webService.isHedgeRequests());
             webServiceEntity
                     .setSyncScheme(new SyncSchemeEntity(webService.getSyncScheme().toJSONString()));
         }
@@ -67,6 +73,14 @@ public class WebServiceModelDataMapper {
             webService.setStatus(
                     WebServiceModel.Status.valueOf(webServiceEntity.getStatus().name()));
             webService.setKeywordStatus(map(webServiceEntity.getKeywordStatus()));
+            webService.setTaskChannel(map(webServiceEntity.getTaskChannel()));
+            webService.setConnectTimeout(webServiceEntity.getConnectTimeout());
+            webService.setReadTimeout(webServiceEntity.getReadTimeout());
+            webService.setWriteTimeout(webServiceEntity.getWriteTimeout());
+            webService.setDeadline(webServiceEntity.getDeadline());
+            webService.setHedgeRequests(webServiceEntity.isHedgeRequests());
+            webService.setCircuitState(map(webServiceEntity.getCircuitState()));
+            webService.setCircuitRetryAt(webServiceEntity.getCircuitRetryAt());
             webService.setSyncScheme(
                     new SyncSchemeModel(webServiceEntity.getSyncScheme().toJSONString()));
         }
@@ -112,4 +126,25 @@ public class WebServiceModelDataMapper {
         }
         return WebServiceEntity.KeywordStatus.DISABLED;
     }
+
+    public WebServiceModel.TaskChannel map(WebServiceEntity.TaskChannel taskChannel) {
+        if (taskChannel != null) {
+            return WebServiceModel.TaskChannel.valueOf(taskChannel.name());
+        }
+        return WebServiceModel.TaskChannel.POLL;
+    }
+
+    public WebServiceEntity.TaskChannel map(WebServiceModel.TaskChannel taskChannel) {
+        if (taskChannel != null) {
+            return WebServiceEntity.TaskChannel.valueOf(taskChannel.name());
+        }
+        return WebServiceEntity.TaskChannel.POLL;
+    }
+
+    public WebServiceModel.CircuitState map(WebServiceEntity.CircuitState circuitState) {
+        if (circuitState != null) {
+            return WebServiceModel.CircuitState.valueOf(circuitState.name());
+        }
+        return WebServiceModel.CircuitState.CLOSED;
+    }
 }
@@ -19,89 +19,59 @@ package org.addhen.smssync.presentation.presenter;
 
 import org.addhen.smssync.R;
 import org.addhen.smssync.data.PrefsFactory;
-import org.addhen.smssync.data.cache.FileManager;
 import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.OutboxMessage;
 import org.addhen.smssync.data.message.PostMessage;
-import org.addhen.smssync.data.net.AppHttpClient;
-import org.addhen.smssync.data.net.BaseHttpClient;
-import org.addhen.smssync.domain.entity.WebServiceEntity;
-import org.addhen.smssync.domain.repository.WebServiceRepository;
-import org.addhen.smssync.presentation.util.Utility;
-import org.addhen.smssync.smslib.model.SmsMessage;
+import org.addhen.smssync.data.net.AlertDispatcher;
 
 import android.content.Context;
 
 import java.util.Date;
-import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
 /**
+ * Raises the alerts for low battery, failed sends and a lost data connection. Alerts are posted
+ * to the Sync URLs by the {@link AlertDispatcher}, so none of these block the caller, and the
+ * dispatcher's limits also decide whether an alert SMS is sent.
+ *
  * @author Ushahidi Team <team@ushahidi.com>
  */
+@Singleton
 public class AlertPresenter {
 
     public final static int MAX_DISCONNECT_TIME = 15000;
 
-    public Thread lostConnectionThread;
-
-    private static final String TASK_PARAM = "Task";
-
-    private static final String MESSAGE_PARAM = "message";
-
     private PrefsFactory mPrefsFactory;
 
-    private AppHttpClient mAppHttpClient;
-
     private PostMessage mProcessMessage;
 
-    private WebServiceRepository mWebServiceRepository;
-
-    private FileManager mFileManager;
+    private AlertDispatcher mAlertDispatcher;
 
     private Context mContext;
 
+    private ScheduledFuture<?> mConnectionLostAlert;
+
     @Inject
-    public AlertPresenter(Context context, PrefsFactory prefsFactory, AppHttpClient appHttpClient,
-            PostMessage processMessage, WebServiceRepository webServiceRepository,
-            FileManager fileManager) {
+    public AlertPresenter(Context context, PrefsFactory prefsFactory,
+            PostMessage processMessage, AlertDispatcher alertDispatcher) {
         mContext = context;
         mPrefsFactory = prefsFactory;
-        mAppHttpClient = appHttpClient;
         mProcessMessage = processMessage;
-        mWebServiceRepository = webServiceRepository;
-        mFileManager = fileManager;
+        mAlertDispatcher = alertDispatcher;
     }
 
     /**
      * If battery level drops to low post alert to server send alert text to stored phone number
      */
     public void lowBatteryLevelRequest(int batteryLevel) {
-        List<WebServiceEntity> webServiceEntities = mWebServiceRepository
-                .syncGetByStatus(WebServiceEntity.Status.ENABLED);
-        if (!Utility.isEmpty(webServiceEntities)) {
-            for (WebServiceEntity webServiceEntity : webServiceEntities) {
-                mAppHttpClient.addParam(TASK_PARAM, "alert");
-                mAppHttpClient.addParam(MESSAGE_PARAM, mContext.getResources()
-                        .getString(R.string.battery_level_message, batteryLevel));
-                try {
-                    mAppHttpClient.setMethod(BaseHttpClient.HttpMethod.POST);
-                    mAppHttpClient.execute();
-                } catch (Exception e) {
-                    mFileManager.appendAndClose(e.getMessage());
-                } finally {
-                    if (200 == mAppHttpClient.getResponse().code()) {
-                        mFileManager.appendAndClose(
-                                mContext.getResources()
-                                        .getString(R.string.successful_alert_to_server));
-                    }
-                }
-            }
-
-            if (!mPrefsFactory.alertPhoneNumber().get().matches("")) {
-                sendSms(mContext.getResources().getString(R.string.battery_level_message,
-                        batteryLevel));
-            }
+        final String message = mContext.getResources()
+                .getString(R.string.battery_level_message, batteryLevel);
+        if (mAlertDispatcher.dispatch(AlertDispatcher.Type.BATTERY_LOW, null, message, null)
+                && !mPrefsFactory.alertPhoneNumber().get().matches("")) {
+            sendSms(message);
         }
     }
 
@@ -110,26 +80,25 @@ public class AlertPresenter {
      */
     public void smsSendFailedRequest(String resultMessage,
             String errorCode) {
-        List<WebServiceEntity> webServiceEntities = mWebServiceRepository.syncGetByStatus(
-                WebServiceEntity.Status.ENABLED);
-        for (WebServiceEntity webServiceEntity : webServiceEntities) {
-            mAppHttpClient.addParam(TASK_PARAM, "alert");
-            mAppHttpClient.addParam(MESSAGE_PARAM, resultMessage);
-            if (!errorCode.matches("")) {
-                mAppHttpClient.addParam("errorCode", errorCode);
-            }
-            try {
-                mAppHttpClient.setMethod(BaseHttpClient.HttpMethod.POST);
-                mAppHttpClient.execute();
-            } catch (Exception e) {
-                mFileManager.appendAndClose(e.getMessage());
-            } finally {
-                if (200 == mAppHttpClient.getResponse().code()) {
-                    mFileManager.appendAndClose(mContext.getResources().getString(
-                            R.string.successful_alert_to_server));
-                }
-            }
+        mAlertDispatcher.dispatch(AlertDispatcher.Type.SMS_SEND_FAILED, errorCode,
+                resultMessage, errorCode);
+    }
+
+    /**
+     * Sends the lost connection alert if the data connection isn't back within
+     * {@link #MAX_DISCONNECT_TIME}
+     */
+    public synchronized void onConnectionLost() {
+        if (mConnectionLostAlert == null || mConnectionLostAlert.isDone()) {
+            mConnectionLostAlert = mAlertDispatcher.schedule(this::dataConnectionLost,
+                    MAX_DISCONNECT_TIME);
+        }
+    }
 
+    public synchronized void onConnectionRestored() {
+        if (mConnectionLostAlert != null) {
+            mConnectionLostAlert.cancel(false);
+            mConnectionLostAlert = null;
         }
     }
 
@@ -138,7 +107,8 @@ public class AlertPresenter {
      * phone number
      */
     public void dataConnectionLost() {
-        if (!mPrefsFactory.alertPhoneNumber().get().matches("")) {
+        if (!mPrefsFactory.alertPhoneNumber().get().matches("")
+                && mAlertDispatcher.allow(AlertDispatcher.Type.CONNECTION_LOST, null)) {
             sendSms(mContext.getResources().getString(R.string.lost_connection_message));
         }
     }
@@ -151,7 +121,6 @@ public class AlertPresenter {
         message.messageFrom = mPrefsFactory.alertPhoneNumber().get();
         message.messageUuid = mProcessMessage.getProcessSms().getUuid();
         message.messageType = Message.Type.ALERT;
-        SmsMessage smsMessage = mProcessMessage.map(message);
-        mProcessMessage.getProcessSms().sendSms(smsMessage, false);
+        mProcessMessage.getOutboxQueue().enqueue(message, OutboxMessage.Priority.ALERT, false);
     }
 }
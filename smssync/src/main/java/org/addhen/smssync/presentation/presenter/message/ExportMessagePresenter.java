@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *  
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.presenter.message;
+
+import com.addhen.android.raiburari.domain.exception.DefaultErrorHandler;
+import com.addhen.android.raiburari.domain.exception.ErrorHandler;
+import com.addhen.android.raiburari.domain.usecase.DefaultSubscriber;
+import com.addhen.android.raiburari.presentation.di.qualifier.ActivityScope;
+import com.addhen.android.raiburari.presentation.presenter.Presenter;
+
+import org.addhen.smssync.domain.entity.ExportProgressEntity;
+import org.addhen.smssync.domain.usecase.message.ExportMessagesUsecase;
+import org.addhen.smssync.presentation.exception.ErrorMessageFactory;
+import org.addhen.smssync.presentation.view.message.ExportMessageView;
+
+import android.support.annotation.NonNull;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@ActivityScope
+public class ExportMessagePresenter implements Presenter {
+
+    private final ExportMessagesUsecase mExportMessagesUsecase;
+
+    private ExportMessageView mExportMessageView;
+
+    @Inject
+    public ExportMessagePresenter(
+            @Named("messageExport") ExportMessagesUsecase exportMessagesUsecase) {
+        mExportMessagesUsecase = exportMessagesUsecase;
+    }
+
+    @Override
+    public void resume() {
+        // Do nothing
+    }
+
+    @Override
+    public void pause() {
+        // Do nothing
+    }
+
+    @Override
+    public void destroy() {
+        mExportMessagesUsecase.unsubscribe();
+    }
+
+    public void setView(@NonNull ExportMessageView exportMessageView) {
+        mExportMessageView = exportMessageView;
+    }
+
+    /**
+     * Exports the saved messages
+     *
+     * @param csv         True to export CSV, false to export JSON lines
+     * @param onlyNewOnes True to only export the messages saved since the last export
+     */
+    public void exportMessages(boolean csv, boolean onlyNewOnes) {
+        mExportMessageView.hideRetry();
+        mExportMessageView.showLoading();
+        mExportMessagesUsecase.setExport(csv, onlyNewOnes);
+        mExportMessagesUsecase.execute(new DefaultSubscriber<ExportProgressEntity>() {
+
+            private ExportProgressEntity mProgress;
+
+            @Override
+            public void onCompleted() {
+                mExportMessageView.hideLoading();
+                if (mProgress != null) {
+                    mExportMessageView.showExported(mProgress.path, mProgress.written);
+                }
+            }
+
+            @Override
+            public void onNext(ExportProgressEntity progress) {
+                mProgress = progress;
+                mExportMessageView.showExportProgress(progress.written, progress.total);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                mExportMessageView.hideLoading();
+                showErrorMessage(new DefaultErrorHandler((Exception) e));
+                mExportMessageView.showRetry();
+            }
+        });
+    }
+
+    private void showErrorMessage(ErrorHandler errorHandler) {
+        String errorMessage = ErrorMessageFactory.create(mExportMessageView.getAppContext(),
+                errorHandler.getException());
+        mExportMessageView.showError(errorMessage);
+    }
+}
@@ -20,19 +20,16 @@ package org.addhen.smssync.presentation.presenter.message;
 import com.addhen.android.raiburari.domain.exception.DefaultErrorHandler;
 import com.addhen.android.raiburari.domain.exception.ErrorHandler;
 import com.addhen.android.raiburari.domain.usecase.DefaultSubscriber;
-import com.addhen.android.raiburari.domain.usecase.Usecase;
 import com.addhen.android.raiburari.presentation.di.qualifier.ActivityScope;
 import com.addhen.android.raiburari.presentation.presenter.Presenter;
 
-import org.addhen.smssync.domain.entity.MessageEntity;
+import org.addhen.smssync.domain.entity.ImportProgressEntity;
+import org.addhen.smssync.domain.usecase.message.ImportMessagesUsecase;
 import org.addhen.smssync.presentation.exception.ErrorMessageFactory;
-import org.addhen.smssync.presentation.model.mapper.MessageModelDataMapper;
 import org.addhen.smssync.presentation.view.message.ImportMessageView;
 
 import android.support.annotation.NonNull;
 
-import java.util.List;
-
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -42,17 +39,14 @@ import javax.inject.Named;
 @ActivityScope
 public class ImportMessagePresenter implements Presenter {
 
-    private final Usecase mImportMessageUsecase;
-
-    private final MessageModelDataMapper mMessageModelDataMapper;
+    private final ImportMessagesUsecase mImportMessageUsecase;
 
     private ImportMessageView mImportMessageView;
 
     @Inject
-    public ImportMessagePresenter(@Named("messageImport") Usecase importMessageUsecase,
-            MessageModelDataMapper messageModelDataMapper) {
+    public ImportMessagePresenter(
+            @Named("messageImport") ImportMessagesUsecase importMessageUsecase) {
         mImportMessageUsecase = importMessageUsecase;
-        mMessageModelDataMapper = messageModelDataMapper;
     }
 
     @Override
@@ -74,19 +68,30 @@ public class ImportMessagePresenter implements Presenter {
         mImportMessageView = importMessageView;
     }
 
-    public void importMessages() {
+    /**
+     * Imports the messages app's inbox
+     *
+     * @param asPending True to save the messages as pending so they're synced, false to save them
+     *                  as sent
+     */
+    public void importMessages(boolean asPending) {
         mImportMessageView.hideRetry();
         mImportMessageView.showLoading();
-        mImportMessageUsecase.execute(new DefaultSubscriber<List<MessageEntity>>() {
+        mImportMessageUsecase.setImport(asPending);
+        mImportMessageUsecase.execute(new DefaultSubscriber<ImportProgressEntity>() {
+
+            private int mRead;
+
             @Override
             public void onCompleted() {
                 mImportMessageView.hideLoading();
+                mImportMessageView.showImported(mRead);
             }
 
             @Override
-            public void onNext(List<MessageEntity> filterList) {
-                mImportMessageView.hideLoading();
-                mImportMessageView.showMessages(mMessageModelDataMapper.map(filterList));
+            public void onNext(ImportProgressEntity progress) {
+                mRead = progress.read;
+                mImportMessageView.showImportProgress(progress.read, progress.total);
             }
 
             @Override
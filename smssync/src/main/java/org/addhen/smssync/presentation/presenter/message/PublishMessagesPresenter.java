@@ -32,6 +32,7 @@ import org.addhen.smssync.presentation.view.message.PublishMessageView;
 
 import android.support.annotation.NonNull;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -85,7 +86,10 @@ public class PublishMessagesPresenter implements Presenter {
                     mPublishMessageView.getAppContext().getString(R.string.smssync_not_enabled));
             return;
         }
-        mPublishMessageUsecase.setMessageEntity(mMessageModelDataMapper.unmap(messageModels));
+        // The mapping is lazy and the messages are published in the background, so take a
+        // snapshot in case the list shown changes meanwhile
+        mPublishMessageUsecase.setMessageEntity(
+                mMessageModelDataMapper.unmap(new ArrayList<>(messageModels)));
         mPublishMessageUsecase.execute(new PublishMessageSubscriber());
     }
 
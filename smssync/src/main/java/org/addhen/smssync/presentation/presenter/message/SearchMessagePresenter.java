@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *  
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.presenter.message;
+
+import com.addhen.android.raiburari.domain.exception.DefaultErrorHandler;
+import com.addhen.android.raiburari.domain.exception.ErrorHandler;
+import com.addhen.android.raiburari.domain.usecase.DefaultSubscriber;
+import com.addhen.android.raiburari.presentation.di.qualifier.ActivityScope;
+import com.addhen.android.raiburari.presentation.presenter.Presenter;
+
+import org.addhen.smssync.domain.entity.MessageEntity;
+import org.addhen.smssync.domain.usecase.message.SearchMessageUsecase;
+import org.addhen.smssync.presentation.exception.ErrorMessageFactory;
+import org.addhen.smssync.presentation.model.MessageModel;
+import org.addhen.smssync.presentation.model.mapper.MessageModelDataMapper;
+import org.addhen.smssync.presentation.view.message.ListMessageView;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Searches the pending messages a page at a time. Each page is added to the messages already
+ * found, so the list only grows while the user scrolls through the results.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@ActivityScope
+public class SearchMessagePresenter implements Presenter {
+
+    private final SearchMessageUsecase mSearchMessageUsecase;
+
+    private final MessageModelDataMapper mMessageModelDataMapper;
+
+    private ListMessageView mListMessageView;
+
+    private final List<MessageModel> mResults = new ArrayList<>();
+
+    private String mQuery;
+
+    private int mPage;
+
+    private boolean mLoading;
+
+    private boolean mHasMore;
+
+    @Inject
+    public SearchMessagePresenter(@Named("messageSearch") SearchMessageUsecase searchMessageUsecase,
+            MessageModelDataMapper messageModelDataMapper) {
+        mSearchMessageUsecase = searchMessageUsecase;
+        mMessageModelDataMapper = messageModelDataMapper;
+    }
+
+    @Override
+    public void resume() {
+        // Do nothing
+    }
+
+    @Override
+    public void pause() {
+        // Do nothing
+    }
+
+    @Override
+    public void destroy() {
+        mSearchMessageUsecase.unsubscribe();
+    }
+
+    public void setView(@NonNull ListMessageView listMessageView) {
+        mListMessageView = listMessageView;
+    }
+
+    /**
+     * Starts a new search, dropping the results of the previous one
+     *
+     * @param query The words to search for
+     */
+    public void search(String query) {
+        mSearchMessageUsecase.unsubscribe();
+        mQuery = query;
+        mPage = 0;
+        mResults.clear();
+        mHasMore = true;
+        mSearchMessageUsecase.setQuery(query);
+        mListMessageView.hideRetry();
+        mListMessageView.showLoading();
+        loadPage();
+    }
+
+    /**
+     * Fetches the next page of results unless one is being fetched or there are none left
+     */
+    public void loadMore() {
+        if (!isSearching() || mLoading || !mHasMore) {
+            return;
+        }
+        mSearchMessageUsecase.setPage(mPage);
+        loadPage();
+    }
+
+    /**
+     * Runs the current search again from the first page
+     */
+    public void refresh() {
+        if (isSearching()) {
+            search(mQuery);
+        }
+    }
+
+    /**
+     * Stops searching. The next list shown is up to the view.
+     */
+    public void clear() {
+        mSearchMessageUsecase.unsubscribe();
+        mQuery = null;
+        mResults.clear();
+        mLoading = false;
+    }
+
+    public boolean isSearching() {
+        return mQuery != null;
+    }
+
+    private void loadPage() {
+        mLoading = true;
+        mSearchMessageUsecase.execute(new DefaultSubscriber<List<MessageEntity>>() {
+            @Override
+            public void onCompleted() {
+                mListMessageView.hideLoading();
+            }
+
+            @Override
+            public void onNext(List<MessageEntity> messages) {
+                mLoading = false;
+                mPage++;
+                mHasMore = messages.size() == SearchMessageUsecase.PAGE_SIZE;
+                mResults.addAll(mMessageModelDataMapper.map(messages));
+                mListMessageView.hideLoading();
+                // The view keeps the list it's given, so it gets its own copy
+                mListMessageView.showMessages(new ArrayList<>(mResults));
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                mLoading = false;
+                mListMessageView.hideLoading();
+                showErrorMessage(new DefaultErrorHandler((Exception) e));
+                mListMessageView.showRetry();
+            }
+        });
+    }
+
+    private void showErrorMessage(ErrorHandler errorHandler) {
+        String errorMessage = ErrorMessageFactory.create(mListMessageView.getAppContext(),
+                errorHandler.getException());
+        mListMessageView.showError(errorMessage);
+    }
+}
@@ -22,6 +22,7 @@ import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
 import org.addhen.smssync.presentation.App;
 import org.addhen.smssync.presentation.service.CheckTaskService;
+import org.addhen.smssync.presentation.service.OutboxService;
 import org.addhen.smssync.presentation.service.Scheduler;
 import org.addhen.smssync.presentation.service.ServiceConstants;
 import org.addhen.smssync.presentation.service.ServiceControl;
@@ -58,6 +59,9 @@ public class BootReceiver extends BroadcastReceiver {
 
         if (rebooted) {
             fileManager.appendAndClose(context.getString(R.string.device_reboot));
+            // Alarms don't survive a reboot so send whatever was left in the outbox
+            OutboxService.sendWakefulWork(context, OutboxService.class);
+            new ServiceControl(prefsFactory, context, fileManager).runArchiveMessagesService();
             // Is SMSsync enabled
             if (prefsFactory.serviceEnabled().get()) {
 
@@ -54,29 +54,11 @@ public class ConnectivityChangedReceiver extends BroadcastReceiver {
             context.startService(syncPendingMessagesServiceIntent);
             CheckTaskService.sendWakefulWork(context, CheckTaskService.class);
 
-            if (mAlertPresenter.lostConnectionThread != null
-                    && mAlertPresenter.lostConnectionThread.isAlive()) {
-                mAlertPresenter.lostConnectionThread.interrupt();
-            }
-
+            mAlertPresenter.onConnectionRestored();
             return;
         }
 
-        if (mAlertPresenter.lostConnectionThread == null
-                || !mAlertPresenter.lostConnectionThread.isAlive()) {
-            mAlertPresenter.lostConnectionThread = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        Thread.sleep(AlertPresenter.MAX_DISCONNECT_TIME);
-                    } catch (InterruptedException e) {
-                        return;
-                    }
-                    mAlertPresenter.dataConnectionLost();
-                }
-            });
-            mAlertPresenter.lostConnectionThread.start();
-        }
+        mAlertPresenter.onConnectionLost();
         App.getAppComponent().fileManager()
                 .appendAndClose(context.getString(R.string.no_data_connection));
     }
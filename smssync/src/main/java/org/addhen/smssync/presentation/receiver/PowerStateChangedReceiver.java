@@ -77,12 +77,7 @@ public class PowerStateChangedReceiver extends BroadcastReceiver {
                 }
             }
 
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    alertPresenter.lowBatteryLevelRequest(percentage);
-                }
-            }).start();
+            alertPresenter.lowBatteryLevelRequest(percentage);
         }
 
         if (batteryOkay) {
@@ -19,15 +19,15 @@ package org.addhen.smssync.presentation.receiver;
 
 import org.addhen.smssync.R;
 import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.message.SmsPartTracker;
 import org.addhen.smssync.presentation.App;
-import org.addhen.smssync.presentation.model.MessageModel;
-import org.addhen.smssync.presentation.service.ServiceConstants;
-import org.addhen.smssync.presentation.service.UpdateMessageService;
+import org.addhen.smssync.smslib.sms.ProcessSms;
 
 import android.app.Activity;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Build;
 import android.widget.Toast;
 
 /**
@@ -35,11 +35,11 @@ import android.widget.Toast;
  */
 public class SmsDeliveredReceiver extends BroadcastReceiver {
 
+    private static final int HONEYCOMB = 11;
+
     @Override
     public void onReceive(Context context, Intent intent) {
         int result = getResultCode();
-        MessageModel message = (MessageModel) intent.getParcelableExtra(
-                ServiceConstants.DELIVERED_SMS_BUNDLE);
         FileManager fileManager = App.getAppComponent().fileManager();
         String resultMessage = "";
         switch (result) {
@@ -60,16 +60,20 @@ public class SmsDeliveredReceiver extends BroadcastReceiver {
                 break;
         }
 
-        if (message != null) {
-            message.deliveryResultMessage = resultMessage;
-            message.deliveryResultCode = result;
-            message.messageType = MessageModel.Type.TASK;
-            message.status = MessageModel.Status.SENT;
-
-            // Update this in a service to guarantee it will run
-            Intent updateService = new Intent(context, UpdateMessageService.class);
-            updateService.putExtra(ServiceConstants.UPDATE_MESSAGE, message);
-            context.startService(updateService);
+        final long partId = intent.getLongExtra(ProcessSms.EXTRA_PART_ID, -1);
+        if (partId >= 0) {
+            final SmsPartTracker tracker = App.getAppComponent().smsPartTracker();
+            final boolean delivered = result == Activity.RESULT_OK;
+            if (Build.VERSION.SDK_INT >= HONEYCOMB) {
+                // Written in a batch with the results of the other parts, the broadcast is kept
+                // alive until then so the result isn't lost with the process
+                final PendingResult pendingResult = goAsync();
+                tracker.onDelivered(partId, result, resultMessage, delivered,
+                        pendingResult::finish);
+            } else {
+                tracker.onDelivered(partId, result, resultMessage, delivered, null);
+                tracker.flush();
+            }
         }
     }
 }
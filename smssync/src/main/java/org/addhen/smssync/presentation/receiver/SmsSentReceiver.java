@@ -18,19 +18,17 @@
 package org.addhen.smssync.presentation.receiver;
 
 import org.addhen.smssync.R;
-import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.message.SmsPartTracker;
 import org.addhen.smssync.data.util.Logger;
 import org.addhen.smssync.presentation.App;
-import org.addhen.smssync.presentation.model.MessageModel;
-import org.addhen.smssync.presentation.service.DeleteMessageService;
-import org.addhen.smssync.presentation.service.ServiceConstants;
-import org.addhen.smssync.presentation.service.UpdateMessageService;
+import org.addhen.smssync.smslib.sms.ProcessSms;
 
 import android.app.Activity;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Build;
 import android.telephony.SmsManager;
 import android.widget.Toast;
 
@@ -39,11 +37,10 @@ import android.widget.Toast;
  */
 public class SmsSentReceiver extends BroadcastReceiver {
 
-    MessageModel messageModel = null;
+    private static final int HONEYCOMB = 11;
 
     @Override
     public void onReceive(final Context context, Intent intent) {
-        messageModel = (MessageModel) intent.getParcelableExtra(ServiceConstants.SENT_SMS_BUNDLE);
         final int result = getResultCode();
         boolean sentSuccess = false;
         log("smsSentReceiver onReceive result: " + result);
@@ -86,42 +83,20 @@ public class SmsSentReceiver extends BroadcastReceiver {
         toastLong(resultMessage, context);
         logActivities(resultMessage);
 
-        if (messageModel != null) {
-            messageModel.sentResultMessage = resultMessage;
-            messageModel.sentResultCode = result;
-            Logger.log("Sent", "message sent " + messageModel);
-            if (sentSuccess) {
-                messageModel.status = MessageModel.Status.SENT;
-                // Update this in a service to guarantee it will run
-                Intent updateService = new Intent(context, UpdateMessageService.class);
-                updateService.putExtra(ServiceConstants.UPDATE_MESSAGE, messageModel);
-                context.startService(updateService);
+        final long partId = intent.getLongExtra(ProcessSms.EXTRA_PART_ID, -1);
+        if (partId >= 0) {
+            final SmsPartTracker tracker = App.getAppComponent().smsPartTracker();
+            if (Build.VERSION.SDK_INT >= HONEYCOMB) {
+                // Written in a batch with the results of the other parts, the broadcast is kept
+                // alive until then so the result isn't lost with the process
+                final PendingResult pendingResult = goAsync();
+                tracker.onSent(partId, result, resultMessage, sentSuccess,
+                        pendingResult::finish);
             } else {
-
-                PrefsFactory prefsFactory = App.getAppComponent().prefsFactory();
-                if (prefsFactory.enableRetry().get()) {
-                    if (messageModel.retries >= prefsFactory.retries().get()) {
-                        Logger.log(SmsSentReceiver.class.getSimpleName(),
-                                "Delete failed messages " + messageModel);
-                        Intent deleteService = new Intent(context, DeleteMessageService.class);
-                        deleteService.putExtra(ServiceConstants.DELETE_MESSAGE,
-                                messageModel.messageUuid);
-                        context.startService(deleteService);
-                    } else {
-                        int retries = messageModel.retries + 1;
-                        messageModel.retries = retries;
-                        messageModel.status = MessageModel.Status.FAILED;
-                        Logger.log(SmsSentReceiver.class.getSimpleName(),
-                                "update message retries " + messageModel);
-                        // Update this in a service to guarantee it will run
-                        Intent updateService = new Intent(context, UpdateMessageService.class);
-                        updateService.putExtra(ServiceConstants.UPDATE_MESSAGE, messageModel);
-                        context.startService(updateService);
-                    }
-                }
+                tracker.onSent(partId, result, resultMessage, sentSuccess, null);
+                tracker.flush();
             }
         }
-
     }
 
     private void toastLong(String message, Context context) {
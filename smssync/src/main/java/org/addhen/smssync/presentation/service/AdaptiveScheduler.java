@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.service;
+
+import com.addhen.android.raiburari.data.pref.IntPreference;
+
+import org.addhen.smssync.R;
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.database.MessageDatabaseHelper;
+import org.addhen.smssync.data.message.OutboxQueue;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.presentation.receiver.AutoSyncScheduledReceiver;
+import org.addhen.smssync.presentation.receiver.CheckTaskScheduledReceiver;
+import org.addhen.smssync.presentation.util.SyncIntervalPolicy;
+import org.addhen.smssync.presentation.util.TimeFrequencyUtil;
+import org.addhen.smssync.presentation.util.Utility;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Reschedules the auto sync and task check services after every run, using the interval the
+ * user set as a base. The auto sync interval follows the number of pending messages and the
+ * task check interval follows the number of tasks that came in since the last check. Both back
+ * off while there's nothing to do, on low battery and on metered networks.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class AdaptiveScheduler {
+
+    private static final String TAG = AdaptiveScheduler.class.getSimpleName();
+
+    private final Context mContext;
+
+    private final PrefsFactory mPrefsFactory;
+
+    private final FileManager mFileManager;
+
+    private final MessageDatabaseHelper mMessageDatabaseHelper;
+
+    private final OutboxQueue mOutboxQueue;
+
+    @Inject
+    public AdaptiveScheduler(Context context, PrefsFactory prefsFactory, FileManager fileManager,
+            MessageDatabaseHelper messageDatabaseHelper, OutboxQueue outboxQueue) {
+        mContext = context.getApplicationContext();
+        mPrefsFactory = prefsFactory;
+        mFileManager = fileManager;
+        mMessageDatabaseHelper = messageDatabaseHelper;
+        mOutboxQueue = outboxQueue;
+    }
+
+    /**
+     * Reschedules the auto sync service from the number of messages still pending
+     */
+    public void rescheduleAutoSync() {
+        if (!mPrefsFactory.serviceEnabled().get() || !mPrefsFactory.enableAutoSync().get()) {
+            return;
+        }
+        final long baseInterval = TimeFrequencyUtil
+                .calculateInterval(mPrefsFactory.autoTime().get());
+        final int load = mMessageDatabaseHelper.countPending();
+        final long interval = reschedule(baseInterval, load, mPrefsFactory.autoSyncIdleRuns(),
+                new Intent(mContext, AutoSyncScheduledReceiver.class),
+                ServiceConstants.AUTO_SYNC_SCHEDULED_SERVICE_REQUEST_CODE);
+        if (interval != mPrefsFactory.autoSyncInterval().get()) {
+            mPrefsFactory.autoSyncInterval().set(interval);
+            mFileManager.appendAndClose(mContext.getString(R.string.auto_sync_interval_changed,
+                    interval / 1000, load));
+        }
+    }
+
+    /**
+     * Reschedules the task check service from the number of tasks sent since the last check
+     * and those still waiting in the outbox
+     */
+    public void rescheduleTaskCheck() {
+        if (!mPrefsFactory.serviceEnabled().get() || !mPrefsFactory.enableTaskCheck().get()) {
+            return;
+        }
+        final long baseInterval = TimeFrequencyUtil
+                .calculateInterval(mPrefsFactory.taskCheckTime().get());
+        final long sentCount = mOutboxQueue.getSentCount();
+        final long lastSentCount = mPrefsFactory.taskCheckSentCount().get();
+        mPrefsFactory.taskCheckSentCount().set(sentCount);
+        final int load = (int) Math.max(sentCount - lastSentCount, 0)
+                + mOutboxQueue.getPendingCount();
+        final long interval = reschedule(baseInterval, load, mPrefsFactory.taskCheckIdleRuns(),
+                new Intent(mContext, CheckTaskScheduledReceiver.class),
+                ServiceConstants.CHECK_TASK_SCHEDULED_SERVICE_REQUEST_CODE);
+        if (interval != mPrefsFactory.taskCheckInterval().get()) {
+            mPrefsFactory.taskCheckInterval().set(interval);
+            mFileManager.appendAndClose(mContext.getString(R.string.task_check_interval_changed,
+                    interval / 1000, load));
+        }
+    }
+
+    private long reschedule(long baseInterval, int load, IntPreference idleRuns, Intent intent,
+            int requestCode) {
+        final int idle = load > 0 ? 0 : idleRuns.get() + 1;
+        idleRuns.set(idle);
+
+        final Intent battery = mContext.registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        int batteryLevel = -1;
+        boolean charging = false;
+        if (battery != null) {
+            batteryLevel = Utility.calculateBatteryLevel(
+                    battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1),
+                    battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1));
+            charging = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            if (batteryLevel >= 0) {
+                mPrefsFactory.batteryLevel().set(batteryLevel);
+            }
+        }
+        final ConnectivityManager connectivityManager = (ConnectivityManager) mContext
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        final boolean metered = connectivityManager != null
+                && ConnectivityManagerCompat.isActiveNetworkMetered(connectivityManager);
+
+        final SyncIntervalPolicy.Decision decision = new SyncIntervalPolicy(baseInterval)
+                .next(load, idle, batteryLevel, charging, metered);
+        Logger.log(TAG, intent.getComponent().getShortClassName() + " every "
+                + decision.interval + "ms: " + decision.reason);
+        // The run that just finished counts as the first run of the new interval
+        new Scheduler(mContext, mFileManager, intent, requestCode,
+                PendingIntent.FLAG_UPDATE_CURRENT).updateScheduler(decision.interval,
+                decision.interval);
+        return decision.interval;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.service;
+
+import org.addhen.smssync.data.message.MessageArchiver;
+
+import android.content.Intent;
+
+import javax.inject.Inject;
+
+/**
+ * Archives the sent messages the retention settings no longer keep
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class ArchiveMessagesService extends BaseWakefulIntentService {
+
+    private static final String CLASS_TAG = ArchiveMessagesService.class.getSimpleName();
+
+    @Inject
+    MessageArchiver mMessageArchiver;
+
+    public ArchiveMessagesService() {
+        super(CLASS_TAG);
+    }
+
+    public void onCreate() {
+        super.onCreate();
+        getComponent().inject(this);
+    }
+
+    @Override
+    protected boolean needsNetwork() {
+        // Archiving is local, it doesn't need a data connection
+        return false;
+    }
+
+    @Override
+    protected void executeTask(Intent intent) {
+        log("archiveMessagesService: archiving sent messages");
+        mMessageArchiver.archive();
+    }
+}
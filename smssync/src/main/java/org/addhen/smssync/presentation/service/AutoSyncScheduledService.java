@@ -17,6 +17,7 @@
 
 package org.addhen.smssync.presentation.service;
 
+import org.addhen.smssync.data.message.MessagePipeline;
 import org.addhen.smssync.data.message.PostMessage;
 import org.addhen.smssync.data.message.TweetMessage;
 
@@ -42,6 +43,12 @@ public class AutoSyncScheduledService extends BaseWakefulIntentService {
     @Inject
     TweetMessage mTweetMessage;
 
+    @Inject
+    MessagePipeline mMessagePipeline;
+
+    @Inject
+    AdaptiveScheduler mAdaptiveScheduler;
+
     public AutoSyncScheduledService() {
         super(CLASS_TAG);
         statusIntent = new Intent(ServiceConstants.AUTO_SYNC_ACTION);
@@ -56,8 +63,10 @@ public class AutoSyncScheduledService extends BaseWakefulIntentService {
     protected void executeTask(Intent intent) {
         log(CLASS_TAG, "doWakefulWork() executing " + CLASS_TAG);
         mTweetMessage.syncPendingMessages("");
-        mProcessMessage.syncPendingMessages("");
+        // Blocks until every pending message has been through the pipeline
+        mMessagePipeline.syncPending().toBlocking().lastOrDefault(null);
         statusIntent.putExtra("status", mProcessMessage.getErrorMessage());
         sendBroadcast(statusIntent);
+        mAdaptiveScheduler.rescheduleAutoSync();
     }
 }
@@ -25,8 +25,6 @@ import org.addhen.smssync.data.util.Logger;
 import org.addhen.smssync.presentation.App;
 import org.addhen.smssync.presentation.di.component.AppComponent;
 import org.addhen.smssync.presentation.di.component.AppServiceComponent;
-import org.addhen.smssync.presentation.di.component.DaggerAppServiceComponent;
-import org.addhen.smssync.presentation.di.module.ServiceModule;
 import org.addhen.smssync.presentation.receiver.ConnectivityChangedReceiver;
 import org.addhen.smssync.presentation.util.Utility;
 
@@ -48,34 +46,44 @@ public abstract class BaseWakefulIntentService extends WakefulIntentService impl
      */
     protected abstract void executeTask(Intent intent);
 
+    /**
+     * @return False when the task can run without a data connection
+     */
+    protected boolean needsNetwork() {
+        return true;
+    }
+
     @Override
     public void doWakefulWork(final Intent intent) {
         log("onHandleIntent(): running service");
 
-        boolean isConnected = Utility.isConnected(this);
-
-        // check if we have internet
-        if (!isConnected) {
-            // Enable the Connectivity Changed Receiver to listen for
-            // connection to a network so we can execute pending messages.
-            PackageManager pm = getPackageManager();
-            ComponentName connectivityReceiver = new ComponentName(this,
-                    ConnectivityChangedReceiver.class);
-            pm.setComponentEnabledSetting(connectivityReceiver,
-                    PackageManager.COMPONENT_ENABLED_STATE_ENABLED,
-                    PackageManager.DONT_KILL_APP);
-
-        } else {
-            // Execute the task
-            executeTask(intent);
+        final String component = getClass().getSimpleName();
+        final boolean network = needsNetwork();
+        final WakeLockManager wakeLockManager = getAppComponent().wakeLockManager();
+        wakeLockManager.acquire(component, network);
+        try {
+            // check if we have internet
+            if (network && !Utility.isConnected(this)) {
+                // Enable the Connectivity Changed Receiver to listen for
+                // connection to a network so we can execute pending messages.
+                PackageManager pm = getPackageManager();
+                ComponentName connectivityReceiver = new ComponentName(this,
+                        ConnectivityChangedReceiver.class);
+                pm.setComponentEnabledSetting(connectivityReceiver,
+                        PackageManager.COMPONENT_ENABLED_STATE_ENABLED,
+                        PackageManager.DONT_KILL_APP);
+
+            } else {
+                // Execute the task
+                executeTask(intent);
+            }
+        } finally {
+            wakeLockManager.release(component);
         }
     }
 
     private void injector() {
-        mAppServiceComponent = DaggerAppServiceComponent.builder()
-                .appComponent(getAppComponent())
-                .serviceModule(new ServiceModule(this))
-                .build();
+        mAppServiceComponent = App.getAppServiceComponent();
     }
 
     @Override
@@ -20,7 +20,7 @@ package org.addhen.smssync.presentation.service;
 import org.addhen.smssync.R;
 import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
-import org.addhen.smssync.data.message.PostMessage;
+import org.addhen.smssync.data.message.TaskChannelManager;
 import org.addhen.smssync.data.util.Utility;
 import org.addhen.smssync.presentation.presenter.AlertPresenter;
 
@@ -36,9 +36,6 @@ public class CheckTaskService extends BaseWakefulIntentService {
     private final static String CLASS_TAG = CheckTaskService.class
             .getSimpleName();
 
-    @Inject
-    PostMessage mProcessMessage;
-
     @Inject
     PrefsFactory mPrefsFactory;
 
@@ -48,6 +45,12 @@ public class CheckTaskService extends BaseWakefulIntentService {
     @Inject
     AlertPresenter mAlertPresenter;
 
+    @Inject
+    TaskChannelManager mTaskChannelManager;
+
+    @Inject
+    AdaptiveScheduler mAdaptiveScheduler;
+
     public CheckTaskService() {
         super(CLASS_TAG);
     }
@@ -66,8 +69,9 @@ public class CheckTaskService extends BaseWakefulIntentService {
         log("checkTaskService: check if a task has been enabled.");
         if (Utility.isConnected(this)) {
             if (mPrefsFactory.serviceEnabled().get() && mPrefsFactory.enableTaskCheck().get()) {
-                mProcessMessage = getAppComponent().processMessage();
-                mProcessMessage.performTask();
+                // Opens any task channels and polls the Sync URLs that aren't streaming
+                mTaskChannelManager.checkTasks();
+                mAdaptiveScheduler.rescheduleTaskCheck();
             }
             return;
         }
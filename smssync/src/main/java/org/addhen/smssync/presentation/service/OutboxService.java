@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.service;
+
+import org.addhen.smssync.data.message.OutboxQueue;
+
+import android.content.Intent;
+
+import javax.inject.Inject;
+
+/**
+ * Sends the SMS waiting in the outbox
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class OutboxService extends BaseWakefulIntentService {
+
+    private static final String CLASS_TAG = OutboxService.class.getSimpleName();
+
+    @Inject
+    OutboxQueue mOutboxQueue;
+
+    public OutboxService() {
+        super(CLASS_TAG);
+    }
+
+    public void onCreate() {
+        super.onCreate();
+        getComponent().inject(this);
+    }
+
+    @Override
+    protected boolean needsNetwork() {
+        // Sending SMS doesn't need a data connection
+        return false;
+    }
+
+    @Override
+    protected void executeTask(Intent intent) {
+        log("outboxService: sending queued messages");
+        mOutboxQueue.drain();
+    }
+}
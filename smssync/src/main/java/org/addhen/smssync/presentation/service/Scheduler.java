@@ -74,10 +74,23 @@ public class Scheduler {
     public void updateScheduler(long interval) {
         Logger.log(CLASS_TAG, "updating scheduler");
         if (mAlarmManager != null && mPendingIntent != null) {
-            Logger.log(CLASS_TAG, "Update scheduler to " + interval);
             mFileManager.appendAndClose(mContext.getString(R.string.scheduler_updated_to));
+        }
+        updateScheduler(interval, 60000);
+    }
+
+    /**
+     * Updates the interval of the scheduled service without writing to the log file, for
+     * services that change their own interval from run to run
+     *
+     * @param interval      The interval at which the service should run.
+     * @param firstRunDelay How long to wait before the next run in milliseconds
+     */
+    public void updateScheduler(long interval, long firstRunDelay) {
+        if (mAlarmManager != null && mPendingIntent != null) {
+            Logger.log(CLASS_TAG, "Update scheduler to " + interval);
             mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP,
-                    SystemClock.elapsedRealtime() + 60000, interval, mPendingIntent);
+                    SystemClock.elapsedRealtime() + firstRunDelay, interval, mPendingIntent);
         }
     }
 }
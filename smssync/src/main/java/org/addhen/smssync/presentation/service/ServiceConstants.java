@@ -42,6 +42,10 @@ public class ServiceConstants {
 
     public static int MESSAGE_RESULTS_SCHEDULED_SERVICE_REQUEST_CODE = 4;
 
+    public static int OUTBOX_SCHEDULED_SERVICE_REQUEST_CODE = 5;
+
+    public static int ARCHIVE_MESSAGES_SCHEDULED_SERVICE_REQUEST_CODE = 6;
+
     public static String AUTO_SYNC_ACTION = "org.addhen.smssync.syncservices.autosync";
 
     public static String CHECT_TASK_ACTION = "org.addhen.smssync.syncservices.checktask";
@@ -20,12 +20,15 @@ package org.addhen.smssync.presentation.service;
 import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
 import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.presentation.App;
+import org.addhen.smssync.presentation.receiver.ArchiveMessagesScheduledReceiver;
 import org.addhen.smssync.presentation.receiver.AutoSyncScheduledReceiver;
 import org.addhen.smssync.presentation.receiver.CheckTaskScheduledReceiver;
 import org.addhen.smssync.presentation.receiver.MessageResultsScheduledReceiver;
 import org.addhen.smssync.presentation.util.TimeFrequencyUtil;
 import org.addhen.smssync.presentation.util.Utility;
 
+import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
@@ -89,6 +92,7 @@ public class ServiceControl {
         // Stop the scheduled service
         Logger.log(CLASS_TAG, "Stop CheckTaskScheduledService");
         stopServices(intent, ServiceConstants.CHECK_TASK_SCHEDULED_SERVICE_REQUEST_CODE);
+        App.getAppComponent().taskChannelManager().stop();
     }
 
     /**
@@ -135,6 +139,24 @@ public class ServiceControl {
         stopServices(intent, ServiceConstants.MESSAGE_RESULTS_SCHEDULED_SERVICE_REQUEST_CODE);
     }
 
+    /**
+     * Schedules the {@link org.addhen.smssync.presentation.service.ArchiveMessagesService} to
+     * run once a day when sent messages are to be archived, otherwise stops it. Archiving is
+     * local, so it runs whether or not SMSsync is enabled or connected.
+     */
+    public void runArchiveMessagesService() {
+        final Intent intent = new Intent(mContext, ArchiveMessagesScheduledReceiver.class);
+        final int requestCode = ServiceConstants.ARCHIVE_MESSAGES_SCHEDULED_SERVICE_REQUEST_CODE;
+        if (mPrefsFactory.retentionDays().get() > 0
+                || mPrefsFactory.retentionMaxMessages().get() > 0) {
+            Logger.log(CLASS_TAG, "Archive messages service started");
+            SchedulerInstance.INSTANCE.getScheduler(mContext, mFileManager, intent, requestCode)
+                    .updateScheduler(AlarmManager.INTERVAL_DAY);
+        } else {
+            stopServices(intent, requestCode);
+        }
+    }
+
     /**
      * Runs any enabled services. Making sure the device has internet connection before it attempts
      * to start any of the enabled services.
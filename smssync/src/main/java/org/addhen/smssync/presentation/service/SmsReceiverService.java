@@ -23,28 +23,24 @@ import com.addhen.android.raiburari.presentation.di.component.ApplicationCompone
 import org.addhen.smssync.R;
 import org.addhen.smssync.data.cache.FileManager;
 import org.addhen.smssync.data.entity.Message;
-import org.addhen.smssync.data.message.PostMessage;
+import org.addhen.smssync.data.message.MessagePipeline;
 import org.addhen.smssync.data.message.TweetMessage;
 import org.addhen.smssync.data.util.Logger;
 import org.addhen.smssync.presentation.App;
-import org.addhen.smssync.presentation.di.component.AppComponent;
 import org.addhen.smssync.presentation.di.component.AppServiceComponent;
-import org.addhen.smssync.presentation.di.component.DaggerAppServiceComponent;
-import org.addhen.smssync.presentation.di.module.ServiceModule;
 import org.addhen.smssync.presentation.util.Utility;
 import org.addhen.smssync.smslib.sms.ProcessSms;
 
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.net.wifi.WifiManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Looper;
-import android.os.PowerManager;
 import android.os.Process;
+import android.os.SystemClock;
 import android.telephony.SmsMessage;
 
 import java.lang.ref.WeakReference;
@@ -52,34 +48,29 @@ import java.util.Date;
 
 import javax.inject.Inject;
 
+import dagger.Lazy;
+
 /**
  * @author Ushahidi Team <team@ushahidi.com>
  */
 public class SmsReceiverService extends Service implements HasComponent<AppServiceComponent> {
 
-    @Inject
-    PostMessage mProcessMessage;
-
     @Inject
     FileManager mFileManager;
 
+    // Only needed when a Twitter account is set up, and it builds the Twitter client
     @Inject
-    PostMessage mPostMessage;
+    Lazy<TweetMessage> mTweetMessage;
 
+    // Built on the service thread when the first message is routed, not on the main thread
     @Inject
-    TweetMessage mTweetMessage;
+    Lazy<MessagePipeline> mMessagePipeline;
 
     private static final String ACTION_SMS_RECEIVED = "android.provider.Telephony.SMS_RECEIVED";
 
-    private static final Object mStartingServiceSync = new Object();
-
     private static final String CLASS_TAG = SmsReceiverService.class
             .getSimpleName();
 
-    private static PowerManager.WakeLock mStartingService;
-
-    private static WifiManager.WifiLock wifilock;
-
     private ServiceHandler mServiceHandler;
 
     private Looper mServiceLooper;
@@ -96,18 +87,6 @@ public class SmsReceiverService extends Service implements HasComponent<AppServi
 
     private AppServiceComponent mAppServiceComponent;
 
-    synchronized protected static WifiManager.WifiLock getWifiLock(
-            Context context) {
-        // keep wifi alive
-        if (wifilock == null) {
-            WifiManager manager = (WifiManager) context
-                    .getSystemService(Context.WIFI_SERVICE);
-            wifilock = manager.createWifiLock(CLASS_TAG);
-            wifilock.setReferenceCounted(true);
-        }
-        return wifilock;
-    }
-
     /**
      * Get the SMS message.
      *
@@ -147,57 +126,37 @@ public class SmsReceiverService extends Service implements HasComponent<AppServi
     }
 
     /**
-     * Start the service to process the current event notifications, acquiring the wake lock before
-     * returning to ensure that the service will run.
+     * Start the service to process the current event notifications, keeping the device awake
+     * until it's done.
      *
      * @param context - The context of the calling activity.
      * @param intent  - The calling intent.
      * @return void
      */
     public static void beginStartingService(Context context, Intent intent) {
-        synchronized (mStartingServiceSync) {
-
-            if (mStartingService == null) {
-                PowerManager pm = (PowerManager) context
-                        .getSystemService(Context.POWER_SERVICE);
-                mStartingService = pm.newWakeLock(
-                        PowerManager.PARTIAL_WAKE_LOCK, CLASS_TAG);
-                mStartingService.setReferenceCounted(false);
-            }
-
-            mStartingService.acquire();
-            if (!getWifiLock(context).isHeld()) {
-                getWifiLock(context).acquire();
-            }
-            context.startService(intent);
-        }
+        App.getStartupTrace().mark("beginStartingService", SystemClock.elapsedRealtime());
+        App.getAppComponent().wakeLockManager().acquire(CLASS_TAG, true);
+        context.startService(intent);
     }
 
     /**
-     * Called back by the service when it has finished processing notifications, releasing the wake
-     * lock and wifi lock if the service is now stopping.
+     * Called back by the service when it has finished processing a notification, letting go of
+     * the device for it.
      *
      * @param service - The calling service.
      * @param startId - The service start id.
      * @return void
      */
     public static void finishStartingService(Service service, int startId) {
-
-        synchronized (mStartingServiceSync) {
-
-            if (mStartingService != null) {
-                if (service.stopSelfResult(startId)) {
-                    mStartingService.release();
-                }
-            }
-
-        }
+        service.stopSelfResult(startId);
+        App.getAppComponent().wakeLockManager().release(CLASS_TAG);
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
         injector();
+        App.getStartupTrace().mark("SmsReceiverService.onCreate", SystemClock.elapsedRealtime());
         HandlerThread thread = new HandlerThread(CLASS_TAG,
                 Process.THREAD_PRIORITY_BACKGROUND);
         thread.start();
@@ -210,17 +169,10 @@ public class SmsReceiverService extends Service implements HasComponent<AppServi
     }
 
     private void injector() {
-        mAppServiceComponent = DaggerAppServiceComponent.builder()
-                .appComponent(getAppComponent())
-                .serviceModule(new ServiceModule(this))
-                .build();
+        mAppServiceComponent = App.getAppServiceComponent();
         mAppServiceComponent.inject(this);
     }
 
-    private AppComponent getAppComponent() {
-        return ((App) getApplication()).getAppComponent();
-    }
-
     @Override
     public void onStart(Intent intent, int startId) {
         android.os.Message msg = mServiceHandler.obtainMessage();
@@ -246,6 +198,11 @@ public class SmsReceiverService extends Service implements HasComponent<AppServi
      * Handle receiving SMS message
      */
     protected void handleSmsReceived(Intent intent) {
+        final String startup = App.getStartupTrace()
+                .finish("handleSmsReceived", SystemClock.elapsedRealtime());
+        if (startup != null) {
+            log(startup);
+        }
 
         String body;
         Bundle bundle = intent.getExtras();
@@ -286,11 +243,11 @@ public class SmsReceiverService extends Service implements HasComponent<AppServi
 
         // Route the SMS
         if (App.getTwitterInstance().getSessionManager().getActiveSession() != null) {
-            boolean status = mTweetMessage.routeSms(msg);
+            boolean status = mTweetMessage.get().routeSms(msg);
             showNotification(status);
         }
 
-        boolean status = mPostMessage.routeSms(msg);
+        boolean status = mMessagePipeline.get().routeSms(msg);
         showNotification(status);
     }
 
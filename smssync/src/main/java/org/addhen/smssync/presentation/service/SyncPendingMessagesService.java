@@ -23,7 +23,7 @@ import com.squareup.otto.Subscribe;
 import org.addhen.smssync.R;
 import org.addhen.smssync.data.cache.FileManager;
 import org.addhen.smssync.data.entity.mapper.MessageDataMapper;
-import org.addhen.smssync.data.message.PostMessage;
+import org.addhen.smssync.data.message.MessagePipeline;
 import org.addhen.smssync.data.message.TweetMessage;
 import org.addhen.smssync.data.util.Logger;
 import org.addhen.smssync.domain.repository.MessageRepository;
@@ -64,7 +64,7 @@ public class SyncPendingMessagesService extends BaseWakefulIntentService {
     FileManager mFileManager;
 
     @Inject
-    PostMessage mPostMessage;
+    MessagePipeline mMessagePipeline;
 
     @Inject
     TweetMessage mTweetMessage;
@@ -111,7 +111,7 @@ public class SyncPendingMessagesService extends BaseWakefulIntentService {
                     mState = new SyncPendingMessagesState(INITIAL, 0, 0, 0, 0, syncType, null);
                     try {
                         SyncConfig config = new SyncConfig(3, false, messageUuids, syncType);
-                        new SyncPendingMessagesTask(this, mPostMessage, mTweetMessage,
+                        new SyncPendingMessagesTask(this, mMessagePipeline, mTweetMessage,
                                 mMessageRepository, mMessageDataMapper).execute(config);
                     } catch (Exception e) {
                         log("Not syncing " + e.getMessage());
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.service;
+
+import org.addhen.smssync.R;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.util.Logger;
+import org.addhen.smssync.presentation.util.WakeBudget;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps the device awake, and the wifi on, for the components doing work in the background.
+ * All of them share one wake lock and one wifi lock, which are held for as long as any
+ * component needs them. A component that doesn't let go within the safety timeout is let go
+ * of, and it's written to the log. Every time the device is let go of, the time each component
+ * kept it awake is logged.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+@Singleton
+public class WakeLockManager {
+
+    private static final String TAG = WakeLockManager.class.getSimpleName();
+
+    private final FileManager mFileManager;
+
+    private final Context mContext;
+
+    private final PowerManager.WakeLock mWakeLock;
+
+    private final WifiManager.WifiLock mWifiLock;
+
+    private final WakeBudget mWakeBudget = new WakeBudget();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable mExpire = this::expire;
+
+    @Inject
+    public WakeLockManager(Context context, FileManager fileManager) {
+        mContext = context.getApplicationContext();
+        mFileManager = fileManager;
+        PowerManager powerManager = (PowerManager) mContext
+                .getSystemService(Context.POWER_SERVICE);
+        mWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, TAG);
+        mWakeLock.setReferenceCounted(false);
+        WifiManager wifiManager = (WifiManager) mContext.getSystemService(Context.WIFI_SERVICE);
+        mWifiLock = wifiManager.createWifiLock(TAG);
+        mWifiLock.setReferenceCounted(false);
+    }
+
+    /**
+     * Keeps the device awake for a component. Every call has to be matched by a call to {@link
+     * #release(String)}.
+     *
+     * @param component The name of the component
+     * @param network   True when the component needs the network
+     */
+    public synchronized void acquire(String component, boolean network) {
+        if (mWakeBudget.acquire(component, network, SystemClock.elapsedRealtime())) {
+            mWakeLock.acquire();
+        }
+        updateLocks();
+    }
+
+    /**
+     * Lets go of the oldest hold of a component
+     *
+     * @param component The name of the component
+     */
+    public synchronized void release(String component) {
+        final long now = SystemClock.elapsedRealtime();
+        if (mWakeBudget.release(component, now)) {
+            onAsleep(now);
+        }
+        updateLocks();
+    }
+
+    /**
+     * @return The time the device was kept awake and the share of each component
+     */
+    public synchronized String getReport() {
+        return mWakeBudget.report(SystemClock.elapsedRealtime());
+    }
+
+    private synchronized void expire() {
+        final long now = SystemClock.elapsedRealtime();
+        final boolean awake = mWakeBudget.isAwake();
+        List<String> expired = mWakeBudget.expire(now);
+        for (String component : expired) {
+            Logger.log(TAG, component + " held the device awake past the safety timeout");
+            mFileManager.appendAndClose(mContext.getString(R.string.wake_lock_timed_out,
+                    component, WakeBudget.SAFETY_TIMEOUT / 60000));
+        }
+        if (awake && !mWakeBudget.isAwake()) {
+            onAsleep(now);
+        }
+        updateLocks();
+    }
+
+    private void onAsleep(long now) {
+        mWakeLock.release();
+        Logger.log(TAG, mWakeBudget.report(now));
+    }
+
+    private void updateLocks() {
+        if (mWakeBudget.needsNetwork()) {
+            if (!mWifiLock.isHeld()) {
+                mWifiLock.acquire();
+            }
+        } else if (mWifiLock.isHeld()) {
+            mWifiLock.release();
+        }
+        mHandler.removeCallbacks(mExpire);
+        final long nextExpiry = mWakeBudget.getNextExpiry();
+        if (nextExpiry >= 0) {
+            mHandler.postDelayed(mExpire,
+                    Math.max(nextExpiry - SystemClock.elapsedRealtime(), 0));
+        }
+    }
+}
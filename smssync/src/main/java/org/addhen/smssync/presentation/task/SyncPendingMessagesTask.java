@@ -19,11 +19,11 @@ package org.addhen.smssync.presentation.task;
 
 import com.squareup.otto.Subscribe;
 
+import org.addhen.smssync.data.entity.Message;
 import org.addhen.smssync.data.entity.mapper.MessageDataMapper;
-import org.addhen.smssync.data.message.PostMessage;
+import org.addhen.smssync.data.message.MessagePipeline;
 import org.addhen.smssync.data.message.TweetMessage;
 import org.addhen.smssync.data.util.Logger;
-import org.addhen.smssync.domain.entity.MessageEntity;
 import org.addhen.smssync.domain.repository.MessageRepository;
 import org.addhen.smssync.presentation.App;
 import org.addhen.smssync.presentation.service.SyncPendingMessagesService;
@@ -36,6 +36,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
+import rx.subjects.BehaviorSubject;
+
 import static org.addhen.smssync.presentation.task.state.SyncState.CANCELED_SYNC;
 import static org.addhen.smssync.presentation.task.state.SyncState.FINISHED_SYNC;
 import static org.addhen.smssync.presentation.task.state.SyncState.INITIAL;
@@ -55,7 +57,7 @@ public class SyncPendingMessagesTask extends AsyncTask<SyncConfig, SyncPendingMe
 
     private final SyncPendingMessagesService mService;
 
-    private PostMessage mProcessMessage;
+    private MessagePipeline mMessagePipeline;
 
     private TweetMessage mTweetMessage;
 
@@ -65,16 +67,18 @@ public class SyncPendingMessagesTask extends AsyncTask<SyncConfig, SyncPendingMe
 
     private int itemsToSync;
 
+    private final BehaviorSubject<TaskCanceled> mCanceled = BehaviorSubject.create();
+
     /**
      * Default constructor
      *
      * @param service The sync service
      */
-    public SyncPendingMessagesTask(SyncPendingMessagesService service, PostMessage postMessage,
-            TweetMessage tweetMessage, MessageRepository messageRepository,
-            MessageDataMapper messageDataMapper) {
+    public SyncPendingMessagesTask(SyncPendingMessagesService service,
+            MessagePipeline messagePipeline, TweetMessage tweetMessage,
+            MessageRepository messageRepository, MessageDataMapper messageDataMapper) {
         mService = service;
-        mProcessMessage = postMessage;
+        mMessagePipeline = messagePipeline;
         mTweetMessage = tweetMessage;
         mMessageRepository = messageRepository;
         mMessageDataMapper = messageDataMapper;
@@ -103,6 +107,7 @@ public class SyncPendingMessagesTask extends AsyncTask<SyncConfig, SyncPendingMe
     public void taskCanceled(TaskCanceled canceled) {
         // cancel the sync process when the user hit to cancel button
         cancel(false);
+        mCanceled.onNext(canceled);
     }
 
     @Override
@@ -162,65 +167,52 @@ public class SyncPendingMessagesTask extends AsyncTask<SyncConfig, SyncPendingMe
      */
     private SyncStatus syncPending(SyncConfig config) {
         // sync pending messages
-        int syncdItems = 0;
-        int failedItems = 0;
-        int progress = 0;
-        SyncStatus syncStatus = new SyncStatus();
-        List<MessageEntity> listMessages = new ArrayList<>();
+        final SyncStatus syncStatus = new SyncStatus();
+        List<Message> messages = new ArrayList<>();
 
         // determine if syncing by message UUID
         if (config.messageUuids != null && config.messageUuids.size() > 0) {
-            // TODO: get messages to sync
             for (String messageUuid : config.messageUuids) {
-                MessageEntity msg = mMessageRepository.syncFetchByUuid(messageUuid);
-                listMessages.add(msg);
-
+                Message message = mMessageDataMapper
+                        .map(mMessageRepository.syncFetchByUuid(messageUuid));
+                if (message != null) {
+                    messages.add(message);
+                }
             }
         } else {
             // load all messages
-            listMessages = mMessageRepository.syncFetchPending();
+            messages = mMessageDataMapper.unmap(mMessageRepository.syncFetchPending());
         }
-        if (listMessages.size() > 0) {
-            itemsToSync = listMessages.size();
+        if (messages.size() > 0) {
+            itemsToSync = messages.size();
             Logger.log(CLASS_TAG,
                     String.format(Locale.ENGLISH, "Starting to sync (%d messages)",
                             itemsToSync));
 
-            // keep the sync running as long as the service is not cancelled and
-            // the syncd items is less than
-            // the items to be syncd.
-
-            while (!isCancelled() && progress < itemsToSync) {
-                // iterate through the loaded messages and push to the web
-                // service
-                for (MessageEntity m : listMessages) {
-                    progress++;
-                    // route the message to the appropriate enabled sync URL
-                    // route the message to the appropriate enabled sync URL
-                    mTweetMessage.tweetPendingMessage(mMessageDataMapper.map(m));
-                    if (mProcessMessage.routePendingMessage(mMessageDataMapper.map(m))) {
-                        // / if it successfully pushes message, purge the
-                        // message from the db
-                        // increment the number of syncd items
-                        syncdItems++;
-
-                    } else {
-                        failedItems++;
-
-                    }
-
-                    // update the UI with progress of the sync progress
-                    publishProgress(new SyncPendingMessagesState(SYNC, syncdItems, failedItems,
-                            progress,
-                            itemsToSync,
-                            config.syncType, null));
-                }
+            for (Message message : messages) {
+                mTweetMessage.tweetPendingMessage(message);
             }
 
+            // Blocks until every message is done or the sync is canceled, which stops the
+            // pipeline before its next message
+            mMessagePipeline.syncPending(messages)
+                    .takeUntil(mCanceled)
+                    .toBlocking()
+                    .forEach(delivery -> {
+                        syncStatus.progress++;
+                        if (delivery.delivered) {
+                            syncStatus.successful++;
+                        } else {
+                            syncStatus.failed++;
+                        }
+                        // update the UI with progress of the sync progress
+                        publishProgress(new SyncPendingMessagesState(SYNC,
+                                syncStatus.successful, syncStatus.failed, syncStatus.progress,
+                                itemsToSync, config.syncType, null));
+                    });
         }
 
-        return syncStatus.setSuccessfulCount(syncdItems).setFailedCount(failedItems)
-                .setProgress(progress);
+        return syncStatus;
 
     }
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the steps of a cold start, from when the process started to when the work it was
+ * started for begins. Each step is timed from the process start. The trace is only reported
+ * once per process, and only when the work begins within {@link #MAX_COLD_START}; otherwise
+ * the process was already running for something else and there's no cold start to report.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class StartupTrace {
+
+    /**
+     * The longest a cold start can take before it's taken for a warm one
+     */
+    public static final long MAX_COLD_START = 60 * 1000;
+
+    private final long mStart;
+
+    private final List<String> mSteps = new ArrayList<>();
+
+    private final List<Long> mTimes = new ArrayList<>();
+
+    private boolean mFinished;
+
+    /**
+     * @param start The time in milliseconds the process started at
+     */
+    public StartupTrace(long start) {
+        mStart = start;
+    }
+
+    /**
+     * Marks the end of a step. Only the first time a step is reached is kept.
+     *
+     * @param step The name of the step
+     * @param now  The current time in milliseconds
+     */
+    public synchronized void mark(String step, long now) {
+        if (!mFinished && !mSteps.contains(step)) {
+            mSteps.add(step);
+            mTimes.add(now - mStart);
+        }
+    }
+
+    /**
+     * Marks the last step and ends the trace
+     *
+     * @param step The name of the step
+     * @param now  The current time in milliseconds
+     * @return The time each step was reached at, or null when the trace already ended or this
+     * wasn't a cold start
+     */
+    public synchronized String finish(String step, long now) {
+        if (mFinished) {
+            return null;
+        }
+        mark(step, now);
+        mFinished = true;
+        if (now - mStart > MAX_COLD_START) {
+            return null;
+        }
+        StringBuilder report = new StringBuilder("Cold start to ").append(step).append(" in ")
+                .append(now - mStart).append("ms:");
+        for (int i = 0; i < mSteps.size(); i++) {
+            report.append(' ').append(mSteps.get(i)).append(" at ").append(mTimes.get(i))
+                    .append("ms");
+            if (i < mSteps.size() - 1) {
+                report.append(',');
+            }
+        }
+        return report.toString();
+    }
+}
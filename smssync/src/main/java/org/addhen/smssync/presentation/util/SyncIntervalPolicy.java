@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.util;
+
+/**
+ * Works out how long to wait before the next run of a scheduled service from the interval the
+ * user set. The interval gets shorter as the load grows so a busy gateway keeps up, and longer
+ * after every run that found nothing to do. On battery the interval is never shortened below
+ * the one set once the battery is half empty, and gets much longer once it's low. On a metered
+ * network it's never less than half the one set.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class SyncIntervalPolicy {
+
+    /**
+     * The shortest interval, unless the user set a shorter one
+     */
+    public static final long MIN_INTERVAL = 60 * 1000;
+
+    /**
+     * The load at which the interval is halved
+     */
+    public static final int BUSY_LOAD = 50;
+
+    /**
+     * The load at which the interval is a quarter of the one set
+     */
+    public static final int HEAVY_LOAD = 500;
+
+    /**
+     * The battery level at or under which the interval is never shortened
+     */
+    public static final int SAVING_BATTERY_LEVEL = 50;
+
+    /**
+     * The battery level at or under which the interval is made four times longer
+     */
+    public static final int LOW_BATTERY_LEVEL = 20;
+
+    /**
+     * The most the interval set is ever multiplied by
+     */
+    public static final int MAX_BACKOFF = 8;
+
+    private final long mBaseInterval;
+
+    /**
+     * @param baseInterval The interval the user set in milliseconds
+     */
+    public SyncIntervalPolicy(long baseInterval) {
+        mBaseInterval = baseInterval;
+    }
+
+    /**
+     * Decides the next interval
+     *
+     * @param load         The work waiting, such as pending messages or tasks
+     * @param idleRuns     The number of runs in a row, this one included, that had no load
+     * @param batteryLevel The battery level in percent or less than zero when it isn't known
+     * @param charging     True when the device is plugged in
+     * @param metered      True when the network is metered, like mobile data
+     * @return The interval and why it was picked
+     */
+    public Decision next(int load, int idleRuns, int batteryLevel, boolean charging,
+            boolean metered) {
+        // In quarters of the interval the user set
+        int quarters;
+        StringBuilder reason = new StringBuilder();
+        if (load >= HEAVY_LOAD) {
+            quarters = 1;
+            reason.append("heavy load of ").append(load);
+        } else if (load >= BUSY_LOAD) {
+            quarters = 2;
+            reason.append("load of ").append(load);
+        } else if (load > 0) {
+            quarters = 4;
+            reason.append("light load of ").append(load);
+        } else {
+            quarters = 4 << Math.min(Math.max(idleRuns, 0), 3);
+            reason.append("idle for ").append(idleRuns).append(" runs");
+        }
+        if (metered && quarters < 2) {
+            quarters = 2;
+            reason.append(" on a metered network");
+        }
+        if (!charging && batteryLevel >= 0) {
+            if (batteryLevel <= LOW_BATTERY_LEVEL) {
+                quarters = Math.max(quarters, 4) * 4;
+                reason.append(", battery low at ").append(batteryLevel).append('%');
+            } else if (batteryLevel <= SAVING_BATTERY_LEVEL && quarters < 4) {
+                quarters = 4;
+                reason.append(", battery at ").append(batteryLevel).append('%');
+            }
+        }
+        long interval = Math.min(mBaseInterval * quarters / 4, mBaseInterval * MAX_BACKOFF);
+        interval = Math.max(interval, Math.min(MIN_INTERVAL, mBaseInterval));
+        return new Decision(interval, reason.toString());
+    }
+
+    /**
+     * The next interval of a scheduled service
+     */
+    public static class Decision {
+
+        /**
+         * The interval in milliseconds
+         */
+        public final long interval;
+
+        /**
+         * Why the interval was picked, for the logs
+         */
+        public final String reason;
+
+        public Decision(long interval, String reason) {
+            this.interval = interval;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps account of the components that need the device awake. Overlapping holds share one wake
+ * window, which opens with the first hold and closes when the last one is released. A hold that
+ * isn't released within {@link #SAFETY_TIMEOUT} is dropped, so one stuck component can't keep
+ * the device awake for good.
+ * <p/>
+ * Hold times are kept per component for reporting. A component holding several times at once
+ * counts the time it held at least once, not the sum of its holds.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class WakeBudget {
+
+    /**
+     * The longest a single hold is kept
+     */
+    public static final long SAFETY_TIMEOUT = 10 * 60 * 1000;
+
+    private final Map<String, Deque<Hold>> mHolds = new LinkedHashMap<>();
+
+    private final Map<String, Usage> mUsage = new LinkedHashMap<>();
+
+    private long mWindowStart = -1;
+
+    private int mWindows;
+
+    private long mAwakeTime;
+
+    /**
+     * Holds the device awake for a component
+     *
+     * @param component The name of the component
+     * @param network   True when the component needs the network while it holds
+     * @param now       The current time in milliseconds
+     * @return True when this opens a wake window
+     */
+    public synchronized boolean acquire(String component, boolean network, long now) {
+        Deque<Hold> holds = mHolds.get(component);
+        if (holds == null) {
+            holds = new ArrayDeque<>();
+            mHolds.put(component, holds);
+        }
+        Usage usage = getOrCreateUsage(component);
+        usage.holds++;
+        if (holds.isEmpty()) {
+            usage.holdingSince = now;
+        }
+        holds.add(new Hold(now, network));
+        if (mWindowStart < 0) {
+            mWindowStart = now;
+            mWindows++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Releases the oldest hold of a component. A component that has no hold left, because it
+     * timed out, is ignored.
+     *
+     * @param component The name of the component
+     * @param now       The current time in milliseconds
+     * @return True when this closes the wake window
+     */
+    public synchronized boolean release(String component, long now) {
+        Deque<Hold> holds = mHolds.get(component);
+        if (holds == null || holds.isEmpty()) {
+            return false;
+        }
+        holds.remove();
+        if (holds.isEmpty()) {
+            stopHolding(component, now);
+        }
+        return closeWindowIfDone(now);
+    }
+
+    /**
+     * Drops the holds that have been kept for longer than {@link #SAFETY_TIMEOUT}
+     *
+     * @param now The current time in milliseconds
+     * @return The components whose holds were dropped
+     */
+    public synchronized List<String> expire(long now) {
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, Deque<Hold>> entry : mHolds.entrySet()) {
+            final Deque<Hold> holds = entry.getValue();
+            boolean timedOut = false;
+            for (Iterator<Hold> it = holds.iterator(); it.hasNext(); ) {
+                if (now - it.next().acquiredAt >= SAFETY_TIMEOUT) {
+                    it.remove();
+                    mUsage.get(entry.getKey()).timeouts++;
+                    timedOut = true;
+                }
+            }
+            if (timedOut) {
+                expired.add(entry.getKey());
+                if (holds.isEmpty()) {
+                    stopHolding(entry.getKey(), now);
+                }
+            }
+        }
+        closeWindowIfDone(now);
+        return expired;
+    }
+
+    /**
+     * @return The time in milliseconds the next hold times out at, or -1 when nothing holds
+     */
+    public synchronized long getNextExpiry() {
+        long next = -1;
+        for (Deque<Hold> holds : mHolds.values()) {
+            // The holds of a component are kept in the order they were acquired
+            if (!holds.isEmpty()) {
+                final long expiry = holds.peek().acquiredAt + SAFETY_TIMEOUT;
+                next = next < 0 ? expiry : Math.min(next, expiry);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return True while a wake window is open
+     */
+    public synchronized boolean isAwake() {
+        return mWindowStart >= 0;
+    }
+
+    /**
+     * @return True when a component holding now needs the network
+     */
+    public synchronized boolean needsNetwork() {
+        for (Deque<Hold> holds : mHolds.values()) {
+            for (Hold hold : holds) {
+                if (hold.network) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of wake windows opened so far
+     */
+    public synchronized int getWindows() {
+        return mWindows;
+    }
+
+    /**
+     * @param now The current time in milliseconds
+     * @return The time in milliseconds the device was held awake, the open window included
+     */
+    public synchronized long getAwakeTime(long now) {
+        return mAwakeTime + (mWindowStart >= 0 ? now - mWindowStart : 0);
+    }
+
+    /**
+     * @param component The name of the component
+     * @return A copy of the usage of the component, or null when it never held
+     */
+    public synchronized Usage getUsage(String component) {
+        Usage usage = mUsage.get(component);
+        return usage != null ? new Usage(usage) : null;
+    }
+
+    /**
+     * @param now The current time in milliseconds
+     * @return The awake time and the hold time of every component, for the logs
+     */
+    public synchronized String report(long now) {
+        StringBuilder report = new StringBuilder();
+        report.append("awake ").append(getAwakeTime(now)).append("ms in ").append(mWindows)
+                .append(" windows");
+        for (Map.Entry<String, Usage> entry : mUsage.entrySet()) {
+            final Usage usage = entry.getValue();
+            report.append("; ").append(entry.getKey()).append(' ')
+                    .append(usage.heldTime + (usage.holdingSince >= 0
+                            ? now - usage.holdingSince : 0))
+                    .append("ms over ").append(usage.holds).append(" holds, longest ")
+                    .append(usage.longest).append("ms");
+            if (usage.timeouts > 0) {
+                report.append(", ").append(usage.timeouts).append(" timed out");
+            }
+        }
+        return report.toString();
+    }
+
+    private Usage getOrCreateUsage(String component) {
+        Usage usage = mUsage.get(component);
+        if (usage == null) {
+            usage = new Usage();
+            mUsage.put(component, usage);
+        }
+        return usage;
+    }
+
+    private void stopHolding(String component, long now) {
+        final Usage usage = mUsage.get(component);
+        final long held = now - usage.holdingSince;
+        usage.heldTime += held;
+        usage.longest = Math.max(usage.longest, held);
+        usage.holdingSince = -1;
+    }
+
+    private boolean closeWindowIfDone(long now) {
+        if (mWindowStart < 0) {
+            return false;
+        }
+        for (Deque<Hold> holds : mHolds.values()) {
+            if (!holds.isEmpty()) {
+                return false;
+            }
+        }
+        mAwakeTime += now - mWindowStart;
+        mWindowStart = -1;
+        return true;
+    }
+
+    private static class Hold {
+
+        private final long acquiredAt;
+
+        private final boolean network;
+
+        Hold(long acquiredAt, boolean network) {
+            this.acquiredAt = acquiredAt;
+            this.network = network;
+        }
+    }
+
+    /**
+     * How long a component held the device awake
+     */
+    public static class Usage {
+
+        /**
+         * The number of times the component held
+         */
+        public int holds;
+
+        /**
+         * The time in milliseconds the component held, not counting a hold still going on
+         */
+        public long heldTime;
+
+        /**
+         * The longest time in milliseconds the component held without a break
+         */
+        public long longest;
+
+        /**
+         * The number of holds dropped after the safety timeout
+         */
+        public int timeouts;
+
+        private long holdingSince = -1;
+
+        Usage() {
+        }
+
+        Usage(Usage usage) {
+            holds = usage.holds;
+            heldTime = usage.heldTime;
+            longest = usage.longest;
+            timeouts = usage.timeouts;
+            holdingSince = usage.holdingSince;
+        }
+    }
+}
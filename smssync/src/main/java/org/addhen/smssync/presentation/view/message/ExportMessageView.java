@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.view.message;
+
+import com.addhen.android.raiburari.presentation.ui.view.LoadDataView;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public interface ExportMessageView extends LoadDataView {
+
+    /**
+     * @param written The number of messages written so far
+     * @param total   The number of messages to write
+     */
+    void showExportProgress(int written, int total);
+
+    /**
+     * @param path    The path of the exported file
+     * @param written The number of messages written to it
+     */
+    void showExported(String path, int written);
+}
@@ -19,14 +19,19 @@ package org.addhen.smssync.presentation.view.message;
 
 import com.addhen.android.raiburari.presentation.ui.view.LoadDataView;
 
-import org.addhen.smssync.presentation.model.MessageModel;
-
-import java.util.List;
-
 /**
  * @author Ushahidi Team <team@ushahidi.com>
  */
 public interface ImportMessageView extends LoadDataView {
 
-    void showMessages(List<MessageModel> messageModelList);
+    /**
+     * @param read  The number of inbox messages read so far
+     * @param total The number of inbox messages to read
+     */
+    void showImportProgress(int read, int total);
+
+    /**
+     * @param read The number of inbox messages read by the import
+     */
+    void showImported(int read);
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.view.ui.adapter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The item range changes that turn one list into another, matching items by id. Items removed,
+ * inserted or changed in place are reported as ranges. Items that moved can't be, so the diff
+ * is then marked as reordered and the list should be redrawn in full.
+ * <p/>
+ * Calculating the diff reads every item of both lists, so it's meant to run off the main thread.
+ *
+ * @param <T> The type of the items
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class ListDiff<T> {
+
+    private static final int REMOVED = 0;
+
+    private static final int INSERTED = 1;
+
+    private static final int CHANGED = 2;
+
+    private final List<int[]> mUpdates = new ArrayList<>();
+
+    private boolean mReordered;
+
+    private ListDiff() {
+    }
+
+    /**
+     * Calculates the diff between two lists
+     *
+     * @param oldItems The items shown now
+     * @param newItems The items to show
+     * @param callback Identifies and compares the items
+     * @return The diff
+     */
+    public static <T> ListDiff<T> calculate(List<T> oldItems, List<T> newItems,
+            ItemCallback<T> callback) {
+        ListDiff<T> diff = new ListDiff<>();
+        Set<Long> newIds = new HashSet<>();
+        for (T item : newItems) {
+            if (!newIds.add(callback.getId(item))) {
+                // Ids must be unique to match items
+                diff.mReordered = true;
+                return diff;
+            }
+        }
+
+        // Remove from the end so the positions of the earlier removals still hold
+        List<T> kept = new ArrayList<>(Math.min(oldItems.size(), newItems.size()));
+        Set<Long> keptIds = new HashSet<>();
+        for (int i = oldItems.size() - 1; i >= 0; i--) {
+            final T item = oldItems.get(i);
+            final long id = callback.getId(item);
+            if (newIds.contains(id) && keptIds.add(id)) {
+                kept.add(item);
+            } else {
+                diff.add(REMOVED, i, true);
+            }
+        }
+
+        // The kept items are in reverse order now
+        int keptIndex = kept.size() - 1;
+        for (int i = 0; i < newItems.size(); i++) {
+            final T item = newItems.get(i);
+            final long id = callback.getId(item);
+            if (!keptIds.contains(id)) {
+                diff.add(INSERTED, i, false);
+                continue;
+            }
+            final T oldItem = kept.get(keptIndex--);
+            if (callback.getId(oldItem) != id) {
+                diff.mUpdates.clear();
+                diff.mReordered = true;
+                return diff;
+            }
+            if (!callback.isSameContent(oldItem, item)) {
+                diff.add(CHANGED, i, false);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * @return True when items moved, so the changes can't be told as ranges
+     */
+    public boolean isReordered() {
+        return mReordered;
+    }
+
+    /**
+     * @return True when the lists hold the same items with the same content
+     */
+    public boolean isEmpty() {
+        return !mReordered && mUpdates.isEmpty();
+    }
+
+    /**
+     * Reports the changes in the order they have to be applied
+     *
+     * @param listener The listener to report to
+     */
+    public void dispatchTo(UpdateListener listener) {
+        for (int[] update : mUpdates) {
+            switch (update[0]) {
+                case REMOVED:
+                    listener.onRemoved(update[1], update[2]);
+                    break;
+                case INSERTED:
+                    listener.onInserted(update[1], update[2]);
+                    break;
+                default:
+                    listener.onChanged(update[1], update[2]);
+                    break;
+            }
+        }
+    }
+
+    private void add(int type, int position, boolean backwards) {
+        if (!mUpdates.isEmpty()) {
+            int[] last = mUpdates.get(mUpdates.size() - 1);
+            if (last[0] == type) {
+                if (backwards && last[1] == position + 1) {
+                    last[1] = position;
+                    last[2]++;
+                    return;
+                }
+                if (!backwards && last[1] + last[2] == position) {
+                    last[2]++;
+                    return;
+                }
+            }
+        }
+        mUpdates.add(new int[]{type, position, 1});
+    }
+
+    /**
+     * Identifies and compares the items of a list
+     */
+    public interface ItemCallback<T> {
+
+        /**
+         * @return The id of the item, which stays the same when its content changes
+         */
+        long getId(T item);
+
+        /**
+         * @return True when the item looks the same as before
+         */
+        boolean isSameContent(T oldItem, T newItem);
+    }
+
+    /**
+     * Receives the item range changes
+     */
+    public interface UpdateListener {
+
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onChanged(int position, int count);
+    }
+}
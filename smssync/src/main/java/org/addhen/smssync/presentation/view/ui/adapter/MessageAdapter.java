@@ -26,21 +26,25 @@ import org.addhen.smssync.presentation.util.Utility;
 import org.addhen.smssync.presentation.view.ui.widget.TextDrawable;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v7.widget.AppCompatTextView;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
-import android.widget.Filter;
-import android.widget.Filterable;
 import android.widget.ImageView;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
@@ -48,7 +52,30 @@ import butterknife.ButterKnife;
 /**
  * @author Ushahidi Team <team@ushahidi.com>
  */
-public class MessageAdapter extends BaseRecyclerViewAdapter<MessageModel> implements Filterable {
+public class MessageAdapter extends BaseRecyclerViewAdapter<MessageModel> {
+
+    /**
+     * Diffs for all the message adapters are worked out one at a time off the main thread
+     */
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final ListDiff.ItemCallback<MessageModel> ITEM_CALLBACK
+            = new ListDiff.ItemCallback<MessageModel>() {
+        @Override
+        public long getId(MessageModel item) {
+            return item._id != null ? item._id : RecyclerView.NO_ID;
+        }
+
+        @Override
+        public boolean isSameContent(MessageModel oldItem, MessageModel newItem) {
+            return TextUtils.equals(oldItem.messageBody, newItem.messageBody)
+                    && TextUtils.equals(oldItem.messageFrom, newItem.messageFrom)
+                    && (oldItem.messageDate == null ? newItem.messageDate == null
+                    : oldItem.messageDate.equals(newItem.messageDate))
+                    && oldItem.messageType == newItem.messageType
+                    && oldItem.status == newItem.status;
+        }
+    };
 
     private SparseBooleanArray mSelectedItems;
 
@@ -62,15 +89,16 @@ public class MessageAdapter extends BaseRecyclerViewAdapter<MessageModel> implem
 
     private Animation flipOut;
 
-    private Filter mFilter = null;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
 
-    List<MessageModel> msgs = new ArrayList<>();
+    private int mUpdateCount;
 
     public MessageAdapter(Context context) {
         mSelectedItems = new SparseBooleanArray();
         flipIn = AnimationUtils.loadAnimation(context, R.anim.flip_front);
         flipOut = AnimationUtils.loadAnimation(context, R.anim.flip_back);
-
+        setHasStableIds(true);
+        super.setItems(new ArrayList<>());
     }
 
     @Override
@@ -84,11 +112,84 @@ public class MessageAdapter extends BaseRecyclerViewAdapter<MessageModel> implem
         return getItems().size();
     }
 
+    /**
+     * Shows the given messages. The changes from the messages shown now are worked out in the
+     * background and applied as item range changes.
+     *
+     * @param items The messages to show
+     */
     @Override
     public void setItems(List<MessageModel> items) {
-        super.setItems(items);
+        final int updateCount = ++mUpdateCount;
+        final List<MessageModel> oldItems = new ArrayList<>(getItems());
+        DIFF_EXECUTOR.execute(() -> {
+            // Reading every item here also maps lazily mapped items off the main thread
+            final List<MessageModel> newItems = Collections
+                    .unmodifiableList(new ArrayList<>(items));
+            final ListDiff<MessageModel> diff = ListDiff.calculate(oldItems, newItems,
+                    ITEM_CALLBACK);
+            mHandler.post(() -> apply(updateCount, oldItems, newItems, diff));
+        });
     }
 
+    @Override
+    public long getItemId(int position) {
+        final int index = position - getHeaderCount();
+        if (index < 0 || index >= getItems().size()) {
+            return RecyclerView.NO_ID;
+        }
+        return ITEM_CALLBACK.getId(getItems().get(index));
+    }
+
+    private void apply(int updateCount, List<MessageModel> oldItems, List<MessageModel> newItems,
+            ListDiff<MessageModel> diff) {
+        if (updateCount != mUpdateCount) {
+            // A newer list is on its way
+            return;
+        }
+        final List<MessageModel> items = getItems();
+        // Items may have been added or removed while the diff was worked out
+        final boolean changedMeanwhile = !isSameItems(items, oldItems);
+        items.clear();
+        items.addAll(newItems);
+        if (changedMeanwhile || diff.isReordered()) {
+            notifyDataSetChanged();
+            return;
+        }
+        final int headerCount = getHeaderCount();
+        diff.dispatchTo(new ListDiff.UpdateListener() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position + headerCount, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position + headerCount, count);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                notifyItemRangeChanged(position + headerCount, count);
+            }
+        });
+    }
+
+    private int getHeaderCount() {
+        return customHeaderView != null ? 1 : 0;
+    }
+
+    private static boolean isSameItems(List<MessageModel> items, List<MessageModel> oldItems) {
+        if (items.size() != oldItems.size()) {
+            return false;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) != oldItems.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
      * Toggles an item in the adapter as selected or de-selected
@@ -147,14 +248,6 @@ public class MessageAdapter extends BaseRecyclerViewAdapter<MessageModel> implem
         mOnMoreActionListener = onMoreActionListener;
     }
 
-    @Override
-    public Filter getFilter() {
-        if (mFilter == null) {
-            mFilter = new MessageFilter();
-        }
-        return mFilter;
-    }
-
     private void updateCheckedState(Widgets holder, int position) {
         if (isChecked(position)) {
             holder.imageView.setImageDrawable(
@@ -286,37 +379,4 @@ public class MessageAdapter extends BaseRecyclerViewAdapter<MessageModel> implem
 
         void onMoreActionTap(int position);
     }
-
-    private class MessageFilter extends Filter {
-
-        @Override
-        protected FilterResults performFiltering(CharSequence constraint) {
-            FilterResults results = new FilterResults();
-            constraint = constraint.toString().toLowerCase();
-            if (msgs.isEmpty()) {
-                msgs.addAll(getItems());
-            }
-            results.values = msgs;
-            results.count = msgs.size();
-            if (constraint != null && constraint.toString().length() > 0) {
-                ArrayList<MessageModel> filteredItems = new ArrayList<>();
-                for (MessageModel message : msgs) {
-                    if (message.messageBody.toLowerCase()
-                            .contains(constraint.toString().toLowerCase())) {
-                        filteredItems.add(message);
-                    }
-                }
-                results.count = filteredItems.size();
-                results.values = filteredItems;
-            }
-            return results;
-        }
-
-        @Override
-        protected void publishResults(CharSequence charSequence, FilterResults filterResults) {
-            List<MessageModel> messageModels = (ArrayList<MessageModel>) filterResults.values;
-            setItems(messageModels);
-        }
-    }
-
 }
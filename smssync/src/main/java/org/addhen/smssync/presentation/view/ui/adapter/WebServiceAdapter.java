@@ -23,8 +23,11 @@ import com.addhen.android.raiburari.presentation.ui.widget.CapitalizedTextView;
 import org.addhen.smssync.R;
 import org.addhen.smssync.presentation.model.WebServiceModel;
 
+import android.content.Context;
+import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.SwitchCompat;
+import android.text.format.DateFormat;
 import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -32,6 +35,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import butterknife.Bind;
@@ -72,6 +76,24 @@ public class WebServiceAdapter extends BaseRecyclerViewAdapter<WebServiceModel>
                         .onItemChecked(position, toggleCustomWebService.isChecked());
             }
         });
+        bindCircuitState(((Widgets) viewHolder).circuit, webServiceModel);
+    }
+
+    private void bindCircuitState(TextView circuit, WebServiceModel webServiceModel) {
+        final Context context = circuit.getContext();
+        if (webServiceModel.getCircuitState() == WebServiceModel.CircuitState.OPEN) {
+            circuit.setText(context.getString(R.string.sync_url_circuit_open, DateFormat
+                    .getTimeFormat(context)
+                    .format(new Date(webServiceModel.getCircuitRetryAt()))));
+            circuit.setTextColor(ContextCompat.getColor(context, R.color.red));
+            circuit.setVisibility(View.VISIBLE);
+        } else if (webServiceModel.getCircuitState() == WebServiceModel.CircuitState.HALF_OPEN) {
+            circuit.setText(R.string.sync_url_circuit_half_open);
+            circuit.setTextColor(ContextCompat.getColor(context, R.color.amber));
+            circuit.setVisibility(View.VISIBLE);
+        } else {
+            circuit.setVisibility(View.GONE);
+        }
     }
 
     @Override
@@ -147,6 +169,9 @@ public class WebServiceAdapter extends BaseRecyclerViewAdapter<WebServiceModel>
         @Bind(R.id.web_service_selected)
         SwitchCompat listCheckBox;
 
+        @Bind(R.id.web_service_circuit)
+        TextView circuit;
+
         /**
          * Default constructor
          *
@@ -38,6 +38,7 @@ import android.text.InputType;
 import android.text.TextUtils;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
+import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.EditText;
 import android.widget.ProgressBar;
@@ -76,6 +77,24 @@ public class AddWebServiceFragment extends BaseFragment implements AddWebService
     @Bind(R.id.sync_data_format)
     Spinner mSpinnerDataFormats;
 
+    @Bind(R.id.task_channel)
+    Spinner mSpinnerTaskChannels;
+
+    @Bind(R.id.connect_timeout)
+    EditText mConnectTimeout;
+
+    @Bind(R.id.read_timeout)
+    EditText mReadTimeout;
+
+    @Bind(R.id.write_timeout)
+    EditText mWriteTimeout;
+
+    @Bind(R.id.deadline)
+    EditText mDeadline;
+
+    @Bind(R.id.hedge_requests)
+    CheckBox mHedgeRequests;
+
     @Bind(R.id.sync_k_secret)
     EditText mKeySecret;
 
@@ -270,10 +289,29 @@ public class AddWebServiceFragment extends BaseFragment implements AddWebService
         webServiceModel.setUrl(mEditTextUrl.getText().toString());
         webServiceModel.setSecret(mEditTextSecret.getText().toString());
         webServiceModel.setSyncScheme(syncSchemeModel);
+        webServiceModel.setTaskChannel(WebServiceModel.TaskChannel
+                .valueOf(mSpinnerTaskChannels.getSelectedItem().toString()));
+        webServiceModel.setConnectTimeout(getSeconds(mConnectTimeout));
+        webServiceModel.setReadTimeout(getSeconds(mReadTimeout));
+        webServiceModel.setWriteTimeout(getSeconds(mWriteTimeout));
+        webServiceModel.setDeadline(getSeconds(mDeadline));
+        webServiceModel.setHedgeRequests(mHedgeRequests.isChecked());
         webServiceModel.setStatus(WebServiceModel.Status.ENABLED);
         mAddWebServicePresenter.addWebService(webServiceModel);
     }
 
+    /**
+     * @return The seconds entered in the field or 0 when it's empty, which means the default
+     */
+    private int getSeconds(EditText editText) {
+        final String text = editText.getText().toString().trim();
+        return TextUtils.isEmpty(text) ? 0 : Integer.parseInt(text);
+    }
+
+    private void setSeconds(EditText editText, int seconds) {
+        editText.setText(seconds > 0 ? String.valueOf(seconds) : null);
+    }
+
     @OnClick(R.id.add_custom_web_service_cancel)
     public void onClickCancel() {
         getActivity().finish();
@@ -379,6 +417,14 @@ public class AddWebServiceFragment extends BaseFragment implements AddWebService
             mKeyDeviceID.setText(syncSchemeModel.getKey(SyncSchemeModel.SyncDataKey.DEVICE_ID));
             mSpinnerMethods.setSelection(syncSchemeModel.getMethod().ordinal());
             mSpinnerDataFormats.setSelection(syncSchemeModel.getDataFormat().ordinal());
+            if (webServiceModel.getTaskChannel() != null) {
+                mSpinnerTaskChannels.setSelection(webServiceModel.getTaskChannel().ordinal());
+            }
+            setSeconds(mConnectTimeout, webServiceModel.getConnectTimeout());
+            setSeconds(mReadTimeout, webServiceModel.getReadTimeout());
+            setSeconds(mWriteTimeout, webServiceModel.getWriteTimeout());
+            setSeconds(mDeadline, webServiceModel.getDeadline());
+            mHedgeRequests.setChecked(webServiceModel.isHedgeRequests());
         }
     }
 
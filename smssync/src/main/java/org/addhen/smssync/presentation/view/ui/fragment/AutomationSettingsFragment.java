@@ -17,6 +17,8 @@
 
 package org.addhen.smssync.presentation.view.ui.fragment;
 
+import com.addhen.android.raiburari.data.pref.IntPreference;
+
 import org.addhen.smssync.R;
 import org.addhen.smssync.presentation.view.ui.widget.TimePreference;
 import org.addhen.smssync.presentation.view.ui.widget.TimePreferenceFragmentDialog;
@@ -46,6 +48,10 @@ public class AutomationSettingsFragment extends BasePreferenceFragmentCompat imp
 
     public static final String KEY_LIST_RETRIES = "auto_delete_pending_messages_retries_preference";
 
+    public static final String KEY_RETENTION_DAYS = "retention_days_preference";
+
+    public static final String KEY_RETENTION_MAX_MESSAGES = "retention_max_messages_preference";
+
     private SwitchPreferenceCompat mEnableAutoDelete;
 
     private TimePreference mAutoSyncTimes;
@@ -56,6 +62,10 @@ public class AutomationSettingsFragment extends BasePreferenceFragmentCompat imp
 
     private SwitchPreferenceCompat mEnableAutoSync;
 
+    private ListPreference mRetentionDays;
+
+    private ListPreference mRetentionMaxMessages;
+
     public AutomationSettingsFragment() {
     }
 
@@ -111,6 +121,9 @@ public class AutomationSettingsFragment extends BasePreferenceFragmentCompat imp
                 .findPreference(KEY_ENABLE_RETRIES);
 
         mRetryEntries = (ListPreference) getPreferenceScreen().findPreference(KEY_LIST_RETRIES);
+        mRetentionDays = (ListPreference) getPreferenceScreen().findPreference(KEY_RETENTION_DAYS);
+        mRetentionMaxMessages = (ListPreference) getPreferenceScreen()
+                .findPreference(KEY_RETENTION_MAX_MESSAGES);
         savePreference();
     }
 
@@ -167,6 +180,29 @@ public class AutomationSettingsFragment extends BasePreferenceFragmentCompat imp
                 }
             }
         }
+
+        saveListPreference(mRetentionDays, mPrefs.retentionDays(),
+                R.array.retention_days_entries, R.array.retention_days_values);
+        saveListPreference(mRetentionMaxMessages, mPrefs.retentionMaxMessages(),
+                R.array.retention_max_messages_entries, R.array.retention_max_messages_values);
+    }
+
+    private void saveListPreference(ListPreference listPreference, IntPreference preference,
+            int entriesResId, int valuesResId) {
+        final String[] entries = getResources().getStringArray(entriesResId);
+        final int[] values = getResources().getIntArray(valuesResId);
+        for (int i = 0; i < entries.length; i++) {
+            if (listPreference.getValue() != null && listPreference.getValue()
+                    .equals(entries[i])) {
+                if (preference.get() != values[i]) {
+                    mAddLogPresenter.addLog(getString(R.string.settings_changed,
+                            listPreference.getTitle().toString(),
+                            String.valueOf(preference.get()), String.valueOf(values[i])));
+                }
+                preference.set(values[i]);
+                break;
+            }
+        }
     }
 
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
@@ -188,6 +224,11 @@ public class AutomationSettingsFragment extends BasePreferenceFragmentCompat imp
                 mServiceControl.runAutoSyncService();
             }
         }
+
+        // Start or stop archiving sent messages
+        if (key.equals(KEY_RETENTION_DAYS) || key.equals(KEY_RETENTION_MAX_MESSAGES)) {
+            mServiceControl.runArchiveMessagesService();
+        }
     }
 
     public void autoSyncEnable() {
@@ -22,16 +22,20 @@ import com.addhen.android.raiburari.presentation.ui.widget.BloatedRecyclerView;
 import com.cocosw.bottomsheet.BottomSheet;
 import com.nineoldandroids.view.ViewHelper;
 
+import org.addhen.smssync.BuildConfig;
 import org.addhen.smssync.R;
 import org.addhen.smssync.presentation.di.component.MessageComponent;
 import org.addhen.smssync.presentation.model.MessageModel;
 import org.addhen.smssync.presentation.presenter.message.DeleteMessagePresenter;
+import org.addhen.smssync.presentation.presenter.message.ExportMessagePresenter;
 import org.addhen.smssync.presentation.presenter.message.ImportMessagePresenter;
 import org.addhen.smssync.presentation.presenter.message.ListMessagePresenter;
 import org.addhen.smssync.presentation.presenter.message.PublishMessagesPresenter;
+import org.addhen.smssync.presentation.presenter.message.SearchMessagePresenter;
 import org.addhen.smssync.presentation.service.ServiceConstants;
 import org.addhen.smssync.presentation.util.Utility;
 import org.addhen.smssync.presentation.view.message.DeleteMessageView;
+import org.addhen.smssync.presentation.view.message.ExportMessageView;
 import org.addhen.smssync.presentation.view.message.ImportMessageView;
 import org.addhen.smssync.presentation.view.message.ListMessageView;
 import org.addhen.smssync.presentation.view.message.PublishMessageView;
@@ -47,23 +51,27 @@ import android.content.IntentFilter;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.Snackbar;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.content.FileProvider;
 import android.support.v7.view.ActionMode;
 import android.support.v7.widget.DefaultItemAnimator;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.helper.ItemTouchHelper;
+import android.text.TextUtils;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -83,6 +91,14 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
 
     private static final int HONEYCOMB = 11;
 
+    /**
+     * How many rows from the end of the search results the next page is fetched
+     */
+    private static final int LOAD_MORE_THRESHOLD = 10;
+
+    private static final String FILE_PROVIDER_AUTHORITY = BuildConfig.APPLICATION_ID
+            + ".fileprovider";
+
     /** List of items pending to to be deleted **/
     public List<PendingMessage> mPendingMessages;
 
@@ -107,6 +123,12 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
     @Inject
     ImportMessagePresenter mImportMessagePresenter;
 
+    @Inject
+    SearchMessagePresenter mSearchMessagePresenter;
+
+    @Inject
+    ExportMessagePresenter mExportMessagePresenter;
+
     private MessageAdapter mMessageAdapter;
 
     private int mRemovedItemPosition = 0;
@@ -142,7 +164,11 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
         super.onResume();
         getActivity().registerReceiver(broadcastReceiver,
                 new IntentFilter(ServiceConstants.AUTO_SYNC_ACTION));
-        mListMessagePresenter.resume();
+        if (mSearchMessagePresenter.isSearching()) {
+            mSearchMessagePresenter.refresh();
+        } else {
+            mListMessagePresenter.resume();
+        }
     }
 
     @Override
@@ -167,13 +193,23 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
         if (mPublishMessagesPresenter != null) {
             mPublishMessagesPresenter.destroy();
         }
+        if (mSearchMessagePresenter != null) {
+            mSearchMessagePresenter.destroy();
+        }
+        if (mExportMessagePresenter != null) {
+            mExportMessagePresenter.destroy();
+        }
     }
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         final int id = item.getItemId();
         if (id == R.id.import_sms) {
-            mImportMessagePresenter.importMessages();
+            showImportOptions();
+            return true;
+        }
+        if (id == R.id.export_sms) {
+            showExportOptions();
             return true;
         }
         return super.onOptionsItemSelected(item);
@@ -182,9 +218,11 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
     private void initialize() {
         getMessageComponent(MessageComponent.class).inject(this);
         mListMessagePresenter.setView(this);
+        mSearchMessagePresenter.setView(this);
         initializePublishPresenter();
         initializeDeletePresenter();
         initializeImportPresenter();
+        initializeExportPresenter();
         initRecyclerView();
     }
 
@@ -277,15 +315,18 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
     private void initializeImportPresenter() {
         mImportMessagePresenter.setView(new ImportMessageView() {
             @Override
-            public void showMessages(List<MessageModel> messageModelList) {
-                // Append the imported messages to the adapter list
-                if (!Utility.isEmpty(messageModelList)) {
-                    messageModelList.addAll(mMessageAdapter.getItems());
-                    mMessageAdapter.setItems(messageModelList);
-                    mFab.setVisibility(View.VISIBLE);
+            public void showImportProgress(int read, int total) {
+                // The refresh indicator shows the import is running, the count is shown at the end
+            }
+
+            @Override
+            public void showImported(int read) {
+                if (read == 0) {
+                    showSnackbar(getView(), getString(R.string.nothing_to_import));
                     return;
                 }
-                mFab.setVisibility(View.GONE);
+                showSnackbar(getView(), getString(R.string.imported_messages, read));
+                reloadMessages();
             }
 
             @Override
@@ -320,6 +361,93 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
         });
     }
 
+    private void initializeExportPresenter() {
+        mExportMessagePresenter.setView(new ExportMessageView() {
+            @Override
+            public void showExportProgress(int written, int total) {
+                showSnackbar(getView(), getString(R.string.export_progress, written, total));
+            }
+
+            @Override
+            public void showExported(String path, int written) {
+                if (written == 0) {
+                    showSnackbar(getView(), getString(R.string.nothing_to_export));
+                    return;
+                }
+                Snackbar snackbar = Snackbar.make(mFab,
+                        getString(R.string.exported_messages, written), Snackbar.LENGTH_LONG);
+                snackbar.setAction(R.string.share, v -> shareExport(new File(path))).show();
+            }
+
+            @Override
+            public void showLoading() {
+                mMessageRecyclerView.setRefreshing(true);
+            }
+
+            @Override
+            public void hideLoading() {
+                mMessageRecyclerView.setRefreshing(false);
+            }
+
+            @Override
+            public void showRetry() {
+                // Do nothing
+            }
+
+            @Override
+            public void hideRetry() {
+                // Do nothing
+            }
+
+            @Override
+            public void showError(String s) {
+                showSnackbar(getView(), s);
+            }
+
+            @Override
+            public Context getAppContext() {
+                return getContext().getApplicationContext();
+            }
+        });
+    }
+
+    private void showImportOptions() {
+        new BottomSheet.Builder(getActivity())
+                .sheet(R.menu.menu_messages_import)
+                .listener((dialog, which) -> mImportMessagePresenter
+                        .importMessages(which == R.id.menu_messages_import_pending))
+                .show();
+    }
+
+    private void showExportOptions() {
+        new BottomSheet.Builder(getActivity())
+                .sheet(R.menu.menu_messages_export)
+                .listener((dialog, which) -> {
+                    switch (which) {
+                        case R.id.menu_messages_export_all_csv:
+                            mExportMessagePresenter.exportMessages(true, false);
+                            break;
+                        case R.id.menu_messages_export_new_json:
+                            mExportMessagePresenter.exportMessages(false, true);
+                            break;
+                        case R.id.menu_messages_export_new_csv:
+                            mExportMessagePresenter.exportMessages(true, true);
+                            break;
+                        default:
+                            mExportMessagePresenter.exportMessages(false, false);
+                    }
+                }).show();
+    }
+
+    private void shareExport(File file) {
+        Uri uri = FileProvider.getUriForFile(getActivity(), FILE_PROVIDER_AUTHORITY, file);
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("application/gzip");
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(intent, getString(R.string.share)));
+    }
+
     private void initRecyclerView() {
         mPendingMessages = new ArrayList<>();
         mMessageAdapter = new MessageAdapter(getActivity());
@@ -330,6 +458,18 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
         mMessageRecyclerView.addItemDecoration(new DividerItemDecoration(getActivity(), null));
         mMessageAdapter.setOnCheckedListener(position -> setItemChecked(position));
         mMessageRecyclerView.setItemAnimator(new DefaultItemAnimator());
+        mMessageRecyclerView.recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                // Fetch the next page of search results before the end of the list shows up
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView
+                        .getLayoutManager();
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= layoutManager.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    mSearchMessagePresenter.loadMore();
+                }
+            }
+        });
         mMessageAdapter.setOnMoreActionListener(position -> new BottomSheet.Builder(getActivity())
                 .sheet(R.menu.menu_messages_more_actions)
                 .listener((dialog, which) -> {
@@ -351,10 +491,11 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
         Handler handler = new Handler();
         final Runnable filterDeployments = new Runnable() {
             public void run() {
-                try {
-                    mMessageAdapter.getFilter().filter(query);
-                } catch (Exception e) {
+                if (TextUtils.isEmpty(query)) {
+                    mSearchMessagePresenter.clear();
                     reloadMessages();
+                } else {
+                    mSearchMessagePresenter.search(query);
                 }
             }
         };
@@ -363,7 +504,11 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
     }
 
     public void reloadMessages() {
-        mListMessagePresenter.loadMessages();
+        if (mSearchMessagePresenter.isSearching()) {
+            mSearchMessagePresenter.refresh();
+        } else {
+            mListMessagePresenter.loadMessages();
+        }
     }
 
     private void drawSwipeListItemBackground(Canvas c, int dX, View itemView, int actionState) {
@@ -453,7 +598,7 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
 
     @OnClick(android.R.id.empty)
     void importItems() {
-        mImportMessagePresenter.importMessages();
+        showImportOptions();
     }
 
     @Override
@@ -724,7 +869,7 @@ public class MessageFragment extends BaseRecyclerViewFragment<MessageModel, Mess
         @Override
         public void onReceive(Context context, Intent intent) {
             if (intent != null) {
-                mListMessagePresenter.loadMessages();
+                reloadMessages();
             }
         }
     };
@@ -18,12 +18,14 @@
 package org.addhen.smssync.presentation.view.ui.fragment;
 
 import org.addhen.smssync.R;
+import org.addhen.smssync.presentation.service.OutboxService;
 import org.addhen.smssync.presentation.view.ui.widget.TimePreference;
 import org.addhen.smssync.presentation.view.ui.widget.TimePreferenceFragmentDialog;
 
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.support.v4.app.DialogFragment;
+import android.support.v7.preference.ListPreference;
 import android.support.v7.preference.Preference;
 import android.support.v7.preference.SwitchPreferenceCompat;
 
@@ -41,12 +43,16 @@ public class TaskSettingsFragment extends BasePreferenceFragmentCompat implement
 
     public static final String MESSAGE_RESULTS_API = "message_results_api_preference";
 
+    public static final String SMS_SEND_RATE = "sms_send_rate_preference";
+
     private SwitchPreferenceCompat mTaskCheck;
 
     private TimePreference mTaskCheckTimes;
 
     private SwitchPreferenceCompat mEnableMessageResultsAPI;
 
+    private ListPreference mSmsSendRate;
+
     public TaskSettingsFragment() {
         // Do nothing
     }
@@ -97,6 +103,7 @@ public class TaskSettingsFragment extends BasePreferenceFragmentCompat implement
         mTaskCheckTimes = (TimePreference) getPreferenceScreen().findPreference(TASK_CHECK_TIMES);
         mEnableMessageResultsAPI = (SwitchPreferenceCompat) getPreferenceScreen().findPreference(
                 MESSAGE_RESULTS_API);
+        mSmsSendRate = (ListPreference) getPreferenceScreen().findPreference(SMS_SEND_RATE);
         savePreferences();
     }
 
@@ -118,6 +125,22 @@ public class TaskSettingsFragment extends BasePreferenceFragmentCompat implement
                     mEnableMessageResultsAPI.getTitle().toString(), status, check));
         }
         mPrefs.messageResultsAPIEnable().set(mEnableMessageResultsAPI.isChecked());
+
+        final String[] rateEntries = getResources().getStringArray(R.array.sms_send_rate_entries);
+        final int[] rateValues = getResources().getIntArray(R.array.sms_send_rate_values);
+        for (int i = 0; i < rateEntries.length; i++) {
+            if (mSmsSendRate.getValue() != null && mSmsSendRate.getValue()
+                    .equals(rateEntries[i])) {
+                if (mPrefs.smsSendRate().get() != rateValues[i]) {
+                    mAddLogPresenter.addLog(getString(R.string.settings_changed,
+                            mSmsSendRate.getTitle().toString(),
+                            String.valueOf(mPrefs.smsSendRate().get()),
+                            String.valueOf(rateValues[i])));
+                }
+                mPrefs.smsSendRate().set(rateValues[i]);
+                break;
+            }
+        }
     }
 
     @Override
@@ -143,6 +166,11 @@ public class TaskSettingsFragment extends BasePreferenceFragmentCompat implement
             mServiceControl.runCheckTaskService();
         }
 
+        // Send anything the old rate was holding back
+        if (key.equals(SMS_SEND_RATE)) {
+            OutboxService.sendWakefulWork(getActivity(), OutboxService.class);
+        }
+
         // Enable message result checking
         if (key.equals(MESSAGE_RESULTS_API)) {
 
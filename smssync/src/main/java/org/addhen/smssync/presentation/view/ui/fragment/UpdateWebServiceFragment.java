@@ -39,6 +39,7 @@ import android.text.TextUtils;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.EditText;
 import android.widget.ProgressBar;
@@ -83,6 +84,24 @@ public class UpdateWebServiceFragment extends BaseFragment implements UpdateWebS
     @Bind(R.id.sync_data_format)
     Spinner mSpinnerDataFormats;
 
+    @Bind(R.id.task_channel)
+    Spinner mSpinnerTaskChannels;
+
+    @Bind(R.id.connect_timeout)
+    EditText mConnectTimeout;
+
+    @Bind(R.id.read_timeout)
+    EditText mReadTimeout;
+
+    @Bind(R.id.write_timeout)
+    EditText mWriteTimeout;
+
+    @Bind(R.id.deadline)
+    EditText mDeadline;
+
+    @Bind(R.id.hedge_requests)
+    CheckBox mHedgeRequests;
+
     @Bind(R.id.sync_k_secret)
     EditText mKeySecret;
 
@@ -290,6 +309,14 @@ public class UpdateWebServiceFragment extends BaseFragment implements UpdateWebS
             mKeyDeviceID.setText(syncSchemeModel.getKey(SyncSchemeModel.SyncDataKey.DEVICE_ID));
             mSpinnerMethods.setSelection(syncSchemeModel.getMethod().ordinal());
             mSpinnerDataFormats.setSelection(syncSchemeModel.getDataFormat().ordinal());
+            if (webServiceModel.getTaskChannel() != null) {
+                mSpinnerTaskChannels.setSelection(webServiceModel.getTaskChannel().ordinal());
+            }
+            setSeconds(mConnectTimeout, webServiceModel.getConnectTimeout());
+            setSeconds(mReadTimeout, webServiceModel.getReadTimeout());
+            setSeconds(mWriteTimeout, webServiceModel.getWriteTimeout());
+            setSeconds(mDeadline, webServiceModel.getDeadline());
+            mHedgeRequests.setChecked(webServiceModel.isHedgeRequests());
         }
 
     }
@@ -339,9 +366,28 @@ public class UpdateWebServiceFragment extends BaseFragment implements UpdateWebS
         mWebServiceModel.setUrl(mEditTextUrl.getText().toString());
         mWebServiceModel.setSecret(mEditTextSecret.getText().toString());
         mWebServiceModel.setSyncScheme(syncSchemeModel);
+        mWebServiceModel.setTaskChannel(WebServiceModel.TaskChannel
+                .valueOf(mSpinnerTaskChannels.getSelectedItem().toString()));
+        mWebServiceModel.setConnectTimeout(getSeconds(mConnectTimeout));
+        mWebServiceModel.setReadTimeout(getSeconds(mReadTimeout));
+        mWebServiceModel.setWriteTimeout(getSeconds(mWriteTimeout));
+        mWebServiceModel.setDeadline(getSeconds(mDeadline));
+        mWebServiceModel.setHedgeRequests(mHedgeRequests.isChecked());
         mUpdateWebServicePresenter.updateWebService(mWebServiceModel);
     }
 
+    /**
+     * @return The seconds entered in the field or 0 when it's empty, which means the default
+     */
+    private int getSeconds(EditText editText) {
+        final String text = editText.getText().toString().trim();
+        return TextUtils.isEmpty(text) ? 0 : Integer.parseInt(text);
+    }
+
+    private void setSeconds(EditText editText, int seconds) {
+        editText.setText(seconds > 0 ? String.valueOf(seconds) : null);
+    }
+
     @OnClick(R.id.qr_code_scanner)
     public void onQrCodeScannerClick() {
         // Use this fragment to start the QR code scanner so the fragment's
@@ -38,6 +38,11 @@ public class SmsMessage implements Parcelable {
 
     public String uuid;
 
+    /**
+     * The message's _id in the messaging app's provider, zero when it isn't known
+     */
+    public long providerId;
+
     public SmsMessage() {
 
     }
@@ -47,6 +52,7 @@ public class SmsMessage implements Parcelable {
         phone = in.readString();
         timestamp = in.readLong();
         body = in.readString();
+        providerId = in.readLong();
     }
 
     @Override
@@ -60,6 +66,7 @@ public class SmsMessage implements Parcelable {
         dest.writeString(phone);
         dest.writeLong(timestamp);
         dest.writeString(body);
+        dest.writeLong(providerId);
     }
 
     @SuppressWarnings("unused")
@@ -23,11 +23,9 @@ import org.addhen.smssync.smslib.util.Util;
 
 import android.annotation.SuppressLint;
 import android.app.PendingIntent;
-import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 import android.net.Uri;
 import android.provider.Telephony;
 import android.telephony.SmsManager;
@@ -35,6 +33,7 @@ import android.telephony.SmsManager;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -47,31 +46,46 @@ import javax.inject.Singleton;
 @Singleton
 public class ProcessSms {
 
-    private static final String SMS_CONTENT_URI = "content://sms/conversations/";
-
     private static final String SMS_CONTENT_INBOX = "content://sms/inbox";
 
     private static String SENT = "SMS_SENT";
 
-    private static final String SENT_SMS_BUNDLE = "sent";
-
     private static String DELIVERED = "SMS_DELIVERED";
 
-    private static final String DELIVERED_SMS_BUNDLE = "delivered";
+    /**
+     * The correlation id of the part a sent or delivered broadcast is for
+     */
+    public static final String EXTRA_PART_ID = "part_id";
 
     private static final String CLASS_TAG = ProcessSms.class.getSimpleName();
 
+    /**
+     * Request codes for parts that aren't tracked, so their pending intents stay distinct
+     */
+    private static final AtomicInteger sRequestCode = new AtomicInteger(
+            (int) System.currentTimeMillis());
+
     private Context mContext;
 
-    @Inject
+    private SmsTracker mSmsTracker;
+
+    private SmsInboxDeleter mSmsInboxDeleter;
+
     public ProcessSms(Context context) {
+        this(context, null);
+    }
+
+    @Inject
+    public ProcessSms(Context context, SmsTracker smsTracker) {
         mContext = context;
+        mSmsTracker = smsTracker;
+        mSmsInboxDeleter = SmsInboxDeleter.getInstance(context);
     }
 
     /**
-     * Send message as SMS to a phone number. When sendDeliveryReport is set to true
-     * the message {@link SmsMessage} will be sent as part of the delivery report Intent. So you
-     * can know which message actually got delivered.
+     * Send message as SMS to a phone number. Each part's sent and delivered broadcast carries
+     * the part's correlation id from the {@link SmsTracker} in {@link #EXTRA_PART_ID}, so the
+     * receivers can tell which part of which message the result is for.
      *
      * @param message            The message of the SMS
      * @param sendDeliveryReport Whether to send delivery report or not
@@ -84,26 +98,27 @@ public class ProcessSms {
         ArrayList<PendingIntent> deliveryIntents = new ArrayList<>();
         SmsManager sms = SmsManager.getDefault();
         ArrayList<String> parts = sms.divideMessage(message.body);
+        long[] partIds = mSmsTracker != null
+                ? mSmsTracker.track(message, parts.size(), sendDeliveryReport) : null;
 
         for (int i = 0; i < parts.size(); i++) {
+            // Pending intents are only told apart by their request code, not their extras
+            final int requestCode = partIds != null ? (int) partIds[i]
+                    : sRequestCode.incrementAndGet();
 
             Intent sentMessageIntent = new Intent(SENT);
-            sentMessageIntent.putExtra(SENT_SMS_BUNDLE, message.body);
-
-            PendingIntent sentIntent = PendingIntent
-                    .getBroadcast(mContext, (int) System.currentTimeMillis(), sentMessageIntent,
-                            PendingIntent.FLAG_UPDATE_CURRENT);
-
             Intent delivered = new Intent(DELIVERED);
-            delivered.putExtra(DELIVERED_SMS_BUNDLE, message);
-
-            PendingIntent deliveryIntent = PendingIntent
-                    .getBroadcast(mContext, (int) System.currentTimeMillis(), delivered,
-                            PendingIntent.FLAG_UPDATE_CURRENT);
-
-            sentIntents.add(sentIntent);
+            if (partIds != null) {
+                sentMessageIntent.putExtra(EXTRA_PART_ID, partIds[i]);
+                delivered.putExtra(EXTRA_PART_ID, partIds[i]);
+            }
 
-            deliveryIntents.add(deliveryIntent);
+            sentIntents.add(PendingIntent.getBroadcast(mContext, requestCode, sentMessageIntent,
+                    PendingIntent.FLAG_UPDATE_CURRENT));
+            if (sendDeliveryReport) {
+                deliveryIntents.add(PendingIntent.getBroadcast(mContext, requestCode, delivered,
+                        PendingIntent.FLAG_UPDATE_CURRENT));
+            }
         }
         if (sendDeliveryReport) {
             sms.sendMultipartTextMessage(message.phone, null, parts, sentIntents, deliveryIntents);
@@ -114,172 +129,94 @@ public class ProcessSms {
     }
 
     /**
-     * Delete SMS from the message app inbox
+     * Queues an SMS to be deleted from the message app inbox. Deletes are applied in batches,
+     * matching the message's provider id.
      *
      * @param smsMessage The message to be deleted
-     * @return true if deleted otherwise false
+     * @return true once the message is queued
      */
     public boolean delSmsFromInbox(SmsMessage smsMessage) {
         LogUtil.logInfo(CLASS_TAG, "delSmsFromInbox(): Delete SMS message app inbox");
-        final long threadId = getThreadId(smsMessage);
-        Uri smsUri = Util.isKitKatOrHigher() ? ContentUris
-                .withAppendedId(SmsQuery.SMS_CONVERSATION_URI,
-                        threadId)
-                : ContentUris.withAppendedId(Uri.parse(SMS_CONTENT_URI), threadId);
-        if (threadId >= 0) {
-
-            int rowsDeleted = mContext.getContentResolver().delete(
-                    smsUri, null, null);
-            if (rowsDeleted > 0) {
-                return true;
-            }
-            return false;
-        }
-        return false;
+        mSmsInboxDeleter.delete(smsMessage);
+        return true;
     }
 
     /**
-     * Import messages from the messages app's table with a limitation of 10 messages.
+     * Reads a page of messages from the messages app's inbox, oldest first. Pages are keyed on the
+     * provider id so an import can carry on from where it stopped.
      *
-     * @return An empty list of {@link SmsMessage} when know message is imported or the total number
-     * of messages imported.
+     * @param afterId Only read messages with a provider id greater than this
+     * @param limit   The maximum number of messages to read
+     * @return The messages, each with its provider id and a uuid that stays the same when the
+     * message is read again
      */
-    public List<SmsMessage> importMessages() {
+    public List<SmsMessage> importMessages(long afterId, int limit) {
         LogUtil.logInfo(CLASS_TAG, "importMessages(): import messages from messages app");
-        if (Util.isKitKatOrHigher()) {
-            return importMessageKitKat();
-        }
-        Uri uriSms = Uri.parse(SMS_CONTENT_INBOX);
-        uriSms = uriSms.buildUpon().appendQueryParameter("LIMIT", "10").build();
-        String[] projection = {
-                "_id", "address", "date", "body"
-        };
-
-        Cursor c = mContext.getContentResolver().query(uriSms, projection, null,
-                null, "date DESC");
+        Cursor c = mContext.getContentResolver().query(getInboxUri(), SmsQuery.PROJECTION,
+                SmsQuery.ID + " > ?", new String[]{String.valueOf(afterId)},
+                SmsQuery.ID + " ASC LIMIT " + limit);
         List<SmsMessage> messages = new ArrayList<>();
-        if (c != null && c.getCount() > 0) {
-            try {
-                if (c.moveToFirst()) {
-                    do {
-                        SmsMessage message = new SmsMessage();
-
-                        final long messageDate = c.getLong(c.getColumnIndex("date"));
-                        message.timestamp = messageDate;
-                        message.phone = c.getString(c.getColumnIndex("address"));
-                        message.body = c.getString(c.getColumnIndex("body"));
-                        message.uuid = getUuid();
-                        messages.add(message);
-                    } while (c.moveToNext());
-                }
-            } finally {
-                if (c != null) {
-                    c.close();
-                }
-            }
+        if (c == null) {
+            return messages;
         }
-        return messages;
-    }
-
-    private List<SmsMessage> importMessageKitKat() {
-        LogUtil.logInfo(CLASS_TAG, "importMessages(): import messages from messages app");
-        Uri uriSms = SmsQuery.INBOX_CONTENT_URI;
-        uriSms = uriSms.buildUpon().appendQueryParameter("LIMIT", "10").build();
-        Cursor c = mContext.getContentResolver().query(uriSms, SmsQuery.PROJECTION, null,
-                null, Telephony.Sms.Inbox.DATE + " DESC");
-        List<SmsMessage> messages = new ArrayList<>();
-        if (c != null && c.getCount() > 0) {
-            try {
-                if (c.moveToFirst()) {
-                    do {
-                        SmsMessage message = new SmsMessage();
-
-                        final long messageDate = c.getLong(c
-                                .getColumnIndex(Telephony.Sms.Inbox.DATE));
-                        message.timestamp = messageDate;
-                        message.phone = c.getString(c.getColumnIndex(Telephony.Sms.Inbox.ADDRESS));
-                        message.body = c.getString(c.getColumnIndex(Telephony.Sms.Inbox.BODY));
-                        message.uuid = getUuid();
-                        messages.add(message);
-
-                    } while (c.moveToNext());
-                }
-            } finally {
-                if (c != null) {
-                    c.close();
-                }
+        try {
+            final int idIndex = c.getColumnIndex(SmsQuery.ID);
+            final int addressIndex = c.getColumnIndex(SmsQuery.ADDRESS);
+            final int bodyIndex = c.getColumnIndex(SmsQuery.BODY);
+            final int dateIndex = c.getColumnIndex(SmsQuery.DATE);
+            while (c.moveToNext()) {
+                SmsMessage message = new SmsMessage();
+                message.providerId = c.getLong(idIndex);
+                message.timestamp = c.getLong(dateIndex);
+                message.phone = c.getString(addressIndex);
+                message.body = c.getString(bodyIndex);
+                message.uuid = UUID.nameUUIDFromBytes(
+                        ("inbox:" + message.providerId + ":" + message.timestamp).getBytes())
+                        .toString();
+                messages.add(message);
             }
+        } finally {
+            c.close();
         }
         return messages;
     }
 
     /**
-     * Tries to locate the thread id given the address (phone number or email) of the message
-     * sender.
+     * Counts the messages in the messages app's inbox that haven't been imported yet
      *
-     * @return the thread id
+     * @param afterId Only count messages with a provider id greater than this
+     * @return The number of messages
      */
-    private long getThreadId(SmsMessage smsMessage) {
-        LogUtil.logInfo(CLASS_TAG, "getId(): thread id");
-
-        if (Util.isKitKatOrHigher()) {
-            return getThreadIdKitKat(smsMessage);
+    public int countMessagesToImport(long afterId) {
+        Cursor c = mContext.getContentResolver().query(getInboxUri(), new String[]{SmsQuery.ID},
+                SmsQuery.ID + " > ?", new String[]{String.valueOf(afterId)}, null);
+        if (c == null) {
+            return 0;
         }
-        Uri uriSms = Uri.parse(SMS_CONTENT_INBOX);
-        StringBuilder sb = new StringBuilder();
-        sb.append("address=" + DatabaseUtils.sqlEscapeString(smsMessage.phone) + " AND ");
-        sb.append("body=" + DatabaseUtils.sqlEscapeString(smsMessage.body));
-        Cursor c = mContext.getContentResolver().query(uriSms, null, sb.toString(), null,
-                "date DESC ");
-        if (c != null) {
-            if (c.getCount() > 0) {
-                c.moveToFirst();
-                long threadId = c.getLong(c.getColumnIndex("thread_id"));
-                c.close();
-                return threadId;
-            }
+        try {
+            return c.getCount();
+        } finally {
             c.close();
         }
-        return 0;
     }
 
-    private long getThreadIdKitKat(SmsMessage smsMessage) {
-        LogUtil.logInfo(CLASS_TAG, "getId(): thread id the kitkat way");
-        StringBuilder sb = new StringBuilder();
-        sb.append(
-                Telephony.Sms.Inbox.ADDRESS + "=" + DatabaseUtils.sqlEscapeString(smsMessage.phone)
-                        + " AND ");
-        sb.append(Telephony.Sms.Inbox.BODY + "=" + DatabaseUtils.sqlEscapeString(smsMessage.body));
-        Cursor c = mContext.getContentResolver()
-                .query(SmsQuery.INBOX_CONTENT_URI, SmsQuery.PROJECTION, sb.toString(), null,
-                        SmsQuery.SORT_ORDER);
-        if (c != null) {
-            if (c.getCount() > 0) {
-                c.moveToFirst();
-                long threadId = c.getLong(c.getColumnIndex(Telephony.Sms.Inbox.THREAD_ID));
-                c.close();
-                return threadId;
-            }
-            c.close();
-        }
-        return 0;
+    @SuppressLint("NewApi")
+    static Uri getInboxUri() {
+        return Util.isKitKatOrHigher() ? Telephony.Sms.Inbox.CONTENT_URI
+                : Uri.parse(SMS_CONTENT_INBOX);
     }
 
     /**
-     * A basic SmsQuery based on android.provider.Telephony.Sms.Inbox
+     * The inbox columns. The names are the same in android.provider.Telephony.Sms.Inbox and in
+     * the provider before it was public.
      */
-    @SuppressLint("NewApi")
-    private interface SmsQuery {
+    interface SmsQuery {
 
-        Uri INBOX_CONTENT_URI = Telephony.Sms.Inbox.CONTENT_URI;
-        Uri SMS_CONVERSATION_URI = Telephony.Sms.Conversations.CONTENT_URI;
-        String[] PROJECTION = {
-                Telephony.Sms.Inbox._ID,
-                Telephony.Sms.Inbox.ADDRESS,
-                Telephony.Sms.Inbox.BODY,
-                Telephony.Sms.Inbox.DATE,
-        };
-        String SORT_ORDER = Telephony.Sms.Inbox.DEFAULT_SORT_ORDER;
+        String ID = "_id";
+        String ADDRESS = "address";
+        String BODY = "body";
+        String DATE = "date";
+        String[] PROJECTION = {ID, ADDRESS, BODY, DATE};
     }
 
     public String getUuid() {
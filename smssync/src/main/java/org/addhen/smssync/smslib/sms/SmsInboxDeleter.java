@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.smslib.sms;
+
+import org.addhen.smssync.smslib.model.SmsMessage;
+import org.addhen.smssync.smslib.sms.ProcessSms.SmsQuery;
+import org.addhen.smssync.smslib.util.LogUtil;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentUris;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deletes messages from the messaging app's inbox in batches.
+ * <p/>
+ * Deletes are queued and applied together with a single
+ * {@link android.content.ContentResolver#applyBatch(String, ArrayList)}, each one matching the
+ * message's provider <code>_id</code>. Messages that don't have their provider id yet, such as
+ * ones that were just received, are looked up with one query per batch by sender and matched on
+ * their body in memory.
+ * <p/>
+ * The queue is saved to the deleter's own preferences whenever it changes, and read back when
+ * the deleter is first used, so deletes that were still waiting when the process died are
+ * applied on the next start. There's one deleter per process, so they're only applied once.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+class SmsInboxDeleter {
+
+    private static final String CLASS_TAG = SmsInboxDeleter.class.getSimpleName();
+
+    private static final String SMS_AUTHORITY = "sms";
+
+    /**
+     * Gives the messaging app time to store a message that was just received
+     */
+    private static final long DELETE_DELAY = 5000;
+
+    private static final int MAX_BATCH = 50;
+
+    /**
+     * How many batches a message can't be found in before it's given up on
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * How far before the message's own timestamp to look for it, the network's clock and the
+     * phone's clock don't always agree
+     */
+    private static final long DATE_SLACK = 24 * 60 * 60 * 1000L;
+
+    private static final String[] PROJECTION = {SmsQuery.ID, SmsQuery.ADDRESS, SmsQuery.BODY};
+
+    private static final String PREFS_NAME = "sms_inbox_deleter";
+
+    private static final String PREF_PENDING_DELETES = "pending_deletes";
+
+    private static SmsInboxDeleter sInstance;
+
+    private final Context mContext;
+
+    private final ConcurrentLinkedQueue<PendingDelete> mPendingDeletes
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The batch being applied, still saved in case the process dies before it's done
+     */
+    private volatile List<PendingDelete> mInFlight = Collections.emptyList();
+
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+
+    private ScheduledExecutorService mExecutor;
+
+    @VisibleForTesting
+    SmsInboxDeleter(Context context, ScheduledExecutorService executor) {
+        mContext = context;
+        mExecutor = executor;
+    }
+
+    /**
+     * @param context The context
+     * @return The process' deleter, with the deletes that were saved before queued again
+     */
+    static synchronized SmsInboxDeleter getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SmsInboxDeleter(context.getApplicationContext(), null);
+            sInstance.restore();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Queues a message to be deleted with the next batch
+     *
+     * @param smsMessage The message to delete
+     */
+    void delete(SmsMessage smsMessage) {
+        mPendingDeletes.add(new PendingDelete(smsMessage));
+        save();
+        scheduleFlush();
+    }
+
+    /**
+     * @return The number of messages waiting to be deleted
+     */
+    int getPendingCount() {
+        return mPendingDeletes.size();
+    }
+
+    /**
+     * Queues the deletes that were saved again
+     */
+    @VisibleForTesting
+    void restore() {
+        final String saved = getPrefs().getString(PREF_PENDING_DELETES, null);
+        if (saved == null) {
+            return;
+        }
+        try {
+            JSONArray array = new JSONArray(saved);
+            for (int i = 0; i < array.length(); i++) {
+                mPendingDeletes.add(PendingDelete.fromJson(array.getJSONObject(i)));
+            }
+        } catch (JSONException e) {
+            LogUtil.logError(CLASS_TAG, "Failed to read the saved inbox deletes", e);
+        }
+        if (!mPendingDeletes.isEmpty()) {
+            LogUtil.logInfo(CLASS_TAG, "Restored %d inbox deletes", mPendingDeletes.size());
+            scheduleFlush();
+        }
+    }
+
+    private synchronized void save() {
+        JSONArray array = new JSONArray();
+        try {
+            for (PendingDelete delete : mInFlight) {
+                array.put(delete.toJson());
+            }
+            for (PendingDelete delete : mPendingDeletes) {
+                array.put(delete.toJson());
+            }
+        } catch (JSONException e) {
+            LogUtil.logError(CLASS_TAG, "Failed to save the inbox deletes", e);
+            return;
+        }
+        getPrefs().edit().putString(PREF_PENDING_DELETES, array.toString()).apply();
+    }
+
+    private SharedPreferences getPrefs() {
+        return mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private void scheduleFlush() {
+        if (mPendingDeletes.size() >= MAX_BATCH) {
+            getExecutor().execute(this::flush);
+        } else if (mFlushScheduled.compareAndSet(false, true)) {
+            getExecutor().schedule(this::flush, DELETE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newSingleThreadScheduledExecutor();
+        }
+        return mExecutor;
+    }
+
+    @VisibleForTesting
+    void flush() {
+        mFlushScheduled.set(false);
+        List<PendingDelete> batch = new ArrayList<>();
+        PendingDelete pendingDelete;
+        while (batch.size() < MAX_BATCH && (pendingDelete = mPendingDeletes.poll()) != null) {
+            batch.add(pendingDelete);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!mPendingDeletes.isEmpty()) {
+            getExecutor().execute(this::flush);
+        }
+        mInFlight = batch;
+        final List<PendingDelete> retries = applyBatch(batch);
+        synchronized (this) {
+            mPendingDeletes.addAll(retries);
+            mInFlight = Collections.emptyList();
+        }
+        save();
+        if (!retries.isEmpty() && mFlushScheduled.compareAndSet(false, true)) {
+            getExecutor().schedule(this::flush, DELETE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Deletes the messages in the batch that have a provider id
+     *
+     * @return The messages that weren't found and should be tried again
+     */
+    private List<PendingDelete> applyBatch(List<PendingDelete> batch) {
+
+        try {
+            resolveProviderIds(batch);
+        } catch (Exception e) {
+            LogUtil.logError(CLASS_TAG, "Failed to look up messages to delete", e);
+        }
+
+        final Uri inboxUri = ProcessSms.getInboxUri();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(batch.size());
+        List<PendingDelete> retries = new ArrayList<>();
+        for (PendingDelete delete : batch) {
+            if (delete.mMessage.providerId > 0) {
+                operations.add(ContentProviderOperation
+                        .newDelete(ContentUris.withAppendedId(inboxUri, delete.mMessage.providerId))
+                        .build());
+            } else if (++delete.mAttempts < MAX_ATTEMPTS) {
+                // Probably not stored by the messaging app yet
+                retries.add(delete);
+            }
+        }
+        if (operations.isEmpty()) {
+            return retries;
+        }
+        try {
+            mContext.getContentResolver().applyBatch(SMS_AUTHORITY, operations);
+            LogUtil.logInfo(CLASS_TAG, "Deleted %d messages from the inbox", operations.size());
+        } catch (Exception e) {
+            LogUtil.logError(CLASS_TAG, "Failed to delete messages from the inbox", e);
+        }
+        return retries;
+    }
+
+    /**
+     * Looks up the provider ids of the messages that don't have one, with a single query over
+     * the senders in the batch
+     */
+    private void resolveProviderIds(List<PendingDelete> batch) {
+        Map<String, LinkedList<SmsMessage>> unresolved = new HashMap<>();
+        List<String> phones = new ArrayList<>();
+        long since = Long.MAX_VALUE;
+        for (PendingDelete delete : batch) {
+            final SmsMessage message = delete.mMessage;
+            if (message.providerId > 0 || message.phone == null) {
+                continue;
+            }
+            final String key = key(message.phone, message.body);
+            LinkedList<SmsMessage> messages = unresolved.get(key);
+            if (messages == null) {
+                messages = new LinkedList<>();
+                unresolved.put(key, messages);
+            }
+            messages.add(message);
+            if (!phones.contains(message.phone)) {
+                phones.add(message.phone);
+            }
+            since = Math.min(since, message.timestamp);
+        }
+        if (unresolved.isEmpty()) {
+            return;
+        }
+
+        StringBuilder selection = new StringBuilder(SmsQuery.ADDRESS + " IN (");
+        String[] selectionArgs = new String[phones.size() + 1];
+        for (int i = 0; i < phones.size(); i++) {
+            selection.append(i == 0 ? "?" : ",?");
+            selectionArgs[i] = phones.get(i);
+        }
+        selection.append(") AND ").append(SmsQuery.DATE).append(" >= ?");
+        selectionArgs[phones.size()] = String.valueOf(since - DATE_SLACK);
+
+        Cursor c = mContext.getContentResolver().query(ProcessSms.getInboxUri(), PROJECTION,
+                selection.toString(), selectionArgs, SmsQuery.DATE + " DESC");
+        if (c == null) {
+            return;
+        }
+        try {
+            final int idIndex = c.getColumnIndex(SmsQuery.ID);
+            final int addressIndex = c.getColumnIndex(SmsQuery.ADDRESS);
+            final int bodyIndex = c.getColumnIndex(SmsQuery.BODY);
+            while (c.moveToNext() && !unresolved.isEmpty()) {
+                final String key = key(c.getString(addressIndex), c.getString(bodyIndex));
+                LinkedList<SmsMessage> messages = unresolved.get(key);
+                if (messages != null) {
+                    // Identical messages from the same sender each take their own row
+                    messages.removeFirst().providerId = c.getLong(idIndex);
+                    if (messages.isEmpty()) {
+                        unresolved.remove(key);
+                    }
+                }
+            }
+        } finally {
+            c.close();
+        }
+    }
+
+    private static String key(String phone, String body) {
+        return phone + '\n' + body;
+    }
+
+    private static class PendingDelete {
+
+        final SmsMessage mMessage;
+
+        int mAttempts;
+
+        PendingDelete(SmsMessage message) {
+            mMessage = message;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("uuid", mMessage.uuid);
+            json.put("phone", mMessage.phone);
+            json.put("body", mMessage.body);
+            json.put("timestamp", mMessage.timestamp);
+            json.put("provider_id", mMessage.providerId);
+            json.put("attempts", mAttempts);
+            return json;
+        }
+
+        static PendingDelete fromJson(JSONObject json) {
+            SmsMessage message = new SmsMessage();
+            message.uuid = json.optString("uuid", null);
+            message.phone = json.optString("phone", null);
+            message.body = json.optString("body", null);
+            message.timestamp = json.optLong("timestamp");
+            message.providerId = json.optLong("provider_id");
+            PendingDelete delete = new PendingDelete(message);
+            delete.mAttempts = json.optInt("attempts");
+            return delete;
+        }
+    }
+}
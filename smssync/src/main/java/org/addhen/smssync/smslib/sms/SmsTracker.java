@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.smslib.sms;
+
+import org.addhen.smssync.smslib.model.SmsMessage;
+
+/**
+ * Keeps track of the parts of outbound SMS so the sent and delivered broadcasts only need to
+ * carry a correlation id.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public interface SmsTracker {
+
+    /**
+     * Records a message that is about to be sent
+     *
+     * @param message        The message
+     * @param partCount      The number of parts the message was divided into
+     * @param deliveryReport Whether a delivery report was asked for
+     * @return A unique correlation id for each part
+     */
+    long[] track(SmsMessage message, int partCount, boolean deliveryReport);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.database;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.MessageEntityConverter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import nl.qbusict.cupboard.Cupboard;
+import nl.qbusict.cupboard.CupboardBuilder;
+import nl.qbusict.cupboard.convert.EntityConverter;
+import nl.qbusict.cupboard.convert.EntityConverterFactory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Checks the generated converter reads what cupboard's reflective one wrote. How fast they are
+ * is compared on a device by the EntityConverterBenchmark instrumentation test.
+ *
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class EntityConverterTest extends BaseRobolectricTestCase {
+
+    private static final int MESSAGES = 2000;
+
+    private SQLiteDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mDatabase = SQLiteDatabase.create(null);
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void shouldReadWhatReflectiveConverterWrote() {
+        final Cupboard reflective = createCupboard(false);
+        final Cupboard generated = createCupboard(true);
+        reflective.withDatabase(mDatabase).createTables();
+        reflective.withDatabase(mDatabase).put(createMessages());
+
+        List<Message> expected = reflective.withDatabase(mDatabase).query(Message.class).list();
+        List<Message> actual = generated.withDatabase(mDatabase).query(Message.class).list();
+        assertThat(actual).hasSize(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            assertSameMessage(actual.get(i), expected.get(i));
+        }
+    }
+
+    private static Cupboard createCupboard(boolean generated) {
+        CupboardBuilder builder = new CupboardBuilder().useAnnotations();
+        if (generated) {
+            builder.registerEntityConverterFactory(new EntityConverterFactory() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> EntityConverter<T> create(Cupboard cupboard, Class<T> type) {
+                    return type == Message.class
+                            ? (EntityConverter<T>) new MessageEntityConverter() : null;
+                }
+            });
+        }
+        Cupboard cupboard = builder.build();
+        cupboard.register(Message.class);
+        return cupboard;
+    }
+
+    private static List<Message> createMessages() {
+        List<Message> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            Message message = new Message();
+            message.messageBody = "Message body " + i;
+            message.messageFrom = "+2547000000" + (i % 100);
+            message.messageDate = new Date(1445000000000L + i);
+            message.messageUuid = "uuid-" + i;
+            message.messageType = i % 2 == 0 ? Message.Type.PENDING : Message.Type.TASK;
+            message.status = Message.Status.UNCONFIRMED;
+            message.retries = i % 3;
+            message.providerId = 1000 + i;
+            message.sentResultCode = -1;
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static void assertSameMessage(Message actual, Message expected) {
+        assertThat(actual._id).isEqualTo(expected._id);
+        assertThat(actual.messageBody).isEqualTo(expected.messageBody);
+        assertThat(actual.messageFrom).isEqualTo(expected.messageFrom);
+        assertThat(actual.messageDate).isEqualTo(expected.messageDate);
+        assertThat(actual.messageUuid).isEqualTo(expected.messageUuid);
+        assertThat(actual.messageType).isEqualTo(expected.messageType);
+        assertThat(actual.status).isEqualTo(expected.status);
+        assertThat(actual.retries).isEqualTo(expected.retries);
+        assertThat(actual.providerId).isEqualTo(expected.providerId);
+        assertThat(actual.sentResultCode).isEqualTo(expected.sentResultCode);
+        assertThat(actual.deliveredDate).isNull();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.database;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.data.entity.Message;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MessageDatabaseHelperTest extends BaseRobolectricTestCase {
+
+    private MessageDatabaseHelper mMessageDatabaseHelper;
+
+    @Before
+    public void setUp() {
+        mMessageDatabaseHelper = new MessageDatabaseHelper(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void shouldFindMessagesByWordPrefixInBodyOrSender() {
+        final Message water = save("1", "+254700000001", "Water point broken", 1000);
+        final Message road = save("2", "+254711111111", "Road closed", 2000);
+
+        assertThat(uuids(search("wat"))).containsExactly(water.messageUuid);
+        assertThat(uuids(search("254711"))).containsExactly(road.messageUuid);
+        assertThat(search("bridge")).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepTheIndexInSyncWithUpdatesAndDeletes() {
+        final Message message = save("1", "+254700000001", "Water point broken", 1000);
+
+        message.messageBody = "Road closed";
+        cupboard().withDatabase(mMessageDatabaseHelper.getWritableDatabase()).put(message);
+        assertThat(search("water")).isEmpty();
+        assertThat(uuids(search("road"))).containsExactly("1");
+
+        mMessageDatabaseHelper.deleteWithUuid("1");
+        assertThat(search("road")).isEmpty();
+    }
+
+    @Test
+    public void shouldRankDenserMatchesFirst() {
+        save("1", "+254700000001", "The water point near the school has been broken since the"
+                + " rains started last week", 3000);
+        save("2", "+254700000002", "Water water everywhere", 1000);
+        save("3", "+254700000003", "No water", 2000);
+
+        assertThat(uuids(search("water"))).containsExactly("2", "3", "1").inOrder();
+    }
+
+    @Test
+    public void shouldLeaveOutSentMessagesAndPage() {
+        for (int i = 0; i < 5; i++) {
+            save(String.valueOf(i), "+254700000001", "Water " + i, 1000 + i);
+        }
+        final Message sent = save("sent", "+254700000001", "Water sent", 2000);
+        sent.status = Message.Status.SENT;
+        cupboard().withDatabase(mMessageDatabaseHelper.getWritableDatabase()).put(sent);
+
+        final List<Message> first = mMessageDatabaseHelper.searchPending("water", 3, 0)
+                .toBlocking().single();
+        final List<Message> second = mMessageDatabaseHelper.searchPending("water", 3, 3)
+                .toBlocking().single();
+        assertThat(uuids(first)).containsExactly("4", "3", "2").inOrder();
+        assertThat(uuids(second)).containsExactly("1", "0").inOrder();
+    }
+
+    @Test
+    public void shouldTurnInputIntoPrefixTerms() {
+        assertThat(MessageDatabaseHelper.toMatchQuery("water point")).isEqualTo("water* point*");
+        assertThat(MessageDatabaseHelper.toMatchQuery("  Water-point, ")).isEqualTo(
+                "Water* point*");
+        assertThat(MessageDatabaseHelper.toMatchQuery("maji ya kunywa"))
+                .isEqualTo("maji* ya* kunywa*");
+    }
+
+    @Test
+    public void shouldNotLetInputBeReadAsQuerySyntax() {
+        assertThat(MessageDatabaseHelper.toMatchQuery("\"water\" OR -road*"))
+                .isEqualTo("water* or* road*");
+        assertThat(MessageDatabaseHelper.toMatchQuery("NEAR NOT AND")).isEqualTo(
+                "near* not* and*");
+        assertThat(MessageDatabaseHelper.toMatchQuery("body:water")).isEqualTo("body* water*");
+        assertThat(MessageDatabaseHelper.toMatchQuery("*\"()-:")).isEmpty();
+        assertThat(MessageDatabaseHelper.toMatchQuery(null)).isEmpty();
+        assertThat(search("\"(")).isEmpty();
+    }
+
+    @Test
+    public void shouldFetchMoreUuidsThanOneQueryCanBind() {
+        final List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            save("uuid-" + i, "+254700000001", "Message " + i, 1000 + i);
+            uuids.add("uuid-" + i);
+        }
+        uuids.add("missing");
+
+        final List<Message> messages = mMessageDatabaseHelper.fetchMessagesByUuids(uuids);
+
+        assertThat(messages).hasSize(1200);
+        assertThat(uuids(messages)).containsExactly(uuids.subList(0, 1200).toArray());
+    }
+
+    private List<Message> search(String query) {
+        return mMessageDatabaseHelper.searchPending(query, 20, 0).toBlocking().single();
+    }
+
+    private Message save(String uuid, String from, String body, long date) {
+        Message message = new Message();
+        message.messageUuid = uuid;
+        message.messageFrom = from;
+        message.messageBody = body;
+        message.messageDate = new Date(date);
+        message.messageType = Message.Type.PENDING;
+        message.status = Message.Status.UNCONFIRMED;
+        message._id = cupboard().withDatabase(mMessageDatabaseHelper.getWritableDatabase())
+                .put(message);
+        return message;
+    }
+
+    private static List<String> uuids(List<Message> messages) {
+        List<String> uuids = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            uuids.add(message.messageUuid);
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.database.MessageDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.util.JsonUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+
+import android.content.Context;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MessageArchiverTest extends BaseRobolectricTestCase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Mock
+    private FileManager mMockFileManager;
+
+    private Context mContext;
+
+    private PrefsFactory mPrefsFactory;
+
+    private MessageDatabaseHelper mMessageDatabaseHelper;
+
+    private MessageArchiver mMessageArchiver;
+
+    /**
+     * Whole seconds, as archived dates don't keep milliseconds
+     */
+    private long mNow;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mPrefsFactory = new PrefsFactory(mContext,
+                mContext.getSharedPreferences("test", Context.MODE_PRIVATE));
+        mMessageDatabaseHelper = new MessageDatabaseHelper(mContext);
+        mMessageArchiver = new MessageArchiver(mContext, mPrefsFactory, mMockFileManager,
+                mMessageDatabaseHelper);
+        mNow = System.currentTimeMillis() / 1000 * 1000;
+    }
+
+    @Test
+    public void shouldNotArchiveWhenRetentionIsOff() {
+        save("1", Message.Status.SENT, mNow - 400 * DAY);
+
+        assertThat(mMessageArchiver.archive()).isEqualTo(0);
+        assertThat(uuids(all())).containsExactly("1");
+    }
+
+    @Test
+    public void shouldOnlyArchiveSentMessagesPastTheAgeLimit() {
+        mPrefsFactory.retentionDays().set(7);
+        save("old-1", Message.Status.SENT, mNow - 10 * DAY);
+        save("old-2", Message.Status.SENT, mNow - 8 * DAY);
+        save("recent", Message.Status.SENT, mNow - DAY);
+        save("pending", Message.Status.UNCONFIRMED, mNow - 10 * DAY);
+
+        assertThat(mMessageArchiver.archive()).isEqualTo(2);
+        assertThat(uuids(all())).containsExactly("recent", "pending");
+        assertThat(uuids(readArchive())).containsExactly("old-1", "old-2").inOrder();
+    }
+
+    @Test
+    public void shouldArchiveTheOldestMessagesOverTheRowLimit() {
+        mPrefsFactory.retentionMaxMessages().set(2);
+        save("3", Message.Status.SENT, mNow - 3 * DAY);
+        save("1", Message.Status.SENT, mNow - 5 * DAY);
+        save("5", Message.Status.SENT, mNow - DAY);
+        save("2", Message.Status.SENT, mNow - 4 * DAY);
+        save("4", Message.Status.SENT, mNow - 2 * DAY);
+
+        assertThat(mMessageArchiver.archive()).isEqualTo(3);
+        assertThat(uuids(all())).containsExactly("4", "5");
+        assertThat(uuids(readArchive())).containsExactly("1", "2", "3").inOrder();
+    }
+
+    @Test
+    public void shouldLeaveMessagesInTheDatabaseWhenTheWriteFails() throws Exception {
+        mPrefsFactory.retentionMaxMessages().set(1);
+        save("1", Message.Status.SENT, mNow - 2 * DAY);
+        save("2", Message.Status.SENT, mNow - DAY);
+        // A file where the archive directory goes, so the archive can't be created
+        assertThat(new File(mContext.getFilesDir(), MessageArchiver.ARCHIVE_DIRECTORY)
+                .createNewFile()).isTrue();
+
+        assertThat(mMessageArchiver.archive()).isEqualTo(0);
+        assertThat(uuids(all())).containsExactly("1", "2");
+    }
+
+    @Test
+    public void shouldReadTheArchiveBackAsTheArchivedMessages() {
+        mPrefsFactory.retentionMaxMessages().set(20);
+        // More than one batch, so the file has more than one gzip member
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            save("uuid-" + i, Message.Status.SENT, mNow - (250 - i) * 1000L);
+            if (i < 230) {
+                expected.add("uuid-" + i);
+            }
+        }
+
+        assertThat(mMessageArchiver.archive()).isEqualTo(230);
+        final List<Message> archived = readArchive();
+        assertThat(uuids(archived)).isEqualTo(expected);
+        final Message first = archived.get(0);
+        assertThat(first.messageBody).isEqualTo("Body uuid-0");
+        assertThat(first.messageFrom).isEqualTo("+254700000000");
+        assertThat(first.messageDate).isEqualTo(new Date(mNow - 250 * 1000L));
+        assertThat(first.status).isEqualTo(Message.Status.SENT);
+        assertThat(first.providerId).isEqualTo(42L);
+        assertThat(all()).hasSize(20);
+    }
+
+    private List<Message> readArchive() {
+        File[] files = new File(mContext.getFilesDir(), MessageArchiver.ARCHIVE_DIRECTORY)
+                .listFiles();
+        assertThat(files).isNotNull();
+        assertThat(files.length).isEqualTo(1);
+        List<Message> messages = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(files[0])), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                messages.add(JsonUtils.getObj(line, Message.class));
+            }
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        return messages;
+    }
+
+    private List<Message> all() {
+        return cupboard().withDatabase(mMessageDatabaseHelper.getReadableDatabase())
+                .query(Message.class).orderBy("_id ASC").list();
+    }
+
+    private void save(String uuid, Message.Status status, long date) {
+        Message message = new Message();
+        message.messageUuid = uuid;
+        message.messageBody = "Body " + uuid;
+        message.messageFrom = "+254700000000";
+        message.messageDate = new Date(date);
+        message.messageType = Message.Type.PENDING;
+        message.status = status;
+        message.providerId = 42L;
+        cupboard().withDatabase(mMessageDatabaseHelper.getWritableDatabase()).put(message);
+    }
+
+    private static List<String> uuids(List<Message> messages) {
+        List<String> uuids = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            uuids.add(message.messageUuid);
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.database.MessageDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.RuntimeEnvironment;
+
+import android.content.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assert_;
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MessageExporterTest extends BaseRobolectricTestCase {
+
+    private static final MessageExporter.ProgressListener CARRY_ON = (written, total) -> true;
+
+    private Context mContext;
+
+    private PrefsFactory mPrefsFactory;
+
+    private MessageDatabaseHelper mMessageDatabaseHelper;
+
+    private MessageExporter mMessageExporter;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mPrefsFactory = new PrefsFactory(mContext,
+                mContext.getSharedPreferences("test", Context.MODE_PRIVATE));
+        mMessageDatabaseHelper = new MessageDatabaseHelper(mContext);
+        mMessageExporter = new MessageExporter(mContext, mPrefsFactory, mMessageDatabaseHelper);
+    }
+
+    @Test
+    public void shouldOnlyExportMessagesSavedSinceTheLastExport() throws Exception {
+        save("1", "first");
+        save("2", "second");
+        final Message third = save("3", "third");
+
+        assertThat(export("first.jsonl.gz", MessageExporter.Format.JSON_LINES, true))
+                .isEqualTo(3);
+        assertThat(mPrefsFactory.exportCheckpoint().get()).isEqualTo(third._id);
+
+        save("4", "fourth");
+        final Message fifth = save("5", "fifth");
+        final File file = file("new.jsonl.gz");
+        assertThat(mMessageExporter.export(file, MessageExporter.Format.JSON_LINES, true,
+                CARRY_ON)).isEqualTo(2);
+        assertThat(readUuids(file)).containsExactly("4", "5").inOrder();
+        assertThat(mPrefsFactory.exportCheckpoint().get()).isEqualTo(fifth._id);
+
+        // Nothing new since
+        assertThat(export("none.jsonl.gz", MessageExporter.Format.JSON_LINES, true))
+                .isEqualTo(0);
+        assertThat(mPrefsFactory.exportCheckpoint().get()).isEqualTo(fifth._id);
+
+        // A full export ignores the checkpoint
+        assertThat(export("all.jsonl.gz", MessageExporter.Format.JSON_LINES, false))
+                .isEqualTo(5);
+    }
+
+    @Test
+    public void shouldQuoteCsvValuesWithSeparatorsQuotesAndLineBreaks() throws Exception {
+        final Message message = save("1", "He said \"hi\", then\r\nleft");
+        final File file = file("messages.csv.gz");
+
+        assertThat(mMessageExporter.export(file, MessageExporter.Format.CSV, false, CARRY_ON))
+                .isEqualTo(1);
+
+        final String csv = read(file);
+        assertThat(csv).startsWith("id,uuid,from,body,date,type,status,");
+        assertThat(csv).contains("\r\n" + message._id + ",1,+254700000000,"
+                + "\"He said \"\"hi\"\", then\r\nleft\"," + message.messageDate.getTime()
+                + ",PENDING,UNCONFIRMED,");
+    }
+
+    @Test
+    public void shouldRemoveThePartialFileWhenCancelled() throws Exception {
+        save("1", "first");
+        final File file = file("cancelled.csv.gz");
+
+        assertThat(mMessageExporter.export(file, MessageExporter.Format.CSV, true,
+                (written, total) -> written == 0)).isEqualTo(-1);
+
+        assertThat(file.exists()).isFalse();
+        assertThat(new File(file.getPath() + ".part").exists()).isFalse();
+        assertThat(mPrefsFactory.exportCheckpoint().get()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldNotMoveTheCheckpointWhenTheExportFails() throws Exception {
+        save("1", "first");
+        // A directory where the export goes, so the finished file can't take its name
+        final File file = file("taken.csv.gz");
+        assertThat(new File(file, "child").mkdirs()).isTrue();
+
+        try {
+            mMessageExporter.export(file, MessageExporter.Format.CSV, true, CARRY_ON);
+            assert_().fail("Should have thrown IOException");
+        } catch (IOException e) {
+            assertThat(mPrefsFactory.exportCheckpoint().get()).isEqualTo(0L);
+            assertThat(new File(file.getPath() + ".part").exists()).isFalse();
+        }
+    }
+
+    private int export(String name, MessageExporter.Format format, boolean onlyNewOnes)
+            throws Exception {
+        return mMessageExporter.export(file(name), format, onlyNewOnes, CARRY_ON);
+    }
+
+    private File file(String name) {
+        return new File(mContext.getFilesDir(), name);
+    }
+
+    private Message save(String uuid, String body) {
+        Message message = new Message();
+        message.messageUuid = uuid;
+        message.messageBody = body;
+        message.messageFrom = "+254700000000";
+        message.messageDate = new Date(1445000000000L + Long.parseLong(uuid));
+        message.messageType = Message.Type.PENDING;
+        message.status = Message.Status.UNCONFIRMED;
+        message._id = cupboard().withDatabase(mMessageDatabaseHelper.getWritableDatabase())
+                .put(message);
+        return message;
+    }
+
+    private static String read(File file) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new GZIPInputStream(new FileInputStream(file));
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static List<String> readUuids(File file) throws Exception {
+        List<String> uuids = new ArrayList<>();
+        for (String line : read(file).split("\n")) {
+            if (!line.isEmpty()) {
+                uuids.add(new JSONObject(line).getString("uuid"));
+            }
+        }
+        return uuids;
+    }
+}
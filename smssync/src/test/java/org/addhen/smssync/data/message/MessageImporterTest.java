@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import com.addhen.android.raiburari.data.pref.LongPreference;
+
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
+import org.addhen.smssync.smslib.model.SmsMessage;
+import org.addhen.smssync.smslib.sms.ProcessSms;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MessageImporterTest {
+
+    @Mock
+    private PostMessage mMockPostMessage;
+
+    @Mock
+    private ProcessSms mMockProcessSms;
+
+    @Mock
+    private MessageDataSourceFactory mMockMessageDataSourceFactory;
+
+    @Mock
+    private MessageDataSource mMockMessageDataSource;
+
+    @Mock
+    private PrefsFactory mMockPrefsFactory;
+
+    @Mock
+    private LongPreference mMockCheckpoint;
+
+    private MessageImporter mMessageImporter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mMockMessageDataSourceFactory.createMessageDatabaseSource())
+                .thenReturn(mMockMessageDataSource);
+        when(mMockPrefsFactory.importCheckpoint()).thenReturn(mMockCheckpoint);
+        when(mMockCheckpoint.get()).thenReturn(0L);
+        when(mMockPostMessage.getProcessSms()).thenReturn(mMockProcessSms);
+        when(mMockPostMessage.map(any(SmsMessage.class))).thenAnswer(invocation -> {
+            SmsMessage smsMessage = (SmsMessage) invocation.getArguments()[0];
+            Message message = new Message();
+            message._id = smsMessage.id;
+            message.messageUuid = smsMessage.uuid;
+            message.messageDate = new Date(smsMessage.timestamp);
+            message.messageType = Message.Type.PENDING;
+            message.status = Message.Status.FAILED;
+            return message;
+        });
+        when(mMockProcessSms.countMessagesToImport(0L)).thenReturn(2);
+        when(mMockProcessSms.importMessages(eq(0L), anyInt()))
+                .thenReturn(Arrays.asList(createSmsMessage(7), createSmsMessage(9)));
+        when(mMockMessageDataSource.importMessages(anyListOf(Message.class))).thenReturn(2);
+        mMessageImporter = new MessageImporter(mMockPostMessage, mMockMessageDataSourceFactory,
+                mMockPrefsFactory);
+    }
+
+    @Test
+    public void shouldImportMessagesAsSent() {
+        final int[] progressCalls = new int[1];
+        final int imported = mMessageImporter.importMessages(false, (read, total) -> {
+            progressCalls[0]++;
+            assertThat(read).isEqualTo(2);
+            assertThat(total).isEqualTo(2);
+            return true;
+        });
+
+        assertThat(imported).isEqualTo(2);
+        assertThat(progressCalls[0]).isEqualTo(1);
+        for (Message message : captureImported()) {
+            assertThat(message.status).isEqualTo(Message.Status.SENT);
+            assertThat(message._id).isNull();
+        }
+        verify(mMockCheckpoint).set(9L);
+    }
+
+    @Test
+    public void shouldImportMessagesAsPendingWhenAsked() {
+        mMessageImporter.importMessages(true, (read, total) -> true);
+
+        for (Message message : captureImported()) {
+            assertThat(message.status).isEqualTo(Message.Status.FAILED);
+            assertThat(message.messageType).isEqualTo(Message.Type.PENDING);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Message> captureImported() {
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(mMockMessageDataSource).importMessages(captor.capture());
+        List<Message> messages = captor.getValue();
+        assertThat(messages).hasSize(2);
+        return messages;
+    }
+
+    private static SmsMessage createSmsMessage(long providerId) {
+        SmsMessage message = new SmsMessage();
+        message.id = providerId;
+        message.providerId = providerId;
+        message.uuid = "uuid-" + providerId;
+        message.phone = "+254700000000";
+        message.body = "Message " + providerId;
+        message.timestamp = 1445000000000L + providerId;
+        return message;
+    }
+}
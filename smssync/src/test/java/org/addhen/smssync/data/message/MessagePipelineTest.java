@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.database.SyncUrlDeliveryDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSourceFactory;
+import org.addhen.smssync.presentation.service.WakeLockManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import android.content.Context;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MessagePipelineTest {
+
+    private static final long WAIT = 5000;
+
+    @Mock
+    private Context mMockContext;
+
+    @Mock
+    private FileManager mMockFileManager;
+
+    @Mock
+    private PrefsFactory mMockPrefsFactory;
+
+    @Mock
+    private PostMessage mMockPostMessage;
+
+    @Mock
+    private MessageDataSourceFactory mMockMessageDataSourceFactory;
+
+    @Mock
+    private MessageDataSource mMockMessageDataSource;
+
+    @Mock
+    private SyncUrlDeliveryDatabaseHelper mMockDeliveries;
+
+    @Mock
+    private WakeLockManager mMockWakeLockManager;
+
+    private Message mMessage;
+
+    private MessagePipeline mMessagePipeline;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        final SyncUrl syncUrl = new SyncUrl();
+        syncUrl._id = 1L;
+        final List<SyncUrl> syncUrls = Collections.singletonList(syncUrl);
+        mMessage = new Message();
+        mMessage.messageUuid = "uuid";
+        mMessage.messageBody = "Water point broken";
+        mMessage.messageFrom = "+254700000000";
+        mMessage.messageType = Message.Type.PENDING;
+        mMessage.status = Message.Status.UNCONFIRMED;
+        final List<Message> batch = Collections.singletonList(mMessage);
+
+        when(mMockMessageDataSourceFactory.createMessageDatabaseSource())
+                .thenReturn(mMockMessageDataSource);
+        when(mMockMessageDataSource.fetchMessagesByStatus(Message.Status.UNCONFIRMED, 50))
+                .thenReturn(batch, Collections.<Message>emptyList());
+        when(mMockPostMessage.queueSms(mMessage)).thenReturn(true);
+        when(mMockPostMessage.getEnabledSyncUrls()).thenReturn(syncUrls);
+        when(mMockPostMessage.planRoutes(anyListOf(Message.class), anyListOf(SyncUrl.class)))
+                .thenReturn(new RoutingPlan.Builder<SyncUrl>().addEndpoint(syncUrl, null)
+                        .build(batch));
+        mMessagePipeline = new MessagePipeline(mMockContext, mMockFileManager,
+                mMockPrefsFactory, mMockPostMessage, mMockMessageDataSourceFactory,
+                mMockDeliveries, mMockWakeLockManager);
+    }
+
+    @Test
+    public void shouldKeepDeviceAwakeUntilReceivedMessageIsTakenInAndDrained() {
+        assertThat(mMessagePipeline.routeSms(mMessage)).isTrue();
+        verify(mMockWakeLockManager).acquire(MessagePipeline.WAKE_INTAKE, false);
+
+        verify(mMockWakeLockManager, timeout(WAIT)).release(MessagePipeline.WAKE_INTAKE);
+        verify(mMockWakeLockManager, timeout(WAIT)).release(MessagePipeline.WAKE_DRAIN);
+        // The drain's hold is taken before the intake lets go, so there's no gap between them
+        InOrder intake = inOrder(mMockWakeLockManager);
+        intake.verify(mMockWakeLockManager).acquire(MessagePipeline.WAKE_INTAKE, false);
+        intake.verify(mMockWakeLockManager).acquire(MessagePipeline.WAKE_DRAIN, true);
+        intake.verify(mMockWakeLockManager).release(MessagePipeline.WAKE_INTAKE);
+        InOrder drain = inOrder(mMockWakeLockManager);
+        drain.verify(mMockWakeLockManager).acquire(MessagePipeline.WAKE_DRAIN, true);
+        drain.verify(mMockWakeLockManager).release(MessagePipeline.WAKE_DRAIN);
+    }
+
+    @Test
+    public void shouldKeepDeviceAwakeWhileSyncingPendingMessages() {
+        List<MessagePipeline.Delivery> deliveries = mMessagePipeline
+                .syncPending(Collections.singletonList(mMessage))
+                .toList().toBlocking().single();
+
+        assertThat(deliveries).hasSize(1);
+        InOrder drain = inOrder(mMockWakeLockManager);
+        drain.verify(mMockWakeLockManager).acquire(MessagePipeline.WAKE_DRAIN, true);
+        drain.verify(mMockWakeLockManager).release(MessagePipeline.WAKE_DRAIN);
+    }
+}
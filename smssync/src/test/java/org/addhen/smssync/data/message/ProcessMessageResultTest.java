@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.data.PrefsFactory;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.addhen.smssync.data.net.AppHttpClient;
+import org.addhen.smssync.data.net.SyncUrlTimeouts;
+import org.addhen.smssync.data.repository.datasource.message.MessageDataSource;
+import org.addhen.smssync.data.repository.datasource.webservice.WebServiceDataSource;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class ProcessMessageResultTest extends BaseRobolectricTestCase {
+
+    @Mock
+    private FileManager mMockFileManager;
+
+    @Mock
+    private WebServiceDataSource mMockWebServiceDataSource;
+
+    @Mock
+    private MessageDataSource mMockMessageDataSource;
+
+    private MockWebServer mMockWebServer;
+
+    private PrefsFactory mPrefsFactory;
+
+    private SyncUrl mSyncUrl;
+
+    private ProcessMessageResult mProcessMessageResult;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mMockWebServer = new MockWebServer();
+        mMockWebServer.start();
+        final Context context = RuntimeEnvironment.application;
+        mPrefsFactory = new PrefsFactory(context,
+                context.getSharedPreferences("test", Context.MODE_PRIVATE));
+        mSyncUrl = new SyncUrl();
+        mSyncUrl._id = 1L;
+        mSyncUrl.setUrl(mMockWebServer.getUrl("/sync").toString());
+        when(mMockWebServiceDataSource.get(SyncUrl.Status.ENABLED))
+                .thenReturn(Collections.singletonList(mSyncUrl));
+        mProcessMessageResult = new ProcessMessageResult(context, new AppHttpClient(context),
+                mMockFileManager, mMockWebServiceDataSource, mMockMessageDataSource,
+                mPrefsFactory, new SyncUrlTimeouts());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mMockWebServer.shutdown();
+    }
+
+    @Test
+    public void shouldAnswerRequestedResultFromBeforeTheAckPosition() throws Exception {
+        final Message message = createMessage(1L, "uuid", 1000);
+        // The Sync URL starts at the latest result change, so this result counts as pushed
+        when(mMockMessageDataSource.fetchLastResultChanged()).thenReturn(message);
+        when(mMockMessageDataSource.fetchMessagesByUuids(Collections.singletonList("uuid")))
+                .thenReturn(Collections.singletonList(message));
+        mMockWebServer.enqueue(new MockResponse()
+                .setBody("{\"success\":true,\"message_uuids\":[\"uuid\"]}"));
+        mMockWebServer.enqueue(new MockResponse());
+
+        mProcessMessageResult.processMessageResult();
+
+        assertThat(mPrefsFactory.messageResultsAckId(mSyncUrl._id).get()).isEqualTo(1L);
+        assertThat(mMockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(mMockWebServer.takeRequest().getMethod()).isEqualTo("GET");
+        JSONArray results = takeResults(mMockWebServer.takeRequest());
+        assertThat(results.length()).isEqualTo(1);
+        assertThat(results.getJSONObject(0).getString("uuid")).isEqualTo("uuid");
+    }
+
+    @Test
+    public void shouldUploadRequestedResultsInChunks() throws Exception {
+        final int count = ProcessMessageResult.RESULTS_CHUNK_SIZE + 1;
+        final List<String> uuids = new ArrayList<>(count);
+        final List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uuids.add("uuid-" + i);
+            messages.add(createMessage(i + 1, "uuid-" + i, 1000));
+        }
+        when(mMockMessageDataSource.fetchMessagesByUuids(anyListOf(String.class)))
+                .thenReturn(messages.subList(0, ProcessMessageResult.RESULTS_CHUNK_SIZE),
+                        messages.subList(ProcessMessageResult.RESULTS_CHUNK_SIZE, count));
+        mMockWebServer.enqueue(new MockResponse().setBody("{\"success\":true,\"message_uuids\":"
+                + new JSONArray(uuids) + "}"));
+        mMockWebServer.enqueue(new MockResponse());
+        mMockWebServer.enqueue(new MockResponse());
+
+        mProcessMessageResult.processMessageResult();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(mMockMessageDataSource, times(2)).fetchMessagesByUuids(captor.capture());
+        assertThat(captor.getAllValues().get(0)).isEqualTo(
+                uuids.subList(0, ProcessMessageResult.RESULTS_CHUNK_SIZE));
+        assertThat(captor.getAllValues().get(1)).containsExactly("uuid-500");
+        assertThat(mMockWebServer.getRequestCount()).isEqualTo(3);
+        mMockWebServer.takeRequest();
+        assertThat(takeResults(mMockWebServer.takeRequest()).length())
+                .isEqualTo(ProcessMessageResult.RESULTS_CHUNK_SIZE);
+        JSONArray last = takeResults(mMockWebServer.takeRequest());
+        assertThat(last.length()).isEqualTo(1);
+        assertThat(last.getJSONObject(0).getString("uuid")).isEqualTo("uuid-500");
+    }
+
+    static JSONArray takeResults(RecordedRequest request) throws Exception {
+        assertThat(request.getMethod()).isEqualTo("POST");
+        assertThat(request.getPath()).startsWith("/sync?task=result");
+        return new JSONArray(new JSONObject(request.getBody().readUtf8())
+                .getString("message_result"));
+    }
+
+    static Message createMessage(long id, String uuid, long resultUpdated) {
+        Message message = new Message();
+        message._id = id;
+        message.messageUuid = uuid;
+        message.messageDate = new Date(resultUpdated);
+        message.resultUpdatedDate = new Date(resultUpdated);
+        return message;
+    }
+}
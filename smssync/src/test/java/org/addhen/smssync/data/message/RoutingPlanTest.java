@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.data.entity.Filter;
+import org.addhen.smssync.data.entity.Message;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class RoutingPlanTest {
+
+    private Message mFirst;
+
+    private Message mSecond;
+
+    private Message mBlacklisted;
+
+    private List<Filter> mFilters;
+
+    @Before
+    public void setUp() {
+        mFirst = message("1", "+100", "Water point broken");
+        mSecond = message("2", "+200", "Road closed");
+        mBlacklisted = message("3", "+300", "Spam");
+        mFilters = Arrays.asList(filter("+100", Filter.Status.WHITELIST),
+                filter("+200", Filter.Status.WHITELIST),
+                filter("+300", Filter.Status.BLACKLIST),
+                filter("+400", Filter.Status.BLACKLIST));
+    }
+
+    @Test
+    public void shouldDeliverEachPairOnceWithManyFilters() {
+        RoutingPlan<String> plan = new RoutingPlan.Builder<String>()
+                .setFilters(mFilters, false, true)
+                .addEndpoint("a", null)
+                .addEndpoint("b", null)
+                .build(Arrays.asList(mFirst, mSecond, mBlacklisted));
+
+        assertThat(plan.getMessages("a")).containsExactly(mFirst, mSecond).inOrder();
+        assertThat(plan.getMessages("b")).containsExactly(mFirst, mSecond).inOrder();
+        assertThat(plan.size()).isEqualTo(4);
+        assertThat(plan.isRouted(mBlacklisted)).isFalse();
+    }
+
+    @Test
+    public void shouldPlanDuplicatesOnce() {
+        Message copy = message("1", "+100", "Water point broken");
+        RoutingPlan<String> plan = new RoutingPlan.Builder<String>()
+                .setFilters(mFilters, false, false)
+                .addEndpoint("a", null)
+                .addEndpoint("a", null)
+                .build(Arrays.asList(mFirst, mFirst, copy, mSecond, mSecond));
+
+        assertThat(plan.getEndpoints()).containsExactly("a");
+        assertThat(plan.getMessages()).containsExactly(mFirst, mSecond).inOrder();
+        assertThat(plan.getMessages("a")).containsExactly(mFirst, mSecond).inOrder();
+    }
+
+    @Test
+    public void shouldOnlyDeliverWhitelisted() {
+        Message unknown = message("4", "+500", "Hello");
+        RoutingPlan<String> plan = new RoutingPlan.Builder<String>()
+                .setFilters(mFilters, true, false)
+                .addEndpoint("a", null)
+                .build(Arrays.asList(mFirst, unknown, mBlacklisted));
+
+        assertThat(plan.getMessages("a")).containsExactly(mFirst);
+        assertThat(plan.isRouted(unknown)).isFalse();
+    }
+
+    @Test
+    public void shouldApplyKeywordsPerEndpoint() {
+        RoutingPlan<String> plan = new RoutingPlan.Builder<String>()
+                .setFilters(Collections.<Filter>emptyList(), false, false)
+                .addEndpoint("water", "pump, WATER")
+                .addEndpoint("roads", "^road\\s")
+                .addEndpoint("all", "")
+                .build(Arrays.asList(mFirst, mSecond));
+
+        assertThat(plan.getMessages("water")).containsExactly(mFirst);
+        assertThat(plan.getMessages("roads")).containsExactly(mSecond);
+        assertThat(plan.getMessages("all")).containsExactly(mFirst, mSecond).inOrder();
+        assertThat(plan.isRouted(mFirst, "roads")).isFalse();
+        assertThat(plan.isRouted(mSecond, "roads")).isTrue();
+    }
+
+    @Test
+    public void shouldTrimKeywordsBeforeMatchingThemAsRegex() {
+        RoutingPlan<String> plan = new RoutingPlan.Builder<String>()
+                .addEndpoint("water", " ^water , pump")
+                .addEndpoint("roads", "nothing,  closed$  ")
+                .build(Arrays.asList(mFirst, mSecond));
+
+        assertThat(plan.getMessages("water")).containsExactly(mFirst);
+        assertThat(plan.getMessages("roads")).containsExactly(mSecond);
+    }
+
+    @Test
+    public void shouldTreatInvalidRegexAsText() {
+        Message message = message("5", "+100", "Price is [5");
+        RoutingPlan<String> plan = new RoutingPlan.Builder<String>()
+                .addEndpoint("a", "[5, nothing")
+                .build(Collections.singletonList(message));
+
+        assertThat(plan.getMessages("a")).containsExactly(message);
+    }
+
+    @Test
+    public void shouldPlanLargeBatchLinearly() {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            messages.add(message(String.valueOf(i), "+100", "Message " + i));
+        }
+        // Every message appears twice, like the pending messages being synced over and over
+        List<Message> twice = new ArrayList<>(messages);
+        twice.addAll(messages);
+
+        RoutingPlan<String> plan = new RoutingPlan.Builder<String>()
+                .setFilters(mFilters, true, true)
+                .addEndpoint("a", null)
+                .addEndpoint("b", "message")
+                .build(twice);
+
+        assertThat(plan.size()).isEqualTo(2000);
+        assertThat(plan.getMessages("a")).isEqualTo(messages);
+    }
+
+    private static Message message(String uuid, String from, String body) {
+        Message message = new Message();
+        message.messageUuid = uuid;
+        message.messageFrom = from;
+        message.messageBody = body;
+        message.messageType = Message.Type.PENDING;
+        return message;
+    }
+
+    private static Filter filter(String phoneNumber, Filter.Status status) {
+        Filter filter = new Filter();
+        filter.phoneNumber = phoneNumber;
+        filter.status = status;
+        return filter;
+    }
+}
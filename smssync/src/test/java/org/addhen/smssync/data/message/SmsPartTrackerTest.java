@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.message;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.data.database.SmsPartDatabaseHelper;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.SmsPart;
+import org.addhen.smssync.smslib.model.SmsMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class SmsPartTrackerTest extends BaseRobolectricTestCase {
+
+    @Mock
+    private ScheduledExecutorService mMockExecutor;
+
+    @Mock
+    private ProcessMessageResult mMockProcessMessageResult;
+
+    private SmsPartDatabaseHelper mSmsPartDatabaseHelper;
+
+    private SmsPartTracker mSmsPartTracker;
+
+    private AtomicInteger mWritten;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mSmsPartDatabaseHelper = new SmsPartDatabaseHelper(RuntimeEnvironment.application);
+        mSmsPartTracker = new SmsPartTracker(mSmsPartDatabaseHelper, mMockProcessMessageResult,
+                mMockExecutor);
+        mWritten = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldWriteResultsOfAllPartsInOneBatch() {
+        final Message message = saveMessage("uuid");
+        final long[] partIds = mSmsPartTracker.track(createSms("uuid"), 2, true);
+
+        mSmsPartTracker.onSent(partIds[0], -1, "sent", true, mWritten::incrementAndGet);
+        mSmsPartTracker.onSent(partIds[1], -1, "sent", true, mWritten::incrementAndGet);
+
+        verify(mMockExecutor).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+        assertThat(mWritten.get()).isEqualTo(0);
+        assertThat(loadMessage(message).resultUpdatedDate).isNull();
+
+        mSmsPartTracker.flush();
+
+        assertThat(mWritten.get()).isEqualTo(2);
+        final Message updated = loadMessage(message);
+        assertThat(updated.sentResultCode).isEqualTo(-1);
+        assertThat(updated.sentResultMessage).isEqualTo("sent");
+        assertThat(updated.resultUpdatedDate).isNotNull();
+        assertThat(updated.deliveredDate).isNull();
+        verify(mMockProcessMessageResult).onMessageResultsChanged();
+    }
+
+    @Test
+    public void shouldOnlyUpdateTheMessageOnceEveryPartHasAResult() {
+        final Message message = saveMessage("uuid");
+        final long[] partIds = mSmsPartTracker.track(createSms("uuid"), 2, false);
+
+        mSmsPartTracker.onSent(partIds[0], -1, "sent", true, null);
+        mSmsPartTracker.flush();
+        assertThat(loadMessage(message).resultUpdatedDate).isNull();
+
+        mSmsPartTracker.onSent(partIds[1], 1, "failed", false, null);
+        mSmsPartTracker.flush();
+        final Message updated = loadMessage(message);
+        assertThat(updated.sentResultCode).isEqualTo(1);
+        assertThat(updated.sentResultMessage).isEqualTo("failed");
+    }
+
+    @Test
+    public void shouldOnlyUpdateTheMessageOfTheCorrelationId() {
+        final Message message = saveMessage("uuid");
+        final Message other = saveMessage("other");
+        final long[] partIds = mSmsPartTracker.track(createSms("uuid"), 1, true);
+        mSmsPartTracker.track(createSms("other"), 1, true);
+
+        mSmsPartTracker.onSent(partIds[0], -1, "sent", true, null);
+        mSmsPartTracker.onDelivered(partIds[0], -1, "delivered", true, null);
+        mSmsPartTracker.flush();
+
+        final Message updated = loadMessage(message);
+        assertThat(updated.deliveryResultMessage).isEqualTo("delivered");
+        assertThat(updated.deliveredDate).isNotNull();
+        assertThat(loadMessage(other).resultUpdatedDate).isNull();
+    }
+
+    @Test
+    public void shouldFlushStraightAwayWhenTheBatchIsFull() {
+        for (int i = 0; i < SmsPartTracker.MAX_BATCH; i++) {
+            mSmsPartTracker.onSent(i, -1, "sent", true, null);
+        }
+
+        verify(mMockExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void shouldKeepResultsThatFailedToBeWritten() {
+        final SmsPartDatabaseHelper failing = mock(SmsPartDatabaseHelper.class);
+        doThrow(new IllegalStateException("locked")).doNothing().when(failing)
+                .applyUpdates(anyListOf(SmsPart.Update.class));
+        final SmsPartTracker tracker = new SmsPartTracker(failing, mMockProcessMessageResult,
+                mMockExecutor);
+
+        tracker.onSent(42, -1, "sent", true, mWritten::incrementAndGet);
+        tracker.flush();
+
+        // The broadcast is let go of, the result is written with the next batch
+        assertThat(mWritten.get()).isEqualTo(1);
+        verify(mMockExecutor, times(2))
+                .schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        tracker.flush();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(failing, times(2)).applyUpdates(captor.capture());
+        final List<SmsPart.Update> retried = captor.getAllValues().get(1);
+        assertThat(retried).hasSize(1);
+        assertThat(retried.get(0).partId).isEqualTo(42L);
+        assertThat(mWritten.get()).isEqualTo(1);
+    }
+
+    private Message saveMessage(String uuid) {
+        Message message = new Message();
+        message.messageUuid = uuid;
+        message.messageBody = "Water point broken";
+        message.messageFrom = "+254700000000";
+        message.messageDate = new Date();
+        message.messageType = Message.Type.TASK;
+        message.status = Message.Status.SENT;
+        message._id = cupboard().withDatabase(mSmsPartDatabaseHelper.getWritableDatabase())
+                .put(message);
+        return message;
+    }
+
+    private Message loadMessage(Message message) {
+        return cupboard().withDatabase(mSmsPartDatabaseHelper.getReadableDatabase())
+                .get(Message.class, message._id);
+    }
+
+    private SmsMessage createSms(String uuid) {
+        SmsMessage sms = new SmsMessage();
+        sms.uuid = uuid;
+        sms.phone = "+254700000000";
+        sms.body = "Water point broken";
+        return sms;
+    }
+}
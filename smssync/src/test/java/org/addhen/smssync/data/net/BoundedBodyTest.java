@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assert_;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class BoundedBodyTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void shouldReadBodyWithinCap() throws IOException {
+        BoundedBody body = create("{\"payload\":{}}", 100);
+        assertThat(body.string()).isEqualTo("{\"payload\":{}}");
+        assertThat(body.getByteCount()).isEqualTo(14L);
+        assertThat(body.snippet()).isEqualTo("{\"payload\":{}}");
+    }
+
+    @Test
+    public void shouldRejectBodyPastCap() throws IOException {
+        BoundedBody body = create(repeat('a', 2000), 1000);
+        try {
+            body.string();
+            assert_().fail("The body is larger than the cap");
+        } catch (BoundedBody.TooLargeException e) {
+            assertThat(body.snippet()).hasLength(BoundedBody.SNIPPET_SIZE);
+        }
+    }
+
+    @Test
+    public void shouldOnlyBeReadOnce() throws IOException {
+        BoundedBody body = create("body", 100);
+        body.string();
+        try {
+            body.charStream();
+            assert_().fail("The body was already read");
+        } catch (IllegalStateException e) {
+            assertThat(body.snippet()).isEqualTo("body");
+        }
+    }
+
+    @Test
+    public void shouldCloseOnceReadInFull() throws IOException {
+        final boolean[] closed = new boolean[1];
+        InputStream in = new ByteArrayInputStream("body".getBytes(UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        };
+        new BoundedBody(in, UTF_8, 100).string();
+        assertThat(closed[0]).isTrue();
+    }
+
+    @Test
+    public void shouldKeepSnippetOfPartlyReadBody() throws IOException {
+        BoundedBody body = create(repeat('b', 4000), 10000);
+        Reader reader = body.charStream();
+        reader.read(new char[10]);
+        assertThat(body.snippet()).startsWith("bbbbbbbbbb");
+        assertThat(body.snippet().length()).isAtMost(BoundedBody.SNIPPET_SIZE);
+        body.close();
+    }
+
+    private static BoundedBody create(String content, long maxBytes) {
+        return new BoundedBody(new ByteArrayInputStream(content.getBytes(UTF_8)), UTF_8,
+                maxBytes);
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.SyncScheme;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Date;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MessageHttpClientTest extends BaseRobolectricTestCase {
+
+    @Mock
+    private FileManager mMockFileManager;
+
+    private MockWebServer mMockWebServer;
+
+    private MessageHttpClient mMessageHttpClient;
+
+    private SyncUrl mSyncUrl;
+
+    private Message mMessage;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mMockWebServer = new MockWebServer();
+        mMockWebServer.start();
+        mMessageHttpClient = new MessageHttpClient(RuntimeEnvironment.application,
+                mMockFileManager);
+        mSyncUrl = new SyncUrl();
+        mSyncUrl.setUrl(mMockWebServer.getUrl("/sync").toString());
+        mSyncUrl.setSecret("secret");
+        mSyncUrl.setSyncScheme(new SyncScheme());
+        mMessage = new Message();
+        mMessage.messageUuid = "uuid";
+        mMessage.messageBody = "Water point broken";
+        mMessage.messageFrom = "+254700000000";
+        mMessage.messageDate = new Date();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mMockWebServer.shutdown();
+    }
+
+    @Test
+    public void shouldPostMessage() {
+        mMockWebServer.enqueue(new MockResponse()
+                .setBody("{\"payload\":{\"success\":true,\"error\":null}}"));
+
+        assertThat(post()).isTrue();
+        assertThat(mMessageHttpClient.isUnreachable()).isFalse();
+    }
+
+    @Test
+    public void shouldTreatTruncatedResponseAsInvalid() {
+        mMockWebServer.enqueue(new MockResponse().setBody("{\"payload\":{\"success\":"));
+
+        assertThat(post()).isFalse();
+        assertThat(mMessageHttpClient.isUnreachable()).isFalse();
+        assertThat(mMessageHttpClient.getServerError()).contains("Invalid response");
+    }
+
+    @Test
+    public void shouldTreatOversizedResponseAsTooLarge() {
+        mMessageHttpClient.setMaxBodySize(16);
+        mMockWebServer.enqueue(new MockResponse()
+                .setBody("{\"payload\":{\"success\":true,\"error\":null}}"));
+
+        assertThat(post()).isFalse();
+        assertThat(mMessageHttpClient.isUnreachable()).isFalse();
+        assertThat(mMessageHttpClient.getServerError()).contains("Response too large");
+    }
+
+    private boolean post() {
+        return mMessageHttpClient.postSmsToWebService(mSyncUrl, mMessage, "000000000", "device");
+    }
+}
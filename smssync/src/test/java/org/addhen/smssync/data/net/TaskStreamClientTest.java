@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.net;
+
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.addhen.smssync.data.entity.SmssyncResponse;
+import org.addhen.smssync.data.entity.SyncUrl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assert_;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class TaskStreamClientTest {
+
+    private static final String TASK_JSON = "{\"payload\":{\"task\":\"send\",\"secret\":\"s\","
+            + "\"messages\":[{\"to\":\"000000000\",\"message\":\"hello\",\"uuid\":\"1\"}]}}";
+
+    private MockWebServer mMockWebServer;
+
+    private TaskStreamClient mTaskStreamClient;
+
+    private List<SmssyncResponse> mReceived;
+
+    @Before
+    public void setUp() throws Exception {
+        mMockWebServer = new MockWebServer();
+        mMockWebServer.start();
+        mTaskStreamClient = new TaskStreamClient("SMSSync-Android/test");
+        mReceived = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mMockWebServer.shutdown();
+    }
+
+    @Test
+    public void shouldReceiveTaskFromLongPoll() throws Exception {
+        mMockWebServer.enqueue(new MockResponse().setBody(TASK_JSON));
+
+        int count = mTaskStreamClient.open(taskUrl(), SyncUrl.TaskChannel.LONG_POLL,
+                response -> mReceived.add(response));
+
+        assertThat(count).isEqualTo(1);
+        assertThat(mReceived).hasSize(1);
+        assertThat(mReceived.get(0).getPayload().getTask()).isEqualTo("send");
+        assertThat(mReceived.get(0).getPayload().getMessages()).hasSize(1);
+        RecordedRequest request = mMockWebServer.takeRequest();
+        assertThat(request.getPath())
+                .isEqualTo("/sync?task=send&wait=" + TaskStreamClient.LONG_POLL_WAIT);
+    }
+
+    @Test
+    public void shouldTreatNoContentAsNoTask() throws Exception {
+        mMockWebServer.enqueue(new MockResponse().setResponseCode(204));
+
+        int count = mTaskStreamClient.open(taskUrl(), SyncUrl.TaskChannel.LONG_POLL,
+                response -> mReceived.add(response));
+
+        assertThat(count).isEqualTo(0);
+        assertThat(mReceived).isEmpty();
+    }
+
+    @Test
+    public void shouldReceiveEachServerSentEvent() throws Exception {
+        String stream = ": heartbeat\n\n"
+                + "event: task\n"
+                + "data: " + TASK_JSON + "\n\n"
+                + "data: " + TASK_JSON + "\n\n";
+        mMockWebServer.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(stream));
+
+        int count = mTaskStreamClient.open(taskUrl(), SyncUrl.TaskChannel.SSE,
+                response -> mReceived.add(response));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(mReceived).hasSize(2);
+        RecordedRequest request = mMockWebServer.takeRequest();
+        assertThat(request.getHeader("Accept")).isEqualTo("text/event-stream");
+    }
+
+    @Test
+    public void shouldFailOnServerError() throws Exception {
+        mMockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        try {
+            mTaskStreamClient.open(taskUrl(), SyncUrl.TaskChannel.SSE,
+                    response -> mReceived.add(response));
+            assert_().fail("Should have thrown IOException");
+        } catch (IOException e) {
+            assertThat(mReceived).isEmpty();
+        }
+    }
+
+    private String taskUrl() {
+        return mMockWebServer.getUrl("/sync").toString() + "?task=send";
+    }
+}
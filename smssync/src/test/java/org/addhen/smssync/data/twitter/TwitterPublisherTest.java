@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.twitter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import twitter4j.RateLimitStatus;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class TwitterPublisherTest {
+
+    @Mock
+    private TwitterClient mMockTwitterClient;
+
+    @Mock
+    private ScheduledExecutorService mMockExecutor;
+
+    @Mock
+    private TwitterPublisher.Callback mMockCallback;
+
+    @Mock
+    private Status mMockStatus;
+
+    private TwitterPublisher mTwitterPublisher;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mTwitterPublisher = new TwitterPublisher(mMockTwitterClient, mMockExecutor);
+    }
+
+    @Test
+    public void shouldNotQueueTheSameMessageTwice() {
+        assertThat(mTwitterPublisher.publish("uuid", "text", mMockCallback)).isTrue();
+        assertThat(mTwitterPublisher.publish("uuid", "text", mMockCallback)).isFalse();
+        assertThat(mTwitterPublisher.getPendingCount()).isEqualTo(1);
+        verify(mMockExecutor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void shouldStopQueueingWhenFull() {
+        for (int i = 0; i < TwitterPublisher.MAX_QUEUED; i++) {
+            assertThat(mTwitterPublisher.publish("uuid" + i, "text", mMockCallback)).isTrue();
+        }
+        assertThat(mTwitterPublisher.publish("uuid", "text", mMockCallback)).isFalse();
+        assertThat(mTwitterPublisher.getPendingCount()).isEqualTo(TwitterPublisher.MAX_QUEUED);
+    }
+
+    @Test
+    public void shouldReportPostedUpdates() throws TwitterException {
+        when(mMockTwitterClient.tweet("text")).thenReturn(mMockStatus);
+        mTwitterPublisher.publish("uuid", "text", mMockCallback);
+        mTwitterPublisher.drain();
+
+        verify(mMockCallback).onSuccess(mMockStatus);
+        assertThat(mTwitterPublisher.getPendingCount()).isEqualTo(0);
+        // The update can be queued again once it's done with
+        assertThat(mTwitterPublisher.publish("uuid", "text", mMockCallback)).isTrue();
+    }
+
+    @Test
+    public void shouldReportFailedUpdates() throws TwitterException {
+        final TwitterException exception = mock(TwitterException.class);
+        when(mMockTwitterClient.tweet("text")).thenThrow(exception);
+        mTwitterPublisher.publish("uuid", "text", mMockCallback);
+        mTwitterPublisher.drain();
+
+        verify(mMockCallback).onFailure(exception);
+        verify(mMockCallback, never()).onSuccess(any(Status.class));
+        assertThat(mTwitterPublisher.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldKeepUpdateQueuedUntilRateLimitResets() throws TwitterException {
+        final RateLimitStatus rateLimitStatus = mock(RateLimitStatus.class);
+        when(rateLimitStatus.getSecondsUntilReset()).thenReturn(60);
+        final TwitterException exception = mock(TwitterException.class);
+        when(exception.exceededRateLimitation()).thenReturn(true);
+        when(exception.getRateLimitStatus()).thenReturn(rateLimitStatus);
+        when(mMockTwitterClient.tweet("text")).thenThrow(exception);
+        mTwitterPublisher.publish("uuid", "text", mMockCallback);
+        mTwitterPublisher.drain();
+
+        verify(mMockCallback, never()).onFailure(any(TwitterException.class));
+        assertThat(mTwitterPublisher.getPendingCount()).isEqualTo(1);
+        verify(mMockExecutor).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+        // Still paused, so draining again doesn't call Twitter
+        mTwitterPublisher.drain();
+        verify(mMockTwitterClient, times(1)).tweet("text");
+    }
+}
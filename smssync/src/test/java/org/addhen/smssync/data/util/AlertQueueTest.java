@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class AlertQueueTest {
+
+    private static final long WINDOW = 60000;
+
+    private static final String BATTERY = "BATTERY_LOW";
+
+    private static final String SEND_FAILED = "SMS_SEND_FAILED";
+
+    private AlertQueue mAlertQueue;
+
+    @Before
+    public void setUp() {
+        mAlertQueue = new AlertQueue(new AlertQueue.Policy(WINDOW, 10, 0), 3);
+    }
+
+    @Test
+    public void shouldDropDuplicatesWithinWindow() {
+        assertThat(mAlertQueue.offer(alert(BATTERY, null), 0)).isTrue();
+        assertThat(mAlertQueue.offer(alert(BATTERY, null), WINDOW - 1)).isFalse();
+        assertThat(mAlertQueue.offer(alert(BATTERY, null), WINDOW)).isTrue();
+        assertThat(mAlertQueue.takeDropped()).isEqualTo(1);
+        assertThat(mAlertQueue.takeDropped()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldTellAlertsApartByKey() {
+        assertThat(mAlertQueue.offer(alert(SEND_FAILED, "1"), 0)).isTrue();
+        assertThat(mAlertQueue.offer(alert(SEND_FAILED, "2"), 0)).isTrue();
+        assertThat(mAlertQueue.offer(alert(BATTERY, "1"), 0)).isTrue();
+        assertThat(mAlertQueue.offer(alert(SEND_FAILED, "1"), 0)).isFalse();
+    }
+
+    @Test
+    public void shouldRateLimitEachType() {
+        mAlertQueue.setPolicy(SEND_FAILED, new AlertQueue.Policy(0, 2, WINDOW));
+        assertThat(mAlertQueue.offer(alert(SEND_FAILED, "1"), 0)).isTrue();
+        assertThat(mAlertQueue.offer(alert(SEND_FAILED, "2"), 0)).isTrue();
+        assertThat(mAlertQueue.offer(alert(SEND_FAILED, "3"), 0)).isFalse();
+        assertThat(mAlertQueue.allow(BATTERY, null, 0)).isTrue();
+        assertThat(mAlertQueue.offer(alert(SEND_FAILED, "3"), WINDOW)).isTrue();
+    }
+
+    @Test
+    public void shouldDrainHeldAlertsInOrder() {
+        mAlertQueue.offer(alert(SEND_FAILED, "1"), 0);
+        mAlertQueue.offer(alert(SEND_FAILED, "2"), 0);
+        assertThat(mAlertQueue.allow(BATTERY, null, 0)).isTrue();
+        List<AlertQueue.Alert> alerts = mAlertQueue.drain();
+        assertThat(alerts).hasSize(2);
+        assertThat(alerts.get(0).key).isEqualTo("1");
+        assertThat(alerts.get(1).key).isEqualTo("2");
+        assertThat(mAlertQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldDropOldestWhenFull() {
+        for (int i = 0; i < 4; i++) {
+            mAlertQueue.offer(alert(SEND_FAILED, String.valueOf(i)), 0);
+        }
+        List<AlertQueue.Alert> alerts = mAlertQueue.drain();
+        assertThat(alerts).hasSize(3);
+        assertThat(alerts.get(0).key).isEqualTo("1");
+        assertThat(mAlertQueue.takeDropped()).isEqualTo(1);
+    }
+
+    private AlertQueue.Alert alert(String type, String key) {
+        return new AlertQueue.Alert(type, key, type + " " + key, key);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void shouldOpenWhenHalfTheCallsFail() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess();
+        }
+        breaker.onFailure(0, false);
+        breaker.onFailure(0, false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.onFailure(0, false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest(CircuitBreaker.MIN_OPEN_DURATION - 1)).isFalse();
+    }
+
+    @Test
+    public void shouldOpenAfterConsecutiveTimeouts() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.WINDOW_SIZE; i++) {
+            breaker.onSuccess();
+        }
+        for (int i = 0; i < CircuitBreaker.MAX_CONSECUTIVE_TIMEOUTS; i++) {
+            assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+            breaker.onFailure(0, true);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldLetOneProbeThroughOnceOpenDurationIsUp() {
+        CircuitBreaker breaker = openBreaker();
+        final long retryAt = breaker.getRetryAt();
+        assertThat(breaker.allowRequest(retryAt)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.allowRequest(retryAt)).isFalse();
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest(retryAt)).isTrue();
+    }
+
+    @Test
+    public void shouldLetAnotherProbeThroughWhenProbeIsNotReported() {
+        CircuitBreaker breaker = openBreaker();
+        final long retryAt = breaker.getRetryAt();
+        assertThat(breaker.allowRequest(retryAt)).isTrue();
+        assertThat(breaker.allowRequest(retryAt + CircuitBreaker.PROBE_TIMEOUT - 1)).isFalse();
+        assertThat(breaker.allowRequest(retryAt + CircuitBreaker.PROBE_TIMEOUT)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    public void shouldStayOpenLongerAfterFailedProbe() {
+        CircuitBreaker breaker = openBreaker();
+        final long retryAt = breaker.getRetryAt();
+        breaker.allowRequest(retryAt);
+        breaker.onFailure(retryAt, true);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.getRetryAt()).isEqualTo(retryAt + 2 * CircuitBreaker.MIN_OPEN_DURATION);
+    }
+
+    @Test
+    public void shouldStayClosedUnderOccasionalFailures() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.WINDOW_SIZE / 2 - 1; i++) {
+            breaker.onFailure(0, false);
+            breaker.onSuccess();
+            breaker.onSuccess();
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.MAX_CONSECUTIVE_TIMEOUTS; i++) {
+            breaker.onFailure(0, true);
+        }
+        return breaker;
+    }
+}
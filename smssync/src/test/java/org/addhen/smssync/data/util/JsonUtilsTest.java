@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+import com.google.gson.Gson;
+
+import org.addhen.smssync.data.entity.Message;
+import org.addhen.smssync.data.entity.MessageResult;
+import org.addhen.smssync.data.entity.MessagesUUIDSResponse;
+import org.addhen.smssync.data.entity.QueuedMessages;
+import org.addhen.smssync.data.entity.SmssyncResponse;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Date;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class JsonUtilsTest {
+
+    private static final String TASK_JSON = "{\"payload\":{\"task\":\"send\",\"secret\":\"s\","
+            + "\"unknown\":[1,{\"a\":2}],\"success\":\"true\",\"messages\":[{\"to\":\"000000000\","
+            + "\"message\":\"hello\",\"uuid\":\"1\",\"type\":\"task\",\"retries\":\"2\"}]}}";
+
+    /**
+     * Reflective Gson, which the entity adapters have to match
+     */
+    private final Gson mReflective = new Gson();
+
+    @Test
+    public void shouldReadTaskFromReader() {
+        SmssyncResponse response = JsonUtils.getObj(new StringReader(TASK_JSON),
+                SmssyncResponse.class);
+        assertThat(response.getPayload().getTask()).isEqualTo("send");
+        assertThat(response.getPayload().getSecret()).isEqualTo("s");
+        assertThat(response.getPayload().isSuccess()).isTrue();
+        assertThat(response.getPayload().getMessages()).hasSize(1);
+        Message message = response.getPayload().getMessages().get(0);
+        assertThat(message.messageFrom).isEqualTo("000000000");
+        assertThat(message.messageBody).isEqualTo("hello");
+        assertThat(message.messageType).isEqualTo(Message.Type.TASK);
+        assertThat(message.retries).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldWriteMessageLikeReflectiveGson() {
+        Message message = new Message();
+        message._id = 5L;
+        message.messageBody = "hello";
+        message.messageFrom = "000000000";
+        message.messageDate = new Date(1445000000000L);
+        message.messageUuid = "1";
+        message.messageType = Message.Type.PENDING;
+        message.status = Message.Status.SENT;
+        message.sentResultCode = -1;
+        final String json = JsonUtils.objToJson(message);
+        assertThat(json).isEqualTo(mReflective.toJson(message));
+        assertThat(mReflective.toJson(JsonUtils.getObj(json, Message.class))).isEqualTo(json);
+    }
+
+    @Test
+    public void shouldRoundTripEveryMessageField() {
+        Message message = new Message();
+        message._id = 7L;
+        message.messageBody = "hello";
+        message.messageFrom = "000000000";
+        message.messageDate = new Date(1445000000000L);
+        message.messageUuid = "1";
+        message.messageType = Message.Type.TASK;
+        message.sentResultCode = -1;
+        message.sentResultMessage = "sent";
+        message.deliveryResultCode = 2;
+        message.deliveryResultMessage = "delivered";
+        message.deliveredDate = new Date(1445000001000L);
+        message.resultUpdatedDate = new Date(1445000002000L);
+        message.retries = 3;
+        message.providerId = 42L;
+        message.status = Message.Status.FAILED;
+        final String json = JsonUtils.objToJson(message);
+        assertThat(json).isEqualTo(mReflective.toJson(message));
+
+        Message read = JsonUtils.getObj(json, Message.class);
+        assertThat(read._id).isEqualTo(message._id);
+        assertThat(read.messageBody).isEqualTo(message.messageBody);
+        assertThat(read.messageFrom).isEqualTo(message.messageFrom);
+        assertThat(read.messageDate).isEqualTo(message.messageDate);
+        assertThat(read.messageUuid).isEqualTo(message.messageUuid);
+        assertThat(read.messageType).isEqualTo(message.messageType);
+        assertThat(read.sentResultCode).isEqualTo(message.sentResultCode);
+        assertThat(read.sentResultMessage).isEqualTo(message.sentResultMessage);
+        assertThat(read.deliveryResultCode).isEqualTo(message.deliveryResultCode);
+        assertThat(read.deliveryResultMessage).isEqualTo(message.deliveryResultMessage);
+        assertThat(read.deliveredDate).isEqualTo(message.deliveredDate);
+        assertThat(read.resultUpdatedDate).isEqualTo(message.resultUpdatedDate);
+        assertThat(read.retries).isEqualTo(message.retries);
+        assertThat(read.providerId).isEqualTo(message.providerId);
+        assertThat(read.status).isEqualTo(message.status);
+    }
+
+    @Test
+    public void shouldWriteMessageResultLikeReflectiveGson() {
+        MessageResult result = new MessageResult("1", 0, "sent", -1, null, new Date(1000L),
+                null);
+        assertThat(JsonUtils.objToJson(result)).isEqualTo(mReflective.toJson(result));
+    }
+
+    @Test
+    public void shouldReadMessageUuids() {
+        MessagesUUIDSResponse response = JsonUtils.getObj(
+                "{\"success\":true,\"message_uuids\":[\"1\",\"2\"]}", MessagesUUIDSResponse.class);
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getUuids()).containsExactly("1", "2").inOrder();
+    }
+
+    @Test
+    public void shouldWriteQueuedMessagesLikeReflectiveGson() {
+        QueuedMessages queued = new QueuedMessages();
+        queued.getQueuedMessages().add("1");
+        queued.getQueuedMessages().add("2");
+        final String json = JsonUtils.objToJson(queued);
+        assertThat(json).isEqualTo(mReflective.toJson(queued));
+        assertThat(JsonUtils.getObj(json, QueuedMessages.class).getQueuedMessages())
+                .containsExactly("1", "2").inOrder();
+    }
+}
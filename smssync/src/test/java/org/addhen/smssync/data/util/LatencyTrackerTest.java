@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class LatencyTrackerTest {
+
+    @Test
+    public void shouldNotGivePercentileWithTooFewSamples() {
+        LatencyTracker latencyTracker = new LatencyTracker();
+        for (int i = 1; i < LatencyTracker.MIN_SAMPLES; i++) {
+            latencyTracker.record(i);
+        }
+        assertThat(latencyTracker.getPercentile(95)).isEqualTo(-1L);
+    }
+
+    @Test
+    public void shouldGiveNearestRankPercentile() {
+        LatencyTracker latencyTracker = new LatencyTracker();
+        for (int i = 100; i >= 1; i--) {
+            latencyTracker.record(i);
+        }
+        assertThat(latencyTracker.getPercentile(95)).isEqualTo(95L);
+        assertThat(latencyTracker.getPercentile(50)).isEqualTo(50L);
+        assertThat(latencyTracker.getPercentile(100)).isEqualTo(100L);
+    }
+
+    @Test
+    public void shouldOnlyKeepRecentLatencies() {
+        LatencyTracker latencyTracker = new LatencyTracker();
+        for (int i = 0; i < LatencyTracker.WINDOW_SIZE; i++) {
+            latencyTracker.record(5000);
+        }
+        for (int i = 0; i < LatencyTracker.WINDOW_SIZE; i++) {
+            latencyTracker.record(100);
+        }
+        assertThat(latencyTracker.getPercentile(95)).isEqualTo(100L);
+    }
+}
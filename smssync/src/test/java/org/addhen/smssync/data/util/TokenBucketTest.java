@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.data.util;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class TokenBucketTest {
+
+    private static final long INTERVAL = 1000;
+
+    @Test
+    public void shouldAllowBurstUpToCapacity() {
+        TokenBucket tokenBucket = new TokenBucket(3, INTERVAL, 0);
+        assertThat(tokenBucket.tryConsume(0)).isTrue();
+        assertThat(tokenBucket.tryConsume(0)).isTrue();
+        assertThat(tokenBucket.tryConsume(0)).isTrue();
+        assertThat(tokenBucket.tryConsume(0)).isFalse();
+        assertThat(tokenBucket.millisUntilAvailable(0)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    public void shouldRefillOneTokenPerInterval() {
+        TokenBucket tokenBucket = new TokenBucket(2, INTERVAL, 0, 0);
+        assertThat(tokenBucket.tryConsume(INTERVAL / 2)).isFalse();
+        assertThat(tokenBucket.millisUntilAvailable(INTERVAL / 2)).isEqualTo(INTERVAL / 2);
+        assertThat(tokenBucket.tryConsume(INTERVAL)).isTrue();
+        assertThat(tokenBucket.tryConsume(INTERVAL)).isFalse();
+    }
+
+    @Test
+    public void shouldNotRefillPastCapacity() {
+        TokenBucket tokenBucket = new TokenBucket(2, INTERVAL, 0, 0);
+        tokenBucket.tryConsume(100 * INTERVAL);
+        assertThat(tokenBucket.getTokens()).isEqualTo(1d);
+    }
+
+    @Test
+    public void shouldRestoreSavedState() {
+        TokenBucket tokenBucket = new TokenBucket(5, INTERVAL, 0);
+        tokenBucket.tryConsume(0);
+        tokenBucket.tryConsume(0);
+        TokenBucket restored = new TokenBucket(5, INTERVAL, tokenBucket.getTokens(),
+                tokenBucket.getLastRefill());
+        assertThat(restored.getTokens()).isEqualTo(3d);
+    }
+
+    @Test
+    public void shouldNotLimitWithoutInterval() {
+        TokenBucket tokenBucket = new TokenBucket(1, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            assertThat(tokenBucket.tryConsume(0)).isTrue();
+        }
+        assertThat(tokenBucket.millisUntilAvailable(0)).isEqualTo(0);
+    }
+}
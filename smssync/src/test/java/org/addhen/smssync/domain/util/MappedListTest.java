@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.domain.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class MappedListTest {
+
+    private int mMapCount;
+
+    private List<Integer> mSource;
+
+    @Before
+    public void setUp() {
+        mMapCount = 0;
+        mSource = Arrays.asList(1, 2, 3);
+    }
+
+    @Test
+    public void shouldMapItemsOnlyWhenRead() {
+        List<String> mapped = new MappedList<Integer, String>(mSource, this::toText);
+        assertThat(mapped.size()).isEqualTo(3);
+        assertThat(mMapCount).isEqualTo(0);
+        assertThat(mapped.get(1)).isEqualTo("2");
+        assertThat(mMapCount).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepMappedItems() {
+        List<String> mapped = new MappedList<Integer, String>(mSource, this::toText);
+        String first = mapped.get(0);
+        assertThat(mapped.get(0)).isSameAs(first);
+        assertThat(mMapCount).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldMapStraightFromOriginalItems() {
+        List<String> text = new MappedList<Integer, String>(mSource, this::toText);
+        List<Integer> lengths = new MappedList<String, Integer>(text, String::length);
+        assertThat(lengths).containsExactly(1, 1, 1).inOrder();
+        assertThat(mMapCount).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldAddAndRemoveItems() {
+        List<String> mapped = new MappedList<Integer, String>(mSource, this::toText);
+        mapped.remove(0);
+        mapped.add(0, "one");
+        mapped.set(1, "two");
+        assertThat(mapped).containsExactly("one", "two", "3").inOrder();
+        assertThat(mSource).containsExactly(1, 2, 3).inOrder();
+    }
+
+    private String toText(Integer number) {
+        mMapCount++;
+        return String.valueOf(number);
+    }
+}
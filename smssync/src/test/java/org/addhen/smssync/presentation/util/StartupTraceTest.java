@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.util;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class StartupTraceTest {
+
+    @Test
+    public void shouldReportStepsFromProcessStart() {
+        StartupTrace trace = new StartupTrace(1000);
+        trace.mark("app", 1040);
+        trace.mark("receiver", 1055);
+        trace.mark("app", 1070);
+        assertThat(trace.finish("handle", 1130)).isEqualTo(
+                "Cold start to handle in 130ms: app at 40ms, receiver at 55ms, handle at 130ms");
+    }
+
+    @Test
+    public void shouldReportOnlyOnce() {
+        StartupTrace trace = new StartupTrace(0);
+        assertThat(trace.finish("handle", 10)).isNotNull();
+        assertThat(trace.finish("handle", 20)).isNull();
+    }
+
+    @Test
+    public void shouldNotReportWarmStart() {
+        StartupTrace trace = new StartupTrace(0);
+        trace.mark("app", 40);
+        assertThat(trace.finish("handle", StartupTrace.MAX_COLD_START + 1)).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.util;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class SyncIntervalPolicyTest {
+
+    private static final long BASE = 20 * 60 * 1000;
+
+    private static final int FULL_BATTERY = 100;
+
+    private final SyncIntervalPolicy mPolicy = new SyncIntervalPolicy(BASE);
+
+    @Test
+    public void shouldKeepIntervalUnderLightLoad() {
+        assertThat(mPolicy.next(10, 0, FULL_BATTERY, false, false).interval).isEqualTo(BASE);
+    }
+
+    @Test
+    public void shouldShortenIntervalAsLoadGrows() {
+        assertThat(mPolicy.next(SyncIntervalPolicy.BUSY_LOAD, 0, FULL_BATTERY, false, false)
+                .interval).isEqualTo(BASE / 2);
+        assertThat(mPolicy.next(SyncIntervalPolicy.HEAVY_LOAD, 0, FULL_BATTERY, false, false)
+                .interval).isEqualTo(BASE / 4);
+    }
+
+    @Test
+    public void shouldBackOffWhileIdle() {
+        assertThat(mPolicy.next(0, 1, FULL_BATTERY, false, false).interval).isEqualTo(BASE * 2);
+        assertThat(mPolicy.next(0, 2, FULL_BATTERY, false, false).interval).isEqualTo(BASE * 4);
+        assertThat(mPolicy.next(0, 10, FULL_BATTERY, false, false).interval)
+                .isEqualTo(BASE * SyncIntervalPolicy.MAX_BACKOFF);
+    }
+
+    @Test
+    public void shouldNotShortenBelowHalfOnMeteredNetwork() {
+        assertThat(mPolicy.next(SyncIntervalPolicy.HEAVY_LOAD, 0, FULL_BATTERY, false, true)
+                .interval).isEqualTo(BASE / 2);
+    }
+
+    @Test
+    public void shouldNotShortenOnHalfEmptyBattery() {
+        assertThat(mPolicy.next(SyncIntervalPolicy.HEAVY_LOAD, 0, 40, false, false).interval)
+                .isEqualTo(BASE);
+        assertThat(mPolicy.next(SyncIntervalPolicy.HEAVY_LOAD, 0, 40, true, false).interval)
+                .isEqualTo(BASE / 4);
+    }
+
+    @Test
+    public void shouldBackOffOnLowBattery() {
+        assertThat(mPolicy.next(10, 0, 15, false, false).interval).isEqualTo(BASE * 4);
+    }
+
+    @Test
+    public void shouldNotGoUnderMinimumInterval() {
+        SyncIntervalPolicy policy = new SyncIntervalPolicy(2 * 60 * 1000);
+        assertThat(policy.next(SyncIntervalPolicy.HEAVY_LOAD, 0, FULL_BATTERY, false, false)
+                .interval).isEqualTo(SyncIntervalPolicy.MIN_INTERVAL);
+    }
+}
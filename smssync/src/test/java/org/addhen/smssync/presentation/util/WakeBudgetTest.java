@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.util;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class WakeBudgetTest {
+
+    @Test
+    public void shouldMergeOverlappingHoldsIntoOneWindow() {
+        WakeBudget budget = new WakeBudget();
+        assertThat(budget.acquire("sms", true, 0)).isTrue();
+        assertThat(budget.acquire("sync", true, 100)).isFalse();
+        assertThat(budget.release("sms", 300)).isFalse();
+        assertThat(budget.release("sync", 500)).isTrue();
+        assertThat(budget.isAwake()).isFalse();
+        assertThat(budget.getWindows()).isEqualTo(1);
+        assertThat(budget.getAwakeTime(1000)).isEqualTo(500);
+    }
+
+    @Test
+    public void shouldCountTimeHeldOncePerComponent() {
+        WakeBudget budget = new WakeBudget();
+        budget.acquire("sms", true, 0);
+        budget.acquire("sms", true, 100);
+        budget.release("sms", 200);
+        budget.release("sms", 400);
+        budget.acquire("sms", true, 1000);
+        budget.release("sms", 1100);
+        WakeBudget.Usage usage = budget.getUsage("sms");
+        assertThat(usage.holds).isEqualTo(3);
+        assertThat(usage.heldTime).isEqualTo(500);
+        assertThat(usage.longest).isEqualTo(400);
+        assertThat(budget.getWindows()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldDropHoldsPastSafetyTimeout() {
+        WakeBudget budget = new WakeBudget();
+        budget.acquire("stuck", true, 0);
+        budget.acquire("archive", false, 1000);
+        assertThat(budget.getNextExpiry()).isEqualTo(WakeBudget.SAFETY_TIMEOUT);
+        assertThat(budget.expire(WakeBudget.SAFETY_TIMEOUT - 1)).isEmpty();
+
+        assertThat(budget.expire(WakeBudget.SAFETY_TIMEOUT)).containsExactly("stuck");
+        assertThat(budget.isAwake()).isTrue();
+        assertThat(budget.needsNetwork()).isFalse();
+        assertThat(budget.getUsage("stuck").timeouts).isEqualTo(1);
+
+        assertThat(budget.expire(WakeBudget.SAFETY_TIMEOUT + 1000)).containsExactly("archive");
+        assertThat(budget.isAwake()).isFalse();
+        assertThat(budget.getNextExpiry()).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldIgnoreReleaseAfterTimeout() {
+        WakeBudget budget = new WakeBudget();
+        budget.acquire("stuck", true, 0);
+        budget.expire(WakeBudget.SAFETY_TIMEOUT);
+        assertThat(budget.release("stuck", WakeBudget.SAFETY_TIMEOUT + 1)).isFalse();
+        assertThat(budget.getUsage("stuck").heldTime).isEqualTo(WakeBudget.SAFETY_TIMEOUT);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.presentation.view.ui.adapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class ListDiffTest {
+
+    /**
+     * Items are "id:content" strings
+     */
+    private static final ListDiff.ItemCallback<String> CALLBACK
+            = new ListDiff.ItemCallback<String>() {
+        @Override
+        public long getId(String item) {
+            return Long.parseLong(item.split(":")[0]);
+        }
+
+        @Override
+        public boolean isSameContent(String oldItem, String newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    @Test
+    public void shouldReportInsertedItemsAsOneRange() {
+        List<String> updates = diff(Arrays.asList("3:c", "4:d"),
+                Arrays.asList("1:a", "2:b", "3:c", "4:d"));
+        assertThat(updates).containsExactly("inserted 0 2");
+    }
+
+    @Test
+    public void shouldReportRemovalsFromTheEnd() {
+        List<String> updates = diff(Arrays.asList("1:a", "2:b", "3:c", "4:d", "5:e"),
+                Arrays.asList("1:a", "4:d"));
+        assertThat(updates).containsExactly("removed 4 1", "removed 1 2").inOrder();
+    }
+
+    @Test
+    public void shouldReportChangedContent() {
+        List<String> updates = diff(Arrays.asList("1:a", "2:b", "3:c"),
+                Arrays.asList("0:z", "1:a", "2:B", "3:C"));
+        assertThat(updates).containsExactly("inserted 0 1", "changed 2 2").inOrder();
+    }
+
+    @Test
+    public void shouldMarkMovedItemsAsReordered() {
+        ListDiff<String> diff = ListDiff.calculate(Arrays.asList("1:a", "2:b"),
+                Arrays.asList("2:b", "1:a"), CALLBACK);
+        assertThat(diff.isReordered()).isTrue();
+    }
+
+    @Test
+    public void shouldBeEmptyForSameItems() {
+        ListDiff<String> diff = ListDiff.calculate(Arrays.asList("1:a", "2:b"),
+                Arrays.asList("1:a", "2:b"), CALLBACK);
+        assertThat(diff.isEmpty()).isTrue();
+    }
+
+    private List<String> diff(List<String> oldItems, List<String> newItems) {
+        final List<String> updates = new ArrayList<>();
+        ListDiff.calculate(oldItems, newItems, CALLBACK).dispatchTo(
+                new ListDiff.UpdateListener() {
+                    @Override
+                    public void onInserted(int position, int count) {
+                        updates.add("inserted " + position + " " + count);
+                    }
+
+                    @Override
+                    public void onRemoved(int position, int count) {
+                        updates.add("removed " + position + " " + count);
+                    }
+
+                    @Override
+                    public void onChanged(int position, int count) {
+                        updates.add("changed " + position + " " + count);
+                    }
+                });
+        return updates;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2010 - 2015 Ushahidi Inc
+ * All rights reserved
+ * Contact: team@ushahidi.com
+ * Website: http://www.ushahidi.com
+ * GNU Lesser General Public License Usage
+ * This file may be used under the terms of the GNU Lesser
+ * General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.LGPL included in the
+ * packaging of this file. Please review the following information to
+ * ensure the GNU Lesser General Public License version 3 requirements
+ * will be met: http://www.gnu.org/licenses/lgpl.html.
+ *
+ * If you have questions regarding the use of this file, please contact
+ * Ushahidi developers at team@ushahidi.com.
+ */
+
+package org.addhen.smssync.smslib.sms;
+
+import org.addhen.smssync.BaseRobolectricTestCase;
+import org.addhen.smssync.smslib.model.SmsMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+
+import android.content.ContentProviderOperation;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * @author Ushahidi Team <team@ushahidi.com>
+ */
+public class SmsInboxDeleterTest extends BaseRobolectricTestCase {
+
+    @Mock
+    private ScheduledExecutorService mMockExecutor;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void shouldRestoreDeletesThatWereNotApplied() {
+        SmsInboxDeleter deleter = newDeleter();
+        deleter.delete(createMessage(42));
+        deleter.delete(createMessage(43));
+
+        SmsInboxDeleter restored = newDeleter();
+        restored.restore();
+        assertThat(restored.getPendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldDeleteByProviderIdAndForgetAppliedDeletes() {
+        SmsInboxDeleter deleter = newDeleter();
+        deleter.delete(createMessage(42));
+        deleter.flush();
+
+        List<ContentProviderOperation> operations = Shadows
+                .shadowOf(RuntimeEnvironment.application.getContentResolver())
+                .getContentProviderOperations("sms");
+        assertThat(operations).hasSize(1);
+        assertThat(operations.get(0).getUri().getLastPathSegment()).isEqualTo("42");
+
+        SmsInboxDeleter restored = newDeleter();
+        restored.restore();
+        assertThat(restored.getPendingCount()).isEqualTo(0);
+    }
+
+    private SmsInboxDeleter newDeleter() {
+        return new SmsInboxDeleter(RuntimeEnvironment.application, mMockExecutor);
+    }
+
+    private static SmsMessage createMessage(long providerId) {
+        SmsMessage message = new SmsMessage();
+        message.uuid = "uuid-" + providerId;
+        message.phone = "+254700000000";
+        message.body = "Message " + providerId;
+        message.timestamp = 1445000000000L;
+        message.providerId = providerId;
+        return message;
+    }
+}
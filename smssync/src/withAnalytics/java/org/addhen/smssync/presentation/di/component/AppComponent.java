@@ -22,8 +22,13 @@ import com.addhen.android.raiburari.presentation.di.module.ApplicationModule;
 
 import org.addhen.smssync.data.PrefsFactory;
 import org.addhen.smssync.data.cache.FileManager;
+import org.addhen.smssync.data.message.MessageArchiver;
+import org.addhen.smssync.data.message.MessagePipeline;
+import org.addhen.smssync.data.message.OutboxQueue;
 import org.addhen.smssync.data.message.PostMessage;
 import org.addhen.smssync.data.message.ProcessMessageResult;
+import org.addhen.smssync.data.message.SmsPartTracker;
+import org.addhen.smssync.data.message.TaskChannelManager;
 import org.addhen.smssync.data.message.TweetMessage;
 import org.addhen.smssync.data.net.AppHttpClient;
 import org.addhen.smssync.data.net.MessageHttpClient;
@@ -37,6 +42,8 @@ import org.addhen.smssync.presentation.di.module.AppModule;
 import org.addhen.smssync.presentation.di.module.WithAnalyticsAppModule;
 import org.addhen.smssync.presentation.presenter.AlertPresenter;
 import org.addhen.smssync.presentation.presenter.DebugPresenter;
+import org.addhen.smssync.presentation.service.AdaptiveScheduler;
+import org.addhen.smssync.presentation.service.WakeLockManager;
 
 import javax.inject.Singleton;
 
@@ -71,8 +78,22 @@ public interface AppComponent extends ApplicationComponent {
 
     PostMessage processMessage();
 
+    MessagePipeline messagePipeline();
+
     TweetMessage tweetMessage();
 
+    TaskChannelManager taskChannelManager();
+
+    OutboxQueue outboxQueue();
+
+    MessageArchiver messageArchiver();
+
+    AdaptiveScheduler adaptiveScheduler();
+
+    WakeLockManager wakeLockManager();
+
+    SmsPartTracker smsPartTracker();
+
     DebugPresenter debugPresenter();
 
     AlertPresenter alertPresenter();